@@ -0,0 +1,24 @@
+#!/usr/bin/env sh
+# Startup-optimised launcher for short queries.
+# Uses the class-data-sharing archive built by `mvn -Pfast-startup package` (or creates it on the first run)
+# and the programmatic logging setup that only opens the log file when an event passes the level. The level defaults
+# to WARN so a successful query, which only logs at INFO, never opens it; set COOKIE_ANALYSER_LOG_LEVEL to lower it.
+# C1-only compilation favours startup over peak throughput; override it through COOKIE_ANALYSER_JAVA_OPTS for big scans.
+set -e
+
+PROJECT_DIR=$(cd "$(dirname "$0")/.." && pwd)
+JAR=${COOKIE_ANALYSER_JAR:-$PROJECT_DIR/target/CookieAnalyser-jar-with-dependencies.jar}
+ARCHIVE=${COOKIE_ANALYSER_CDS_ARCHIVE:-$PROJECT_DIR/target/CookieAnalyser.jsa}
+LOG_LEVEL=${COOKIE_ANALYSER_LOG_LEVEL:-WARN}
+JAVA_OPTS=${COOKIE_ANALYSER_JAVA_OPTS:--XX:TieredStopAtLevel=1}
+
+if [ -f "$ARCHIVE" ]; then
+    CDS_OPTION="-XX:SharedArchiveFile=$ARCHIVE"
+else
+    CDS_OPTION="-XX:ArchiveClassesAtExit=$ARCHIVE"
+fi
+
+# shellcheck disable=SC2086
+exec java $JAVA_OPTS "$CDS_OPTION" -Xshare:auto -Xlog:cds=off -Xlog:cds+dynamic=off \
+    -Dcookieanalyser.fastStartup=true -Dcookieanalyser.logLevel="$LOG_LEVEL" \
+    -jar "$JAR" "$@"
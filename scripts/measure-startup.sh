@@ -0,0 +1,31 @@
+#!/usr/bin/env sh
+# Measures the median wall time of the fast launcher on the integration fixture and fails when it exceeds the budget.
+# Usage: scripts/measure-startup.sh [runs] [budget_ms]
+set -e
+
+PROJECT_DIR=$(cd "$(dirname "$0")/.." && pwd)
+RUNS=${1:-9}
+BUDGET_MS=${2:-400}
+FIXTURE=$PROJECT_DIR/src/test/resources/integrationTest/happyPathInput.csv
+
+# First run creates the archive when the fast-startup profile has not been built
+"$PROJECT_DIR/scripts/cookie-analyser-fast.sh" -f "$FIXTURE" -d 2018-12-09 > /dev/null
+
+TIMINGS=""
+i=0
+while [ "$i" -lt "$RUNS" ]; do
+    START=$(date +%s%N)
+    "$PROJECT_DIR/scripts/cookie-analyser-fast.sh" -f "$FIXTURE" -d 2018-12-09 > /dev/null
+    END=$(date +%s%N)
+    TIMINGS="$TIMINGS $(( (END - START) / 1000000 ))"
+    i=$((i + 1))
+done
+
+MEDIAN=$(echo "$TIMINGS" | tr ' ' '\n' | sed '/^$/d' | sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }')
+echo "Startup timings (ms):$TIMINGS"
+echo "Median: ${MEDIAN}ms, budget: ${BUDGET_MS}ms"
+
+if [ "$MEDIAN" -gt "$BUDGET_MS" ]; then
+    echo "Startup budget exceeded" >&2
+    exit 1
+fi
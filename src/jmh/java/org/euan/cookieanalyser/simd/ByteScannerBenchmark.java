@@ -0,0 +1,87 @@
+package org.euan.cookieanalyser.simd;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ByteScannerBenchmark {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final byte[] TARGET_DATE = "2018-12-09".getBytes(StandardCharsets.US_ASCII);
+
+    @Param({"scalar", "vector"})
+    private String implementation;
+
+    private ByteScanner scanner;
+    private byte[] buffer;
+    private final int[] newlines = new int[4096];
+
+    @Setup
+    public void setUp() throws Exception {
+        scanner = implementation.equals("vector")
+                ? (ByteScanner) Class.forName("org.euan.cookieanalyser.simd.VectorByteScanner").getDeclaredConstructor().newInstance()
+                : new ScalarByteScanner();
+
+        Random random = new Random(42);
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(BUFFER_BYTES + 64);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+        while (lines.size() < BUFFER_BYTES) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                line.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            line.append(",2018-12-0").append(1 + random.nextInt(9)).append("T14:19:00+00:00\n");
+            lines.writeBytes(line.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+        buffer = lines.toByteArray();
+    }
+
+    @Benchmark
+    public int findNewlines() {
+        int lines = 0;
+        int from = 0;
+        int found;
+        while ((found = scanner.findAll(buffer, from, buffer.length, (byte) '\n', newlines)) > 0) {
+            lines += found;
+            from = newlines[found - 1] + 1;
+        }
+        return lines;
+    }
+
+    @Benchmark
+    public int scanLinesForDate() {
+        int matches = 0;
+        int cursor = 0;
+        int found;
+        while ((found = scanner.findAll(buffer, cursor, buffer.length, (byte) '\n', newlines)) > 0) {
+            for (int n = 0; n < found; n++) {
+                int newline = newlines[n];
+                int comma = scanner.indexOf(buffer, cursor, newline, (byte) ',');
+                if (comma >= 0 && scanner.regionEquals(buffer, comma + 1, TARGET_DATE, TARGET_DATE.length)) {
+                    matches++;
+                }
+                cursor = newline + 1;
+            }
+        }
+        return matches;
+    }
+}
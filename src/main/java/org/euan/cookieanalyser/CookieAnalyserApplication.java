@@ -2,41 +2,113 @@ package org.euan.cookieanalyser;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.euan.cookieanalyser.dictionary.CookieDictionary;
+import org.euan.cookieanalyser.exceptions.NoLogsFoundException;
+import org.euan.cookieanalyser.index.CookieLogIndex;
+import org.euan.cookieanalyser.index.CookieLogIndexer;
+import org.euan.cookieanalyser.index.CookieLookup;
+import org.euan.cookieanalyser.index.CookiePostingsIndex;
+import org.euan.cookieanalyser.index.CookiePostingsIndexer;
+import org.euan.cookieanalyser.index.DayStats;
+import org.euan.cookieanalyser.jfr.PipelineRecording;
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.models.CookieIdMetrics.Metric;
+import org.euan.cookieanalyser.models.ExecutionPlan;
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
+import org.euan.cookieanalyser.models.QueryOptions;
+import org.euan.cookieanalyser.rollup.CookieRollup;
+import org.euan.cookieanalyser.rollup.CookieRollupIngester;
+import org.euan.cookieanalyser.services.CookieFilter;
 import org.euan.cookieanalyser.services.CookieLogAnalyser;
+import org.euan.cookieanalyser.services.CookieLogParser;
+import org.euan.cookieanalyser.services.CookieLogScanner;
+import org.euan.cookieanalyser.services.CookieLogValidator;
+import org.euan.cookieanalyser.services.QueryPlanner;
+import org.euan.cookieanalyser.services.SlidingWindowAnalyser;
+import org.euan.cookieanalyser.services.SortedLogMerger;
+import org.euan.cookieanalyser.sharding.ShardCoordinator;
+import org.euan.cookieanalyser.sharding.ShardWorker;
+import org.euan.cookieanalyser.sketches.HyperLogLog;
+import org.euan.cookieanalyser.streaming.CookieStreamAnalyser;
 import org.euan.cookieanalyser.utils.DateUtils;
 import org.euan.cookieanalyser.utils.FileUtils;
+import org.euan.cookieanalyser.utils.ReadAheadInputStream;
+import org.euan.cookieanalyser.watch.SpoolWatcher;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import static org.euan.cookieanalyser.logging.LoggingEvents.EMPTY_ANALYSIS_RESULT;
+import static org.euan.cookieanalyser.logging.LoggingEvents.UNEXPECTED_ERROR;
 
 public class CookieAnalyserApplication {
 
-    private static final Logger LOGGER;
-
     static {
         System.setProperty("slf4j.internal.verbosity", "WARN");
-        LOGGER = LoggerFactory.getLogger(CookieAnalyserApplication.class);
     }
 
+    // Holder keeps SLF4J and Logback uninitialised until the application actually logs something
+    private static final class LoggerHolder {
+        private static final Logger LOGGER = LoggerFactory.getLogger(CookieAnalyserApplication.class);
+    }
+
+    private static final String STDIN = "-";
+    // Reads from a pipe are only as large as the pipe buffer, but large requests avoid a copy through System.in's buffer
+    private static final int STDIN_CHUNK_SIZE = 1 << 20;
+
+    private static final Set<String> FLAGS = Set.of("--distinct", "--explain", "--dedupe", "--resume", "--rollup",
+            "--validate", "--jfr", "--sorted");
+
     public static void main(String[] args) {
         HashMap<String, String> arguments = parseArguments(args);
 
-        if (arguments.size() >= 2) {
+        if (arguments.containsKey("--worker")) {
+            runWorker(arguments.get("--worker"));
+        } else if (arguments.size() >= 2) {
             CookieAnalyserApplication app = new CookieAnalyserApplication();
-            app.run(arguments);
+            if (arguments.containsKey("--jfr")) {
+                runRecorded(app, arguments);
+            } else {
+                app.run(arguments);
+            }
         } else {
             System.err.println("Less than 2 arguments provided: expected input format -f <file_path> -d <date>");
         }
     }
 
+    private static void runRecorded(CookieAnalyserApplication app, HashMap<String, String> arguments) {
+        PipelineRecording recording;
+        try {
+            recording = PipelineRecording.start(PipelineRecording.DEFAULT_DESTINATION);
+        } catch (IOException | IllegalStateException ex) {
+            System.err.println("Unable to start flight recording: " + ex.getMessage());
+            app.run(arguments);
+            return;
+        }
+        try (recording) {
+            app.run(arguments);
+        }
+        System.err.println("Flight recording written to " + recording.getDestination().toAbsolutePath());
+    }
+
     public static HashMap<String, String> parseArguments(String[] args) {
         HashMap<String, String> arguments = new HashMap<>();
         for (int i = 0; i < args.length; i++) {
-            if (args[i].startsWith("-") && i+1 < args.length) {
+            if (FLAGS.contains(args[i])) {
+                arguments.put(args[i], "true");
+            } else if (args[i].startsWith("-") && i+1 < args.length) {
                 arguments.put(args[i], args[i+1]);
                 i++;
             }
@@ -45,13 +117,63 @@ public class CookieAnalyserApplication {
     }
 
     public void run(HashMap<String, String> arguments) {
+        if (arguments.containsKey("--watch")) {
+            runWatch(arguments);
+            return;
+        }
+
+        if (arguments.containsKey("-f") && arguments.containsKey("--window")) {
+            runWindow(arguments);
+            return;
+        }
+
+        if (arguments.containsKey("-f") && arguments.containsKey("--validate")) {
+            runValidate(arguments);
+            return;
+        }
+
+        if (arguments.containsKey("-f") && arguments.containsKey("--distinct")) {
+            runDistinct(arguments);
+            return;
+        }
+
+        if (arguments.containsKey("-f") && arguments.containsKey("--cookie") && !arguments.containsKey("-d")) {
+            runCookieTimeline(arguments);
+            return;
+        }
+
         if (!arguments.containsKey("-f") || !arguments.containsKey("-d")) {
             System.err.println("Missing required arguments: -f <file_path> and -d <date>");
             return;
         }
 
+        if (arguments.containsKey("--cookie")) {
+            runCookieLookup(arguments);
+            return;
+        }
+
+        if (arguments.containsKey("--zone") && (STDIN.equals(arguments.get("-f")) || arguments.get("-f").contains(","))) {
+            System.err.println("Invalid arguments: --zone needs a single log file");
+            return;
+        }
+
+        if (arguments.containsKey("--metrics") && (STDIN.equals(arguments.get("-f")) || arguments.get("-f").contains(","))) {
+            System.err.println("Invalid arguments: --metrics needs a single log file");
+            return;
+        }
+
+        if (STDIN.equals(arguments.get("-f"))) {
+            runStdin(arguments);
+            return;
+        }
+
+        if (arguments.get("-f").contains(",")) {
+            runMerged(arguments);
+            return;
+        }
+
         FileUtils fileUtils = new FileUtils(arguments.get("-f"));
-        if (!fileUtils.checkFileValid()) {
+        if (!fileUtils.checkFileValid(arguments.containsKey("--zone"))) {
             System.err.println("Invalid file " + arguments.get("-f"));
             return;
         }
@@ -63,14 +185,480 @@ public class CookieAnalyserApplication {
         }
 
         LocalDate userInputDate = optionalUserInputDate.get();
-        CookieLogAnalyser cookieAnalyser = new CookieLogAnalyser(fileUtils);
-        List<String> mostActiveCookies = cookieAnalyser.returnMostActiveCookie(userInputDate);
+        List<String> mostActiveCookies;
+        boolean cookieFiltered = arguments.containsKey("--cookie-prefix") || arguments.containsKey("--cookie-list");
+        if ((cookieFiltered || arguments.containsKey("--zone") || arguments.containsKey("--metrics"))
+                && (arguments.containsKey("--shards") || arguments.containsKey("--workers")
+                || arguments.containsKey("--rollup"))) {
+            System.err.println("Invalid arguments: cookie filters, zones and metrics cannot be combined with sharded or rollup queries");
+            return;
+        }
+        if (arguments.containsKey("--shards") || arguments.containsKey("--workers")) {
+            Optional<List<String>> shardedResult = runSharded(arguments, fileUtils, userInputDate);
+            if (shardedResult.isEmpty()) {
+                return;
+            }
+            mostActiveCookies = shardedResult.get();
+        } else if (arguments.containsKey("--rollup")) {
+            Optional<List<String>> rollupResult = runRollup(fileUtils, userInputDate);
+            if (rollupResult.isEmpty()) {
+                return;
+            }
+            mostActiveCookies = rollupResult.get();
+        } else {
+            Optional<List<String>> plannedResult = runPlanned(arguments, fileUtils, userInputDate);
+            if (plannedResult.isEmpty()) {
+                return;
+            }
+            mostActiveCookies = plannedResult.get();
+        }
         if (mostActiveCookies.isEmpty()) {
-            LOGGER.warn(EMPTY_ANALYSIS_RESULT.getLoggingMessage());
+            LoggerHolder.LOGGER.warn(EMPTY_ANALYSIS_RESULT.getLoggingMessage());
             return;
         }
         for (String cookie : mostActiveCookies) {
             System.out.println(cookie);
         }
     }
+
+    // Standard input cannot be seeked or re-read, so it is validated and counted in one streaming pass
+    private void runStdin(HashMap<String, String> arguments) {
+        Optional<LocalDate> date = DateUtils.parseUserInput(arguments.get("-d"));
+        if (date.isEmpty()) {
+            System.err.println("Invalid date format: " + arguments.get("-d"));
+            return;
+        }
+
+        Optional<CookieCounts> cookieCounts;
+        try {
+            cookieCounts = new CookieStreamAnalyser(date.get(), true, STDIN_CHUNK_SIZE,
+                    CookieStreamAnalyser.DEFAULT_REQUEST_BATCH).analyseLog(System.in);
+        } catch (IOException ex) {
+            LoggerHolder.LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+            System.err.println("Unable to analyse standard input: " + ex.getMessage());
+            return;
+        }
+        if (cookieCounts.isEmpty()) {
+            System.err.println("Invalid file " + STDIN);
+            return;
+        }
+        if (cookieCounts.get().isEmpty()) {
+            LoggerHolder.LOGGER.warn(EMPTY_ANALYSIS_RESULT.getLoggingMessage());
+            return;
+        }
+        for (String cookie : cookieCounts.get().mostActive()) {
+            System.out.println(cookie);
+        }
+    }
+
+    // Several comma separated logs, each sorted the same way, are merged into one stream instead of concatenated. The
+    // merge only stops past the date when every log's order is verified by --sorted or a fresh index
+    private void runMerged(HashMap<String, String> arguments) {
+        List<Path> logs = new ArrayList<>();
+        SortOrder order = null;
+        boolean orderVerified = true;
+        QueryPlanner planner = new QueryPlanner(Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().maxMemory() / 2, arguments.containsKey("--sorted"));
+        for (String file : arguments.get("-f").split(",")) {
+            FileUtils fileUtils = new FileUtils(file.trim());
+            if (!fileUtils.checkFileValid()) {
+                System.err.println("Invalid file " + file);
+                return;
+            }
+            try {
+                SortOrder fileOrder = planner.sortOrder(fileUtils);
+                if (fileOrder == SortOrder.UNSORTED || (order != null && fileOrder != order)) {
+                    System.err.println("Unable to merge " + file + ": logs must all be sorted the same way");
+                    return;
+                }
+                order = fileOrder;
+                orderVerified &= planner.isOrderVerified(fileUtils);
+            } catch (IOException ex) {
+                System.err.println("Unable to merge " + file + ": " + ex.getMessage());
+                return;
+            }
+            logs.add(fileUtils.getPath());
+        }
+
+        Optional<LocalDate> date = DateUtils.parseUserInput(arguments.get("-d"));
+        if (date.isEmpty()) {
+            System.err.println("Invalid date format: " + arguments.get("-d"));
+            return;
+        }
+
+        CookieCounts cookieCounts = new CookieCounts();
+        try (SortedLogMerger merger = SortedLogMerger.open(logs, order)) {
+            new CookieLogParser().parseMergedLogsForDate(merger, date.get(), orderVerified,
+                    log -> cookieCounts.increment(log.getCookie()));
+        } catch (IOException ex) {
+            LoggerHolder.LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+            System.err.println("Unable to merge " + arguments.get("-f") + ": " + ex.getMessage());
+            return;
+        } catch (NoLogsFoundException ex) {
+            LoggerHolder.LOGGER.warn(EMPTY_ANALYSIS_RESULT.getLoggingMessage());
+            return;
+        }
+        if (cookieCounts.isEmpty()) {
+            LoggerHolder.LOGGER.warn(EMPTY_ANALYSIS_RESULT.getLoggingMessage());
+            return;
+        }
+        for (String cookie : cookieCounts.mostActive()) {
+            System.out.println(cookie);
+        }
+    }
+
+    private Optional<List<String>> runPlanned(HashMap<String, String> arguments, FileUtils fileUtils, LocalDate date) {
+        QueryPlanner planner;
+        try {
+            planner = new QueryPlanner(Runtime.getRuntime().availableProcessors(),
+                    arguments.containsKey("--memory-budget")
+                            ? Long.parseLong(arguments.get("--memory-budget")) << 20
+                            : Runtime.getRuntime().maxMemory() / 2,
+                    arguments.containsKey("--sorted"));
+        } catch (NumberFormatException ex) {
+            System.err.println("Invalid memory budget: " + arguments.get("--memory-budget"));
+            return Optional.empty();
+        }
+
+        if ((arguments.containsKey("--resume") || arguments.containsKey("--checkpoint-interval"))
+                && !arguments.containsKey("--checkpoint-dir")) {
+            System.err.println("Invalid arguments: --resume and --checkpoint-interval need --checkpoint-dir");
+            return Optional.empty();
+        }
+        QueryOptions options = QueryOptions.defaults()
+                .withDedupe(arguments.containsKey("--dedupe"))
+                .withResume(arguments.containsKey("--resume"));
+        if (arguments.containsKey("--checkpoint-dir")) {
+            try {
+                options = options.withCheckpointDirectory(Path.of(arguments.get("--checkpoint-dir")));
+            } catch (InvalidPathException ex) {
+                System.err.println("Invalid checkpoint directory: " + arguments.get("--checkpoint-dir"));
+                return Optional.empty();
+            }
+        }
+        if (arguments.containsKey("--checkpoint-interval")) {
+            try {
+                options = options.withCheckpointInterval(Long.parseLong(arguments.get("--checkpoint-interval")) << 20);
+            } catch (IllegalArgumentException ex) {
+                System.err.println("Invalid checkpoint interval: " + arguments.get("--checkpoint-interval"));
+                return Optional.empty();
+            }
+        }
+
+        if (arguments.containsKey("--zone")) {
+            Optional<ZoneId> zone = parseZone(arguments.get("--zone"));
+            if (zone.isEmpty()) {
+                return Optional.empty();
+            }
+            options = options.withZone(zone.get());
+        }
+
+        if (arguments.containsKey("--cookie-prefix") || arguments.containsKey("--cookie-list")) {
+            List<String> allowList = null;
+            if (arguments.containsKey("--cookie-list")) {
+                try {
+                    allowList = CookieFilter.readCookieList(Path.of(arguments.get("--cookie-list")));
+                } catch (IOException ex) {
+                    System.err.println("Unable to read cookie list " + arguments.get("--cookie-list") + ": " + ex.getMessage());
+                    return Optional.empty();
+                }
+            }
+            options = options.withCookieFilter(new CookieFilter(arguments.get("--cookie-prefix"), allowList));
+        }
+
+        Optional<Metric> metric = Optional.empty();
+        int limit = 0;
+        if (arguments.containsKey("--metrics")) {
+            metric = Metric.parse(arguments.get("--metrics"));
+            if (metric.isEmpty()) {
+                System.err.println("Invalid metric: " + arguments.get("--metrics"));
+                return Optional.empty();
+            }
+            try {
+                limit = Integer.parseInt(arguments.getOrDefault("--limit", "0"));
+            } catch (NumberFormatException ex) {
+                System.err.println("Invalid limit: " + arguments.get("--limit"));
+                return Optional.empty();
+            }
+        }
+
+        CookieLogScanner scanner;
+        try {
+            scanner = new CookieLogScanner().withReadAhead(
+                    arguments.containsKey("--read-ahead-size")
+                            ? Math.toIntExact(Long.parseLong(arguments.get("--read-ahead-size")) << 20)
+                            : ReadAheadInputStream.DEFAULT_READ_AHEAD_SIZE,
+                    arguments.containsKey("--read-ahead")
+                            ? Integer.parseInt(arguments.get("--read-ahead"))
+                            : ReadAheadInputStream.DEFAULT_READ_AHEAD_DEPTH);
+        } catch (IllegalArgumentException | ArithmeticException ex) {
+            System.err.println("Invalid read-ahead: " + arguments.getOrDefault("--read-ahead",
+                    arguments.get("--read-ahead-size")));
+            return Optional.empty();
+        }
+
+        try (CookieDictionary dictionary = arguments.containsKey("--dictionary")
+                ? CookieDictionary.open(Path.of(arguments.get("--dictionary")))
+                : CookieDictionary.inMemory()) {
+            CookieLogAnalyser cookieAnalyser = new CookieLogAnalyser(fileUtils, new CookieLogParser(), scanner,
+                    planner, dictionary);
+            ExecutionPlan plan = cookieAnalyser.plan(date, options.getZone());
+            if (arguments.containsKey("--explain")) {
+                System.out.println(plan.explain());
+            }
+            if (metric.isPresent()) {
+                ZoneId zone = options.getZone();
+                return Optional.of(cookieAnalyser.returnCookieMetrics(plan, date, options, metric.get(), limit).stream()
+                        .map(row -> row.getCookie() + "," + row.getCount()
+                                + "," + DateUtils.formatEpochSecond(row.getFirstSeen(), zone)
+                                + "," + DateUtils.formatEpochSecond(row.getLastSeen(), zone)
+                                + "," + row.getActiveHours())
+                        .toList());
+            }
+            return Optional.of(cookieAnalyser.returnMostActiveCookie(plan, date, options));
+        } catch (IOException ex) {
+            LoggerHolder.LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+            System.err.println("Unable to analyse " + arguments.get("-f") + ": " + ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void runWindow(HashMap<String, String> arguments) {
+        FileUtils fileUtils = new FileUtils(arguments.get("-f"));
+        if (!fileUtils.checkFileValid(arguments.containsKey("--zone"))) {
+            System.err.println("Invalid file " + arguments.get("-f"));
+            return;
+        }
+
+        Optional<LocalDate> reportDate = Optional.empty();
+        if (arguments.containsKey("-d")) {
+            reportDate = DateUtils.parseUserInput(arguments.get("-d"));
+            if (reportDate.isEmpty()) {
+                System.err.println("Invalid date format: " + arguments.get("-d"));
+                return;
+            }
+        }
+
+        Optional<ZoneId> zone = Optional.empty();
+        if (arguments.containsKey("--zone")) {
+            zone = parseZone(arguments.get("--zone"));
+            if (zone.isEmpty()) {
+                return;
+            }
+        }
+
+        SlidingWindowAnalyser windowAnalyser;
+        try {
+            windowAnalyser = new SlidingWindowAnalyser(fileUtils, new CookieLogScanner(),
+                    Integer.parseInt(arguments.get("--window")), zone.orElse(null),
+                    new QueryPlanner(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / 2,
+                            arguments.containsKey("--sorted")).isOrderVerified(fileUtils));
+        } catch (IllegalArgumentException ex) {
+            System.err.println("Invalid window: " + arguments.get("--window"));
+            return;
+        }
+
+        Optional<LocalDate> filterDate = reportDate;
+        windowAnalyser.analyse(result -> {
+            if (filterDate.isPresent() && !filterDate.get().equals(result.getDate())) {
+                return;
+            }
+            for (String cookie : result.getMostActiveCookies()) {
+                System.out.println(result.getDate() + "," + cookie + "," + result.getCount());
+            }
+        });
+    }
+
+    private static Optional<ZoneId> parseZone(String zone) {
+        try {
+            return Optional.of(ZoneId.of(zone));
+        } catch (DateTimeException ex) {
+            System.err.println("Invalid zone: " + zone);
+            return Optional.empty();
+        }
+    }
+
+    private void runDistinct(HashMap<String, String> arguments) {
+        FileUtils fileUtils = new FileUtils(arguments.get("-f"));
+        if (!fileUtils.checkFileValid()) {
+            System.err.println("Invalid file " + arguments.get("-f"));
+            return;
+        }
+
+        Optional<LocalDate> fromDate = Optional.empty();
+        Optional<LocalDate> toDate = Optional.empty();
+        if (arguments.containsKey("-d")) {
+            fromDate = DateUtils.parseUserInput(arguments.get("-d"));
+            toDate = arguments.containsKey("--to") ? DateUtils.parseUserInput(arguments.get("--to")) : fromDate;
+            if (fromDate.isEmpty() || toDate.isEmpty()) {
+                System.err.println("Invalid date format: " + arguments.getOrDefault("--to", arguments.get("-d")));
+                return;
+            }
+        }
+
+        CookieLogIndex index;
+        try {
+            int precision = arguments.containsKey("--precision")
+                    ? Integer.parseInt(arguments.get("--precision"))
+                    : HyperLogLog.DEFAULT_PRECISION;
+            index = new CookieLogIndexer().loadOrBuild(fileUtils, precision);
+        } catch (IllegalArgumentException ex) {
+            System.err.println("Invalid precision: " + arguments.get("--precision"));
+            return;
+        } catch (IOException ex) {
+            LoggerHolder.LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+            System.err.println("Unable to index " + arguments.get("-f") + ": " + ex.getMessage());
+            return;
+        }
+
+        for (DayStats day : index.getDays()) {
+            LocalDate date = LocalDate.ofEpochDay(day.getEpochDay());
+            if (fromDate.isEmpty() || (!date.isBefore(fromDate.get()) && !date.isAfter(toDate.get()))) {
+                System.out.println(date + "," + day.getDistinctCookies().estimate());
+            }
+        }
+        if (fromDate.isPresent() && !fromDate.get().equals(toDate.get())) {
+            System.out.println(fromDate.get() + ".." + toDate.get() + ","
+                    + index.estimateDistinctCookies(fromDate.get(), toDate.get()));
+        }
+    }
+
+    private void runCookieLookup(HashMap<String, String> arguments) {
+        FileUtils fileUtils = new FileUtils(arguments.get("-f"));
+        if (!fileUtils.checkFileValid()) {
+            System.err.println("Invalid file " + arguments.get("-f"));
+            return;
+        }
+
+        Optional<LocalDate> date = DateUtils.parseUserInput(arguments.get("-d"));
+        if (date.isEmpty()) {
+            System.err.println("Invalid date format: " + arguments.get("-d"));
+            return;
+        }
+
+        String cookie = arguments.get("--cookie");
+        try {
+            CookieLogIndex index = new CookieLogIndexer().loadOrBuild(fileUtils);
+            long occurrences = new CookieLookup(fileUtils).countOccurrences(index, cookie, date.get());
+            System.out.println(date.get() + "," + cookie + "," + occurrences);
+        } catch (IOException ex) {
+            LoggerHolder.LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+            System.err.println("Unable to look up cookie " + cookie + ": " + ex.getMessage());
+        }
+    }
+
+    private void runCookieTimeline(HashMap<String, String> arguments) {
+        FileUtils fileUtils = new FileUtils(arguments.get("-f"));
+        if (!fileUtils.checkFileValid()) {
+            System.err.println("Invalid file " + arguments.get("-f"));
+            return;
+        }
+
+        String cookie = arguments.get("--cookie");
+        try (CookiePostingsIndex index = new CookiePostingsIndexer().loadOrBuild(fileUtils)) {
+            Map<LocalDate, Integer> timeline = index.timeline(cookie);
+            if (timeline.isEmpty()) {
+                LoggerHolder.LOGGER.warn(EMPTY_ANALYSIS_RESULT.getLoggingMessage());
+            }
+            for (Map.Entry<LocalDate, Integer> day : timeline.entrySet()) {
+                System.out.println(day.getKey() + "," + day.getValue());
+            }
+        } catch (IOException ex) {
+            LoggerHolder.LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+            System.err.println("Unable to look up cookie " + cookie + ": " + ex.getMessage());
+        }
+    }
+
+    private Optional<List<String>> runRollup(FileUtils fileUtils, LocalDate date) {
+        try {
+            CookieRollup rollup = new CookieRollupIngester().update(fileUtils);
+            return Optional.of(rollup.countsFor(date).map(CookieCounts::mostActive).orElse(List.of()));
+        } catch (IOException ex) {
+            LoggerHolder.LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+            System.err.println("Unable to update rollup for " + fileUtils.getPath() + ": " + ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void runValidate(HashMap<String, String> arguments) {
+        FileUtils fileUtils = new FileUtils(arguments.get("-f"));
+        if (!Files.isReadable(fileUtils.getPath())) {
+            System.err.println("Invalid file " + arguments.get("-f"));
+            return;
+        }
+
+        try {
+            new CookieLogValidator().validate(fileUtils).format().forEach(System.out::println);
+        } catch (IOException ex) {
+            LoggerHolder.LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+            System.err.println("Unable to validate " + arguments.get("-f") + ": " + ex.getMessage());
+        }
+    }
+
+    private void runWatch(HashMap<String, String> arguments) {
+        Path directory = Path.of(arguments.get("--watch"));
+        if (!Files.isDirectory(directory)) {
+            System.err.println("Invalid directory " + directory);
+            return;
+        }
+        Optional<LocalDate> reportDate = Optional.empty();
+        if (arguments.containsKey("-d")) {
+            reportDate = DateUtils.parseUserInput(arguments.get("-d"));
+            if (reportDate.isEmpty()) {
+                System.err.println("Invalid date format: " + arguments.get("-d"));
+                return;
+            }
+        }
+
+        Optional<LocalDate> fixedDate = reportDate;
+        SpoolWatcher[] watcher = new SpoolWatcher[1];
+        watcher[0] = new SpoolWatcher(directory, Runtime.getRuntime().availableProcessors(), dates -> {
+            Optional<LocalDate> date = fixedDate.isPresent() ? fixedDate : watcher[0].latestDate();
+            if (date.isPresent() && dates.contains(date.get())) {
+                printWatchResult(date.get(), watcher[0].countsFor(date.get()));
+            }
+        });
+        try (SpoolWatcher spoolWatcher = watcher[0]) {
+            spoolWatcher.start().join();
+            new CountDownLatch(1).await();
+        } catch (IOException ex) {
+            LoggerHolder.LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+            System.err.println("Unable to watch " + directory + ": " + ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static synchronized void printWatchResult(LocalDate date, CookieCounts counts) {
+        for (String cookie : counts.mostActive()) {
+            System.out.println(date + "," + cookie + "," + counts.getCount(cookie));
+        }
+    }
+
+    private Optional<List<String>> runSharded(HashMap<String, String> arguments, FileUtils fileUtils, LocalDate date) {
+        try (ShardCoordinator coordinator = arguments.containsKey("--workers")
+                ? new ShardCoordinator(ShardCoordinator.parseWorkerAddresses(arguments.get("--workers")))
+                : ShardCoordinator.launchLocalWorkers(Integer.parseInt(arguments.get("--shards")))) {
+            return Optional.of(coordinator.returnMostActiveCookie(fileUtils, date));
+        } catch (IllegalArgumentException ex) {
+            System.err.println("Invalid shard configuration: " + ex.getMessage());
+        } catch (IOException ex) {
+            LoggerHolder.LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+            System.err.println("Unable to start shard workers: " + ex.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    private static void runWorker(String port) {
+        try (ShardWorker worker = new ShardWorker(Integer.parseInt(port))) {
+            System.out.println(ShardWorker.READY_PREFIX + worker.getPort());
+            System.out.flush();
+            worker.serve();
+        } catch (NumberFormatException ex) {
+            System.err.println("Invalid worker port: " + port);
+        } catch (IOException ex) {
+            LoggerHolder.LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+            System.err.println("Unable to start shard worker: " + ex.getMessage());
+        }
+    }
 }
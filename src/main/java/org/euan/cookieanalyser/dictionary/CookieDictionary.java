@@ -0,0 +1,257 @@
+package org.euan.cookieanalyser.dictionary;
+
+import org.euan.cookieanalyser.utils.Hashing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only mapping from cookie bytes to dense int IDs. Entries live in a memory-mapped file (or a heap buffer when
+ * nothing needs persisting) as a 16-bit length followed by the UTF-8 bytes; the ID to offset reverse array and the
+ * open-addressing hash table are primitive arrays rebuilt from the mapping on open. New entries are written past the
+ * committed end and only become durable when {@link #flush()} rewrites the header, so a crash never loses old IDs. A
+ * dictionary file is locked while open, so a second process fails to open it instead of appending over the first.
+ */
+public class CookieDictionary implements AutoCloseable {
+    static final int MAGIC = 0x434B4443;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int MAX_COOKIE_BYTES = 0xFFFF;
+    private static final int INITIAL_DATA_BYTES = 1 << 16;
+    private static final int INITIAL_SLOTS = 1 << 10;
+    private static final String DICTIONARY_SUFFIX = ".dict";
+
+    private final FileChannel channel;
+    private ByteBuffer data;
+    private int size;
+    private int dataEnd;
+    private int[] offsets;
+    private int[] slots;
+    private byte[] scratch = new byte[64];
+
+    private CookieDictionary(FileChannel channel, ByteBuffer data) {
+        this.channel = channel;
+        this.data = data;
+        this.dataEnd = HEADER_BYTES;
+        this.offsets = new int[INITIAL_SLOTS / 2];
+        this.slots = new int[INITIAL_SLOTS];
+    }
+
+    public static CookieDictionary inMemory() {
+        return new CookieDictionary(null, ByteBuffer.allocate(INITIAL_DATA_BYTES));
+    }
+
+    public static Path pathFor(Path logFile) {
+        return logFile.resolveSibling(logFile.getFileName() + DICTIONARY_SUFFIX);
+    }
+
+    public static CookieDictionary open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        try {
+            lock(channel, file);
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Dictionary " + file + " is larger than 2 GB");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(fileSize, INITIAL_DATA_BYTES));
+            CookieDictionary dictionary = new CookieDictionary(channel, mapped);
+            if (fileSize == 0) {
+                dictionary.writeHeader();
+            } else {
+                dictionary.load(file);
+            }
+            return dictionary;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    // Released when the channel closes
+    private static void lock(FileChannel channel, Path file) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException ex) {
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IOException("Dictionary " + file + " is already open elsewhere");
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getOrAdd(String cookie) {
+        byte[] bytes = cookie.getBytes(StandardCharsets.UTF_8);
+        return getOrAdd(bytes, 0, bytes.length);
+    }
+
+    public synchronized int getOrAdd(byte[] buffer, int start, int end) {
+        int length = end - start;
+        if (length > MAX_COOKIE_BYTES) {
+            throw new IllegalArgumentException("Cookie of " + length + " bytes exceeds the dictionary limit of " + MAX_COOKIE_BYTES);
+        }
+        int slot = findSlot(buffer, start, length, Hashing.hash64(buffer, start, length));
+        if (slots[slot] != 0) {
+            return slots[slot] - 1;
+        }
+
+        ensureDataCapacity(dataEnd + Short.BYTES + length);
+        data.putShort(dataEnd, (short) length);
+        data.put(dataEnd + Short.BYTES, buffer, start, length);
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+        offsets[size] = dataEnd;
+        dataEnd += Short.BYTES + length;
+        slots[slot] = ++size;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    public synchronized int idOf(byte[] buffer, int start, int end) {
+        int length = end - start;
+        int slot = findSlot(buffer, start, length, Hashing.hash64(buffer, start, length));
+        return slots[slot] - 1;
+    }
+
+    public int idOf(String cookie) {
+        byte[] bytes = cookie.getBytes(StandardCharsets.UTF_8);
+        return idOf(bytes, 0, bytes.length);
+    }
+
+    public synchronized String cookie(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown cookie id " + id);
+        }
+        int offset = offsets[id];
+        byte[] bytes = new byte[data.getShort(offset) & 0xFFFF];
+        data.get(offset + Short.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public synchronized void flush() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        ((MappedByteBuffer) data).force();
+        writeHeader();
+        ((MappedByteBuffer) data).force(0, HEADER_BYTES);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+        }
+    }
+
+    private int findSlot(byte[] buffer, int start, int length, long hash) {
+        int mask = slots.length - 1;
+        int slot = (int) hash & mask;
+        while (slots[slot] != 0 && !entryEquals(slots[slot] - 1, buffer, start, length)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean entryEquals(int id, byte[] buffer, int start, int length) {
+        int offset = offsets[id];
+        if ((data.getShort(offset) & 0xFFFF) != length) {
+            return false;
+        }
+        int bytesStart = offset + Short.BYTES;
+        for (int i = 0; i < length; i++) {
+            if (data.get(bytesStart + i) != buffer[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        for (int id = 0; id < size; id++) {
+            insertExisting(id);
+        }
+    }
+
+    private void insertExisting(int id) {
+        int offset = offsets[id];
+        int length = data.getShort(offset) & 0xFFFF;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        data.get(offset + Short.BYTES, scratch, 0, length);
+        slots[findSlot(scratch, 0, length, Hashing.hash64(scratch, 0, length))] = id + 1;
+    }
+
+    private void load(Path file) throws IOException {
+        if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException("Not a cookie dictionary: " + file);
+        }
+        int committedSize = data.getInt(8);
+        int committedEnd = data.getInt(12);
+        if (committedEnd < HEADER_BYTES || committedEnd > data.capacity()) {
+            throw new IOException("Corrupt cookie dictionary: " + file);
+        }
+        offsets = new int[Math.max(INITIAL_SLOTS / 2, Integer.highestOneBit(Math.max(1, committedSize)) * 2)];
+        slots = new int[offsets.length * 2];
+        int offset = HEADER_BYTES;
+        while (offset < committedEnd) {
+            offsets[size] = offset;
+            insertExisting(size++);
+            offset += Short.BYTES + (data.getShort(offset) & 0xFFFF);
+        }
+        if (size != committedSize || offset != committedEnd) {
+            throw new IOException("Corrupt cookie dictionary: " + file);
+        }
+        dataEnd = committedEnd;
+    }
+
+    private void writeHeader() {
+        data.putInt(0, MAGIC);
+        data.putInt(4, VERSION);
+        data.putInt(8, size);
+        data.putInt(12, dataEnd);
+    }
+
+    private void ensureDataCapacity(int required) {
+        if (required <= data.capacity()) {
+            return;
+        }
+        long grown = Math.max(required, (long) data.capacity() * 2);
+        if (grown > Integer.MAX_VALUE) {
+            grown = Integer.MAX_VALUE;
+            if (required > grown) {
+                throw new IllegalStateException("Cookie dictionary exceeded 2 GB");
+            }
+        }
+        if (channel == null) {
+            ByteBuffer heap = ByteBuffer.allocate((int) grown);
+            heap.put(0, data, 0, dataEnd);
+            data = heap;
+        } else {
+            try {
+                data = channel.map(FileChannel.MapMode.READ_WRITE, 0, grown);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.euan.cookieanalyser.dictionary;
+
+import org.euan.cookieanalyser.utils.Hashing;
+
+import java.util.Arrays;
+
+/**
+ * One scanning thread's cache in front of a shared {@link CookieDictionary}. Cookies the thread has already resolved
+ * are answered from its own open-addressing table, keyed by the cookie's 64-bit hash and checked against a private
+ * copy of its bytes, so only the first sighting of a cookie on each thread takes the dictionary's lock. Not thread
+ * safe: give each thread its own.
+ */
+public class CookieIdCache {
+    private static final int INITIAL_SLOTS = 1 << 10;
+    private static final int INITIAL_KEY_BYTES = 1 << 14;
+
+    private final CookieDictionary dictionary;
+    private long[] hashes = new long[INITIAL_SLOTS];
+    // ID plus one, so zero marks an empty slot
+    private int[] ids = new int[INITIAL_SLOTS];
+    private int[] keyOffsets = new int[INITIAL_SLOTS];
+    private byte[] keys = new byte[INITIAL_KEY_BYTES];
+    private int keysEnd;
+    private int size;
+
+    public CookieIdCache(CookieDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public int getOrAdd(byte[] buffer, int start, int end) {
+        int length = end - start;
+        long hash = Hashing.hash64(buffer, start, length);
+        int mask = ids.length - 1;
+        int slot = (int) hash & mask;
+        while (ids[slot] != 0) {
+            if (hashes[slot] == hash && keyEquals(slot, buffer, start, length)) {
+                return ids[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = dictionary.getOrAdd(buffer, start, end);
+        if (keysEnd + Short.BYTES + length > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(keysEnd + Short.BYTES + length, keys.length * 2));
+        }
+        keys[keysEnd] = (byte) (length >>> 8);
+        keys[keysEnd + 1] = (byte) length;
+        System.arraycopy(buffer, start, keys, keysEnd + Short.BYTES, length);
+        hashes[slot] = hash;
+        keyOffsets[slot] = keysEnd;
+        ids[slot] = id + 1;
+        keysEnd += Short.BYTES + length;
+        if (++size * 2 > ids.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private boolean keyEquals(int slot, byte[] buffer, int start, int length) {
+        int offset = keyOffsets[slot];
+        if (((keys[offset] & 0xFF) << 8 | (keys[offset + 1] & 0xFF)) != length) {
+            return false;
+        }
+        return Arrays.equals(keys, offset + Short.BYTES, offset + Short.BYTES + length, buffer, start, start + length);
+    }
+
+    private void rehash() {
+        long[] oldHashes = hashes;
+        int[] oldIds = ids;
+        int[] oldKeyOffsets = keyOffsets;
+        hashes = new long[oldIds.length * 2];
+        ids = new int[oldIds.length * 2];
+        keyOffsets = new int[oldIds.length * 2];
+        int mask = ids.length - 1;
+        for (int old = 0; old < oldIds.length; old++) {
+            if (oldIds[old] == 0) {
+                continue;
+            }
+            int slot = (int) oldHashes[old] & mask;
+            while (ids[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = oldHashes[old];
+            ids[slot] = oldIds[old];
+            keyOffsets[slot] = oldKeyOffsets[old];
+        }
+    }
+}
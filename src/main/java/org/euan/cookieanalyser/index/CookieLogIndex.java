@@ -0,0 +1,125 @@
+package org.euan.cookieanalyser.index;
+
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
+import org.euan.cookieanalyser.sketches.HyperLogLog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+public class CookieLogIndex {
+    static final int MAGIC = 0x434B4958;
+    static final int VERSION = 3;
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final long sourceSize;
+    private final long sourceModified;
+    private final int precision;
+    private final SortOrder order;
+    private final TreeMap<Long, DayStats> days;
+
+    public CookieLogIndex(long sourceSize, long sourceModified, int precision, SortOrder order,
+                          Map<Long, DayStats> days) {
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+        this.precision = precision;
+        this.order = order;
+        this.days = new TreeMap<>(days);
+    }
+
+    public static Path indexPathFor(Path logFile) {
+        return logFile.resolveSibling(logFile.getFileName() + INDEX_SUFFIX);
+    }
+
+    public long getSourceSize() {
+        return sourceSize;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    // Checked against every line when the index was built, so unlike a sampled order it can be trusted to stop a scan early
+    public SortOrder getOrder() {
+        return order;
+    }
+
+    public boolean isFreshFor(Path logFile) throws IOException {
+        return Files.size(logFile) == sourceSize && Files.getLastModifiedTime(logFile).toMillis() == sourceModified;
+    }
+
+    public Optional<DayStats> getDay(LocalDate date) {
+        return Optional.ofNullable(days.get(date.toEpochDay()));
+    }
+
+    public Collection<DayStats> getDays() {
+        return Collections.unmodifiableCollection(days.values());
+    }
+
+    public long estimateDistinctCookies(LocalDate from, LocalDate to) {
+        HyperLogLog merged = new HyperLogLog(precision);
+        NavigableMap<Long, DayStats> range = days.subMap(from.toEpochDay(), true, to.toEpochDay(), true);
+        range.values().forEach(day -> merged.merge(day.getDistinctCookies()));
+        return merged.estimate();
+    }
+
+    public void write(Path indexFile) throws IOException {
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceSize);
+            out.writeLong(sourceModified);
+            out.writeByte(precision);
+            out.writeByte(order.ordinal());
+            out.writeInt(days.size());
+            for (DayStats day : days.values()) {
+                day.writeTo(out);
+            }
+        }
+        try {
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public static Optional<CookieLogIndex> read(Path indexFile) throws IOException {
+        if (!Files.exists(indexFile)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return Optional.empty();
+            }
+            long sourceSize = in.readLong();
+            long sourceModified = in.readLong();
+            int precision = in.readUnsignedByte();
+            int orderOrdinal = in.readUnsignedByte();
+            if (orderOrdinal >= SortOrder.values().length) {
+                return Optional.empty();
+            }
+            SortOrder order = SortOrder.values()[orderOrdinal];
+            int dayCount = in.readInt();
+            TreeMap<Long, DayStats> days = new TreeMap<>();
+            for (int i = 0; i < dayCount; i++) {
+                DayStats day = DayStats.readFrom(in);
+                days.put(day.getEpochDay(), day);
+            }
+            return Optional.of(new CookieLogIndex(sourceSize, sourceModified, precision, order, days));
+        }
+    }
+}
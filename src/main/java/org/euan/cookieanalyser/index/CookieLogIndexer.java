@@ -0,0 +1,252 @@
+package org.euan.cookieanalyser.index;
+
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
+import org.euan.cookieanalyser.services.CookieLogScanner;
+import org.euan.cookieanalyser.services.DayResolver;
+import org.euan.cookieanalyser.services.TimestampPrefixDayResolver;
+import org.euan.cookieanalyser.sketches.HyperLogLog;
+import org.euan.cookieanalyser.sketches.ScalableBloomFilter;
+import org.euan.cookieanalyser.utils.DateUtils;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.euan.cookieanalyser.utils.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+
+public class CookieLogIndexer {
+    private final Logger LOGGER = LoggerFactory.getLogger(CookieLogIndexer.class);
+
+    private final CookieLogScanner scanner;
+    private final int threads;
+
+    public CookieLogIndexer() {
+        this(new CookieLogScanner(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public CookieLogIndexer(CookieLogScanner scanner, int threads) {
+        this.scanner = scanner;
+        this.threads = Math.max(1, threads);
+    }
+
+    // Reuses a fresh index whatever its precision, for queries that don't read the distinct-cookie sketches
+    public CookieLogIndex loadOrBuild(FileUtils fileUtils) throws IOException {
+        return loadOrBuild(fileUtils, HyperLogLog.DEFAULT_PRECISION, true);
+    }
+
+    public CookieLogIndex loadOrBuild(FileUtils fileUtils, int precision) throws IOException {
+        return loadOrBuild(fileUtils, precision, false);
+    }
+
+    private CookieLogIndex loadOrBuild(FileUtils fileUtils, int precision, boolean anyPrecision) throws IOException {
+        HyperLogLog.checkPrecision(precision);
+        Path indexFile = CookieLogIndex.indexPathFor(fileUtils.getPath());
+        Optional<CookieLogIndex> existing = readQuietly(indexFile);
+        if (existing.isPresent() && (anyPrecision || existing.get().getPrecision() == precision)
+                && existing.get().isFreshFor(fileUtils.getPath())) {
+            LOGGER.info(INDEX_LOADED.getLoggingMessage(), indexFile);
+            return existing.get();
+        }
+
+        CookieLogIndex index = build(fileUtils, precision);
+        try {
+            index.write(indexFile);
+            LOGGER.info(INDEX_WRITTEN.getLoggingMessage(), indexFile, index.getDays().size());
+        } catch (IOException ex) {
+            LOGGER.warn(INDEX_WRITE_FAILED.getLoggingMessage(), indexFile, ex.toString());
+        }
+        return index;
+    }
+
+    public CookieLogIndex build(FileUtils fileUtils, int precision) throws IOException {
+        HyperLogLog.checkPrecision(precision);
+        Path path = fileUtils.getPath();
+        long sourceModified = Files.getLastModifiedTime(path).toMillis();
+        long sourceSize = fileUtils.size();
+        long[] boundaries = CookieLogScanner.splitRanges(sourceSize, threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, boundaries.length - 1));
+        try {
+            List<Future<RangeIndex>> partials = new ArrayList<>();
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                long start = boundaries[i];
+                long end = boundaries[i + 1];
+                partials.add(executor.submit(() -> indexRange(path, start, end, precision)));
+            }
+
+            TreeMap<Long, DayStats> days = new TreeMap<>();
+            Set<Long> spreadDays = new HashSet<>();
+            RangeIndex whole = new RangeIndex();
+            // Ranges are merged in file order so the order check also covers the lines either side of each boundary
+            for (Future<RangeIndex> partial : partials) {
+                RangeIndex range = partial.get();
+                range.days.forEach((epochDay, stats) -> days.merge(epochDay, stats, (existing, other) -> {
+                    spreadDays.add(epochDay);
+                    existing.merge(other);
+                    return existing;
+                }));
+                whole.append(range);
+            }
+            if (!spreadDays.isEmpty()) {
+                rebuildFilters(executor, path, days, spreadDays);
+            }
+            return new CookieLogIndex(sourceSize, sourceModified, precision, whole.order(), days);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing " + path, ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to index " + path, ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private RangeIndex indexRange(Path path, long start, long end, int precision) throws IOException {
+        RangeIndex range = new RangeIndex();
+        DayResolver dayResolver = new TimestampPrefixDayResolver();
+        scanner.scanRecords(path, start, end, (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) -> {
+            long epochDay = dayResolver.resolve(buffer, timestampStart);
+            if (epochDay == DateUtils.INVALID_EPOCH_DAY) {
+                return;
+            }
+            range.observe(epochDay);
+            range.days.computeIfAbsent(epochDay, day -> new DayStats(day, precision))
+                    .record(Hashing.hash64(buffer, cookieStart, cookieEnd - cookieStart), lineOffset);
+        });
+        return range;
+    }
+
+    // Each range sized its own filter chain for its share of a day, so chains of a day split across ranges would overfill
+    // their stages when merged. Those days are read again into filters sized from the merged distinct count, whose
+    // stages keep within capacity when OR-ed together
+    private void rebuildFilters(ExecutorService executor, Path path, Map<Long, DayStats> days, Set<Long> spreadDays)
+            throws IOException, InterruptedException, ExecutionException {
+        Map<Long, Long> capacities = new HashMap<>();
+        for (long epochDay : spreadDays) {
+            long distinct = days.get(epochDay).getDistinctCookies().estimate();
+            // Headroom for the sketch's estimate falling short
+            capacities.put(epochDay, Math.max(ScalableBloomFilter.INITIAL_CAPACITY, distinct + distinct / 4));
+        }
+
+        List<Future<Map<Long, ScalableBloomFilter>>> partials = new ArrayList<>();
+        for (long[] span : spansOf(days, spreadDays)) {
+            long[] boundaries = CookieLogScanner.splitRanges(span[1] - span[0], threads);
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                long start = span[0] + boundaries[i];
+                long end = span[0] + boundaries[i + 1];
+                partials.add(executor.submit(() -> filterRange(path, start, end, capacities)));
+            }
+        }
+
+        Map<Long, ScalableBloomFilter> filters = new HashMap<>();
+        for (Future<Map<Long, ScalableBloomFilter>> partial : partials) {
+            partial.get().forEach((epochDay, filter) -> filters.merge(epochDay, filter, (existing, other) -> {
+                existing.merge(other);
+                return existing;
+            }));
+        }
+        filters.forEach((epochDay, filter) -> days.get(epochDay).replaceActiveCookies(filter));
+    }
+
+    private Map<Long, ScalableBloomFilter> filterRange(Path path, long start, long end, Map<Long, Long> capacities)
+            throws IOException {
+        Map<Long, ScalableBloomFilter> filters = new HashMap<>();
+        DayResolver dayResolver = new TimestampPrefixDayResolver();
+        scanner.scanRecords(path, start, end, (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) -> {
+            long epochDay = dayResolver.resolve(buffer, timestampStart);
+            Long capacity = capacities.get(epochDay);
+            if (capacity == null) {
+                return;
+            }
+            ScalableBloomFilter filter = filters.computeIfAbsent(epochDay, day -> new ScalableBloomFilter(capacity));
+            long cookieHash = Hashing.hash64(buffer, cookieStart, cookieEnd - cookieStart);
+            if (!filter.mightContain(cookieHash)) {
+                filter.add(cookieHash);
+            }
+        });
+        return filters;
+    }
+
+    // Byte ranges covering the days' lines, with overlapping days joined so no line is read twice
+    private static List<long[]> spansOf(Map<Long, DayStats> days, Set<Long> epochDays) {
+        List<DayStats> byStart = epochDays.stream()
+                .map(days::get)
+                .sorted(Comparator.comparingLong(DayStats::getStartOffset))
+                .toList();
+        List<long[]> spans = new ArrayList<>();
+        for (DayStats day : byStart) {
+            long[] last = spans.isEmpty() ? null : spans.get(spans.size() - 1);
+            if (last != null && day.getStartOffset() <= last[1]) {
+                last[1] = Math.max(last[1], day.getEndOffset());
+            } else {
+                spans.add(new long[]{day.getStartOffset(), day.getEndOffset()});
+            }
+        }
+        return spans;
+    }
+
+    private Optional<CookieLogIndex> readQuietly(Path indexFile) {
+        try {
+            return CookieLogIndex.read(indexFile);
+        } catch (IOException ex) {
+            LOGGER.warn(INDEX_READ_FAILED.getLoggingMessage(), indexFile, ex.toString());
+            return Optional.empty();
+        }
+    }
+
+    // The days of one byte range, and whether every line in it kept to an ascending or descending date order
+    private static final class RangeIndex {
+        private final Map<Long, DayStats> days = new HashMap<>();
+        private long firstDay = DateUtils.INVALID_EPOCH_DAY;
+        private long lastDay = DateUtils.INVALID_EPOCH_DAY;
+        private boolean ascending = true;
+        private boolean descending = true;
+
+        private void observe(long epochDay) {
+            if (lastDay != DateUtils.INVALID_EPOCH_DAY) {
+                ascending &= epochDay >= lastDay;
+                descending &= epochDay <= lastDay;
+            } else {
+                firstDay = epochDay;
+            }
+            lastDay = epochDay;
+        }
+
+        private void append(RangeIndex next) {
+            if (next.firstDay == DateUtils.INVALID_EPOCH_DAY) {
+                return;
+            }
+            observe(next.firstDay);
+            ascending &= next.ascending;
+            descending &= next.descending;
+            lastDay = next.lastDay;
+        }
+
+        private SortOrder order() {
+            if (firstDay == DateUtils.INVALID_EPOCH_DAY) {
+                return SortOrder.UNSORTED;
+            }
+            return descending ? SortOrder.DESCENDING : ascending ? SortOrder.ASCENDING : SortOrder.UNSORTED;
+        }
+    }
+}
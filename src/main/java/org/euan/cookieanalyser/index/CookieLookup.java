@@ -0,0 +1,53 @@
+package org.euan.cookieanalyser.index;
+
+import org.euan.cookieanalyser.services.CookieLogScanner;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.euan.cookieanalyser.utils.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+
+public class CookieLookup {
+    private final Logger LOGGER = LoggerFactory.getLogger(CookieLookup.class);
+
+    private final FileUtils fileUtils;
+    private final CookieLogScanner scanner;
+
+    public CookieLookup(FileUtils fileUtils) {
+        this(fileUtils, new CookieLogScanner());
+    }
+
+    public CookieLookup(FileUtils fileUtils, CookieLogScanner scanner) {
+        this.fileUtils = fileUtils;
+        this.scanner = scanner;
+    }
+
+    public long countOccurrences(CookieLogIndex index, String cookie, LocalDate date) throws IOException {
+        byte[] cookieBytes = cookie.getBytes(StandardCharsets.UTF_8);
+        Optional<DayStats> day = index.getDay(date);
+        if (day.isEmpty() || !day.get().mightContain(Hashing.hash64(cookieBytes, 0, cookieBytes.length))) {
+            LOGGER.info(COOKIE_RULED_OUT_BY_INDEX.getLoggingMessage(), cookie, date);
+            return 0;
+        }
+
+        byte[] datePrefix = date.toString().getBytes(StandardCharsets.US_ASCII);
+        long[] matches = new long[1];
+        scanner.scanRecords(fileUtils.getPath(), day.get().getStartOffset(), day.get().getEndOffset(),
+                (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) -> {
+                    if (Arrays.equals(buffer, cookieStart, cookieEnd, cookieBytes, 0, cookieBytes.length)
+                            && scanner.dateMatches(buffer, timestampStart, datePrefix)) {
+                        matches[0]++;
+                    }
+                });
+        LOGGER.info(COOKIE_LOOKUP_SCANNED.getLoggingMessage(), day.get().getStartOffset(), day.get().getEndOffset(),
+                cookie, date, matches[0]);
+        return matches[0];
+    }
+}
@@ -0,0 +1,160 @@
+package org.euan.cookieanalyser.index;
+
+import org.euan.cookieanalyser.utils.VarInts;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+
+/**
+ * Inverted index from cookie to its (date, count) postings, stored next to the log as {@code <log>.postings}.
+ * Cookies are kept sorted so a cookie's dictionary ID is its position, found by binary search over the key offsets,
+ * and postings are delta and varint encoded. Lookups read a few small ranges of the file, never the whole thing.
+ *
+ * <pre>
+ * header | cookieCount | keyOffsets[cookieCount + 1] | postingOffsets[cookieCount + 1] | keys | postings
+ * </pre>
+ */
+public class CookiePostingsIndex implements AutoCloseable {
+    static final int MAGIC = 0x434B5049;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = Integer.BYTES * 3 + Long.BYTES * 2;
+    private static final String INDEX_SUFFIX = ".postings";
+
+    private final FileChannel channel;
+    private final long sourceSize;
+    private final long sourceModified;
+    private final int cookieCount;
+
+    private CookiePostingsIndex(FileChannel channel, long sourceSize, long sourceModified, int cookieCount) {
+        this.channel = channel;
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+        this.cookieCount = cookieCount;
+    }
+
+    public static Path indexPathFor(Path logFile) {
+        return logFile.resolveSibling(logFile.getFileName() + INDEX_SUFFIX);
+    }
+
+    public static Optional<CookiePostingsIndex> open(Path indexFile) throws IOException {
+        if (!Files.exists(indexFile)) {
+            return Optional.empty();
+        }
+        FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                channel.close();
+                return Optional.empty();
+            }
+            return Optional.of(new CookiePostingsIndex(channel, header.getLong(), header.getLong(), header.getInt()));
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public boolean isFreshFor(Path logFile) throws IOException {
+        return Files.size(logFile) == sourceSize && Files.getLastModifiedTime(logFile).toMillis() == sourceModified;
+    }
+
+    public int getCookieCount() {
+        return cookieCount;
+    }
+
+    public OptionalInt idOf(String cookie) throws IOException {
+        byte[] target = cookie.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = cookieCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = Arrays.compareUnsigned(keyAt(mid), target);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return OptionalInt.of(mid);
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    public String cookieAt(int id) throws IOException {
+        return new String(keyAt(id), StandardCharsets.UTF_8);
+    }
+
+    public NavigableMap<LocalDate, Integer> timeline(String cookie) throws IOException {
+        OptionalInt id = idOf(cookie);
+        return id.isPresent() ? timeline(id.getAsInt()) : Collections.emptyNavigableMap();
+    }
+
+    public NavigableMap<LocalDate, Integer> timeline(int id) throws IOException {
+        long[] range = offsets(postingOffsetsStart(), id);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                read(channel, range[0], (int) (range[1] - range[0])).array()));
+        int postings = VarInts.readVarInt(in);
+        TreeMap<LocalDate, Integer> timeline = new TreeMap<>();
+        long epochDay = 0;
+        for (int i = 0; i < postings; i++) {
+            epochDay += i == 0 ? VarInts.readSignedVarLong(in) : VarInts.readVarLong(in);
+            timeline.put(LocalDate.ofEpochDay(epochDay), VarInts.readVarInt(in));
+        }
+        return timeline;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private byte[] keyAt(int id) throws IOException {
+        long[] range = offsets(keyOffsetsStart(), id);
+        return read(channel, range[0], (int) (range[1] - range[0])).array();
+    }
+
+    private long[] offsets(long tableStart, int id) throws IOException {
+        if (id < 0 || id >= cookieCount) {
+            throw new IllegalArgumentException("Unknown cookie id " + id);
+        }
+        ByteBuffer pair = read(channel, tableStart + (long) id * Long.BYTES, Long.BYTES * 2);
+        return new long[]{pair.getLong(), pair.getLong()};
+    }
+
+    private long keyOffsetsStart() {
+        return HEADER_BYTES;
+    }
+
+    private long postingOffsetsStart() {
+        return keyOffsetsStart() + (cookieCount + 1L) * Long.BYTES;
+    }
+
+    static long dataStart(int cookieCount) {
+        return HEADER_BYTES + 2 * (cookieCount + 1L) * Long.BYTES;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Postings index truncated at byte " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,203 @@
+package org.euan.cookieanalyser.index;
+
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.services.CookieLogScanner;
+import org.euan.cookieanalyser.services.DayResolver;
+import org.euan.cookieanalyser.services.TimestampPrefixDayResolver;
+import org.euan.cookieanalyser.utils.DateUtils;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.euan.cookieanalyser.utils.VarInts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+
+public class CookiePostingsIndexer {
+    private final Logger LOGGER = LoggerFactory.getLogger(CookiePostingsIndexer.class);
+
+    private final CookieLogScanner scanner;
+    private final int threads;
+
+    public CookiePostingsIndexer() {
+        this(new CookieLogScanner(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public CookiePostingsIndexer(CookieLogScanner scanner, int threads) {
+        this.scanner = scanner;
+        this.threads = Math.max(1, threads);
+    }
+
+    public CookiePostingsIndex loadOrBuild(FileUtils fileUtils) throws IOException {
+        Path indexFile = CookiePostingsIndex.indexPathFor(fileUtils.getPath());
+        Optional<CookiePostingsIndex> existing = openQuietly(indexFile);
+        if (existing.isPresent()) {
+            if (existing.get().isFreshFor(fileUtils.getPath())) {
+                LOGGER.info(INDEX_LOADED.getLoggingMessage(), indexFile);
+                return existing.get();
+            }
+            existing.get().close();
+        }
+
+        build(fileUtils, indexFile);
+        return CookiePostingsIndex.open(indexFile)
+                .orElseThrow(() -> new IOException("Postings index " + indexFile + " could not be reopened"));
+    }
+
+    public void build(FileUtils fileUtils, Path indexFile) throws IOException {
+        Path path = fileUtils.getPath();
+        long sourceModified = Files.getLastModifiedTime(path).toMillis();
+        long sourceSize = fileUtils.size();
+        TreeMap<Long, CookieCounts> countsPerDay = countPerDay(path, sourceSize);
+
+        TreeMap<byte[], Postings> postingsPerCookie = new TreeMap<>(Arrays::compareUnsigned);
+        for (Map.Entry<Long, CookieCounts> day : countsPerDay.entrySet()) {
+            for (Map.Entry<String, Integer> cookie : day.getValue().asMap().entrySet()) {
+                postingsPerCookie.computeIfAbsent(cookie.getKey().getBytes(StandardCharsets.UTF_8), key -> new Postings())
+                        .add(day.getKey(), cookie.getValue());
+            }
+        }
+
+        int cookieCount = postingsPerCookie.size();
+        long[] keyOffsets = new long[cookieCount + 1];
+        long[] postingOffsets = new long[cookieCount + 1];
+        ByteArrayOutputStream keys = new ByteArrayOutputStream();
+        ByteArrayOutputStream postings = new ByteArrayOutputStream();
+        long dataStart = CookiePostingsIndex.dataStart(cookieCount);
+        int id = 0;
+        for (Map.Entry<byte[], Postings> cookie : postingsPerCookie.entrySet()) {
+            keyOffsets[id] = dataStart + keys.size();
+            keys.writeBytes(cookie.getKey());
+            postingOffsets[id++] = postings.size();
+            cookie.getValue().writeTo(postings);
+        }
+        keyOffsets[cookieCount] = dataStart + keys.size();
+        postingOffsets[cookieCount] = postings.size();
+
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(CookiePostingsIndex.MAGIC);
+            out.writeInt(CookiePostingsIndex.VERSION);
+            out.writeLong(sourceSize);
+            out.writeLong(sourceModified);
+            out.writeInt(cookieCount);
+            for (long offset : keyOffsets) {
+                out.writeLong(offset);
+            }
+            for (long offset : postingOffsets) {
+                out.writeLong(keyOffsets[cookieCount] + offset);
+            }
+            keys.writeTo(out);
+            postings.writeTo(out);
+        }
+        try {
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        LOGGER.info(POSTINGS_WRITTEN.getLoggingMessage(), indexFile, cookieCount);
+    }
+
+    private TreeMap<Long, CookieCounts> countPerDay(Path path, long sourceSize) throws IOException {
+        long[] boundaries = CookieLogScanner.splitRanges(sourceSize, threads);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, boundaries.length - 1));
+        try {
+            List<Future<Map<Long, CookieCounts>>> partials = new ArrayList<>();
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                long start = boundaries[i];
+                long end = boundaries[i + 1];
+                partials.add(executor.submit(() -> countRange(path, start, end)));
+            }
+
+            TreeMap<Long, CookieCounts> countsPerDay = new TreeMap<>();
+            for (Future<Map<Long, CookieCounts>> partial : partials) {
+                partial.get().forEach((epochDay, counts) ->
+                        countsPerDay.computeIfAbsent(epochDay, day -> new CookieCounts()).merge(counts));
+            }
+            return countsPerDay;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing " + path, ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to index " + path, ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Map<Long, CookieCounts> countRange(Path path, long start, long end) throws IOException {
+        Map<Long, CookieCounts> countsPerDay = new TreeMap<>();
+        DayResolver dayResolver = new TimestampPrefixDayResolver();
+        scanner.scanRecords(path, start, end, (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) -> {
+            long epochDay = dayResolver.resolve(buffer, timestampStart);
+            if (epochDay != DateUtils.INVALID_EPOCH_DAY) {
+                countsPerDay.computeIfAbsent(epochDay, day -> new CookieCounts())
+                        .increment(CookieLogScanner.decode(buffer, cookieStart, cookieEnd));
+            }
+        });
+        return countsPerDay;
+    }
+
+    private Optional<CookiePostingsIndex> openQuietly(Path indexFile) {
+        try {
+            return CookiePostingsIndex.open(indexFile);
+        } catch (IOException ex) {
+            LOGGER.warn(INDEX_READ_FAILED.getLoggingMessage(), indexFile, ex.toString());
+            return Optional.empty();
+        }
+    }
+
+    // Days arrive in ascending order, so each posting after the first is stored as a small positive gap
+    private static final class Postings {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count;
+        private long lastDay;
+
+        void add(long epochDay, int dayCount) {
+            try {
+                if (count == 0) {
+                    VarInts.writeSignedVarLong(out, epochDay);
+                } else {
+                    VarInts.writeVarLong(out, epochDay - lastDay);
+                }
+                VarInts.writeVarInt(out, dayCount);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            lastDay = epochDay;
+            count++;
+        }
+
+        void writeTo(ByteArrayOutputStream target) {
+            try {
+                VarInts.writeVarInt(new DataOutputStream(target), count);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            target.writeBytes(bytes.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.euan.cookieanalyser.index;
+
+import org.euan.cookieanalyser.sketches.HyperLogLog;
+import org.euan.cookieanalyser.sketches.ScalableBloomFilter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class DayStats {
+    private final long epochDay;
+    private long startOffset;
+    private long endOffset;
+    private long lineCount;
+    private final HyperLogLog distinctCookies;
+    private ScalableBloomFilter activeCookies;
+
+    public DayStats(long epochDay, int precision) {
+        this(epochDay, Long.MAX_VALUE, 0, 0, new HyperLogLog(precision), new ScalableBloomFilter());
+    }
+
+    private DayStats(long epochDay, long startOffset, long endOffset, long lineCount, HyperLogLog distinctCookies,
+                     ScalableBloomFilter activeCookies) {
+        this.epochDay = epochDay;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.lineCount = lineCount;
+        this.distinctCookies = distinctCookies;
+        this.activeCookies = activeCookies;
+    }
+
+    public void record(long cookieHash, long lineOffset) {
+        startOffset = Math.min(startOffset, lineOffset);
+        endOffset = Math.max(endOffset, lineOffset + 1);
+        lineCount++;
+        distinctCookies.add(cookieHash);
+        if (!activeCookies.mightContain(cookieHash)) {
+            activeCookies.add(cookieHash);
+        }
+    }
+
+    public void merge(DayStats other) {
+        startOffset = Math.min(startOffset, other.startOffset);
+        endOffset = Math.max(endOffset, other.endOffset);
+        lineCount += other.lineCount;
+        distinctCookies.merge(other.distinctCookies);
+        activeCookies.merge(other.activeCookies);
+    }
+
+    // For days whose filter is rebuilt once the number of distinct cookies is known
+    void replaceActiveCookies(ScalableBloomFilter activeCookies) {
+        this.activeCookies = activeCookies;
+    }
+
+    public long getEpochDay() {
+        return epochDay;
+    }
+
+    // Every line of the day starts within [startOffset, endOffset), so scanning that range finds all of them
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    public HyperLogLog getDistinctCookies() {
+        return distinctCookies;
+    }
+
+    public boolean mightContain(long cookieHash) {
+        return activeCookies.mightContain(cookieHash);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(epochDay);
+        out.writeLong(startOffset);
+        out.writeLong(endOffset);
+        out.writeLong(lineCount);
+        distinctCookies.writeTo(out);
+        activeCookies.writeTo(out);
+    }
+
+    static DayStats readFrom(DataInput in) throws IOException {
+        long epochDay = in.readLong();
+        long startOffset = in.readLong();
+        long endOffset = in.readLong();
+        long lineCount = in.readLong();
+        return new DayStats(epochDay, startOffset, endOffset, lineCount, HyperLogLog.readFrom(in),
+                ScalableBloomFilter.readFrom(in));
+    }
+}
@@ -0,0 +1,24 @@
+package org.euan.cookieanalyser.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.euan.cookieanalyser.ChunkParsed")
+@Label("Chunk Parsed")
+@Category({"Cookie Analyser", "Parse"})
+@Description("Splitting one buffer of log bytes into lines and handing them to the visitor")
+public class ChunkParsedEvent extends jdk.jfr.Event {
+
+    @Label("Offset")
+    public long offset;
+
+    @Label("Bytes Parsed")
+    @DataAmount
+    public long bytes;
+
+    @Label("Lines")
+    public long lines;
+}
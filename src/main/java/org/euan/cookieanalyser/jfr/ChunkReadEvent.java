@@ -0,0 +1,24 @@
+package org.euan.cookieanalyser.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.euan.cookieanalyser.ChunkRead")
+@Label("Chunk Read")
+@Category({"Cookie Analyser", "I/O"})
+@Description("A read of log bytes into the scan buffer")
+public class ChunkReadEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Offset")
+    public long offset;
+
+    @Label("Bytes Read")
+    @DataAmount
+    public long bytes;
+}
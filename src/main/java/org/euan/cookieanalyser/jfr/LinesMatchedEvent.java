@@ -0,0 +1,27 @@
+package org.euan.cookieanalyser.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.euan.cookieanalyser.LinesMatched")
+@Label("Lines Matched")
+@Category({"Cookie Analyser", "Filter"})
+@Description("Filtering a byte range down to the lines for the target date")
+public class LinesMatchedEvent extends jdk.jfr.Event {
+
+    @Label("Date")
+    public String date;
+
+    @Label("Range Start")
+    public long rangeStart;
+
+    @Label("Bytes In Range")
+    @DataAmount
+    public long bytes;
+
+    @Label("Lines Matched")
+    public long matched;
+}
@@ -0,0 +1,27 @@
+package org.euan.cookieanalyser.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.euan.cookieanalyser.MapResize")
+@Label("Count Map Resize")
+@Category({"Cookie Analyser", "Aggregate"})
+@Description("Rehashing a count table into one twice the size")
+public class MapResizeEvent extends jdk.jfr.Event {
+
+    @Label("Old Capacity")
+    public int oldCapacity;
+
+    @Label("New Capacity")
+    public int newCapacity;
+
+    @Label("Entries")
+    public int entries;
+
+    @Label("Bytes Allocated")
+    @DataAmount
+    public long bytes;
+}
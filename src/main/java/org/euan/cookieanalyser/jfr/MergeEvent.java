@@ -0,0 +1,24 @@
+package org.euan.cookieanalyser.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.euan.cookieanalyser.Merge")
+@Label("Partial Counts Merge")
+@Category({"Cookie Analyser", "Aggregate"})
+@Description("Folding one range's partial counts into the merged counts")
+public class MergeEvent extends jdk.jfr.Event {
+
+    @Label("Source Entries")
+    public int sourceEntries;
+
+    @Label("Merged Entries")
+    public int mergedEntries;
+
+    @Label("Source Bytes")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,58 @@
+package org.euan.cookieanalyser.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+
+/**
+ * A flight recording of the JDK's profile settings plus the pipeline's own events, so chunk reads, parsing, matching
+ * and aggregation can be lined up against GC, I/O and lock stalls in JDK Mission Control. The pipeline events are
+ * only committed while a recording has them enabled, so they cost next to nothing otherwise.
+ */
+public class PipelineRecording implements AutoCloseable {
+
+    public static final Path DEFAULT_DESTINATION = Path.of("cookie-analyser.jfr");
+
+    private static final List<Class<? extends Event>> EVENTS = List.of(ChunkReadEvent.class, ChunkParsedEvent.class,
+            LinesMatchedEvent.class, MapResizeEvent.class, MergeEvent.class);
+
+    private final Recording recording;
+    private final Path destination;
+
+    private PipelineRecording(Recording recording, Path destination) {
+        this.recording = recording;
+        this.destination = destination;
+    }
+
+    public static PipelineRecording start(Path destination) throws IOException {
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration("profile"));
+        } catch (ParseException ex) {
+            throw new IOException("Unable to load the JFR profile configuration", ex);
+        }
+        for (Class<? extends Event> event : EVENTS) {
+            recording.enable(event).withoutThreshold();
+        }
+        recording.setName("cookie-analyser");
+        recording.setDestination(destination);
+        recording.start();
+        return new PipelineRecording(recording, destination);
+    }
+
+    public Path getDestination() {
+        return destination;
+    }
+
+    // Stopping writes the recording to its destination
+    @Override
+    public void close() {
+        recording.stop();
+        recording.close();
+    }
+}
@@ -0,0 +1,44 @@
+package org.euan.cookieanalyser.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+import java.util.function.Supplier;
+
+public class DeferredAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private final Supplier<Appender<ILoggingEvent>> appenderFactory;
+    private volatile Appender<ILoggingEvent> delegate;
+
+    public DeferredAppender(Supplier<Appender<ILoggingEvent>> appenderFactory) {
+        this.appenderFactory = appenderFactory;
+    }
+
+    public boolean isInitialised() {
+        return delegate != null;
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        Appender<ILoggingEvent> appender = delegate;
+        if (appender == null) {
+            synchronized (this) {
+                if (delegate == null) {
+                    delegate = appenderFactory.get();
+                }
+                appender = delegate;
+            }
+        }
+        appender.doAppend(event);
+    }
+
+    @Override
+    public void stop() {
+        Appender<ILoggingEvent> appender = delegate;
+        if (appender != null) {
+            appender.stop();
+        }
+        super.stop();
+    }
+}
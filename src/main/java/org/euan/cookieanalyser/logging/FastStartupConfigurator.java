@@ -0,0 +1,66 @@
+package org.euan.cookieanalyser.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.Configurator;
+import ch.qos.logback.classic.spi.ConfiguratorRank;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.TimeBasedRollingPolicy;
+import ch.qos.logback.core.spi.ContextAwareBase;
+
+// Mirrors logback.xml without parsing it and only opens the log file once an event passes the root level, which
+// defaults to WARN so successful short queries never open it
+@ConfiguratorRank(ConfiguratorRank.CUSTOM_HIGH_PRIORITY)
+public class FastStartupConfigurator extends ContextAwareBase implements Configurator {
+
+    public static final String FAST_STARTUP_PROPERTY = "cookieanalyser.fastStartup";
+    public static final String LOG_LEVEL_PROPERTY = "cookieanalyser.logLevel";
+
+    private static final String LOG_FILE = "logs/application.log";
+    private static final String LOG_FILE_PATTERN = "logs/application.%d{yyyy-MM-dd}.log";
+    private static final String LOG_PATTERN = "%d{yyyy-MM-dd HH:mm:ss} %-5level %logger{36} - %msg%n";
+
+    @Override
+    public ExecutionStatus configure(LoggerContext loggerContext) {
+        if (!Boolean.getBoolean(FAST_STARTUP_PROPERTY)) {
+            return ExecutionStatus.INVOKE_NEXT_IF_ANY;
+        }
+
+        DeferredAppender appender = new DeferredAppender(() -> createFileAppender(loggerContext));
+        appender.setContext(loggerContext);
+        appender.setName("FILE");
+        appender.start();
+
+        Logger rootLogger = loggerContext.getLogger(Logger.ROOT_LOGGER_NAME);
+        rootLogger.setLevel(Level.toLevel(System.getProperty(LOG_LEVEL_PROPERTY), Level.WARN));
+        rootLogger.addAppender(appender);
+        return ExecutionStatus.DO_NOT_INVOKE_NEXT_IF_ANY;
+    }
+
+    private static Appender<ILoggingEvent> createFileAppender(LoggerContext loggerContext) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern(LOG_PATTERN);
+        encoder.start();
+
+        RollingFileAppender<ILoggingEvent> fileAppender = new RollingFileAppender<>();
+        fileAppender.setContext(loggerContext);
+        fileAppender.setName("FILE-DEFERRED");
+        fileAppender.setFile(LOG_FILE);
+        fileAppender.setEncoder(encoder);
+
+        TimeBasedRollingPolicy<ILoggingEvent> rollingPolicy = new TimeBasedRollingPolicy<>();
+        rollingPolicy.setContext(loggerContext);
+        rollingPolicy.setParent(fileAppender);
+        rollingPolicy.setFileNamePattern(LOG_FILE_PATTERN);
+        rollingPolicy.start();
+
+        fileAppender.setRollingPolicy(rollingPolicy);
+        fileAppender.start();
+        return fileAppender;
+    }
+}
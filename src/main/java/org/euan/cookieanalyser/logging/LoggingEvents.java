@@ -5,18 +5,53 @@ public enum LoggingEvents {
     FILE_ERROR("File error: {}"),
     INVALID_INPUT("Invalid input: {}"),
     UNEXPECTED_ERROR("Unexpected error: {}"),
+    SHARD_FAILED("Shard {} failed: {}"),
 
     //Warn Events
     MALFORMED_LOG_LINE("Malformed log line: {}"),
+    COOKIE_TOO_LONG("Skipping the line at byte {}: its cookie of {} bytes is longer than the {} byte limit"),
     DATE_PARSE_ERROR("Error parsing date: {}"),
     NO_LOGS_FOUND_FOR_DATE("No logs found for date: {}"),
     EMPTY_ANALYSIS_RESULT("Analysis resulted in no active cookies"),
+    INDEX_READ_FAILED("Unable to read index {}: {}"),
+    INDEX_WRITE_FAILED("Unable to write index {}: {}"),
+    CHECKPOINT_READ_FAILED("Unable to read checkpoint {}: {}"),
+    CHECKPOINT_WRITE_FAILED("Unable to write checkpoint {}: {}"),
+    SPOOL_INGEST_FAILED("Unable to ingest {}: {}"),
+    WINDOW_SORTED_ORDER_BROKEN("Days in {} are out of order from byte {} although the log was given as sorted, so windows already reported may be missing lines"),
+    MERGE_INPUT_OUT_OF_ORDER("Log {} is out of order at {}, so merged records may not be sorted"),
 
     //Info Events
     ATTEMPT_FIND_LOGS_FOR_DATE("Attempting to find logs for date: {}"),
     SUCCESSFULLY_FOUND_LOGS_FOR_DATE("Successfully found {} logs for date: {}"),
     ATTEMPT_ANALYSE_LOGS("Attempting to analyse logs for date: {}"),
-    SUCCESSFULLY_ANALYSED_LOGS("Successfully analysed logs. Found {} most active cookies");
+    SUCCESSFULLY_ANALYSED_LOGS("Successfully analysed logs. Found {} most active cookies"),
+    ATTEMPT_ANALYSE_WINDOWS("Attempting to analyse {} day windows over {} days of logs"),
+    WINDOW_DAYS_UNGROUPED("Days in {} are not in order from byte {}, so every day is counted before the windows slide"),
+    SCANNED_BYTE_RANGE("Scanned bytes {} to {} and counted {} matching logs"),
+    EXECUTION_PLAN_SELECTED("Selected {} plan reading an estimated {} bytes: {}"),
+    DUPLICATES_DROPPED("Dropped {} duplicate logs for date: {}"),
+    CHECKPOINT_WRITTEN("Wrote checkpoint {} with {} bytes left to scan"),
+    RESUMED_FROM_CHECKPOINT("Resuming from checkpoint {} with {} bytes left to scan"),
+    VALIDATION_COMPLETED("Validated {} lines of {} and found {} problems"),
+    SPILLED_PARTITIONS("Spilled {} matching logs into {} partitions"),
+    STREAM_ANALYSED("Analysed {} bytes and {} records from stream for date: {}"),
+    INDEX_LOADED("Loaded index {}"),
+    INDEX_WRITTEN("Wrote index {} covering {} days"),
+    ROLLUP_LOADED("Loaded rollup {} covering the first {} bytes of the log"),
+    ROLLUP_UPDATED("Ingested bytes {} to {} into rollup {} covering {} days"),
+    SPOOL_WATCHING("Watching {} for new cookie logs"),
+    SPOOL_FILE_INGESTED("Ingested {} updating {} days"),
+    SPOOL_FILE_SKIPPED("Skipping {} as it is unchanged since the manifest recorded it"),
+    POSTINGS_WRITTEN("Wrote postings index {} covering {} cookies"),
+    COOKIE_RULED_OUT_BY_INDEX("Index rules out cookie {} on {} without reading the log"),
+    COOKIE_LOOKUP_SCANNED("Scanned bytes {} to {} for cookie {} on {} and found {} matches"),
+    BYTE_SCANNER_SELECTED("Using byte scanner: {}"),
+    WORKER_LISTENING("Shard worker listening on port {}"),
+    SHARDS_DISPATCHED("Dispatched {} shards to {} workers for date: {}"),
+    DATES_BATCHED("Counting {} dates of {} in one pass"),
+    QUERIES_COALESCED("Coalesced {} concurrent queries into one pass over {} dates"),
+    SHARDS_MERGED("Merged {} shard results containing {} distinct cookies");
 
     private final String loggingMessage;
 
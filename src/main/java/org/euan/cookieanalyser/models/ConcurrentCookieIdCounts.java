@@ -0,0 +1,226 @@
+package org.euan.cookieanalyser.models;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Counts keyed by dense dictionary ID that any number of threads can increment without locking, while other threads
+ * read the leaders. Writers add into one of two banks of lazily allocated segments, chosen by the current epoch, and
+ * announce themselves on a striped in-flight gate so they never share a contended counter. A read flips the epoch,
+ * waits for the few writers still inside the old bank to leave it, and folds the old bank into reader-owned totals.
+ * Every read therefore sees exactly the increments that started before it, and writers never wait for readers.
+ */
+public class ConcurrentCookieIdCounts {
+    private static final int SEGMENT_BITS = 14;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    // Two directory levels cover every non-negative int ID and are only ever filled in, never copied
+    private static final int LEAF_BITS = 9;
+    private static final int LEAF_SIZE = 1 << LEAF_BITS;
+    private static final int ROOT_SIZE = 1 << (Integer.SIZE - 1 - SEGMENT_BITS - LEAF_BITS);
+    // Each gate sits on its own cache line so writers on different stripes do not invalidate each other
+    private static final int GATE_PADDING = 16;
+
+    private final int stripeMask;
+    private final AtomicIntegerArray gates;
+    private final Bank[] banks = {new Bank(), new Bank()};
+    private volatile int epoch;
+
+    // Reader-owned state, only touched while holding this object's monitor
+    private int[][] totals = new int[0][];
+    private int maxCount;
+    private int[] leaders = new int[0];
+    private int leaderCount;
+
+    public ConcurrentCookieIdCounts() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public ConcurrentCookieIdCounts(int stripes) {
+        int stripeCount = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripeMask = stripeCount - 1;
+        this.gates = new AtomicIntegerArray(stripeCount * 2 * GATE_PADDING);
+    }
+
+    public void increment(int id) {
+        add(id, 1);
+    }
+
+    public void add(int id, int count) {
+        if (id < 0 || count < 0) {
+            throw new IllegalArgumentException("Cookie id and count must not be negative");
+        }
+        int stripe = (int) mix(Thread.currentThread().getId()) & stripeMask;
+        while (true) {
+            int current = epoch;
+            int bank = current & 1;
+            int gate = (stripe * 2 + bank) * GATE_PADDING;
+            gates.incrementAndGet(gate);
+            if (epoch == current) {
+                Segment segment = banks[bank].segment(id >>> SEGMENT_BITS);
+                segment.cells.getAndAdd(id & SEGMENT_MASK, count);
+                if (!segment.dirty) {
+                    segment.dirty = true;
+                }
+                gates.decrementAndGet(gate);
+                return;
+            }
+            // A reader flipped the epoch in between, so this bank may already be folding
+            gates.decrementAndGet(gate);
+        }
+    }
+
+    public synchronized int[] mostActiveIds() {
+        fold();
+        return maxCount == 0 ? new int[0] : Arrays.copyOf(leaders, leaderCount);
+    }
+
+    // Highest counts first, ties broken by the lower ID so repeated reads of the same state agree
+    public synchronized int[] topIds(int k) {
+        fold();
+        PriorityQueue<int[]> top = new PriorityQueue<>((a, b) -> a[1] != b[1] ? Integer.compare(a[1], b[1])
+                : Integer.compare(b[0], a[0]));
+        for (int segment = 0; segment < totals.length; segment++) {
+            int[] counts = totals[segment];
+            if (counts == null) {
+                continue;
+            }
+            for (int offset = 0; offset < SEGMENT_SIZE; offset++) {
+                if (counts[offset] == 0) {
+                    continue;
+                }
+                top.add(new int[]{(segment << SEGMENT_BITS) | offset, counts[offset]});
+                if (top.size() > k) {
+                    top.poll();
+                }
+            }
+        }
+        int[] ids = new int[top.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = top.poll()[0];
+        }
+        return ids;
+    }
+
+    public synchronized CookieIdCounts snapshot() {
+        fold();
+        CookieIdCounts snapshot = new CookieIdCounts();
+        for (int segment = 0; segment < totals.length; segment++) {
+            int[] counts = totals[segment];
+            if (counts == null) {
+                continue;
+            }
+            for (int offset = 0; offset < SEGMENT_SIZE; offset++) {
+                if (counts[offset] != 0) {
+                    snapshot.add((segment << SEGMENT_BITS) | offset, counts[offset]);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private void fold() {
+        int previous = epoch;
+        epoch = previous + 1;
+        int bank = previous & 1;
+        awaitWriters(bank);
+
+        Bank folding = banks[bank];
+        int highest = folding.highestSegment.get();
+        for (int segmentIndex = 0; segmentIndex <= highest; segmentIndex++) {
+            Segment segment = folding.existing(segmentIndex);
+            if (segment == null || !segment.dirty) {
+                continue;
+            }
+            segment.dirty = false;
+            AtomicIntegerArray cells = segment.cells;
+            int[] counts = totalsSegment(segmentIndex);
+            for (int offset = 0; offset < SEGMENT_SIZE; offset++) {
+                int delta = cells.get(offset);
+                if (delta != 0) {
+                    cells.set(offset, 0);
+                    counts[offset] += delta;
+                    observe((segmentIndex << SEGMENT_BITS) | offset, counts[offset], delta);
+                }
+            }
+        }
+    }
+
+    private void awaitWriters(int bank) {
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            int gate = (stripe * 2 + bank) * GATE_PADDING;
+            // Writers leave within a few instructions unless descheduled, so yield rather than spin for long
+            for (int spins = 1; gates.get(gate) != 0; spins++) {
+                if ((spins & 63) == 0) {
+                    Thread.yield();
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    // Totals only grow, so the leaders can be kept current from the IDs a fold touched
+    private void observe(int id, int count, int delta) {
+        if (count > maxCount) {
+            maxCount = count;
+            leaderCount = 0;
+        }
+        if (count == maxCount && count - delta < maxCount) {
+            if (leaderCount == leaders.length) {
+                leaders = Arrays.copyOf(leaders, Math.max(4, leaderCount * 2));
+            }
+            leaders[leaderCount++] = id;
+        }
+    }
+
+    private int[] totalsSegment(int segmentIndex) {
+        if (segmentIndex >= totals.length) {
+            totals = Arrays.copyOf(totals, Math.max(segmentIndex + 1, totals.length * 2));
+        }
+        if (totals[segmentIndex] == null) {
+            totals[segmentIndex] = new int[SEGMENT_SIZE];
+        }
+        return totals[segmentIndex];
+    }
+
+    private static final class Segment {
+        private final AtomicIntegerArray cells = new AtomicIntegerArray(SEGMENT_SIZE);
+        private volatile boolean dirty;
+    }
+
+    private static final class Bank {
+        private final AtomicReferenceArray<AtomicReferenceArray<Segment>> root = new AtomicReferenceArray<>(ROOT_SIZE);
+        private final AtomicInteger highestSegment = new AtomicInteger(-1);
+
+        // Racing writers agree on one leaf and one segment because each slot is only ever set from null once. The
+        // highest index is raised before the segment is published, so a fold that sees its writes also visits it
+        private Segment segment(int segmentIndex) {
+            AtomicReferenceArray<Segment> leaf = root.get(segmentIndex >>> LEAF_BITS);
+            if (leaf == null) {
+                root.compareAndSet(segmentIndex >>> LEAF_BITS, null, new AtomicReferenceArray<>(LEAF_SIZE));
+                leaf = root.get(segmentIndex >>> LEAF_BITS);
+            }
+            Segment segment = leaf.get(segmentIndex & (LEAF_SIZE - 1));
+            if (segment == null) {
+                highestSegment.accumulateAndGet(segmentIndex, Math::max);
+                leaf.compareAndSet(segmentIndex & (LEAF_SIZE - 1), null, new Segment());
+                segment = leaf.get(segmentIndex & (LEAF_SIZE - 1));
+            }
+            return segment;
+        }
+
+        private Segment existing(int segmentIndex) {
+            AtomicReferenceArray<Segment> leaf = root.get(segmentIndex >>> LEAF_BITS);
+            return leaf == null ? null : leaf.get(segmentIndex & (LEAF_SIZE - 1));
+        }
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        return value ^ (value >>> 33);
+    }
+}
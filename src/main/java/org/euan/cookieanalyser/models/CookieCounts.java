@@ -0,0 +1,92 @@
+package org.euan.cookieanalyser.models;
+
+import org.euan.cookieanalyser.utils.VarInts;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CookieCounts {
+    private final HashMap<String, Integer> counts;
+
+    public CookieCounts() {
+        this.counts = new HashMap<>();
+    }
+
+    public CookieCounts(Map<String, Integer> counts) {
+        this.counts = new HashMap<>(counts);
+    }
+
+    public void increment(String cookie) {
+        counts.merge(cookie, 1, Integer::sum);
+    }
+
+    public void add(String cookie, int count) {
+        counts.merge(cookie, count, Integer::sum);
+    }
+
+    public void merge(CookieCounts other) {
+        other.counts.forEach(this::add);
+    }
+
+    public int getCount(String cookie) {
+        return counts.getOrDefault(cookie, 0);
+    }
+
+    public Map<String, Integer> asMap() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public boolean isEmpty() {
+        return counts.isEmpty();
+    }
+
+    public int size() {
+        return counts.size();
+    }
+
+    public long total() {
+        long total = 0;
+        for (int count : counts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public List<String> mostActive() {
+        if (counts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int maxCount = Collections.max(counts.values());
+        return counts.entrySet().stream()
+                .filter(entry -> entry.getValue() == maxCount)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        VarInts.writeVarInt(out, counts.size());
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            byte[] cookie = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            VarInts.writeVarInt(out, cookie.length);
+            out.write(cookie);
+            VarInts.writeVarInt(out, entry.getValue());
+        }
+    }
+
+    public static CookieCounts readFrom(DataInput in) throws IOException {
+        int entries = VarInts.readVarInt(in);
+        CookieCounts cookieCounts = new CookieCounts();
+        for (int i = 0; i < entries; i++) {
+            byte[] cookie = new byte[VarInts.readVarInt(in)];
+            in.readFully(cookie);
+            cookieCounts.add(new String(cookie, StandardCharsets.UTF_8), VarInts.readVarInt(in));
+        }
+        return cookieCounts;
+    }
+}
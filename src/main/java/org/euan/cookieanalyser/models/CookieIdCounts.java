@@ -0,0 +1,149 @@
+package org.euan.cookieanalyser.models;
+
+import org.euan.cookieanalyser.dictionary.CookieDictionary;
+import org.euan.cookieanalyser.jfr.MapResizeEvent;
+
+import java.util.Arrays;
+
+// Counts keyed by dictionary ID in a primitive open-addressing table, so counting never boxes or touches strings
+public class CookieIdCounts {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int EMPTY = -1;
+
+    private int[] ids;
+    private int[] counts;
+    private int size;
+
+    public CookieIdCounts() {
+        this.ids = new int[INITIAL_CAPACITY];
+        this.counts = new int[INITIAL_CAPACITY];
+        Arrays.fill(ids, EMPTY);
+    }
+
+    public void increment(int id) {
+        add(id, 1);
+    }
+
+    public void add(int id, int count) {
+        int slot = slotOf(id);
+        if (ids[slot] == EMPTY) {
+            ids[slot] = id;
+            if (++size * 2 > ids.length) {
+                counts[slot] = count;
+                resize();
+                return;
+            }
+        }
+        counts[slot] += count;
+    }
+
+    public void merge(CookieIdCounts other) {
+        for (int slot = 0; slot < other.ids.length; slot++) {
+            if (other.ids[slot] != EMPTY) {
+                add(other.ids[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    public int getCount(int id) {
+        int slot = slotOf(id);
+        return ids[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long total() {
+        long total = 0;
+        for (int slot = 0; slot < ids.length; slot++) {
+            if (ids[slot] != EMPTY) {
+                total += counts[slot];
+            }
+        }
+        return total;
+    }
+
+    public int[] mostActiveIds() {
+        int maxCount = 0;
+        int leaders = 0;
+        for (int slot = 0; slot < ids.length; slot++) {
+            if (ids[slot] == EMPTY) {
+                continue;
+            }
+            if (counts[slot] > maxCount) {
+                maxCount = counts[slot];
+                leaders = 0;
+            }
+            if (counts[slot] == maxCount) {
+                leaders++;
+            }
+        }
+        int[] mostActive = new int[leaders];
+        int next = 0;
+        for (int slot = 0; slot < ids.length && next < leaders; slot++) {
+            if (ids[slot] != EMPTY && counts[slot] == maxCount) {
+                mostActive[next++] = ids[slot];
+            }
+        }
+        return mostActive;
+    }
+
+    // Decodes only the leaders, so strings are materialised for the final output and nothing else
+    public CookieCounts decodeMostActive(CookieDictionary dictionary) {
+        CookieCounts leaders = new CookieCounts();
+        for (int id : mostActiveIds()) {
+            leaders.add(dictionary.cookie(id), getCount(id));
+        }
+        return leaders;
+    }
+
+    public CookieCounts decode(CookieDictionary dictionary) {
+        CookieCounts decoded = new CookieCounts();
+        for (int slot = 0; slot < ids.length; slot++) {
+            if (ids[slot] != EMPTY) {
+                decoded.add(dictionary.cookie(ids[slot]), counts[slot]);
+            }
+        }
+        return decoded;
+    }
+
+    private int slotOf(int id) {
+        int mask = ids.length - 1;
+        int hash = id * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (ids[slot] != EMPTY && ids[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        MapResizeEvent event = new MapResizeEvent();
+        event.begin();
+        int[] oldIds = ids;
+        int[] oldCounts = counts;
+        ids = new int[oldIds.length * 2];
+        counts = new int[oldIds.length * 2];
+        Arrays.fill(ids, EMPTY);
+        for (int slot = 0; slot < oldIds.length; slot++) {
+            if (oldIds[slot] != EMPTY) {
+                int target = slotOf(oldIds[slot]);
+                ids[target] = oldIds[slot];
+                counts[target] = oldCounts[slot];
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.oldCapacity = oldIds.length;
+            event.newCapacity = ids.length;
+            event.entries = size;
+            event.bytes = (long) ids.length * 2 * Integer.BYTES;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.euan.cookieanalyser.models;
+
+import org.euan.cookieanalyser.dictionary.CookieDictionary;
+import org.euan.cookieanalyser.jfr.MapResizeEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+/**
+ * Count, first and last seen instants and active hours per dictionary ID, gathered in the same pass. The table is
+ * open-addressed like CookieIdCounts, with each metric in its own primitive array indexed by slot, so recording a line
+ * updates a few array cells and never allocates per cookie. Rows are only built when the leaders are decoded.
+ */
+public class CookieIdMetrics {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int EMPTY = -1;
+    // ids, counts and hour masks are ints, first and last seen are longs
+    private static final int SLOT_BYTES = 3 * Integer.BYTES + 2 * Long.BYTES;
+
+    public enum Metric {
+        COUNT, FIRST_SEEN, LAST_SEEN, ACTIVE_HOURS;
+
+        // Accepts the names used on the command line, such as first-seen
+        public static Optional<Metric> parse(String name) {
+            for (Metric metric : values()) {
+                if (metric.name().replace('_', '-').equalsIgnoreCase(name)) {
+                    return Optional.of(metric);
+                }
+            }
+            return Optional.empty();
+        }
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private int[] ids;
+    private int[] counts;
+    private long[] firstSeen;
+    private long[] lastSeen;
+    private int[] hourMasks;
+    private int size;
+
+    public CookieIdMetrics() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    // hour is the hour of the day the line falls in, from 0 to 23
+    public void record(int id, long epochSecond, int hour) {
+        add(id, 1, epochSecond, epochSecond, 1 << hour);
+    }
+
+    public void merge(CookieIdMetrics other) {
+        for (int slot = 0; slot < other.ids.length; slot++) {
+            if (other.ids[slot] != EMPTY) {
+                add(other.ids[slot], other.counts[slot], other.firstSeen[slot], other.lastSeen[slot],
+                        other.hourMasks[slot]);
+            }
+        }
+    }
+
+    public int getCount(int id) {
+        int slot = slotOf(id);
+        return ids[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    public int getActiveHours(int id) {
+        int slot = slotOf(id);
+        return ids[slot] == EMPTY ? 0 : Integer.bitCount(hourMasks[slot]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long total() {
+        long total = 0;
+        for (int slot = 0; slot < ids.length; slot++) {
+            if (ids[slot] != EMPTY) {
+                total += counts[slot];
+            }
+        }
+        return total;
+    }
+
+    // Best first by the metric, ties broken by the lower ID. A limit below one returns every ID
+    public int[] topIds(Metric metric, int limit) {
+        Comparator<Integer> best = bySlot(metric);
+        int keep = limit < 1 ? size : Math.min(limit, size);
+        PriorityQueue<Integer> top = new PriorityQueue<>(Math.max(1, keep), best.reversed());
+        for (int slot = 0; slot < ids.length; slot++) {
+            if (ids[slot] == EMPTY) {
+                continue;
+            }
+            top.add(slot);
+            if (top.size() > keep) {
+                top.poll();
+            }
+        }
+        int[] ranked = new int[top.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = ids[top.poll()];
+        }
+        return ranked;
+    }
+
+    public List<CookieMetrics> decode(CookieDictionary dictionary, Metric metric, int limit) {
+        List<CookieMetrics> rows = new ArrayList<>();
+        for (int id : topIds(metric, limit)) {
+            int slot = slotOf(id);
+            rows.add(new CookieMetrics(dictionary.cookie(id), counts[slot], firstSeen[slot], lastSeen[slot],
+                    hourMasks[slot]));
+        }
+        return rows;
+    }
+
+    private Comparator<Integer> bySlot(Metric metric) {
+        Comparator<Integer> byMetric = switch (metric) {
+            case COUNT -> (a, b) -> Integer.compare(counts[b], counts[a]);
+            case FIRST_SEEN -> (a, b) -> Long.compare(firstSeen[a], firstSeen[b]);
+            case LAST_SEEN -> (a, b) -> Long.compare(lastSeen[b], lastSeen[a]);
+            case ACTIVE_HOURS -> (a, b) -> Integer.compare(Integer.bitCount(hourMasks[b]), Integer.bitCount(hourMasks[a]));
+        };
+        return byMetric.thenComparing((a, b) -> Integer.compare(ids[a], ids[b]));
+    }
+
+    private void add(int id, int count, long first, long last, int hourMask) {
+        int slot = slotOf(id);
+        if (ids[slot] == EMPTY) {
+            ids[slot] = id;
+            firstSeen[slot] = first;
+            lastSeen[slot] = last;
+            size++;
+        } else {
+            firstSeen[slot] = Math.min(firstSeen[slot], first);
+            lastSeen[slot] = Math.max(lastSeen[slot], last);
+        }
+        counts[slot] += count;
+        hourMasks[slot] |= hourMask;
+        if (size * 2 > ids.length) {
+            resize();
+        }
+    }
+
+    private int slotOf(int id) {
+        int mask = ids.length - 1;
+        int hash = id * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (ids[slot] != EMPTY && ids[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        counts = new int[capacity];
+        firstSeen = new long[capacity];
+        lastSeen = new long[capacity];
+        hourMasks = new int[capacity];
+        Arrays.fill(ids, EMPTY);
+    }
+
+    private void resize() {
+        MapResizeEvent event = new MapResizeEvent();
+        event.begin();
+        int[] oldIds = ids;
+        int[] oldCounts = counts;
+        long[] oldFirstSeen = firstSeen;
+        long[] oldLastSeen = lastSeen;
+        int[] oldHourMasks = hourMasks;
+        allocate(oldIds.length * 2);
+        for (int slot = 0; slot < oldIds.length; slot++) {
+            if (oldIds[slot] != EMPTY) {
+                int target = slotOf(oldIds[slot]);
+                ids[target] = oldIds[slot];
+                counts[target] = oldCounts[slot];
+                firstSeen[target] = oldFirstSeen[slot];
+                lastSeen[target] = oldLastSeen[slot];
+                hourMasks[target] = oldHourMasks[slot];
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.oldCapacity = oldIds.length;
+            event.newCapacity = ids.length;
+            event.entries = size;
+            event.bytes = (long) ids.length * SLOT_BYTES;
+            event.commit();
+        }
+    }
+}
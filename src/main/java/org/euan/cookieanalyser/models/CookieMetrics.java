@@ -0,0 +1,44 @@
+package org.euan.cookieanalyser.models;
+
+public class CookieMetrics {
+    private final String cookie;
+    private final int count;
+    private final long firstSeen;
+    private final long lastSeen;
+    private final int hourMask;
+
+    public CookieMetrics(String cookie, int count, long firstSeen, long lastSeen, int hourMask) {
+        this.cookie = cookie;
+        this.count = count;
+        this.firstSeen = firstSeen;
+        this.lastSeen = lastSeen;
+        this.hourMask = hourMask;
+    }
+
+    public String getCookie() {
+        return cookie;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    // UTC epoch second of the cookie's earliest line on the day
+    public long getFirstSeen() {
+        return firstSeen;
+    }
+
+    // UTC epoch second of the cookie's latest line on the day
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    // Bit h is set when the cookie has a line in hour h of the day
+    public int getHourMask() {
+        return hourMask;
+    }
+
+    public int getActiveHours() {
+        return Integer.bitCount(hourMask);
+    }
+}
@@ -0,0 +1,85 @@
+package org.euan.cookieanalyser.models;
+
+public class ExecutionPlan {
+
+    public enum Strategy {
+        INDEX_LOOKUP,
+        BINARY_SEARCH_SEEK,
+        EARLY_TERMINATING_SCAN,
+        PARALLEL_SCAN,
+        SPILL
+    }
+
+    public enum SortOrder {
+        ASCENDING,
+        DESCENDING,
+        UNSORTED
+    }
+
+    private final Strategy strategy;
+    private final SortOrder sortOrder;
+    private final long rangeStart;
+    private final long rangeEnd;
+    private final long estimatedBytes;
+    private final int threads;
+    private final int partitions;
+    private final String reason;
+
+    public ExecutionPlan(Strategy strategy, SortOrder sortOrder, long rangeStart, long rangeEnd, long estimatedBytes,
+                         int threads, int partitions, String reason) {
+        this.strategy = strategy;
+        this.sortOrder = sortOrder;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.estimatedBytes = estimatedBytes;
+        this.threads = threads;
+        this.partitions = partitions;
+        this.reason = reason;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    public long getRangeStart() {
+        return rangeStart;
+    }
+
+    public long getRangeEnd() {
+        return rangeEnd;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public String explain() {
+        StringBuilder explanation = new StringBuilder("Plan: ").append(strategy)
+                .append("\n  order: ").append(sortOrder)
+                .append("\n  byte range: [").append(rangeStart).append(", ").append(rangeEnd).append(')')
+                .append("\n  estimated bytes to read: ").append(estimatedBytes);
+        if (threads > 1) {
+            explanation.append("\n  threads: ").append(threads);
+        }
+        if (partitions > 0) {
+            explanation.append("\n  spill partitions: ").append(partitions);
+        }
+        return explanation.append("\n  reason: ").append(reason).toString();
+    }
+}
@@ -0,0 +1,89 @@
+package org.euan.cookieanalyser.models;
+
+import org.euan.cookieanalyser.services.CookieFilter;
+
+import java.nio.file.Path;
+import java.time.ZoneId;
+
+public class QueryOptions {
+
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 256L << 20;
+
+    private final boolean dedupe;
+    private final boolean resume;
+    private final long checkpointInterval;
+    private final Path checkpointDirectory;
+    private final CookieFilter cookieFilter;
+    private final ZoneId zone;
+
+    public QueryOptions(boolean dedupe, boolean resume, long checkpointInterval) {
+        this(dedupe, resume, checkpointInterval, null, null, null);
+    }
+
+    // A null checkpoint directory disables checkpoints, a null cookie filter counts every cookie, and a null zone
+    // buckets lines by the date as written
+    public QueryOptions(boolean dedupe, boolean resume, long checkpointInterval, Path checkpointDirectory,
+                        CookieFilter cookieFilter, ZoneId zone) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive but was " + checkpointInterval);
+        }
+        this.dedupe = dedupe;
+        this.resume = resume;
+        this.checkpointInterval = checkpointInterval;
+        this.checkpointDirectory = checkpointDirectory;
+        this.cookieFilter = cookieFilter;
+        this.zone = zone;
+    }
+
+    public static QueryOptions defaults() {
+        return new QueryOptions(false, false, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public QueryOptions withDedupe(boolean dedupe) {
+        return new QueryOptions(dedupe, resume, checkpointInterval, checkpointDirectory, cookieFilter, zone);
+    }
+
+    public QueryOptions withResume(boolean resume) {
+        return new QueryOptions(dedupe, resume, checkpointInterval, checkpointDirectory, cookieFilter, zone);
+    }
+
+    public QueryOptions withCheckpointInterval(long checkpointInterval) {
+        return new QueryOptions(dedupe, resume, checkpointInterval, checkpointDirectory, cookieFilter, zone);
+    }
+
+    public QueryOptions withCheckpointDirectory(Path checkpointDirectory) {
+        return new QueryOptions(dedupe, resume, checkpointInterval, checkpointDirectory, cookieFilter, zone);
+    }
+
+    public QueryOptions withCookieFilter(CookieFilter cookieFilter) {
+        return new QueryOptions(dedupe, resume, checkpointInterval, checkpointDirectory, cookieFilter, zone);
+    }
+
+    public QueryOptions withZone(ZoneId zone) {
+        return new QueryOptions(dedupe, resume, checkpointInterval, checkpointDirectory, cookieFilter, zone);
+    }
+
+    public boolean isDedupe() {
+        return dedupe;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public Path getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    public CookieFilter getCookieFilter() {
+        return cookieFilter;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+}
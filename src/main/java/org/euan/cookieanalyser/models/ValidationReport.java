@@ -0,0 +1,83 @@
+package org.euan.cookieanalyser.models;
+
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class ValidationReport {
+
+    public enum Problem {
+        MISSING_COMMA,
+        BAD_TIMESTAMP_LENGTH,
+        EMPTY_COOKIE,
+        UNPARSABLE_DATE,
+        OUT_OF_ORDER
+    }
+
+    public static final int SAMPLE_LIMIT = 5;
+
+    private final long lines;
+    private final SortOrder sortOrder;
+    private final Map<Problem, Long> counts = new EnumMap<>(Problem.class);
+    private final Map<Problem, List<Long>> samples = new EnumMap<>(Problem.class);
+
+    public ValidationReport(long lines, SortOrder sortOrder) {
+        this.lines = lines;
+        this.sortOrder = sortOrder;
+        for (Problem problem : Problem.values()) {
+            counts.put(problem, 0L);
+            samples.put(problem, new ArrayList<>());
+        }
+    }
+
+    public void add(Problem problem, long count, List<Long> lineNumbers) {
+        counts.merge(problem, count, Long::sum);
+        List<Long> kept = samples.get(problem);
+        for (long lineNumber : lineNumbers) {
+            if (kept.size() == SAMPLE_LIMIT) {
+                break;
+            }
+            kept.add(lineNumber);
+        }
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    public long getCount(Problem problem) {
+        return counts.get(problem);
+    }
+
+    public List<Long> getSampleLines(Problem problem) {
+        return List.copyOf(samples.get(problem));
+    }
+
+    public long getProblemCount() {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public boolean isValid() {
+        return getProblemCount() == 0;
+    }
+
+    public List<String> format() {
+        List<String> formatted = new ArrayList<>();
+        formatted.add("lines," + lines);
+        formatted.add("order," + sortOrder);
+        for (Problem problem : Problem.values()) {
+            formatted.add(problem + "," + counts.get(problem) + "," + samples.get(problem).stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(" ")));
+        }
+        return formatted;
+    }
+}
@@ -0,0 +1,28 @@
+package org.euan.cookieanalyser.models;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class WindowResult {
+    private final LocalDate date;
+    private final List<String> mostActiveCookies;
+    private final int count;
+
+    public WindowResult(LocalDate date, List<String> mostActiveCookies, int count) {
+        this.date = date;
+        this.mostActiveCookies = mostActiveCookies;
+        this.count = count;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public List<String> getMostActiveCookies() {
+        return mostActiveCookies;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,176 @@
+package org.euan.cookieanalyser.rollup;
+
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.utils.Hashing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Per-day cookie counts for the first {@code highWaterMark} bytes of a log. The header and day directory are read on
+ * open; a day's counts are only read from disk when that day is queried, so an instance must not outlive the next
+ * update of the same file.
+ * Layout: header | directory of (epochDay, offset, length, total) | one CookieCounts block per day.
+ */
+public class CookieRollup {
+    static final int MAGIC = 0x434B524C;
+    static final int VERSION = 1;
+    static final int PREFIX_BYTES = 4096;
+    private static final String ROLLUP_SUFFIX = ".rollup";
+    private static final int HEADER_BYTES = 32;
+    private static final int DIRECTORY_ENTRY_BYTES = 28;
+
+    private final Path file;
+    private final long highWaterMark;
+    private final long prefixHash;
+    private final TreeMap<Long, DayEntry> days;
+
+    private CookieRollup(Path file, long highWaterMark, long prefixHash, TreeMap<Long, DayEntry> days) {
+        this.file = file;
+        this.highWaterMark = highWaterMark;
+        this.prefixHash = prefixHash;
+        this.days = days;
+    }
+
+    public static Path rollupPathFor(Path logFile) {
+        return logFile.resolveSibling(logFile.getFileName() + ROLLUP_SUFFIX);
+    }
+
+    public long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public List<LocalDate> getDates() {
+        List<LocalDate> dates = new ArrayList<>(days.size());
+        days.keySet().forEach(epochDay -> dates.add(LocalDate.ofEpochDay(epochDay)));
+        return dates;
+    }
+
+    public long getTotal(LocalDate date) {
+        DayEntry day = days.get(date.toEpochDay());
+        return day == null ? 0 : day.total;
+    }
+
+    // The log may only have grown since the rollup was written; a rotated or rewritten log changes its first bytes
+    public boolean isValidFor(Path logFile) throws IOException {
+        return Files.size(logFile) >= highWaterMark && prefixHash(logFile, highWaterMark) == prefixHash;
+    }
+
+    public Optional<CookieCounts> countsFor(LocalDate date) throws IOException {
+        DayEntry day = days.get(date.toEpochDay());
+        if (day == null) {
+            return Optional.empty();
+        }
+        return Optional.of(CookieCounts.readFrom(new DataInputStream(new ByteArrayInputStream(readBlock(day.epochDay)))));
+    }
+
+    byte[] readBlock(long epochDay) throws IOException {
+        DayEntry day = days.get(epochDay);
+        byte[] block = new byte[day.length];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(block);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, day.offset + buffer.position()) < 0) {
+                    throw new EOFException("Rollup " + file + " is truncated");
+                }
+            }
+        }
+        return block;
+    }
+
+    static long prefixHash(Path logFile, long highWaterMark) throws IOException {
+        byte[] prefix = new byte[(int) Math.min(PREFIX_BYTES, highWaterMark)];
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(prefix);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, buffer.position()) < 0) {
+                    break;
+                }
+            }
+            return Hashing.hash64(prefix, 0, buffer.position());
+        }
+    }
+
+    public static Optional<CookieRollup> open(Path rollupFile) throws IOException {
+        if (!Files.exists(rollupFile)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(rollupFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return Optional.empty();
+            }
+            long highWaterMark = in.readLong();
+            long prefixHash = in.readLong();
+            int dayCount = in.readInt();
+            in.readInt();
+            TreeMap<Long, DayEntry> days = new TreeMap<>();
+            for (int i = 0; i < dayCount; i++) {
+                DayEntry day = new DayEntry(in.readLong(), in.readLong(), in.readInt(), in.readLong());
+                days.put(day.epochDay, day);
+            }
+            return Optional.of(new CookieRollup(rollupFile, highWaterMark, prefixHash, days));
+        }
+    }
+
+    static void write(Path rollupFile, long highWaterMark, long prefixHash, SortedMap<Long, byte[]> blocks,
+                      Map<Long, Long> totals) throws IOException {
+        Path tempFile = rollupFile.resolveSibling(rollupFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(highWaterMark);
+            out.writeLong(prefixHash);
+            out.writeInt(blocks.size());
+            out.writeInt(0);
+            long offset = HEADER_BYTES + (long) blocks.size() * DIRECTORY_ENTRY_BYTES;
+            for (Map.Entry<Long, byte[]> block : blocks.entrySet()) {
+                out.writeLong(block.getKey());
+                out.writeLong(offset);
+                out.writeInt(block.getValue().length);
+                out.writeLong(totals.get(block.getKey()));
+                offset += block.getValue().length;
+            }
+            for (byte[] block : blocks.values()) {
+                out.write(block);
+            }
+        }
+        try {
+            Files.move(tempFile, rollupFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tempFile, rollupFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static final class DayEntry {
+        private final long epochDay;
+        private final long offset;
+        private final int length;
+        private final long total;
+
+        private DayEntry(long epochDay, long offset, int length, long total) {
+            this.epochDay = epochDay;
+            this.offset = offset;
+            this.length = length;
+            this.total = total;
+        }
+    }
+}
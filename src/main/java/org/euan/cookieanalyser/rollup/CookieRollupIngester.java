@@ -0,0 +1,187 @@
+package org.euan.cookieanalyser.rollup;
+
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.services.CookieLogScanner;
+import org.euan.cookieanalyser.services.DayResolver;
+import org.euan.cookieanalyser.services.TimestampPrefixDayResolver;
+import org.euan.cookieanalyser.utils.DateUtils;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+
+public class CookieRollupIngester {
+    private final Logger LOGGER = LoggerFactory.getLogger(CookieRollupIngester.class);
+
+    private static final int TAIL_CHUNK = 8192;
+
+    private final CookieLogScanner scanner;
+    private final int threads;
+
+    public CookieRollupIngester() {
+        this(new CookieLogScanner(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public CookieRollupIngester(CookieLogScanner scanner, int threads) {
+        this.scanner = scanner;
+        this.threads = Math.max(1, threads);
+    }
+
+    public CookieRollup update(FileUtils fileUtils) throws IOException {
+        return update(fileUtils, (date, counts) -> {
+        });
+    }
+
+    /**
+     * Brings the rollup next to the log up to date by ingesting only the bytes past its high-water mark, passing the
+     * newly ingested counts of each day to {@code onIngested}. A final line without a newline is only ingested once it
+     * parses as a complete record, otherwise it is read again next time. Callers must not update one log concurrently.
+     */
+    public CookieRollup update(FileUtils fileUtils, BiConsumer<LocalDate, CookieCounts> onIngested) throws IOException {
+        Path path = fileUtils.getPath();
+        Path rollupFile = CookieRollup.rollupPathFor(path);
+        long size = fileUtils.size();
+        Optional<CookieRollup> existing = openQuietly(rollupFile);
+        CookieRollup previous = existing.isPresent() && existing.get().isValidFor(path) ? existing.get() : null;
+        long start = previous == null ? 0 : previous.getHighWaterMark();
+        if (previous != null && start == size) {
+            LOGGER.info(ROLLUP_LOADED.getLoggingMessage(), rollupFile, start);
+            return previous;
+        }
+
+        long tailStart = lastLineStart(path, size);
+        AtomicBoolean tailIngested = new AtomicBoolean();
+        TreeMap<Long, CookieCounts> fresh = countPerDay(path, start, size, tailStart, tailIngested);
+        long highWaterMark = tailIngested.get() || tailStart >= size ? size : Math.max(start, tailStart);
+        fresh.forEach((epochDay, counts) -> onIngested.accept(LocalDate.ofEpochDay(epochDay), counts));
+
+        TreeMap<Long, byte[]> blocks = new TreeMap<>();
+        Map<Long, Long> totals = new HashMap<>();
+        if (previous != null) {
+            for (LocalDate date : previous.getDates()) {
+                long epochDay = date.toEpochDay();
+                if (!fresh.containsKey(epochDay)) {
+                    blocks.put(epochDay, previous.readBlock(epochDay));
+                    totals.put(epochDay, previous.getTotal(date));
+                } else {
+                    fresh.get(epochDay).merge(previous.countsFor(date).orElseThrow());
+                }
+            }
+        }
+        for (Map.Entry<Long, CookieCounts> day : fresh.entrySet()) {
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            day.getValue().writeTo(new DataOutputStream(block));
+            blocks.put(day.getKey(), block.toByteArray());
+            totals.put(day.getKey(), day.getValue().total());
+        }
+
+        CookieRollup.write(rollupFile, highWaterMark, CookieRollup.prefixHash(path, highWaterMark), blocks, totals);
+        LOGGER.info(ROLLUP_UPDATED.getLoggingMessage(), start, highWaterMark, rollupFile, blocks.size());
+        return CookieRollup.open(rollupFile)
+                .orElseThrow(() -> new IOException("Rollup " + rollupFile + " could not be reopened"));
+    }
+
+    private TreeMap<Long, CookieCounts> countPerDay(Path path, long start, long end, long tailStart,
+                                                    AtomicBoolean tailIngested) throws IOException {
+        long[] boundaries = CookieLogScanner.splitRanges(end - start, threads);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, boundaries.length - 1));
+        try {
+            List<Future<Map<Long, CookieCounts>>> partials = new ArrayList<>();
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                long rangeStart = start + boundaries[i];
+                long rangeEnd = start + boundaries[i + 1];
+                partials.add(executor.submit(() -> countRange(path, rangeStart, rangeEnd, tailStart, tailIngested)));
+            }
+
+            TreeMap<Long, CookieCounts> countsPerDay = new TreeMap<>();
+            for (Future<Map<Long, CookieCounts>> partial : partials) {
+                partial.get().forEach((epochDay, counts) ->
+                        countsPerDay.computeIfAbsent(epochDay, day -> new CookieCounts()).merge(counts));
+            }
+            return countsPerDay;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while ingesting " + path, ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to ingest " + path, ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Map<Long, CookieCounts> countRange(Path path, long start, long end, long tailStart,
+                                               AtomicBoolean tailIngested) throws IOException {
+        Map<Long, CookieCounts> countsPerDay = new TreeMap<>();
+        DayResolver dayResolver = new TimestampPrefixDayResolver();
+        scanner.scanRecords(path, start, end, (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) -> {
+            long epochDay = dayResolver.resolve(buffer, timestampStart);
+            if (epochDay == DateUtils.INVALID_EPOCH_DAY) {
+                return;
+            }
+            if (lineOffset >= tailStart) {
+                tailIngested.set(true);
+            }
+            countsPerDay.computeIfAbsent(epochDay, day -> new CookieCounts())
+                    .increment(CookieLogScanner.decode(buffer, cookieStart, cookieEnd));
+        });
+        return countsPerDay;
+    }
+
+    // Offset of the first byte after the last newline, which is the file size when the log ends with a newline
+    static long lastLineStart(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer chunk = ByteBuffer.allocate(TAIL_CHUNK);
+            long end = size;
+            while (end > 0) {
+                long start = Math.max(0, end - TAIL_CHUNK);
+                chunk.clear().limit((int) (end - start));
+                while (chunk.hasRemaining()) {
+                    if (channel.read(chunk, start + chunk.position()) < 0) {
+                        break;
+                    }
+                }
+                for (int i = chunk.position() - 1; i >= 0; i--) {
+                    if (chunk.get(i) == '\n') {
+                        return start + i + 1;
+                    }
+                }
+                end = start;
+            }
+            return 0;
+        }
+    }
+
+    private Optional<CookieRollup> openQuietly(Path rollupFile) {
+        try {
+            return CookieRollup.open(rollupFile);
+        } catch (IOException ex) {
+            LOGGER.warn(INDEX_READ_FAILED.getLoggingMessage(), rollupFile, ex.toString());
+            return Optional.empty();
+        }
+    }
+}
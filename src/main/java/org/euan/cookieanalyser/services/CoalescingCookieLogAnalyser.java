@@ -0,0 +1,104 @@
+package org.euan.cookieanalyser.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+
+/**
+ * Lets many threads query one analyser without each running its own scan. A query for a date that is already being
+ * answered waits for that answer instead of starting another. Queries that arrive while a pass is running are queued,
+ * and the next pass answers every queued date at once, so a burst of requests costs at most two passes over the log.
+ */
+public class CoalescingCookieLogAnalyser {
+    private final Logger LOGGER = LoggerFactory.getLogger(CoalescingCookieLogAnalyser.class);
+
+    private final CookieLogAnalyser analyser;
+    private final Object lock = new Object();
+
+    // Guarded by lock. A date is in flight from the moment it is queued until its pass has finished
+    private final Map<LocalDate, Flight> inFlight = new HashMap<>();
+    private Map<LocalDate, Flight> queued = new LinkedHashMap<>();
+    private boolean running;
+
+    public CoalescingCookieLogAnalyser(CookieLogAnalyser analyser) {
+        this.analyser = analyser;
+    }
+
+    public List<String> returnMostActiveCookie(LocalDate inputDate) {
+        if (inputDate == null) {
+            LOGGER.error(INVALID_INPUT.getLoggingMessage(), "Input date is null");
+            return Collections.emptyList();
+        }
+
+        Flight flight;
+        synchronized (lock) {
+            flight = inFlight.get(inputDate);
+            if (flight == null) {
+                flight = new Flight();
+                inFlight.put(inputDate, flight);
+                queued.put(inputDate, flight);
+            }
+            flight.callers++;
+        }
+
+        // Whichever waiting caller finds no pass running answers the whole queue, including its own date
+        try {
+            while (!flight.result.isDone()) {
+                Map<LocalDate, Flight> pass = null;
+                synchronized (lock) {
+                    if (flight.result.isDone()) {
+                        break;
+                    }
+                    if (!running && !queued.isEmpty()) {
+                        running = true;
+                        pass = queued;
+                        queued = new LinkedHashMap<>();
+                    } else {
+                        lock.wait();
+                    }
+                }
+                if (pass != null) {
+                    answer(pass);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+            return Collections.emptyList();
+        }
+        return flight.result.join();
+    }
+
+    private void answer(Map<LocalDate, Flight> pass) {
+        Map<LocalDate, List<String>> results = Collections.emptyMap();
+        try {
+            results = analyser.returnMostActiveCookies(pass.keySet());
+        } finally {
+            synchronized (lock) {
+                int callers = 0;
+                for (Map.Entry<LocalDate, Flight> entry : pass.entrySet()) {
+                    inFlight.remove(entry.getKey());
+                    callers += entry.getValue().callers;
+                    entry.getValue().result.complete(results.getOrDefault(entry.getKey(), Collections.emptyList()));
+                }
+                running = false;
+                lock.notifyAll();
+                LOGGER.info(QUERIES_COALESCED.getLoggingMessage(), callers, pass.size());
+            }
+        }
+    }
+
+    private static final class Flight {
+        private final CompletableFuture<List<String>> result = new CompletableFuture<>();
+        private int callers;
+    }
+}
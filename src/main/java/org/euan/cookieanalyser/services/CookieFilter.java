@@ -0,0 +1,54 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.utils.Hashing;
+import org.euan.cookieanalyser.utils.LongHashSet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+// Restricts a query to cookies with a prefix and/or on an allow-list, tested against the raw bytes of a scanned line
+// before the cookie is decoded or counted. The allow-list is kept as 64-bit hashes, like DuplicateFilter, so a
+// rejected line costs one hash and one probe. Immutable, so scan threads can share one instance.
+public class CookieFilter {
+    private final byte[] prefix;
+    private final LongHashSet allowed;
+
+    // A null prefix or allow-list does not restrict the query
+    public CookieFilter(String prefix, Collection<String> allowList) {
+        this.prefix = prefix == null ? new byte[0] : prefix.getBytes(StandardCharsets.UTF_8);
+        if (allowList == null) {
+            this.allowed = null;
+        } else {
+            this.allowed = new LongHashSet();
+            for (String cookie : allowList) {
+                allowed.add(Hashing.hash64(cookie));
+            }
+        }
+    }
+
+    // One cookie per line; surrounding whitespace and blank lines are ignored
+    public static List<String> readCookieList(Path file) throws IOException {
+        try (var lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return lines.map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .toList();
+        }
+    }
+
+    public boolean matches(byte[] buffer, int cookieStart, int cookieEnd) {
+        int length = cookieEnd - cookieStart;
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer[cookieStart + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return allowed == null || allowed.contains(Hashing.hash64(buffer, cookieStart, length));
+    }
+}
@@ -1,14 +1,45 @@
 package org.euan.cookieanalyser.services;
 
+import org.euan.cookieanalyser.dictionary.CookieDictionary;
+import org.euan.cookieanalyser.dictionary.CookieIdCache;
 import org.euan.cookieanalyser.exceptions.NoLogsFoundException;
+import org.euan.cookieanalyser.jfr.LinesMatchedEvent;
+import org.euan.cookieanalyser.jfr.MergeEvent;
+import org.euan.cookieanalyser.models.ConcurrentCookieIdCounts;
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.models.CookieIdCounts;
+import org.euan.cookieanalyser.models.CookieIdMetrics;
+import org.euan.cookieanalyser.models.CookieIdMetrics.Metric;
 import org.euan.cookieanalyser.models.CookieLog;
+import org.euan.cookieanalyser.models.CookieMetrics;
+import org.euan.cookieanalyser.models.ExecutionPlan;
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
+import org.euan.cookieanalyser.models.QueryOptions;
+import org.euan.cookieanalyser.utils.DateUtils;
+import org.euan.cookieanalyser.utils.Hashing;
+import org.euan.cookieanalyser.utils.VarInts;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.euan.cookieanalyser.utils.FileUtils;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
 
 import static org.euan.cookieanalyser.logging.LoggingEvents.*;
 
@@ -16,17 +47,38 @@ public class CookieLogAnalyser {
 
     private final Logger LOGGER = LoggerFactory.getLogger(CookieLogAnalyser.class);
 
+    private static final LongConsumer NO_PROGRESS = lineOffset -> {
+    };
+
     private final FileUtils fileUtils;
     private final CookieLogParser parser;
+    private final CookieLogScanner scanner;
+    private final QueryPlanner planner;
+    private final CookieDictionary dictionary;
 
     public CookieLogAnalyser(FileUtils fileUtils) {
-        this.fileUtils = fileUtils;
-        this.parser = new CookieLogParser();
+        this(fileUtils, new CookieLogParser());
     }
 
     public CookieLogAnalyser(FileUtils fileUtils, CookieLogParser parser) {
+        this(fileUtils, parser, new CookieLogScanner());
+    }
+
+    public CookieLogAnalyser(FileUtils fileUtils, CookieLogParser parser, CookieLogScanner scanner) {
+        this(fileUtils, parser, scanner, new QueryPlanner());
+    }
+
+    public CookieLogAnalyser(FileUtils fileUtils, CookieLogParser parser, CookieLogScanner scanner, QueryPlanner planner) {
+        this(fileUtils, parser, scanner, planner, CookieDictionary.inMemory());
+    }
+
+    public CookieLogAnalyser(FileUtils fileUtils, CookieLogParser parser, CookieLogScanner scanner, QueryPlanner planner,
+                             CookieDictionary dictionary) {
         this.fileUtils = fileUtils;
         this.parser = parser;
+        this.scanner = scanner;
+        this.planner = planner;
+        this.dictionary = dictionary;
     }
 
     public List<String> returnMostActiveCookie(LocalDate inputDate) {
@@ -66,4 +118,519 @@ public class CookieLogAnalyser {
         }
         return Collections.emptyList();
     }
+
+    public CookieCounts countCookiesInRange(LocalDate inputDate, long start, long end) throws IOException {
+        byte[] datePrefix = inputDate.toString().getBytes(StandardCharsets.US_ASCII);
+        CookieCounts cookieCounts = new CookieCounts();
+        LinesMatchedEvent event = new LinesMatchedEvent();
+        event.begin();
+        scanner.scanRecords(fileUtils.getPath(), start, end, (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) -> {
+            if (scanner.dateMatches(buffer, timestampStart, datePrefix)) {
+                cookieCounts.increment(CookieLogScanner.decode(buffer, cookieStart, cookieEnd));
+            }
+        });
+        commitMatched(event, inputDate, start, end, cookieCounts.total());
+        LOGGER.info(SCANNED_BYTE_RANGE.getLoggingMessage(), start, end, cookieCounts.total());
+        return cookieCounts;
+    }
+
+    public ExecutionPlan plan(LocalDate inputDate) throws IOException {
+        return planner.plan(fileUtils, inputDate);
+    }
+
+    public ExecutionPlan plan(LocalDate inputDate, ZoneId zone) throws IOException {
+        return planner.plan(fileUtils, inputDate, zone);
+    }
+
+    public List<String> returnMostActiveCookie(ExecutionPlan plan, LocalDate inputDate) {
+        return returnMostActiveCookie(plan, inputDate, QueryOptions.defaults());
+    }
+
+    public List<String> returnMostActiveCookie(ExecutionPlan plan, LocalDate inputDate, QueryOptions options) {
+        if (inputDate == null || plan == null) {
+            LOGGER.error(INVALID_INPUT.getLoggingMessage(), "Either input date or plan is null");
+            return Collections.emptyList();
+        }
+
+        LOGGER.info(ATTEMPT_FIND_LOGS_FOR_DATE.getLoggingMessage(), inputDate);
+        try {
+            long[] matchingLogs = new long[1];
+            DuplicateFilter duplicates = options.isDedupe()
+                    ? new DuplicateFilter(plan.getSortOrder() != SortOrder.UNSORTED) : null;
+            List<String> mostActiveCookies;
+            if (plan.getStrategy() == ExecutionPlan.Strategy.SPILL) {
+                mostActiveCookies = spillAndCount(plan, inputDate, options, duplicates, matchingLogs);
+            } else {
+                CookieIdCounts cookieIdCounts = count(plan, inputDate, duplicates, options);
+                matchingLogs[0] = cookieIdCounts.total();
+                mostActiveCookies = cookieIdCounts.decodeMostActive(dictionary).mostActive();
+            }
+            if (duplicates != null) {
+                LOGGER.info(DUPLICATES_DROPPED.getLoggingMessage(), duplicates.getDuplicates(), inputDate);
+            }
+            LOGGER.info(SUCCESSFULLY_FOUND_LOGS_FOR_DATE.getLoggingMessage(), matchingLogs[0], inputDate);
+
+            if (mostActiveCookies.isEmpty()) {
+                LOGGER.warn(NO_LOGS_FOUND_FOR_DATE.getLoggingMessage(), inputDate);
+                return Collections.emptyList();
+            }
+            LOGGER.info(SUCCESSFULLY_ANALYSED_LOGS.getLoggingMessage(), mostActiveCookies.size());
+            return mostActiveCookies;
+        } catch (IOException ex) {
+            LOGGER.error(FILE_ERROR.getLoggingMessage(), ex.toString());
+        } catch (Exception ex) {
+            LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Scans the plan's ranges on parallel threads straight into a shared table, so other threads can read the current
+     * leaders from {@code counts} while the scan is still running. Spill plans are counted in memory as well, and
+     * duplicates are not filtered or checkpoints written.
+     */
+    public void countInto(ExecutionPlan plan, LocalDate inputDate, ConcurrentCookieIdCounts counts) throws IOException {
+        long[] boundaries = planRanges(plan);
+        inParallel(boundaries.length - 1, range -> {
+            CookieIdCache ids = new CookieIdCache(dictionary);
+            scanSortedRange(plan, plan.getRangeStart() + boundaries[range], plan.getRangeStart() + boundaries[range + 1],
+                    inputDate, QueryOptions.defaults(), null, NO_PROGRESS, (buffer, cookieStart, cookieEnd, timestampStart) ->
+                            counts.increment(ids.getOrAdd(buffer, cookieStart, cookieEnd)));
+            return null;
+        });
+    }
+
+    /**
+     * Gathers each cookie's count, first and last seen instants and active hours on the day in a single pass, ranked
+     * best first by {@code sortBy}. Hours are those of the options' zone when one is set, otherwise the hour written in
+     * the log. Spill plans are aggregated in memory as well, and checkpoints are not written.
+     */
+    public List<CookieMetrics> returnCookieMetrics(ExecutionPlan plan, LocalDate inputDate, QueryOptions options,
+                                                   Metric sortBy, int limit) {
+        if (inputDate == null || plan == null || sortBy == null) {
+            LOGGER.error(INVALID_INPUT.getLoggingMessage(), "Either input date, plan or metric is null");
+            return Collections.emptyList();
+        }
+
+        LOGGER.info(ATTEMPT_FIND_LOGS_FOR_DATE.getLoggingMessage(), inputDate);
+        try {
+            DuplicateFilter duplicates = options.isDedupe()
+                    ? new DuplicateFilter(plan.getSortOrder() != SortOrder.UNSORTED) : null;
+            CookieIdMetrics metrics = aggregate(plan, inputDate, options, duplicates);
+            if (duplicates != null) {
+                LOGGER.info(DUPLICATES_DROPPED.getLoggingMessage(), duplicates.getDuplicates(), inputDate);
+            }
+            LOGGER.info(SUCCESSFULLY_FOUND_LOGS_FOR_DATE.getLoggingMessage(), metrics.total(), inputDate);
+
+            if (metrics.isEmpty()) {
+                LOGGER.warn(NO_LOGS_FOUND_FOR_DATE.getLoggingMessage(), inputDate);
+                return Collections.emptyList();
+            }
+            List<CookieMetrics> ranked = metrics.decode(dictionary, sortBy, limit);
+            LOGGER.info(SUCCESSFULLY_ANALYSED_LOGS.getLoggingMessage(), ranked.size());
+            return ranked;
+        } catch (IOException ex) {
+            LOGGER.error(FILE_ERROR.getLoggingMessage(), ex.toString());
+        } catch (Exception ex) {
+            LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Answers several dates with one pass over the union of their plans' byte ranges, counting each matching line
+     * against its own day. Dates whose plans spill, or a single date, are answered one at a time as usual.
+     */
+    public Map<LocalDate, List<String>> returnMostActiveCookies(Collection<LocalDate> inputDates) {
+        Map<LocalDate, List<String>> results = new LinkedHashMap<>();
+        Map<Long, ExecutionPlan> batched = new TreeMap<>();
+        try {
+            for (LocalDate date : inputDates) {
+                ExecutionPlan plan = plan(date);
+                if (inputDates.size() == 1 || plan.getStrategy() == ExecutionPlan.Strategy.SPILL) {
+                    results.put(date, returnMostActiveCookie(plan, date));
+                } else if (plan.getRangeStart() >= plan.getRangeEnd()) {
+                    results.put(date, Collections.emptyList());
+                } else {
+                    batched.put(date.toEpochDay(), plan);
+                }
+            }
+            if (!batched.isEmpty()) {
+                LOGGER.info(DATES_BATCHED.getLoggingMessage(), batched.size(), fileUtils.getPath());
+                countDays(batched).forEach((day, counts) -> results.put(LocalDate.ofEpochDay(day),
+                        counts.decodeMostActive(dictionary).mostActive()));
+            }
+        } catch (IOException ex) {
+            LOGGER.error(FILE_ERROR.getLoggingMessage(), ex.toString());
+        } catch (Exception ex) {
+            LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+        }
+        for (LocalDate date : inputDates) {
+            results.putIfAbsent(date, Collections.emptyList());
+        }
+        return results;
+    }
+
+    private Map<Long, CookieIdCounts> countDays(Map<Long, ExecutionPlan> plans) throws IOException {
+        long start = Long.MAX_VALUE;
+        long end = 0;
+        int threads = 1;
+        for (ExecutionPlan plan : plans.values()) {
+            start = Math.min(start, plan.getRangeStart());
+            end = Math.max(end, plan.getRangeEnd());
+            if (plan.getStrategy() == ExecutionPlan.Strategy.PARALLEL_SCAN) {
+                threads = Math.max(threads, plan.getThreads());
+            }
+        }
+        SortOrder order = plans.values().iterator().next().getSortOrder();
+        long[] boundaries = CookieLogScanner.splitRanges(end - start, threads);
+        long unionStart = start;
+        Map<Long, CookieIdCounts> merged = new TreeMap<>();
+        for (Map<Long, CookieIdCounts> partial : inParallel(boundaries.length - 1, range -> countDaysInRange(
+                plans.keySet(), order, unionStart + boundaries[range], unionStart + boundaries[range + 1]))) {
+            partial.forEach((day, counts) -> merged.computeIfAbsent(day, key -> new CookieIdCounts()).merge(counts));
+        }
+        return merged;
+    }
+
+    // Stops once a sorted log moves past the last of the days; unsorted ranges are read to the end
+    private Map<Long, CookieIdCounts> countDaysInRange(Set<Long> days, SortOrder order, long start, long end)
+            throws IOException {
+        Map<Long, CookieIdCounts> counts = new HashMap<>();
+        for (long day : days) {
+            counts.put(day, new CookieIdCounts());
+        }
+        long lastDay = order == SortOrder.DESCENDING ? Collections.min(days) : Collections.max(days);
+        DayResolver dayResolver = new TimestampPrefixDayResolver();
+        CookieIdCache ids = new CookieIdCache(dictionary);
+        long[] matched = new long[1];
+        LinesMatchedEvent event = new LinesMatchedEvent();
+        event.begin();
+        scanner.scanRecordsWhile(fileUtils.getPath(), start, end,
+                (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) -> {
+                    long day = dayResolver.resolve(buffer, timestampStart);
+                    CookieIdCounts dayCounts = counts.get(day);
+                    if (dayCounts != null) {
+                        dayCounts.increment(ids.getOrAdd(buffer, cookieStart, cookieEnd));
+                        matched[0]++;
+                        return true;
+                    }
+                    return day == DateUtils.INVALID_EPOCH_DAY
+                            || order == SortOrder.UNSORTED
+                            || (order == SortOrder.DESCENDING ? day > lastDay : day < lastDay);
+                });
+        commitMatched(event, days.stream().map(day -> LocalDate.ofEpochDay(day).toString())
+                .collect(Collectors.joining(",")), start, end, matched[0]);
+        LOGGER.info(SCANNED_BYTE_RANGE.getLoggingMessage(), start, end, matched[0]);
+        return counts;
+    }
+
+    private CookieIdMetrics aggregate(ExecutionPlan plan, LocalDate inputDate, QueryOptions options,
+                                      DuplicateFilter duplicates) throws IOException {
+        long[] boundaries = planRanges(plan);
+        List<CookieIdMetrics> partials = inParallel(boundaries.length - 1, range -> aggregateRange(plan,
+                plan.getRangeStart() + boundaries[range], plan.getRangeStart() + boundaries[range + 1], inputDate,
+                options, duplicates));
+        CookieIdMetrics merged = partials.get(0);
+        for (int i = 1; i < partials.size(); i++) {
+            merged.merge(partials.get(i));
+        }
+        return merged;
+    }
+
+    private CookieIdMetrics aggregateRange(ExecutionPlan plan, long start, long end, LocalDate inputDate,
+                                           QueryOptions options, DuplicateFilter duplicates) throws IOException {
+        CookieIdMetrics metrics = new CookieIdMetrics();
+        ZoneId zone = options.getZone();
+        long dayStart = zone == null ? 0 : new ZonedDayResolver(zone).startOf(inputDate.toEpochDay());
+        CookieIdCache ids = new CookieIdCache(dictionary);
+        scanSortedRange(plan, start, end, inputDate, options, duplicates, NO_PROGRESS,
+                (buffer, cookieStart, cookieEnd, timestampStart) -> {
+                    long epochSecond = DateUtils.parseEpochSecond(buffer, timestampStart);
+                    if (epochSecond == DateUtils.INVALID_EPOCH_SECOND) {
+                        return;
+                    }
+                    // A day that gains an hour to daylight saving folds its last hour into hour 23
+                    int hour = zone == null
+                            ? (buffer[timestampStart + 11] - '0') * 10 + buffer[timestampStart + 12] - '0'
+                            : (int) Math.min(23, (epochSecond - dayStart) / 3600);
+                    metrics.record(ids.getOrAdd(buffer, cookieStart, cookieEnd), epochSecond, hour);
+                });
+        LOGGER.info(SCANNED_BYTE_RANGE.getLoggingMessage(), start, end, metrics.total());
+        return metrics;
+    }
+
+    // Checkpoints are only kept when the options name a directory for them. Filters and zones are not part of a
+    // checkpoint, so filtered or zoned scans neither write nor resume one
+    private CookieIdCounts count(ExecutionPlan plan, LocalDate inputDate, DuplicateFilter duplicates, QueryOptions options)
+            throws IOException {
+        Path checkpointFile = options.getCheckpointDirectory() != null && duplicates == null
+                && options.getCookieFilter() == null && options.getZone() == null
+                ? ScanCheckpoint.checkpointPathFor(options.getCheckpointDirectory(), fileUtils.getPath()) : null;
+        ScanCheckpoint checkpoint = checkpointFile != null && options.isResume()
+                ? resumeFrom(checkpointFile, inputDate) : null;
+        if (checkpoint == null) {
+            checkpoint = newCheckpoint(plan, inputDate);
+        }
+
+        CookieIdCounts merged;
+        if (checkpoint.getRangeCount() == 1) {
+            merged = countIdsInRange(plan, checkpoint, 0, inputDate, duplicates, checkpointFile, options);
+        } else {
+            merged = countRangesInParallel(plan, checkpoint, inputDate, duplicates, checkpointFile, options);
+        }
+        if (checkpointFile != null) {
+            Files.deleteIfExists(checkpointFile);
+        }
+        return merged;
+    }
+
+    private CookieIdCounts countRangesInParallel(ExecutionPlan plan, ScanCheckpoint checkpoint, LocalDate inputDate,
+                                                 DuplicateFilter duplicates, Path checkpointFile, QueryOptions options)
+            throws IOException {
+        CookieIdCounts merged = new CookieIdCounts();
+        for (CookieIdCounts counts : inParallel(checkpoint.getRangeCount(), range ->
+                countIdsInRange(plan, checkpoint, range, inputDate, duplicates, checkpointFile, options))) {
+            MergeEvent event = new MergeEvent();
+            event.begin();
+            merged.merge(counts);
+            event.end();
+            if (event.shouldCommit()) {
+                event.sourceEntries = counts.size();
+                event.mergedEntries = merged.size();
+                event.bytes = (long) counts.size() * 2 * Integer.BYTES;
+                event.commit();
+            }
+        }
+        return merged;
+    }
+
+    private long[] planRanges(ExecutionPlan plan) {
+        int ranges = plan.getStrategy() == ExecutionPlan.Strategy.PARALLEL_SCAN ? Math.max(1, plan.getThreads()) : 1;
+        return CookieLogScanner.splitRanges(plan.getRangeEnd() - plan.getRangeStart(), ranges);
+    }
+
+    private interface RangeTask<T> {
+        T run(int range) throws IOException;
+    }
+
+    // Runs the task for every range, each on its own thread unless there is only one, and returns results in range order
+    private <T> List<T> inParallel(int ranges, RangeTask<T> task) throws IOException {
+        if (ranges == 1) {
+            return Collections.singletonList(task.run(0));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(ranges);
+        try {
+            List<Future<T>> partials = new ArrayList<>();
+            for (int i = 0; i < ranges; i++) {
+                int range = i;
+                partials.add(executor.submit(() -> task.run(range)));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> partial : partials) {
+                results.add(partial.get());
+            }
+            return results;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning " + fileUtils.getPath(), ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Parallel scan failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ScanCheckpoint newCheckpoint(ExecutionPlan plan, LocalDate inputDate) throws IOException {
+        int ranges = plan.getStrategy() == ExecutionPlan.Strategy.PARALLEL_SCAN ? Math.max(1, plan.getThreads()) : 1;
+        long[] boundaries = CookieLogScanner.splitRanges(plan.getRangeEnd() - plan.getRangeStart(), ranges);
+        long[] starts = new long[boundaries.length - 1];
+        long[] ends = new long[boundaries.length - 1];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = plan.getRangeStart() + boundaries[i];
+            ends[i] = plan.getRangeStart() + boundaries[i + 1];
+        }
+        return new ScanCheckpoint(fileUtils.size(), Files.getLastModifiedTime(fileUtils.getPath()).toMillis(),
+                inputDate, starts, ends);
+    }
+
+    private ScanCheckpoint resumeFrom(Path checkpointFile, LocalDate inputDate) {
+        try {
+            Optional<ScanCheckpoint> existing = ScanCheckpoint.read(checkpointFile);
+            if (existing.isPresent() && existing.get().matches(fileUtils.getPath(), inputDate)) {
+                LOGGER.info(RESUMED_FROM_CHECKPOINT.getLoggingMessage(), checkpointFile, existing.get().bytesRemaining());
+                return existing.get();
+            }
+        } catch (IOException ex) {
+            LOGGER.warn(CHECKPOINT_READ_FAILED.getLoggingMessage(), checkpointFile, ex.toString());
+        }
+        return null;
+    }
+
+    private CookieIdCounts countIdsInRange(ExecutionPlan plan, ScanCheckpoint checkpoint, int range, LocalDate inputDate,
+                                           DuplicateFilter duplicates, Path checkpointFile, QueryOptions options)
+            throws IOException {
+        CookieIdCounts cookieIdCounts = new CookieIdCounts();
+        CookieIdCache ids = new CookieIdCache(dictionary);
+        checkpoint.getCounts(range).asMap().forEach((cookie, count) ->
+                cookieIdCounts.add(dictionary.getOrAdd(cookie), count));
+        long start = checkpoint.getNextOffset(range);
+        long end = checkpoint.getRangeEnd(range);
+        long interval = options.getCheckpointInterval();
+        long[] lastCheckpoint = {start};
+
+        scanSortedRange(plan, start, end, inputDate, options, duplicates, lineOffset -> {
+            if (checkpointFile != null && lineOffset - lastCheckpoint[0] >= interval) {
+                lastCheckpoint[0] = lineOffset;
+                checkpoint.record(range, lineOffset, cookieIdCounts.decode(dictionary));
+                writeCheckpoint(checkpoint, checkpointFile);
+            }
+        }, (buffer, cookieStart, cookieEnd, timestampStart) -> cookieIdCounts.increment(ids.getOrAdd(buffer, cookieStart, cookieEnd)));
+        if (lastCheckpoint[0] != start) {
+            checkpoint.record(range, end, cookieIdCounts.decode(dictionary));
+        }
+        LOGGER.info(SCANNED_BYTE_RANGE.getLoggingMessage(), start, end, cookieIdCounts.total());
+        return cookieIdCounts;
+    }
+
+    private void writeCheckpoint(ScanCheckpoint checkpoint, Path checkpointFile) {
+        try {
+            checkpoint.write(checkpointFile);
+            LOGGER.info(CHECKPOINT_WRITTEN.getLoggingMessage(), checkpointFile, checkpoint.bytesRemaining());
+        } catch (IOException ex) {
+            LOGGER.warn(CHECKPOINT_WRITE_FAILED.getLoggingMessage(), checkpointFile, ex.toString());
+        }
+    }
+
+    // Hash partitions the day's cookies into temporary files so only one partition's counts are in memory at a time
+    private List<String> spillAndCount(ExecutionPlan plan, LocalDate inputDate, QueryOptions options,
+                                       DuplicateFilter duplicates, long[] matchingLogs) throws IOException {
+        int partitions = plan.getPartitions();
+        Path spillDirectory = Files.createTempDirectory("cookie-spill");
+        try {
+            DataOutputStream[] outputs = new DataOutputStream[partitions];
+            try {
+                for (int i = 0; i < partitions; i++) {
+                    outputs[i] = new DataOutputStream(new BufferedOutputStream(
+                            Files.newOutputStream(spillDirectory.resolve(i + ".spill"))));
+                }
+                scanSortedRange(plan, plan.getRangeStart(), plan.getRangeEnd(), inputDate, options, duplicates,
+                        NO_PROGRESS, (buffer, cookieStart, cookieEnd, timestampStart) -> {
+                    int length = cookieEnd - cookieStart;
+                    DataOutputStream out = outputs[(int) Math.floorMod(Hashing.hash64(buffer, cookieStart, length), (long) partitions)];
+                    try {
+                        VarInts.writeVarInt(out, length);
+                        out.write(buffer, cookieStart, length);
+                    } catch (IOException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                    matchingLogs[0]++;
+                });
+            } finally {
+                for (DataOutputStream out : outputs) {
+                    if (out != null) {
+                        out.close();
+                    }
+                }
+            }
+            LOGGER.info(SPILLED_PARTITIONS.getLoggingMessage(), matchingLogs[0], partitions);
+
+            List<String> mostActiveCookies = new ArrayList<>();
+            int maxCount = 0;
+            for (int i = 0; i < partitions; i++) {
+                CookieCounts partition = readSpillPartition(spillDirectory.resolve(i + ".spill"));
+                List<String> leaders = partition.mostActive();
+                if (leaders.isEmpty()) {
+                    continue;
+                }
+                int count = partition.getCount(leaders.get(0));
+                if (count > maxCount) {
+                    maxCount = count;
+                    mostActiveCookies.clear();
+                }
+                if (count == maxCount) {
+                    mostActiveCookies.addAll(leaders);
+                }
+            }
+            return mostActiveCookies;
+        } finally {
+            try (var files = Files.list(spillDirectory)) {
+                for (Path file : files.toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(spillDirectory);
+        }
+    }
+
+    private CookieCounts readSpillPartition(Path partition) throws IOException {
+        CookieCounts cookieCounts = new CookieCounts();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(partition)))) {
+            while (true) {
+                int length;
+                try {
+                    length = VarInts.readVarInt(in);
+                } catch (EOFException ex) {
+                    return cookieCounts;
+                }
+                byte[] cookie = new byte[length];
+                in.readFully(cookie);
+                cookieCounts.increment(new String(cookie, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private interface MatchHandler {
+        void onMatch(byte[] buffer, int cookieStart, int cookieEnd, int timestampStart);
+    }
+
+    // Stops once a sorted log moves past the target day; unsorted ranges are read to the end
+    private void scanSortedRange(ExecutionPlan plan, long start, long end, LocalDate inputDate, QueryOptions options,
+                                 DuplicateFilter duplicates, LongConsumer progress, MatchHandler handler) throws IOException {
+        long targetDay = inputDate.toEpochDay();
+        SortOrder order = plan.getSortOrder();
+        CookieFilter cookieFilter = options.getCookieFilter();
+        DayResolver dayResolver = options.getZone() == null
+                ? new TimestampPrefixDayResolver()
+                : new ZonedDayResolver(options.getZone(), inputDate.minusDays(1), inputDate.plusDays(1));
+        long[] matched = new long[1];
+        LinesMatchedEvent event = new LinesMatchedEvent();
+        event.begin();
+        scanner.scanRecordsWhile(fileUtils.getPath(), start, end,
+                (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) -> {
+                    progress.accept(lineOffset);
+                    long day = dayResolver.resolve(buffer, timestampStart);
+                    if (day == targetDay) {
+                        if ((cookieFilter == null || cookieFilter.matches(buffer, cookieStart, cookieEnd))
+                                && (duplicates == null || duplicates.firstSeen(buffer, cookieStart, cookieEnd, timestampStart))) {
+                            handler.onMatch(buffer, cookieStart, cookieEnd, timestampStart);
+                            matched[0]++;
+                        }
+                        return true;
+                    }
+                    return day == DateUtils.INVALID_EPOCH_DAY
+                            || order == SortOrder.UNSORTED
+                            || (order == SortOrder.DESCENDING ? day > targetDay : day < targetDay);
+                });
+        commitMatched(event, inputDate, start, end, matched[0]);
+    }
+
+    // Early terminating scans stop short of the range end, so the byte count is the range that was eligible
+    private static void commitMatched(LinesMatchedEvent event, LocalDate inputDate, long start, long end, long matched) {
+        commitMatched(event, inputDate.toString(), start, end, matched);
+    }
+
+    private static void commitMatched(LinesMatchedEvent event, String dates, long start, long end, long matched) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.date = dates;
+            event.rangeStart = start;
+            event.bytes = end - start;
+            event.matched = matched;
+            event.commit();
+        }
+    }
 }
@@ -1,19 +1,27 @@
 package org.euan.cookieanalyser.services;
 
 import org.euan.cookieanalyser.exceptions.NoLogsFoundException;
+import org.euan.cookieanalyser.jfr.ChunkParsedEvent;
 import org.euan.cookieanalyser.models.CookieLog;
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 import static org.euan.cookieanalyser.logging.LoggingEvents.*;
 
 public class CookieLogParser {
     private final Logger LOGGER = LoggerFactory.getLogger(CookieLogParser.class);
 
+    private static final long SECONDS_PER_DAY = 86_400;
+    // Timestamps carry offsets of up to 18 hours, so a day as written spans that far either side of its UTC day
+    private static final long MAX_OFFSET_SECONDS = 18 * 3600;
+
     public List<CookieLog> parseLogsForDate(List<String> allLines, LocalDate targetDate) throws NoLogsFoundException {
         LOGGER.info(ATTEMPT_FIND_LOGS_FOR_DATE.getLoggingMessage(), targetDate);
 
@@ -22,12 +30,59 @@ public class CookieLogParser {
             throw new NoLogsFoundException();
         }
 
-        return allLines.subList(1, allLines.size())
+        ChunkParsedEvent event = new ChunkParsedEvent();
+        event.begin();
+        List<CookieLog> cookieLogs = allLines.subList(1, allLines.size())
             .stream()
             .filter(line -> isDateMatch(line, targetDate))
             .map(this::mapStringToCookieLog)
             .filter(Objects::nonNull)
             .toList();
+        event.end();
+        if (event.shouldCommit()) {
+            // Lines are already decoded, so the byte count assumes single byte characters and newline endings
+            event.bytes = allLines.stream().mapToLong(line -> line.length() + 1L).sum();
+            event.lines = allLines.size() - 1;
+            event.commit();
+        }
+        return cookieLogs;
+    }
+
+    // Matches days as written like the line based overload, handing each match to the visitor as the merge streams it.
+    // stopPastDay ends the scan once the merged logs are past the target day, so it is only safe for verified orders
+    public void parseMergedLogsForDate(SortedLogMerger logs, LocalDate targetDate, boolean stopPastDay,
+                                       Consumer<CookieLog> visitor) throws IOException {
+        LOGGER.info(ATTEMPT_FIND_LOGS_FOR_DATE.getLoggingMessage(), targetDate);
+
+        String datePrefix = targetDate.toString();
+        long dayStart = targetDate.toEpochDay() * SECONDS_PER_DAY;
+        ChunkParsedEvent event = new ChunkParsedEvent();
+        event.begin();
+        long lines = 0;
+        long bytes = 0;
+        CookieLog log;
+        while ((log = logs.next()) != null) {
+            lines++;
+            bytes += log.getCookie().length() + log.getDatetimestring().length() + 2L;
+            if (log.getDatetimestring().startsWith(datePrefix)) {
+                visitor.accept(log);
+            } else if (stopPastDay && (logs.getOrder() == SortOrder.DESCENDING
+                    ? logs.getEpochSecond() < dayStart - MAX_OFFSET_SECONDS
+                    : logs.getEpochSecond() >= dayStart + SECONDS_PER_DAY + MAX_OFFSET_SECONDS)) {
+                break;
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.bytes = bytes;
+            event.lines = lines;
+            event.commit();
+        }
+
+        if (lines == 0) {
+            LOGGER.warn(FILE_ERROR.getLoggingMessage(), "Files are empty or contain no data lines");
+            throw new NoLogsFoundException();
+        }
     }
 
     private CookieLog mapStringToCookieLog(String cookieLogString) {
@@ -0,0 +1,308 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.jfr.ChunkParsedEvent;
+import org.euan.cookieanalyser.jfr.ChunkReadEvent;
+import org.euan.cookieanalyser.simd.ByteScanner;
+import org.euan.cookieanalyser.simd.ByteScanners;
+import org.euan.cookieanalyser.utils.ReadAheadInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.COOKIE_TOO_LONG;
+import static org.euan.cookieanalyser.logging.LoggingEvents.MALFORMED_LOG_LINE;
+
+public class CookieLogScanner {
+
+    // Only malformed lines are logged, so a clean scan never initialises logging
+    private static final class LoggerHolder {
+        private static final Logger LOGGER = LoggerFactory.getLogger(CookieLogScanner.class);
+    }
+
+    public static final int TIMESTAMP_LENGTH = 25;
+    public static final int DATE_LENGTH = 10;
+    // Cookie dictionaries store a cookie's length in 16 bits
+    public static final int MAX_COOKIE_BYTES = 0xFFFF;
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    private static final int NEWLINE_BATCH = 4096;
+
+    private final int bufferSize;
+    private final ByteScanner byteScanner;
+    private final int readAheadSize;
+    private final int readAheadDepth;
+
+    public interface LineHandler {
+        void onLine(byte[] buffer, int lineStart, int lineEnd, long lineOffset);
+    }
+
+    public interface RecordHandler {
+        void onRecord(byte[] buffer, int cookieStart, int cookieEnd, int timestampStart, long lineOffset);
+    }
+
+    // Returning false stops the scan, so sorted logs can end as soon as they pass the lines of interest
+    public interface LineVisitor {
+        boolean onLine(byte[] buffer, int lineStart, int lineEnd, long lineOffset);
+    }
+
+    public interface RecordVisitor {
+        boolean onRecord(byte[] buffer, int cookieStart, int cookieEnd, int timestampStart, long lineOffset);
+    }
+
+    public CookieLogScanner() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public CookieLogScanner(int bufferSize) {
+        this(bufferSize, ByteScanners.best());
+    }
+
+    public CookieLogScanner(int bufferSize, ByteScanner byteScanner) {
+        this(bufferSize, byteScanner, ReadAheadInputStream.DEFAULT_READ_AHEAD_SIZE,
+                ReadAheadInputStream.DEFAULT_READ_AHEAD_DEPTH);
+    }
+
+    // A read-ahead depth of 0 reads on the scanning thread
+    public CookieLogScanner(int bufferSize, ByteScanner byteScanner, int readAheadSize, int readAheadDepth) {
+        if (readAheadSize < 1 || readAheadDepth < 0) {
+            throw new IllegalArgumentException("Read-ahead needs a positive buffer size and a depth of at least 0");
+        }
+        this.bufferSize = bufferSize;
+        this.byteScanner = byteScanner;
+        this.readAheadSize = readAheadSize;
+        this.readAheadDepth = readAheadDepth;
+    }
+
+    public CookieLogScanner withReadAhead(int readAheadSize, int readAheadDepth) {
+        return new CookieLogScanner(bufferSize, byteScanner, readAheadSize, readAheadDepth);
+    }
+
+    /**
+     * Scans every line whose first byte lies in [start, end). The line straddling {@code start} belongs to the
+     * previous range and the header line at offset 0 is always skipped, so adjacent ranges cover each line once.
+     * Ranges spanning several read-ahead buffers are read by a separate I/O thread while this one parses; short
+     * ranges such as the planner's probes are not worth starting a thread for.
+     */
+    public void scanLines(Path path, long start, long end, LineHandler handler) throws IOException {
+        scanLinesWhile(path, start, end, (buffer, lineStart, lineEnd, lineOffset) -> {
+            handler.onLine(buffer, lineStart, lineEnd, lineOffset);
+            return true;
+        });
+    }
+
+    public void scanLinesWhile(Path path, long start, long end, LineVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long limit = Math.min(end, fileSize);
+            if (start >= limit) {
+                return;
+            }
+            long firstByte = start == 0 ? 0 : start - 1;
+            try (ReadAheadInputStream readAhead = readAheadDepth > 0 && limit - firstByte >= 2L * readAheadSize
+                    ? ReadAheadInputStream.open(path, firstByte, limit, readAheadSize, readAheadDepth) : null) {
+                scanChannel(channel, readAhead, path, fileSize, firstByte, limit, visitor);
+            }
+        }
+    }
+
+    private void scanChannel(FileChannel channel, ReadAheadInputStream readAhead, Path path, long fileSize,
+                             long bufferOffset, long limit, LineVisitor visitor) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        int[] newlines = new int[NEWLINE_BATCH];
+        int newlineCount = 0;
+        int newlineIndex = 0;
+        int searchedUpTo = 0;
+        int filled = 0;
+        int cursor = 0;
+        boolean skipping = true;
+        ChunkParsedEvent parsed = new ChunkParsedEvent();
+        long parsedFrom = bufferOffset;
+        long parsedLines = 0;
+
+        try {
+            while (true) {
+                if (newlineIndex == newlineCount && searchedUpTo < filled) {
+                    newlineCount = byteScanner.findAll(buffer, searchedUpTo, filled, (byte) '\n', newlines);
+                    newlineIndex = 0;
+                    searchedUpTo = newlineCount == newlines.length ? newlines[newlineCount - 1] + 1 : filled;
+                }
+                if (newlineIndex == newlineCount) {
+                    long nextLineOffset = bufferOffset + cursor;
+                    if (!skipping && nextLineOffset >= limit) {
+                        return;
+                    }
+                    if (bufferOffset + filled >= fileSize) {
+                        if (!skipping && cursor < filled) {
+                            visitor.onLine(buffer, cursor, trimCarriageReturn(buffer, cursor, filled), nextLineOffset);
+                            parsedLines++;
+                            cursor = filled;
+                        }
+                        return;
+                    }
+                    commitParsed(parsed, parsedFrom, nextLineOffset, parsedLines);
+                    parsedLines = 0;
+                    int remaining = filled - cursor;
+                    if (remaining == buffer.length) {
+                        byte[] grown = new byte[buffer.length * 2];
+                        System.arraycopy(buffer, cursor, grown, 0, remaining);
+                        buffer = grown;
+                    } else {
+                        System.arraycopy(buffer, cursor, buffer, 0, remaining);
+                    }
+                    bufferOffset += cursor;
+                    cursor = 0;
+                    filled = remaining;
+                    searchedUpTo = remaining;
+                    int read = readAhead != null
+                            ? readAhead.read(buffer, filled, buffer.length - filled)
+                            : readChunk(channel, path, buffer, filled, bufferOffset + filled);
+                    parsed = new ChunkParsedEvent();
+                    parsed.begin();
+                    parsedFrom = bufferOffset;
+                    if (read < 0) {
+                        fileSize = bufferOffset + filled;
+                    } else {
+                        filled += read;
+                    }
+                    continue;
+                }
+
+                int newline = newlines[newlineIndex++];
+                long lineOffset = bufferOffset + cursor;
+                if (skipping) {
+                    skipping = false;
+                    parsedFrom = bufferOffset + newline + 1;
+                } else if (lineOffset >= limit) {
+                    return;
+                } else if (!visitor.onLine(buffer, cursor, trimCarriageReturn(buffer, cursor, newline), lineOffset)) {
+                    parsedLines++;
+                    cursor = newline + 1;
+                    return;
+                } else {
+                    parsedLines++;
+                }
+                cursor = newline + 1;
+            }
+        } finally {
+            commitParsed(parsed, parsedFrom, bufferOffset + cursor, parsedLines);
+        }
+    }
+
+    public void scanRecords(Path path, long start, long end, RecordHandler handler) throws IOException {
+        scanLines(path, start, end, (buffer, lineStart, lineEnd, lineOffset) ->
+                parseRecord(buffer, lineStart, lineEnd, lineOffset, handler));
+    }
+
+    public void scanRecordsWhile(Path path, long start, long end, RecordVisitor visitor) throws IOException {
+        boolean[] proceed = {true};
+        RecordHandler handler = (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) ->
+                proceed[0] = visitor.onRecord(buffer, cookieStart, cookieEnd, timestampStart, lineOffset);
+        scanLinesWhile(path, start, end, (buffer, lineStart, lineEnd, lineOffset) -> {
+            parseRecord(buffer, lineStart, lineEnd, lineOffset, handler);
+            return proceed[0];
+        });
+    }
+
+    public void parseRecord(byte[] buffer, int lineStart, int lineEnd, long lineOffset, RecordHandler handler) {
+        int comma = byteScanner.indexOf(buffer, lineStart, lineEnd, (byte) ',');
+        if (comma < 0) {
+            warnMalformed(buffer, lineStart, lineEnd);
+            return;
+        }
+
+        int timestampEnd = byteScanner.indexOf(buffer, comma + 1, lineEnd, (byte) ',');
+        if (timestampEnd < 0) {
+            timestampEnd = lineEnd;
+        }
+
+        int cookieStart = skipWhitespace(buffer, lineStart, comma);
+        int cookieEnd = trimWhitespace(buffer, cookieStart, comma);
+        int timestampStart = skipWhitespace(buffer, comma + 1, timestampEnd);
+        int trimmedTimestampEnd = trimWhitespace(buffer, timestampStart, timestampEnd);
+
+        if (cookieStart == cookieEnd || trimmedTimestampEnd - timestampStart != TIMESTAMP_LENGTH) {
+            warnMalformed(buffer, lineStart, lineEnd);
+            return;
+        }
+        if (cookieEnd - cookieStart > MAX_COOKIE_BYTES) {
+            LoggerHolder.LOGGER.warn(COOKIE_TOO_LONG.getLoggingMessage(), lineOffset, cookieEnd - cookieStart, MAX_COOKIE_BYTES);
+            return;
+        }
+        handler.onRecord(buffer, cookieStart, cookieEnd, timestampStart, lineOffset);
+    }
+
+    public static long[] splitRanges(long fileSize, int parts) {
+        int ranges = (int) Math.max(1, Math.min(parts, fileSize));
+        long[] boundaries = new long[ranges + 1];
+        for (int i = 0; i <= ranges; i++) {
+            boundaries[i] = fileSize * i / ranges;
+        }
+        return boundaries;
+    }
+
+    public int indexOf(byte[] buffer, int from, int to, byte value) {
+        return byteScanner.indexOf(buffer, from, to, value);
+    }
+
+    public boolean dateMatches(byte[] buffer, int timestampStart, byte[] datePrefix) {
+        return byteScanner.regionEquals(buffer, timestampStart, datePrefix, DATE_LENGTH);
+    }
+
+    public static String decode(byte[] buffer, int start, int end) {
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static int readChunk(FileChannel channel, Path path, byte[] buffer, int filled, long position)
+            throws IOException {
+        ChunkReadEvent event = new ChunkReadEvent();
+        event.begin();
+        int read = channel.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled), position);
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path.toString();
+            event.offset = position;
+            event.bytes = Math.max(0, read);
+            event.commit();
+        }
+        return read;
+    }
+
+    // Covers the lines handed out from one buffer fill, so the time the visitors spent on them is included
+    private static void commitParsed(ChunkParsedEvent event, long from, long to, long lines) {
+        event.end();
+        if (lines > 0 && event.shouldCommit()) {
+            event.offset = from;
+            event.bytes = to - from;
+            event.lines = lines;
+            event.commit();
+        }
+    }
+
+    private static int trimCarriageReturn(byte[] buffer, int lineStart, int lineEnd) {
+        return lineEnd > lineStart && buffer[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+    }
+
+    // Shared with the validator so both read a line's fields the same way
+    static int skipWhitespace(byte[] buffer, int from, int to) {
+        while (from < to && buffer[from] <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    static int trimWhitespace(byte[] buffer, int from, int to) {
+        while (to > from && buffer[to - 1] <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private void warnMalformed(byte[] buffer, int lineStart, int lineEnd) {
+        LoggerHolder.LOGGER.warn(MALFORMED_LOG_LINE.getLoggingMessage(), decode(buffer, lineStart, lineEnd));
+    }
+}
@@ -0,0 +1,206 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
+import org.euan.cookieanalyser.models.ValidationReport;
+import org.euan.cookieanalyser.models.ValidationReport.Problem;
+import org.euan.cookieanalyser.utils.DateUtils;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.VALIDATION_COMPLETED;
+
+/**
+ * Lints a whole log in parallel byte ranges without allocating per line. Each range counts its own lines, so sample
+ * line numbers are made global once every earlier range is known. A line is out of order when its date moves against
+ * the direction most of the file's date changes take, which is the order the query planner relies on.
+ */
+public class CookieLogValidator {
+    private final Logger LOGGER = LoggerFactory.getLogger(CookieLogValidator.class);
+
+    private static final int PROBLEM_TYPES = Problem.values().length;
+
+    private final CookieLogScanner scanner;
+    private final int threads;
+
+    public CookieLogValidator() {
+        this(new CookieLogScanner(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public CookieLogValidator(CookieLogScanner scanner, int threads) {
+        this.scanner = scanner;
+        this.threads = Math.max(1, threads);
+    }
+
+    public ValidationReport validate(FileUtils fileUtils) throws IOException {
+        Path path = fileUtils.getPath();
+        long[] boundaries = CookieLogScanner.splitRanges(fileUtils.size(), threads * 4);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, boundaries.length - 1));
+        try {
+            List<Future<RangeResult>> partials = new ArrayList<>();
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                long start = boundaries[i];
+                long end = boundaries[i + 1];
+                partials.add(executor.submit(() -> validateRange(path, start, end)));
+            }
+            List<RangeResult> results = new ArrayList<>();
+            for (Future<RangeResult> partial : partials) {
+                results.add(partial.get());
+            }
+            ValidationReport report = merge(results);
+            LOGGER.info(VALIDATION_COMPLETED.getLoggingMessage(), report.getLines(), path, report.getProblemCount());
+            return report;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while validating " + path, ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to validate " + path, ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private RangeResult validateRange(Path path, long start, long end) throws IOException {
+        RangeResult result = new RangeResult();
+        scanner.scanLines(path, start, end, (buffer, lineStart, lineEnd, lineOffset) -> {
+            long line = ++result.lines;
+            int comma = scanner.indexOf(buffer, lineStart, lineEnd, (byte) ',');
+            if (comma < 0) {
+                result.add(Problem.MISSING_COMMA, line);
+                return;
+            }
+            int timestampEnd = scanner.indexOf(buffer, comma + 1, lineEnd, (byte) ',');
+            if (timestampEnd < 0) {
+                timestampEnd = lineEnd;
+            }
+            int cookieStart = CookieLogScanner.skipWhitespace(buffer, lineStart, comma);
+            int timestampStart = CookieLogScanner.skipWhitespace(buffer, comma + 1, timestampEnd);
+            if (cookieStart == CookieLogScanner.trimWhitespace(buffer, cookieStart, comma)) {
+                result.add(Problem.EMPTY_COOKIE, line);
+            }
+            if (CookieLogScanner.trimWhitespace(buffer, timestampStart, timestampEnd) - timestampStart
+                    != CookieLogScanner.TIMESTAMP_LENGTH) {
+                result.add(Problem.BAD_TIMESTAMP_LENGTH, line);
+                return;
+            }
+            if (DateUtils.parseEpochSecond(buffer, timestampStart) == DateUtils.INVALID_EPOCH_SECOND) {
+                result.add(Problem.UNPARSABLE_DATE, line);
+                return;
+            }
+            result.observeDay(DateUtils.parseEpochDay(buffer, timestampStart), line);
+        });
+        return result;
+    }
+
+    private static ValidationReport merge(List<RangeResult> results) {
+        long totalLines = 0;
+        long ascending = 0;
+        long descending = 0;
+        List<Long> ascendingLines = new ArrayList<>();
+        List<Long> descendingLines = new ArrayList<>();
+        long previousDay = DateUtils.INVALID_EPOCH_DAY;
+        // The header is line 1 and is never visited
+        long base = 1;
+        for (RangeResult result : results) {
+            if (result.firstDay != DateUtils.INVALID_EPOCH_DAY && previousDay != DateUtils.INVALID_EPOCH_DAY) {
+                if (result.firstDay > previousDay) {
+                    ascending++;
+                    sample(ascendingLines, base + result.firstDayLine);
+                } else if (result.firstDay < previousDay) {
+                    descending++;
+                    sample(descendingLines, base + result.firstDayLine);
+                }
+            }
+            ascending += result.ascending;
+            descending += result.descending;
+            for (long line : result.ascendingLines) {
+                sample(ascendingLines, base + line);
+            }
+            for (long line : result.descendingLines) {
+                sample(descendingLines, base + line);
+            }
+            if (result.lastDay != DateUtils.INVALID_EPOCH_DAY) {
+                previousDay = result.lastDay;
+            }
+            base += result.lines;
+            totalLines += result.lines;
+        }
+
+        SortOrder order = descending >= ascending ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+        ValidationReport report = new ValidationReport(totalLines, order);
+        base = 1;
+        for (RangeResult result : results) {
+            for (int i = 0; i < PROBLEM_TYPES; i++) {
+                List<Long> lines = new ArrayList<>();
+                for (long line : result.sampleLines.get(i)) {
+                    lines.add(base + line);
+                }
+                report.add(Problem.values()[i], result.counts[i], lines);
+            }
+            base += result.lines;
+        }
+        if (order == SortOrder.DESCENDING) {
+            report.add(Problem.OUT_OF_ORDER, ascending, ascendingLines);
+        } else {
+            report.add(Problem.OUT_OF_ORDER, descending, descendingLines);
+        }
+        return report;
+    }
+
+    private static void sample(List<Long> lines, long line) {
+        if (lines.size() < ValidationReport.SAMPLE_LIMIT) {
+            lines.add(line);
+        }
+    }
+
+    // Line numbers are relative to the start of the range until the ranges are merged
+    private static final class RangeResult {
+        private long lines;
+        private final long[] counts = new long[PROBLEM_TYPES];
+        private final List<List<Long>> sampleLines = new ArrayList<>();
+        private long firstDay = DateUtils.INVALID_EPOCH_DAY;
+        private long firstDayLine;
+        private long lastDay = DateUtils.INVALID_EPOCH_DAY;
+        private long ascending;
+        private long descending;
+        private final List<Long> ascendingLines = new ArrayList<>();
+        private final List<Long> descendingLines = new ArrayList<>();
+
+        private RangeResult() {
+            for (int i = 0; i < PROBLEM_TYPES; i++) {
+                sampleLines.add(new ArrayList<>());
+            }
+        }
+
+        private void add(Problem problem, long line) {
+            counts[problem.ordinal()]++;
+            sample(sampleLines.get(problem.ordinal()), line);
+        }
+
+        private void observeDay(long day, long line) {
+            if (lastDay == DateUtils.INVALID_EPOCH_DAY) {
+                firstDay = day;
+                firstDayLine = line;
+            } else if (day > lastDay) {
+                ascending++;
+                sample(ascendingLines, line);
+            } else if (day < lastDay) {
+                descending++;
+                sample(descendingLines, line);
+            }
+            lastDay = day;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package org.euan.cookieanalyser.services;
+
+public interface DayResolver {
+
+    // Returns the epoch day the timestamp starting at timestampStart is bucketed into, or DateUtils.INVALID_EPOCH_DAY
+    long resolve(byte[] buffer, int timestampStart);
+}
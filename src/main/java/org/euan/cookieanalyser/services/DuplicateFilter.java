@@ -0,0 +1,88 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.utils.DateUtils;
+import org.euan.cookieanalyser.utils.Hashing;
+import org.euan.cookieanalyser.utils.LongHashSet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Remembers a 64-bit hash of cookie and epoch second for every event, one set per log date. The sets are striped by
+// the hash's top bits, each stripe with its own lock, so parallel ranges sharing a filter rarely contend and an event
+// is still only counted once whichever range reads it. When the log is grouped by date, sets for earlier dates are
+// dropped as soon as the scan reaches a new one.
+public class DuplicateFilter {
+    private static final int STRIPE_BITS = 6;
+
+    private final boolean groupedByDate;
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+    // Grouped logs are only ever read from the start by one range, so the current day only changes on that thread
+    private volatile long currentDay = DateUtils.INVALID_EPOCH_DAY;
+
+    public DuplicateFilter(boolean groupedByDate) {
+        this.groupedByDate = groupedByDate;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public boolean firstSeen(byte[] buffer, int cookieStart, int cookieEnd, int timestampStart) {
+        long epochSecond = DateUtils.parseEpochSecond(buffer, timestampStart);
+        long epochDay = DateUtils.parseEpochDay(buffer, timestampStart);
+        if (epochSecond == DateUtils.INVALID_EPOCH_SECOND) {
+            return true;
+        }
+        if (groupedByDate && epochDay != currentDay) {
+            moveTo(epochDay);
+        }
+
+        long key = Hashing.hash64(buffer, cookieStart, cookieEnd - cookieStart) ^ Hashing.mix(epochSecond);
+        Stripe stripe = stripes[(int) (key >>> (Long.SIZE - STRIPE_BITS))];
+        synchronized (stripe) {
+            if (stripe.seenPerDay.computeIfAbsent(epochDay, day -> new LongHashSet()).add(key)) {
+                return true;
+            }
+            stripe.duplicates++;
+            return false;
+        }
+    }
+
+    public long getDuplicates() {
+        long duplicates = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                duplicates += stripe.duplicates;
+            }
+        }
+        return duplicates;
+    }
+
+    int trackedDays() {
+        Set<Long> days = new HashSet<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                days.addAll(stripe.seenPerDay.keySet());
+            }
+        }
+        return days.size();
+    }
+
+    private synchronized void moveTo(long epochDay) {
+        if (epochDay == currentDay) {
+            return;
+        }
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.seenPerDay.clear();
+            }
+        }
+        currentDay = epochDay;
+    }
+
+    private static final class Stripe {
+        private final Map<Long, LongHashSet> seenPerDay = new HashMap<>();
+        private long duplicates;
+    }
+}
@@ -0,0 +1,238 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.index.CookieLogIndex;
+import org.euan.cookieanalyser.index.DayStats;
+import org.euan.cookieanalyser.models.ExecutionPlan;
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
+import org.euan.cookieanalyser.models.ExecutionPlan.Strategy;
+import org.euan.cookieanalyser.utils.DateUtils;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+
+public class QueryPlanner {
+    private final Logger LOGGER = LoggerFactory.getLogger(QueryPlanner.class);
+
+    static final int SAMPLES = 16;
+    static final long SEEK_THRESHOLD = 4L << 20;
+    static final long PARALLEL_THRESHOLD = 16L << 20;
+    static final long PROBE_STOP_DISTANCE = 64L << 10;
+    static final int AVERAGE_LINE_BYTES = 43;
+    // A distinct cookie's dictionary bytes, offset and slot, its CookieIdCounts id and count pair and a CookieIdCache
+    // slot with its key copy, with the open addressed tables just after they double
+    static final long BYTES_PER_COUNTED_COOKIE = 128;
+    private static final int PROBE_BUFFER_SIZE = 4096;
+
+    private final CookieLogScanner probeScanner;
+    private final int cores;
+    private final long memoryBudget;
+    private final boolean assumeSorted;
+
+    public QueryPlanner() {
+        this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / 2);
+    }
+
+    public QueryPlanner(int cores, long memoryBudget) {
+        this(cores, memoryBudget, false);
+    }
+
+    public QueryPlanner(int cores, long memoryBudget, boolean assumeSorted) {
+        this(new CookieLogScanner(PROBE_BUFFER_SIZE), cores, memoryBudget, assumeSorted);
+    }
+
+    // assumeSorted is the caller vouching that the log is sorted, so the sampled direction may stop scans early
+    public QueryPlanner(CookieLogScanner probeScanner, int cores, long memoryBudget, boolean assumeSorted) {
+        this.probeScanner = probeScanner;
+        this.cores = Math.max(1, cores);
+        this.memoryBudget = memoryBudget;
+        this.assumeSorted = assumeSorted;
+    }
+
+    public ExecutionPlan plan(FileUtils fileUtils, LocalDate date) throws IOException {
+        return plan(fileUtils, date, null);
+    }
+
+    // The index and seek boundaries use the date as written, so zoned plans skip the index and seek a little earlier.
+    // Samples can miss out of order lines, so they only pick the direction once the order is known from a fresh index
+    // or the caller; otherwise every line is read
+    public ExecutionPlan plan(FileUtils fileUtils, LocalDate date, ZoneId zone) throws IOException {
+        Path path = fileUtils.getPath();
+        long size = fileUtils.size();
+        long targetDay = date.toEpochDay();
+        List<Long> sampledDays = sampleDays(path, size);
+        Optional<CookieLogIndex> freshIndex = freshIndex(path);
+        SortOrder order = freshIndex.map(CookieLogIndex::getOrder)
+                .orElse(assumeSorted ? sortOrderOf(sampledDays) : SortOrder.UNSORTED);
+
+        ExecutionPlan plan;
+        Optional<CookieLogIndex> index = zone == null ? freshIndex : Optional.empty();
+        if (index.isPresent()) {
+            Optional<DayStats> day = index.get().getDay(date);
+            plan = day.isPresent()
+                    ? new ExecutionPlan(Strategy.INDEX_LOOKUP, order, day.get().getStartOffset(), day.get().getEndOffset(),
+                    day.get().getEndOffset() - day.get().getStartOffset(), 1, 0, "fresh index lists the byte range for " + date)
+                    : new ExecutionPlan(Strategy.INDEX_LOOKUP, order, 0, 0, 0, 1, 0, "fresh index has no lines for " + date);
+        } else if (order != SortOrder.UNSORTED) {
+            plan = planSorted(path, size, targetDay, zone == null ? 0 : zoneMarginDays(zone, targetDay), order, sampledDays);
+        } else {
+            plan = planUnsorted(size, targetDay, sampledDays, sortOrderOf(sampledDays) == SortOrder.UNSORTED
+                    ? "log is unsorted" : "log order is not verified");
+        }
+        LOGGER.info(EXECUTION_PLAN_SELECTED.getLoggingMessage(), plan.getStrategy(), plan.getEstimatedBytes(), plan.getReason());
+        return plan;
+    }
+
+    // The fresh index's order, otherwise only the direction the samples suggest, for callers that require a sorted log
+    public SortOrder sortOrder(FileUtils fileUtils) throws IOException {
+        Optional<CookieLogIndex> freshIndex = freshIndex(fileUtils.getPath());
+        return freshIndex.isPresent()
+                ? freshIndex.get().getOrder()
+                : sortOrderOf(sampleDays(fileUtils.getPath(), fileUtils.size()));
+    }
+
+    // Whether a fresh index or the caller, rather than samples, says the log is sorted, so scans may stop early on it
+    public boolean isOrderVerified(FileUtils fileUtils) {
+        return assumeSorted || freshIndex(fileUtils.getPath())
+                .map(index -> index.getOrder() != SortOrder.UNSORTED)
+                .orElse(false);
+    }
+
+    // Margin days are read before the target day, for lines written on a different date than their day in the zone
+    private ExecutionPlan planSorted(Path path, long size, long targetDay, long marginDays, SortOrder order,
+                                     List<Long> sampledDays) {
+        long firstDay = sampledDays.get(0);
+        long lastDay = sampledDays.get(sampledDays.size() - 1);
+        long spanDays = Math.abs(lastDay - firstDay) + 1;
+        long dayBytes = size / spanDays;
+        long seekDay = order == SortOrder.DESCENDING ? targetDay + marginDays : targetDay - marginDays;
+        long daysBeforeTarget = order == SortOrder.DESCENDING ? firstDay - seekDay : seekDay - firstDay;
+
+        int partitions = partitionsFor(dayBytes);
+        if (size < SEEK_THRESHOLD) {
+            long estimate = Math.min(size, Math.max(AVERAGE_LINE_BYTES, (daysBeforeTarget + marginDays + 1) * dayBytes));
+            return partitions > 0
+                    ? spillPlan(order, 0, size, estimate, partitions)
+                    : new ExecutionPlan(Strategy.EARLY_TERMINATING_SCAN, order, 0, size, estimate, 1, 0,
+                    "log is sorted " + order.name().toLowerCase() + " and small enough to read from the start");
+        }
+
+        long[] probes = new long[1];
+        long boundary = findBoundary(path, size, seekDay, order, probes);
+        long estimate = Math.min(size - boundary, (marginDays + 1) * dayBytes + AVERAGE_LINE_BYTES)
+                + probes[0] * PROBE_BUFFER_SIZE;
+        return partitions > 0
+                ? spillPlan(order, boundary, size, estimate, partitions)
+                : new ExecutionPlan(Strategy.BINARY_SEARCH_SEEK, order, boundary, size, estimate, 1, 0,
+                "log is sorted " + order.name().toLowerCase() + ", " + probes[0] + " probes found the first line of the day");
+    }
+
+    // Written offsets reach 18 hours and the zone's own offset adds to that, so the written date can be two days out
+    static long zoneMarginDays(ZoneId zone, long targetDay) {
+        long zoneOffset = zone.getRules().getOffset(Instant.ofEpochSecond(targetDay * 86_400)).getTotalSeconds();
+        return (18 * 3600 + Math.abs(zoneOffset)) / 86_400 + 1;
+    }
+
+    // Only the target day's lines are counted, so the memory needed follows its share of the samples. Counting one
+    // more hit than was sampled keeps a day the samples missed from being taken as empty
+    private ExecutionPlan planUnsorted(long size, long targetDay, List<Long> sampledDays, String why) {
+        long hits = sampledDays.stream().filter(day -> day == targetDay).count();
+        long dayBytes = (long) (size * ((hits + 1) / (double) (sampledDays.size() + 1)));
+        int partitions = partitionsFor(dayBytes);
+        if (partitions > 0) {
+            return spillPlan(SortOrder.UNSORTED, 0, size, size, partitions);
+        }
+        int threads = size >= PARALLEL_THRESHOLD ? cores : 1;
+        return new ExecutionPlan(Strategy.PARALLEL_SCAN, SortOrder.UNSORTED, 0, size, size, threads, 0,
+                why + " so every line must be read, using " + threads + " of " + cores + " cores");
+    }
+
+    private ExecutionPlan spillPlan(SortOrder order, long start, long end, long estimate, int partitions) {
+        return new ExecutionPlan(Strategy.SPILL, order, start, end, estimate, 1, partitions,
+                "counting the day could exceed the " + memoryBudget + " byte memory budget");
+    }
+
+    // Sizes the spill so each partition's counts fit the budget, assuming every line of the day is a new cookie
+    private int partitionsFor(long matchingBytes) {
+        long countMapBytes = matchingBytes / AVERAGE_LINE_BYTES * BYTES_PER_COUNTED_COOKIE;
+        if (countMapBytes <= memoryBudget) {
+            return 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (countMapBytes + memoryBudget - 1) / Math.max(1, memoryBudget));
+    }
+
+    // Returns an offset such that every line starting before it is on a day that sorts before the target
+    long findBoundary(Path path, long size, long targetDay, SortOrder order, long[] probes) {
+        long low = 0;
+        long high = size;
+        while (high - low > PROBE_STOP_DISTANCE) {
+            long mid = low + (high - low) / 2;
+            long day = firstDayAtOrAfter(path, mid, size);
+            probes[0]++;
+            boolean beforeTarget = day != DateUtils.INVALID_EPOCH_DAY
+                    && (order == SortOrder.DESCENDING ? day > targetDay : day < targetDay);
+            if (beforeTarget) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private List<Long> sampleDays(Path path, long size) {
+        List<Long> days = new ArrayList<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            long day = firstDayAtOrAfter(path, size * i / SAMPLES, size);
+            if (day != DateUtils.INVALID_EPOCH_DAY) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    private long firstDayAtOrAfter(Path path, long offset, long size) {
+        long[] day = {DateUtils.INVALID_EPOCH_DAY};
+        try {
+            probeScanner.scanRecordsWhile(path, offset, size, (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) -> {
+                day[0] = DateUtils.parseEpochDay(buffer, timestampStart);
+                return false;
+            });
+        } catch (IOException ex) {
+            LOGGER.warn(FILE_ERROR.getLoggingMessage(), ex.toString());
+        }
+        return day[0];
+    }
+
+    static SortOrder sortOrderOf(List<Long> days) {
+        if (days.isEmpty()) {
+            return SortOrder.UNSORTED;
+        }
+        boolean ascending = true;
+        boolean descending = true;
+        for (int i = 1; i < days.size(); i++) {
+            ascending &= days.get(i) >= days.get(i - 1);
+            descending &= days.get(i) <= days.get(i - 1);
+        }
+        return descending ? SortOrder.DESCENDING : ascending ? SortOrder.ASCENDING : SortOrder.UNSORTED;
+    }
+
+    private Optional<CookieLogIndex> freshIndex(Path path) {
+        try {
+            Optional<CookieLogIndex> index = CookieLogIndex.read(CookieLogIndex.indexPathFor(path));
+            return index.isPresent() && index.get().isFreshFor(path) ? index : Optional.empty();
+        } catch (IOException ex) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.models.CookieCounts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Optional;
+
+// Progress of one query: for each byte range, the offset of the first line not yet counted and the counts before it.
+// Ranges are recorded independently, so an offset and its counts always describe the same point of the scan.
+public class ScanCheckpoint {
+    static final int MAGIC = 0x434B4350;
+    static final int VERSION = 1;
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    private final long sourceSize;
+    private final long sourceModified;
+    private final long epochDay;
+    private final long[] nextOffsets;
+    private final long[] rangeEnds;
+    private final CookieCounts[] counts;
+
+    public ScanCheckpoint(long sourceSize, long sourceModified, LocalDate date, long[] rangeStarts, long[] rangeEnds) {
+        this(sourceSize, sourceModified, date.toEpochDay(), rangeStarts.clone(), rangeEnds.clone(),
+                new CookieCounts[rangeStarts.length]);
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new CookieCounts();
+        }
+    }
+
+    private ScanCheckpoint(long sourceSize, long sourceModified, long epochDay, long[] nextOffsets, long[] rangeEnds,
+                           CookieCounts[] counts) {
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+        this.epochDay = epochDay;
+        this.nextOffsets = nextOffsets;
+        this.rangeEnds = rangeEnds;
+        this.counts = counts;
+    }
+
+    public static Path checkpointPathFor(Path directory, Path logFile) {
+        return directory.resolve(logFile.getFileName() + CHECKPOINT_SUFFIX);
+    }
+
+    public boolean matches(Path logFile, LocalDate date) throws IOException {
+        return date.toEpochDay() == epochDay && Files.size(logFile) == sourceSize
+                && Files.getLastModifiedTime(logFile).toMillis() == sourceModified;
+    }
+
+    public int getRangeCount() {
+        return nextOffsets.length;
+    }
+
+    public synchronized long getNextOffset(int range) {
+        return nextOffsets[range];
+    }
+
+    public long getRangeEnd(int range) {
+        return rangeEnds[range];
+    }
+
+    public synchronized CookieCounts getCounts(int range) {
+        return counts[range];
+    }
+
+    public synchronized long bytesRemaining() {
+        long remaining = 0;
+        for (int i = 0; i < nextOffsets.length; i++) {
+            remaining += Math.max(0, rangeEnds[i] - nextOffsets[i]);
+        }
+        return remaining;
+    }
+
+    public synchronized void record(int range, long nextOffset, CookieCounts rangeCounts) {
+        nextOffsets[range] = nextOffset;
+        counts[range] = rangeCounts;
+    }
+
+    public synchronized void write(Path checkpointFile) throws IOException {
+        Files.createDirectories(checkpointFile.toAbsolutePath().getParent());
+        Path tempFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceSize);
+            out.writeLong(sourceModified);
+            out.writeLong(epochDay);
+            out.writeInt(nextOffsets.length);
+            for (int i = 0; i < nextOffsets.length; i++) {
+                out.writeLong(nextOffsets[i]);
+                out.writeLong(rangeEnds[i]);
+                counts[i].writeTo(out);
+            }
+        }
+        try {
+            Files.move(tempFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tempFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public static Optional<ScanCheckpoint> read(Path checkpointFile) throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return Optional.empty();
+            }
+            long sourceSize = in.readLong();
+            long sourceModified = in.readLong();
+            long epochDay = in.readLong();
+            int ranges = in.readInt();
+            long[] nextOffsets = new long[ranges];
+            long[] rangeEnds = new long[ranges];
+            CookieCounts[] counts = new CookieCounts[ranges];
+            for (int i = 0; i < ranges; i++) {
+                nextOffsets[i] = in.readLong();
+                rangeEnds[i] = in.readLong();
+                counts[i] = CookieCounts.readFrom(in);
+            }
+            return Optional.of(new ScanCheckpoint(sourceSize, sourceModified, epochDay, nextOffsets, rangeEnds, counts));
+        }
+    }
+}
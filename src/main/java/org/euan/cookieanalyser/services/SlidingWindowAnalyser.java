@@ -0,0 +1,309 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.models.WindowResult;
+import org.euan.cookieanalyser.utils.DateUtils;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+
+public class SlidingWindowAnalyser {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(SlidingWindowAnalyser.class);
+
+    private final FileUtils fileUtils;
+    private final CookieLogScanner scanner;
+    private final int windowDays;
+    private final ZoneId zone;
+    private final boolean orderVerified;
+
+    public SlidingWindowAnalyser(FileUtils fileUtils, int windowDays) {
+        this(fileUtils, new CookieLogScanner(), windowDays);
+    }
+
+    public SlidingWindowAnalyser(FileUtils fileUtils, CookieLogScanner scanner, int windowDays) {
+        this(fileUtils, scanner, windowDays, null);
+    }
+
+    // A null zone buckets lines by the date as written
+    public SlidingWindowAnalyser(FileUtils fileUtils, CookieLogScanner scanner, int windowDays, ZoneId zone) {
+        this(fileUtils, scanner, windowDays, zone, false);
+    }
+
+    // orderVerified is the caller vouching that the log is sorted, so windows are reported as each day closes. Zoned
+    // days can run against a log sorted by the date as written, so only unzoned windows rely on it
+    public SlidingWindowAnalyser(FileUtils fileUtils, CookieLogScanner scanner, int windowDays, ZoneId zone,
+                                 boolean orderVerified) {
+        if (windowDays < 1) {
+            throw new IllegalArgumentException("Window must cover at least one day");
+        }
+        this.fileUtils = fileUtils;
+        this.scanner = scanner;
+        this.windowDays = windowDays;
+        this.zone = zone;
+        this.orderVerified = orderVerified;
+    }
+
+    public List<WindowResult> returnMostActiveCookiesPerWindow() {
+        List<WindowResult> results = new ArrayList<>();
+        analyse(results::add);
+        return results;
+    }
+
+    public void analyse(Consumer<WindowResult> emitter) {
+        if (!fileUtils.checkFileValid(zone != null)) {
+            LOGGER.error(INVALID_INPUT.getLoggingMessage(), "File is invalid");
+            return;
+        }
+
+        try {
+            DayResolver dayResolver = zone == null ? new TimestampPrefixDayResolver() : new ZonedDayResolver(zone);
+            long[] outOfOrderAt = {-1};
+            long[] reportedThrough = {DateUtils.INVALID_EPOCH_DAY};
+            // Without a verified order a day out of place later in the log would change windows already slid, so they
+            // wait for the pass to finish
+            List<WindowResult> held = new ArrayList<>();
+            DaySlide slide = slideGroupedDays(dayResolver, outOfOrderAt, orderVerified && zone == null
+                    ? result -> {
+                        reportedThrough[0] = result.getDate().toEpochDay();
+                        emitter.accept(result);
+                    }
+                    : held::add);
+            if (slide == null) {
+                if (reportedThrough[0] != DateUtils.INVALID_EPOCH_DAY) {
+                    LOGGER.warn(WINDOW_SORTED_ORDER_BROKEN.getLoggingMessage(), fileUtils.getPath(), outOfOrderAt[0]);
+                } else {
+                    LOGGER.info(WINDOW_DAYS_UNGROUPED.getLoggingMessage(), fileUtils.getPath(), outOfOrderAt[0]);
+                }
+                // Days come out of the full count in ascending order, so windows already reported are not repeated
+                long reported = reportedThrough[0];
+                slide = slideAllDays(dayResolver, outOfOrderAt[0], result -> {
+                    if (reported == DateUtils.INVALID_EPOCH_DAY || result.getDate().toEpochDay() > reported) {
+                        emitter.accept(result);
+                    }
+                });
+            } else {
+                slide.finish();
+                held.forEach(emitter);
+            }
+            LOGGER.info(ATTEMPT_ANALYSE_WINDOWS.getLoggingMessage(), windowDays, slide.getDays());
+            if (slide.getDays() == 0) {
+                LOGGER.warn(EMPTY_ANALYSIS_RESULT.getLoggingMessage());
+            }
+        } catch (IOException ex) {
+            LOGGER.error(FILE_ERROR.getLoggingMessage(), ex.toString());
+        } catch (Exception ex) {
+            LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+        }
+    }
+
+    // Slides while scanning, holding only the days still in the window, as long as each day's lines are together and
+    // the days come in one direction. Returns null, with the offset of the line that broke that, otherwise
+    private DaySlide slideGroupedDays(DayResolver dayResolver, long[] outOfOrderAt, Consumer<WindowResult> emitter)
+            throws IOException {
+        DaySlide slide = new DaySlide(windowDays, emitter);
+        long[] currentDay = {DateUtils.INVALID_EPOCH_DAY};
+        CookieCounts[] currentCounts = {null};
+        scanner.scanRecordsWhile(fileUtils.getPath(), 0, fileUtils.size(), (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) -> {
+            long epochDay = dayResolver.resolve(buffer, timestampStart);
+            if (epochDay == DateUtils.INVALID_EPOCH_DAY) {
+                warnInvalidDate(buffer, timestampStart);
+                return true;
+            }
+            if (epochDay != currentDay[0]) {
+                if (currentCounts[0] != null && !slide.accept(currentDay[0], currentCounts[0])) {
+                    outOfOrderAt[0] = lineOffset;
+                    return false;
+                }
+                currentDay[0] = epochDay;
+                currentCounts[0] = new CookieCounts();
+            }
+            currentCounts[0].increment(CookieLogScanner.decode(buffer, cookieStart, cookieEnd));
+            return true;
+        });
+        if (outOfOrderAt[0] >= 0) {
+            return null;
+        }
+        if (currentCounts[0] != null && !slide.accept(currentDay[0], currentCounts[0])) {
+            outOfOrderAt[0] = fileUtils.size();
+            return null;
+        }
+        return slide;
+    }
+
+    // Lines before warnFrom were already read by the grouped pass, so their bad dates have been reported
+    private DaySlide slideAllDays(DayResolver dayResolver, long warnFrom, Consumer<WindowResult> emitter)
+            throws IOException {
+        TreeMap<Long, CookieCounts> dailyCounts = new TreeMap<>();
+        scanner.scanRecords(fileUtils.getPath(), 0, fileUtils.size(), (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) -> {
+            long epochDay = dayResolver.resolve(buffer, timestampStart);
+            if (epochDay == DateUtils.INVALID_EPOCH_DAY) {
+                if (lineOffset >= warnFrom) {
+                    warnInvalidDate(buffer, timestampStart);
+                }
+                return;
+            }
+            dailyCounts.computeIfAbsent(epochDay, day -> new CookieCounts())
+                    .increment(CookieLogScanner.decode(buffer, cookieStart, cookieEnd));
+        });
+        DaySlide slide = new DaySlide(windowDays, emitter);
+        while (!dailyCounts.isEmpty()) {
+            Map.Entry<Long, CookieCounts> day = dailyCounts.pollFirstEntry();
+            slide.accept(day.getKey(), day.getValue());
+        }
+        slide.finish();
+        return slide;
+    }
+
+    private void warnInvalidDate(byte[] buffer, int timestampStart) {
+        LOGGER.warn(DATE_PARSE_ERROR.getLoggingMessage(), CookieLogScanner.decode(buffer, timestampStart,
+                timestampStart + CookieLogScanner.TIMESTAMP_LENGTH));
+    }
+
+    // Takes each day's counts once the day is complete, in ascending or descending order, and reports the window ending
+    // on every day between the first and last as soon as all of its days have arrived. Days are dropped as they leave.
+    // Descending logs complete their windows newest first, so only their results are held and reversed into date order
+    // when finished.
+    private static final class DaySlide {
+        private final int windowDays;
+        private final Consumer<WindowResult> emitter;
+        private final Window window = new Window();
+        private final HashMap<Long, CookieCounts> daysInWindow = new HashMap<>();
+        private final List<WindowResult> descendingResults = new ArrayList<>();
+        // The first day waits until the second shows which way the days run
+        private CookieCounts firstCounts;
+        private int direction;
+        private long lastDay;
+        private long nextEnd;
+        private int days;
+
+        private DaySlide(int windowDays, Consumer<WindowResult> emitter) {
+            this.windowDays = windowDays;
+            this.emitter = emitter;
+        }
+
+        // Returns false when the day is not past every day before it in the direction the days run
+        private boolean accept(long day, CookieCounts counts) {
+            if (days == 0) {
+                firstCounts = counts;
+            } else {
+                int step = day > lastDay ? 1 : -1;
+                if (direction == 0) {
+                    direction = step;
+                    nextEnd = lastDay;
+                    enter(lastDay, firstCounts);
+                    firstCounts = null;
+                } else if (step != direction) {
+                    return false;
+                }
+                enter(day, counts);
+            }
+            lastDay = day;
+            days++;
+            return true;
+        }
+
+        private int getDays() {
+            return days;
+        }
+
+        private void finish() {
+            if (direction == 0 && days == 1) {
+                direction = 1;
+                nextEnd = lastDay;
+                enter(lastDay, firstCounts);
+            } else if (direction < 0) {
+                for (; nextEnd >= lastDay; nextEnd--) {
+                    report(nextEnd);
+                    leave(nextEnd);
+                }
+                Collections.reverse(descendingResults);
+                descendingResults.forEach(emitter);
+            }
+        }
+
+        private void enter(long day, CookieCounts counts) {
+            if (direction > 0) {
+                // Windows ending before this day are complete, including those on days without logs
+                for (; nextEnd < day; nextEnd++) {
+                    leave(nextEnd - windowDays);
+                    report(nextEnd);
+                }
+                daysInWindow.put(day, counts);
+                window.add(counts);
+                leave(day - windowDays);
+                report(day);
+                nextEnd = day + 1;
+            } else {
+                // Windows starting after this day are complete
+                for (; nextEnd - windowDays + 1 > day; nextEnd--) {
+                    report(nextEnd);
+                    leave(nextEnd);
+                }
+                daysInWindow.put(day, counts);
+                window.add(counts);
+            }
+        }
+
+        private void leave(long day) {
+            CookieCounts counts = daysInWindow.remove(day);
+            if (counts != null) {
+                window.remove(counts);
+            }
+        }
+
+        private void report(long windowEnd) {
+            window.leaders(windowEnd).ifPresent(direction < 0 ? descendingResults::add : emitter);
+        }
+    }
+
+    // Counts over the days in the window, with cookies also grouped by count so the leaders are read from the highest
+    // group instead of searching every cookie
+    private static final class Window {
+        private final HashMap<String, Integer> counts = new HashMap<>();
+        private final TreeMap<Integer, Set<String>> cookiesByCount = new TreeMap<>();
+
+        private void add(CookieCounts day) {
+            day.asMap().forEach(this::change);
+        }
+
+        private void remove(CookieCounts day) {
+            day.asMap().forEach((cookie, count) -> change(cookie, -count));
+        }
+
+        private void change(String cookie, int delta) {
+            int current = counts.getOrDefault(cookie, 0);
+            if (current != 0) {
+                Set<String> cookies = cookiesByCount.get(current);
+                cookies.remove(cookie);
+                if (cookies.isEmpty()) {
+                    cookiesByCount.remove(current);
+                }
+            }
+            int updated = current + delta;
+            if (updated == 0) {
+                counts.remove(cookie);
+            } else {
+                counts.put(cookie, updated);
+                cookiesByCount.computeIfAbsent(updated, count -> new HashSet<>()).add(cookie);
+            }
+        }
+
+        private Optional<WindowResult> leaders(long windowEnd) {
+            if (cookiesByCount.isEmpty()) {
+                return Optional.empty();
+            }
+            Map.Entry<Integer, Set<String>> top = cookiesByCount.lastEntry();
+            return Optional.of(new WindowResult(LocalDate.ofEpochDay(windowEnd), top.getValue().stream().sorted().toList(),
+                    top.getKey()));
+        }
+    }
+}
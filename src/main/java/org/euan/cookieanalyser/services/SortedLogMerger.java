@@ -0,0 +1,160 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.models.CookieLog;
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
+import org.euan.cookieanalyser.utils.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+
+/**
+ * Streams the records of several logs that are each sorted the same way as one log in global timestamp order. Only one
+ * read buffer and one pending record per input are held, and a heap of the inputs' pending records picks the next one,
+ * so memory does not grow with the size of the logs. Records are ordered by their UTC instant, ties by input order.
+ */
+public class SortedLogMerger implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SortedLogMerger.class);
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 << 10;
+
+    private final SortOrder order;
+    private final List<Input> inputs = new ArrayList<>();
+    private final PriorityQueue<Input> heap;
+    private long epochSecond = DateUtils.INVALID_EPOCH_SECOND;
+
+    private SortedLogMerger(SortOrder order) {
+        this.order = order;
+        Comparator<Input> byInstant = Comparator.comparingLong(input -> input.epochSecond);
+        this.heap = new PriorityQueue<>((order == SortOrder.DESCENDING ? byInstant.reversed() : byInstant)
+                .thenComparingInt(input -> input.index));
+    }
+
+    public static SortedLogMerger open(List<Path> logs, SortOrder order) throws IOException {
+        return open(logs, order, DEFAULT_BUFFER_SIZE);
+    }
+
+    public static SortedLogMerger open(List<Path> logs, SortOrder order, int bufferSize) throws IOException {
+        if (order == SortOrder.UNSORTED) {
+            throw new IllegalArgumentException("Only sorted logs can be merged");
+        }
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        SortedLogMerger merger = new SortedLogMerger(order);
+        try {
+            for (Path log : logs) {
+                Input input = new Input(log, merger.inputs.size(), new BufferedReader(
+                        new InputStreamReader(Files.newInputStream(log), StandardCharsets.UTF_8), bufferSize));
+                merger.inputs.add(input);
+                // Each log starts with its own header
+                input.reader.readLine();
+                if (merger.advance(input)) {
+                    merger.heap.add(input);
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            merger.close();
+            throw ex;
+        }
+        return merger;
+    }
+
+    public SortOrder getOrder() {
+        return order;
+    }
+
+    // Returns the next record in merged order, or null once every input is exhausted
+    public CookieLog next() throws IOException {
+        Input input = heap.poll();
+        if (input == null) {
+            return null;
+        }
+        CookieLog log = input.pending;
+        epochSecond = input.epochSecond;
+        if (advance(input)) {
+            heap.add(input);
+        }
+        return log;
+    }
+
+    // UTC epoch second of the record last returned by next
+    public long getEpochSecond() {
+        return epochSecond;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Input input : inputs) {
+            try {
+                input.reader.close();
+            } catch (IOException ex) {
+                failure = failure == null ? ex : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Reads the input's next well formed record into pending, skipping malformed lines
+    private boolean advance(Input input) throws IOException {
+        String line;
+        while ((line = input.reader.readLine()) != null) {
+            int comma = line.indexOf(',');
+            if (comma < 0) {
+                LOGGER.warn(MALFORMED_LOG_LINE.getLoggingMessage(), line);
+                continue;
+            }
+            int timestampEnd = line.indexOf(',', comma + 1);
+            String cookie = line.substring(0, comma).trim();
+            String timestamp = line.substring(comma + 1, timestampEnd < 0 ? line.length() : timestampEnd).trim();
+            if (cookie.isEmpty() || timestamp.length() != CookieLogScanner.TIMESTAMP_LENGTH) {
+                LOGGER.warn(MALFORMED_LOG_LINE.getLoggingMessage(), line);
+                continue;
+            }
+            long second = DateUtils.parseEpochSecond(timestamp.getBytes(StandardCharsets.US_ASCII), 0);
+            if (second == DateUtils.INVALID_EPOCH_SECOND) {
+                LOGGER.warn(DATE_PARSE_ERROR.getLoggingMessage(), line);
+                continue;
+            }
+            if (input.pending != null && !input.outOfOrder
+                    && (order == SortOrder.DESCENDING ? second > input.epochSecond : second < input.epochSecond)) {
+                input.outOfOrder = true;
+                LOGGER.warn(MERGE_INPUT_OUT_OF_ORDER.getLoggingMessage(), input.path, line);
+            }
+            input.pending = new CookieLog(cookie, timestamp);
+            input.epochSecond = second;
+            return true;
+        }
+        return false;
+    }
+
+    private static final class Input {
+        private final Path path;
+        private final int index;
+        private final BufferedReader reader;
+        private CookieLog pending;
+        private long epochSecond;
+        private boolean outOfOrder;
+
+        private Input(Path path, int index, BufferedReader reader) {
+            this.path = path;
+            this.index = index;
+            this.reader = reader;
+        }
+    }
+}
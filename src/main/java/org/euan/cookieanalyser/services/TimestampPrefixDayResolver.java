@@ -0,0 +1,35 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.utils.DateUtils;
+
+import static org.euan.cookieanalyser.services.CookieLogScanner.DATE_LENGTH;
+
+// Buckets by the date as written in the timestamp, matching CookieLogParser.isDateMatch. Logs are grouped by day, so
+// the last parsed prefix is cached and consecutive lines only pay a ten byte comparison.
+public class TimestampPrefixDayResolver implements DayResolver {
+
+    private final byte[] lastPrefix = new byte[DATE_LENGTH];
+    private long lastEpochDay = DateUtils.INVALID_EPOCH_DAY;
+
+    @Override
+    public long resolve(byte[] buffer, int timestampStart) {
+        if (lastEpochDay != DateUtils.INVALID_EPOCH_DAY && matchesLastPrefix(buffer, timestampStart)) {
+            return lastEpochDay;
+        }
+        long epochDay = DateUtils.parseEpochDay(buffer, timestampStart);
+        if (epochDay != DateUtils.INVALID_EPOCH_DAY) {
+            System.arraycopy(buffer, timestampStart, lastPrefix, 0, DATE_LENGTH);
+            lastEpochDay = epochDay;
+        }
+        return epochDay;
+    }
+
+    private boolean matchesLastPrefix(byte[] buffer, int timestampStart) {
+        for (int i = DATE_LENGTH - 1; i >= 0; i--) {
+            if (buffer[timestampStart + i] != lastPrefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.utils.DateUtils;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+// Buckets by the day the timestamp's instant falls on in a zone, whatever offset the line was written with. The first
+// epoch second of each day in the zone is computed once, so a line costs one timestamp parse and a couple of integer
+// comparisons. Days are only added when a line falls outside the days already covered. Not thread safe.
+public class ZonedDayResolver implements DayResolver {
+    private static final long SECONDS_PER_DAY = 86_400;
+    // Extending by more than the missing day means a log spanning many days recomputes its starts rarely
+    private static final int EXTEND_DAYS = 32;
+
+    private final ZoneId zone;
+    private long firstDay;
+    // starts[i] is the first epoch second of day firstDay + i, and the last entry is the end of the covered days
+    private long[] starts = new long[0];
+
+    public ZonedDayResolver(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    public ZonedDayResolver(ZoneId zone, LocalDate first, LocalDate last) {
+        this(zone);
+        cover(first.toEpochDay(), last.toEpochDay());
+    }
+
+    @Override
+    public long resolve(byte[] buffer, int timestampStart) {
+        long epochSecond = DateUtils.parseEpochSecond(buffer, timestampStart);
+        if (epochSecond == DateUtils.INVALID_EPOCH_SECOND) {
+            return DateUtils.INVALID_EPOCH_DAY;
+        }
+        // Zone offsets are under a day, so the zoned day is the UTC day or one either side of it
+        long utcDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        if (starts.length == 0 || utcDay - 1 < firstDay || utcDay + 1 > firstDay + starts.length - 2) {
+            cover(utcDay - 1, utcDay + 1);
+        }
+        int index = (int) (utcDay - firstDay);
+        while (epochSecond < starts[index]) {
+            index--;
+        }
+        while (epochSecond >= starts[index + 1]) {
+            index++;
+        }
+        return firstDay + index;
+    }
+
+    public long startOf(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toEpochSecond();
+    }
+
+    private void cover(long from, long to) {
+        long lastDay = firstDay + starts.length - 2;
+        long newFirst = starts.length == 0 ? from : Math.min(firstDay, from < firstDay ? from - EXTEND_DAYS : from);
+        long newLast = starts.length == 0 ? to : Math.max(lastDay, to > lastDay ? to + EXTEND_DAYS : to);
+        long[] covered = new long[(int) (newLast - newFirst + 2)];
+        for (int i = 0; i < covered.length; i++) {
+            long day = newFirst + i;
+            covered[i] = day >= firstDay && day <= lastDay + 1 && starts.length > 0
+                    ? starts[(int) (day - firstDay)]
+                    : startOf(day);
+        }
+        firstDay = newFirst;
+        starts = covered;
+    }
+}
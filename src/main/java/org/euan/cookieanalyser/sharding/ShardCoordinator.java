@@ -0,0 +1,209 @@
+package org.euan.cookieanalyser.sharding;
+
+import org.euan.cookieanalyser.CookieAnalyserApplication;
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.services.CookieLogScanner;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+
+public class ShardCoordinator implements AutoCloseable {
+    private final Logger LOGGER = LoggerFactory.getLogger(ShardCoordinator.class);
+
+    private static final int SHARDS_PER_WORKER = 4;
+
+    private final List<InetSocketAddress> workers;
+    private final List<Process> launchedWorkers;
+
+    public ShardCoordinator(List<InetSocketAddress> workers) {
+        this(workers, Collections.emptyList());
+    }
+
+    private ShardCoordinator(List<InetSocketAddress> workers, List<Process> launchedWorkers) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard worker is required");
+        }
+        this.workers = List.copyOf(workers);
+        this.launchedWorkers = List.copyOf(launchedWorkers);
+    }
+
+    public static ShardCoordinator launchLocalWorkers(int workerCount) throws IOException {
+        String javaBinary = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                Process process = new ProcessBuilder(javaBinary, "-cp", System.getProperty("java.class.path"),
+                        CookieAnalyserApplication.class.getName(), "--worker", "0")
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+                processes.add(process);
+                addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), awaitWorkerPort(process)));
+            }
+        } catch (IOException ex) {
+            processes.forEach(Process::destroy);
+            throw ex;
+        }
+        return new ShardCoordinator(addresses, processes);
+    }
+
+    public static List<InetSocketAddress> parseWorkerAddresses(String workerList) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String worker : workerList.split(",")) {
+            int separator = worker.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected host:port but got " + worker);
+            }
+            addresses.add(new InetSocketAddress(worker.substring(0, separator).trim(),
+                    Integer.parseInt(worker.substring(separator + 1).trim())));
+        }
+        return addresses;
+    }
+
+    public List<String> returnMostActiveCookie(FileUtils fileUtils, LocalDate inputDate) {
+        if (inputDate == null || !fileUtils.checkFileValid()) {
+            LOGGER.error(INVALID_INPUT.getLoggingMessage(), "Either input date is null or file is invalid");
+            return Collections.emptyList();
+        }
+
+        try {
+            CookieCounts counts = countCookies(fileUtils, inputDate);
+            List<String> mostActiveCookies = counts.mostActive();
+            if (mostActiveCookies.isEmpty()) {
+                LOGGER.warn(NO_LOGS_FOUND_FOR_DATE.getLoggingMessage(), inputDate);
+                return Collections.emptyList();
+            }
+            LOGGER.info(SUCCESSFULLY_ANALYSED_LOGS.getLoggingMessage(), mostActiveCookies.size());
+            return mostActiveCookies;
+        } catch (IOException ex) {
+            LOGGER.error(FILE_ERROR.getLoggingMessage(), ex.toString());
+        } catch (Exception ex) {
+            LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+        }
+        return Collections.emptyList();
+    }
+
+    public CookieCounts countCookies(FileUtils fileUtils, LocalDate inputDate) throws IOException, InterruptedException {
+        String path = fileUtils.getPath().toAbsolutePath().toString();
+        long[] boundaries = planShards(fileUtils.size(), workers.size() * SHARDS_PER_WORKER);
+
+        List<List<ShardRequest>> assignments = new ArrayList<>();
+        for (int i = 0; i < workers.size(); i++) {
+            assignments.add(new ArrayList<>());
+        }
+        for (int shard = 0; shard < boundaries.length - 1; shard++) {
+            assignments.get(shard % workers.size())
+                    .add(new ShardRequest(shard, path, inputDate, boundaries[shard], boundaries[shard + 1]));
+        }
+        LOGGER.info(SHARDS_DISPATCHED.getLoggingMessage(), boundaries.length - 1, workers.size(), inputDate);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            List<Future<List<ShardResult>>> futures = new ArrayList<>();
+            for (int i = 0; i < workers.size(); i++) {
+                InetSocketAddress worker = workers.get(i);
+                List<ShardRequest> requests = assignments.get(i);
+                futures.add(executor.submit(() -> sendRequests(worker, requests)));
+            }
+
+            CookieCounts merged = new CookieCounts();
+            for (Future<List<ShardResult>> future : futures) {
+                for (ShardResult result : future.get()) {
+                    if (!result.isSuccess()) {
+                        LOGGER.error(SHARD_FAILED.getLoggingMessage(), result.getShardId(), result.getError());
+                        throw new IOException("Shard " + result.getShardId() + " failed: " + result.getError());
+                    }
+                    merged.merge(result.getCounts());
+                }
+            }
+            LOGGER.info(SHARDS_MERGED.getLoggingMessage(), boundaries.length - 1, merged.size());
+            return merged;
+        } catch (ExecutionException ex) {
+            throw new IOException("Shard worker unavailable", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static long[] planShards(long fileSize, int shardCount) {
+        return CookieLogScanner.splitRanges(fileSize, shardCount);
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < launchedWorkers.size(); i++) {
+            Process process = launchedWorkers.get(i);
+            try (Socket socket = new Socket(workers.get(i).getAddress(), workers.get(i).getPort());
+                 DataOutputStream out = new DataOutputStream(socket.getOutputStream())) {
+                ShardProtocol.writeHandshake(out);
+                out.writeByte(ShardProtocol.SHUTDOWN);
+                out.flush();
+            } catch (IOException ex) {
+                process.destroy();
+            }
+        }
+        for (Process process : launchedWorkers) {
+            try {
+                process.waitFor();
+            } catch (InterruptedException ex) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private List<ShardResult> sendRequests(InetSocketAddress worker, List<ShardRequest> requests) throws IOException {
+        List<ShardResult> results = new ArrayList<>();
+        if (requests.isEmpty()) {
+            return results;
+        }
+        try (Socket socket = new Socket(worker.getAddress(), worker.getPort());
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            ShardProtocol.writeHandshake(out);
+            for (ShardRequest request : requests) {
+                request.writeTo(out);
+            }
+            out.flush();
+            ShardProtocol.readHandshake(in);
+            for (int i = 0; i < requests.size(); i++) {
+                results.add(ShardResult.readFrom(in));
+            }
+        }
+        return results;
+    }
+
+    private static int awaitWorkerPort(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(ShardWorker.READY_PREFIX)) {
+                return Integer.parseInt(line.substring(ShardWorker.READY_PREFIX.length()).trim());
+            }
+        }
+        throw new IOException("Shard worker exited before reporting its port");
+    }
+}
@@ -0,0 +1,42 @@
+package org.euan.cookieanalyser.sharding;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/*
+ * Connection: client sends MAGIC + VERSION, worker answers with the same pair, then the client sends any number of
+ * messages. Requests carry the file path as seen by the worker, so remote workers only need the log on shared storage.
+ *
+ *   COUNT_REQUEST: type, shardId (varint), path (UTF), epochDay (varlong), start (varlong), end (varlong)
+ *   SHUTDOWN:      type
+ *   response:      shardId (varint), status, then CookieCounts when OK or an error message (UTF) when not
+ */
+public final class ShardProtocol {
+    public static final int MAGIC = 0x434B5348;
+    public static final int VERSION = 1;
+
+    public static final byte COUNT_REQUEST = 1;
+    public static final byte SHUTDOWN = 2;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+
+    private ShardProtocol() {}
+
+    public static void writeHandshake(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    public static void readHandshake(DataInput in) throws IOException {
+        int magic = in.readInt();
+        int version = in.readInt();
+        if (magic != MAGIC) {
+            throw new IOException("Unexpected shard protocol magic: " + Integer.toHexString(magic));
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported shard protocol version: " + version);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.euan.cookieanalyser.sharding;
+
+import org.euan.cookieanalyser.utils.VarInts;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+
+public class ShardRequest {
+    private final int shardId;
+    private final String path;
+    private final LocalDate date;
+    private final long start;
+    private final long end;
+
+    public ShardRequest(int shardId, String path, LocalDate date, long start, long end) {
+        this.shardId = shardId;
+        this.path = path;
+        this.date = date;
+        this.start = start;
+        this.end = end;
+    }
+
+    public int getShardId() {
+        return shardId;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(ShardProtocol.COUNT_REQUEST);
+        VarInts.writeVarInt(out, shardId);
+        out.writeUTF(path);
+        VarInts.writeVarLong(out, date.toEpochDay());
+        VarInts.writeVarLong(out, start);
+        VarInts.writeVarLong(out, end);
+    }
+
+    // The message type byte has already been consumed by the caller
+    public static ShardRequest readFrom(DataInput in) throws IOException {
+        int shardId = VarInts.readVarInt(in);
+        String path = in.readUTF();
+        LocalDate date = LocalDate.ofEpochDay(VarInts.readVarLong(in));
+        long start = VarInts.readVarLong(in);
+        long end = VarInts.readVarLong(in);
+        return new ShardRequest(shardId, path, date, start, end);
+    }
+}
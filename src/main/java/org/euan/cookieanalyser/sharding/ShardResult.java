@@ -0,0 +1,64 @@
+package org.euan.cookieanalyser.sharding;
+
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.utils.VarInts;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class ShardResult {
+    private final int shardId;
+    private final CookieCounts counts;
+    private final String error;
+
+    private ShardResult(int shardId, CookieCounts counts, String error) {
+        this.shardId = shardId;
+        this.counts = counts;
+        this.error = error;
+    }
+
+    public static ShardResult success(int shardId, CookieCounts counts) {
+        return new ShardResult(shardId, counts, null);
+    }
+
+    public static ShardResult failure(int shardId, String error) {
+        return new ShardResult(shardId, null, error);
+    }
+
+    public int getShardId() {
+        return shardId;
+    }
+
+    public boolean isSuccess() {
+        return counts != null;
+    }
+
+    public CookieCounts getCounts() {
+        return counts;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        VarInts.writeVarInt(out, shardId);
+        if (isSuccess()) {
+            out.writeByte(ShardProtocol.STATUS_OK);
+            counts.writeTo(out);
+        } else {
+            out.writeByte(ShardProtocol.STATUS_ERROR);
+            out.writeUTF(error == null ? "" : error);
+        }
+    }
+
+    public static ShardResult readFrom(DataInput in) throws IOException {
+        int shardId = VarInts.readVarInt(in);
+        byte status = in.readByte();
+        if (status == ShardProtocol.STATUS_OK) {
+            return success(shardId, CookieCounts.readFrom(in));
+        }
+        return failure(shardId, in.readUTF());
+    }
+}
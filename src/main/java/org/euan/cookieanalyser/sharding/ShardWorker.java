@@ -0,0 +1,106 @@
+package org.euan.cookieanalyser.sharding;
+
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.services.CookieLogAnalyser;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+
+public class ShardWorker implements AutoCloseable {
+    private final Logger LOGGER = LoggerFactory.getLogger(ShardWorker.class);
+
+    public static final String READY_PREFIX = "LISTENING ";
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connectionPool = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "shard-worker-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ShardWorker(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port);
+    }
+
+    public ShardWorker(InetAddress bindAddress, int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, bindAddress);
+        LOGGER.info(WORKER_LISTENING.getLoggingMessage(), getPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connectionPool.execute(() -> handleConnection(socket));
+            } catch (SocketException ex) {
+                // Server socket closed by a shutdown request
+            } catch (IOException ex) {
+                LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+            }
+        }
+        connectionPool.shutdown();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connectionPool.shutdownNow();
+    }
+
+    private void handleConnection(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            ShardProtocol.readHandshake(in);
+            ShardProtocol.writeHandshake(out);
+            out.flush();
+
+            while (true) {
+                byte type = in.readByte();
+                if (type == ShardProtocol.SHUTDOWN) {
+                    close();
+                    return;
+                }
+                if (type != ShardProtocol.COUNT_REQUEST) {
+                    throw new IOException("Unknown shard message type: " + type);
+                }
+                handleRequest(ShardRequest.readFrom(in)).writeTo(out);
+                out.flush();
+            }
+        } catch (EOFException ex) {
+            // Coordinator closed the connection
+        } catch (IOException ex) {
+            LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), ex.toString());
+        }
+    }
+
+    private ShardResult handleRequest(ShardRequest request) {
+        try {
+            CookieLogAnalyser analyser = new CookieLogAnalyser(new FileUtils(request.getPath()));
+            CookieCounts counts = analyser.countCookiesInRange(request.getDate(), request.getStart(), request.getEnd());
+            return ShardResult.success(request.getShardId(), counts);
+        } catch (Exception ex) {
+            LOGGER.error(SHARD_FAILED.getLoggingMessage(), request.getShardId(), ex.toString());
+            return ShardResult.failure(request.getShardId(), ex.toString());
+        }
+    }
+}
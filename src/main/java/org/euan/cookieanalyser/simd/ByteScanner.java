@@ -0,0 +1,11 @@
+package org.euan.cookieanalyser.simd;
+
+public interface ByteScanner {
+
+    int indexOf(byte[] buffer, int from, int to, byte target);
+
+    // Writes the positions of target in [from, to) until positions is full and returns how many were written
+    int findAll(byte[] buffer, int from, int to, byte target, int[] positions);
+
+    boolean regionEquals(byte[] buffer, int offset, byte[] expected, int length);
+}
@@ -0,0 +1,61 @@
+package org.euan.cookieanalyser.simd;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.BYTE_SCANNER_SELECTED;
+
+public final class ByteScanners {
+
+    // Selection runs in the static initialiser on every launch, so logging is only initialised if it has to warn
+    private static final class LoggerHolder {
+        private static final Logger LOGGER = LoggerFactory.getLogger(ByteScanners.class);
+    }
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_SCANNER = "org.euan.cookieanalyser.simd.VectorByteScanner";
+
+    private static final ByteScanner BEST = select();
+
+    private ByteScanners() {}
+
+    public static ByteScanner best() {
+        return BEST;
+    }
+
+    public static ByteScanner scalar() {
+        return new ScalarByteScanner();
+    }
+
+    public static boolean isVectorScannerAvailable() {
+        if (!isVectorModulePresent()) {
+            return false;
+        }
+        try {
+            Class.forName(VECTOR_SCANNER, false, ByteScanners.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    public static boolean isVectorModulePresent() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    private static ByteScanner select() {
+        if (!Boolean.getBoolean("cookieanalyser.simd.disabled") && isVectorModulePresent()) {
+            try {
+                ByteScanner scanner = (ByteScanner) Class.forName(VECTOR_SCANNER).getDeclaredConstructor().newInstance();
+                LoggerHolder.LOGGER.debug(BYTE_SCANNER_SELECTED.getLoggingMessage(), scanner.getClass().getSimpleName());
+                return scanner;
+            } catch (ClassNotFoundException ex) {
+                // Built without the vector profile, so there is nothing to fall back from
+                LoggerHolder.LOGGER.debug(BYTE_SCANNER_SELECTED.getLoggingMessage(), "ScalarByteScanner (built without vector support)");
+            } catch (ReflectiveOperationException | LinkageError ex) {
+                LoggerHolder.LOGGER.warn(BYTE_SCANNER_SELECTED.getLoggingMessage(), "ScalarByteScanner (" + ex + ")");
+            }
+        }
+        return new ScalarByteScanner();
+    }
+}
@@ -0,0 +1,35 @@
+package org.euan.cookieanalyser.simd;
+
+public class ScalarByteScanner implements ByteScanner {
+
+    @Override
+    public int indexOf(byte[] buffer, int from, int to, byte target) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int findAll(byte[] buffer, int from, int to, byte target, int[] positions) {
+        int found = 0;
+        for (int i = from; i < to && found < positions.length; i++) {
+            if (buffer[i] == target) {
+                positions[found++] = i;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean regionEquals(byte[] buffer, int offset, byte[] expected, int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
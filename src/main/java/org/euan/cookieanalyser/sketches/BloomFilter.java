@@ -0,0 +1,98 @@
+package org.euan.cookieanalyser.sketches;
+
+import org.euan.cookieanalyser.utils.Hashing;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class BloomFilter {
+    private final long capacity;
+    private final int hashFunctions;
+    private final long bitCount;
+    private final long[] bits;
+    private long insertions;
+
+    public BloomFilter(long capacity, double falsePositiveRate) {
+        if (capacity < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Bloom filter needs a positive capacity and a false positive rate in (0, 1)");
+        }
+        long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.capacity = capacity;
+        this.bitCount = Math.max(Long.SIZE, (optimalBits + Long.SIZE - 1) / Long.SIZE * Long.SIZE);
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        this.bits = new long[(int) (bitCount / Long.SIZE)];
+    }
+
+    private BloomFilter(long capacity, int hashFunctions, long insertions, long[] bits) {
+        this.capacity = capacity;
+        this.hashFunctions = hashFunctions;
+        this.bitCount = (long) bits.length * Long.SIZE;
+        this.insertions = insertions;
+        this.bits = bits;
+    }
+
+    public void add(long hash) {
+        long first = hash;
+        long second = Hashing.mix(hash) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(first, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+            first += second;
+        }
+        insertions++;
+    }
+
+    public boolean mightContain(long hash) {
+        long first = hash;
+        long second = Hashing.mix(hash) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(first, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+            first += second;
+        }
+        return true;
+    }
+
+    // Filters of the same shape set the same bits for a cookie, so OR-ing them holds the cookies of both
+    public void merge(BloomFilter other) {
+        if (other.bits.length != bits.length || other.hashFunctions != hashFunctions) {
+            throw new IllegalArgumentException("Only Bloom filters of the same shape can be merged");
+        }
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] |= other.bits[i];
+        }
+        insertions += other.insertions;
+    }
+
+    public boolean isFull() {
+        return insertions >= capacity;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(capacity);
+        out.writeByte(hashFunctions);
+        out.writeLong(insertions);
+        out.writeInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+    }
+
+    public static BloomFilter readFrom(DataInput in) throws IOException {
+        long capacity = in.readLong();
+        int hashFunctions = in.readUnsignedByte();
+        long insertions = in.readLong();
+        long[] bits = new long[in.readInt()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = in.readLong();
+        }
+        return new BloomFilter(capacity, hashFunctions, insertions, bits);
+    }
+}
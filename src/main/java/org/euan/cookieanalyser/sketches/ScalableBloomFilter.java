@@ -0,0 +1,86 @@
+package org.euan.cookieanalyser.sketches;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Chains Bloom filters of doubling capacity and halving error rate, so a day's filter can be built in one pass
+// without knowing how many cookies it will hold while each chain stays below FALSE_POSITIVE_RATE overall
+public class ScalableBloomFilter {
+    public static final long INITIAL_CAPACITY = 256;
+    public static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final long initialCapacity;
+    private final List<BloomFilter> filters;
+
+    public ScalableBloomFilter() {
+        this(INITIAL_CAPACITY);
+    }
+
+    // Sized for the expected number of cookies, so filters that will be merged keep within one stage
+    public ScalableBloomFilter(long initialCapacity) {
+        this(initialCapacity, new ArrayList<>());
+    }
+
+    private ScalableBloomFilter(long initialCapacity, List<BloomFilter> filters) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Scalable Bloom filter needs a positive initial capacity");
+        }
+        this.initialCapacity = initialCapacity;
+        this.filters = filters;
+    }
+
+    public void add(long hash) {
+        if (filters.isEmpty() || filters.get(filters.size() - 1).isFull()) {
+            int stage = filters.size();
+            filters.add(new BloomFilter(initialCapacity << stage, FALSE_POSITIVE_RATE / (1L << (stage + 1))));
+        }
+        filters.get(filters.size() - 1).add(hash);
+    }
+
+    public boolean mightContain(long hash) {
+        for (BloomFilter filter : filters) {
+            if (filter.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ORs each stage into the stage of the same shape. The union keeps within FALSE_POSITIVE_RATE only while each
+    // merged stage holds no more than its capacity, so filters built apart and merged should be sized for the whole set
+    public void merge(ScalableBloomFilter other) {
+        if (other.initialCapacity != initialCapacity) {
+            throw new IllegalArgumentException("Only scalable Bloom filters with the same initial capacity can be merged");
+        }
+        for (int stage = 0; stage < other.filters.size(); stage++) {
+            if (stage < filters.size()) {
+                filters.get(stage).merge(other.filters.get(stage));
+            } else {
+                filters.add(other.filters.get(stage));
+            }
+        }
+    }
+
+    public int getFilterCount() {
+        return filters.size();
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(filters.size());
+        for (BloomFilter filter : filters) {
+            filter.writeTo(out);
+        }
+    }
+
+    public static ScalableBloomFilter readFrom(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<BloomFilter> filters = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            filters.add(BloomFilter.readFrom(in));
+        }
+        return new ScalableBloomFilter(filters.isEmpty() ? INITIAL_CAPACITY : filters.get(0).getCapacity(), filters);
+    }
+}
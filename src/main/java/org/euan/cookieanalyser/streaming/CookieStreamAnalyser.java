@@ -0,0 +1,165 @@
+package org.euan.cookieanalyser.streaming;
+
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.models.CookieLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+
+/**
+ * Library entry point for analysing cookie logs that are not files on disk. Every source is aggregated incrementally,
+ * and publishers are only ever asked for {@code requestBatch} items ahead of what has been processed.
+ */
+public class CookieStreamAnalyser {
+    private final Logger LOGGER = LoggerFactory.getLogger(CookieStreamAnalyser.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_REQUEST_BATCH = 16;
+
+    private final LocalDate date;
+    private final boolean hasHeader;
+    private final int chunkSize;
+    private final int requestBatch;
+
+    public CookieStreamAnalyser(LocalDate date) {
+        this(date, true, DEFAULT_CHUNK_SIZE, DEFAULT_REQUEST_BATCH);
+    }
+
+    public CookieStreamAnalyser(LocalDate date, boolean hasHeader, int chunkSize, int requestBatch) {
+        if (date == null || chunkSize < 1 || requestBatch < 1) {
+            throw new IllegalArgumentException("A date, a positive chunk size and a positive request batch are required");
+        }
+        this.date = date;
+        this.hasHeader = hasHeader;
+        this.chunkSize = chunkSize;
+        this.requestBatch = requestBatch;
+    }
+
+    public CookieCounts analyse(InputStream in) throws IOException {
+        return analyse(in, false).orElseThrow();
+    }
+
+    // Checks the log is valid in the same pass that counts it, so input that cannot be re-read is only read once, and
+    // stops reading as soon as the first data line turns out to be invalid
+    public Optional<CookieCounts> analyseLog(InputStream in) throws IOException {
+        return analyse(in, true);
+    }
+
+    private Optional<CookieCounts> analyse(InputStream in, boolean validate) throws IOException {
+        StreamingCookieAggregator aggregator = new StreamingCookieAggregator(date, hasHeader);
+        byte[] chunk = new byte[chunkSize];
+        int read;
+        while ((read = in.read(chunk)) >= 0) {
+            aggregator.accept(chunk, 0, read);
+            if (validate && aggregator.isFirstRecordChecked() && !aggregator.isFirstRecordValid()) {
+                break;
+            }
+        }
+        CookieCounts counts = finish(aggregator);
+        if (validate && !aggregator.isFirstRecordValid()) {
+            LOGGER.error(FILE_ERROR.getLoggingMessage(), "Stream does not start with a valid cookie log line");
+            return Optional.empty();
+        }
+        return Optional.of(counts);
+    }
+
+    public CookieCounts analyse(ReadableByteChannel channel) throws IOException {
+        StreamingCookieAggregator aggregator = new StreamingCookieAggregator(date, hasHeader);
+        ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+        while (channel.read(chunk) >= 0) {
+            aggregator.accept(chunk.flip());
+            chunk.clear();
+        }
+        return finish(aggregator);
+    }
+
+    public CompletableFuture<CookieCounts> analyseChunks(Flow.Publisher<ByteBuffer> publisher) {
+        StreamingCookieAggregator aggregator = new StreamingCookieAggregator(date, hasHeader);
+        return subscribe(publisher, aggregator, aggregator::accept);
+    }
+
+    public CompletableFuture<CookieCounts> analyseRecords(Flow.Publisher<CookieLog> publisher) {
+        StreamingCookieAggregator aggregator = new StreamingCookieAggregator(date, false);
+        return subscribe(publisher, aggregator, aggregator::accept);
+    }
+
+    private <T> CompletableFuture<CookieCounts> subscribe(Flow.Publisher<T> publisher,
+                                                          StreamingCookieAggregator aggregator, Consumer<T> consumer) {
+        AggregatingSubscriber<T> subscriber = new AggregatingSubscriber<>(aggregator, consumer);
+        publisher.subscribe(subscriber);
+        return subscriber.result;
+    }
+
+    private CookieCounts finish(StreamingCookieAggregator aggregator) {
+        aggregator.finish();
+        LOGGER.info(STREAM_ANALYSED.getLoggingMessage(), aggregator.getBytesRead(), aggregator.getRecords(), date);
+        return aggregator.getCounts();
+    }
+
+    // Keeps at most requestBatch items outstanding and tops the demand back up once half of them have been processed
+    private final class AggregatingSubscriber<T> implements Flow.Subscriber<T> {
+        private final StreamingCookieAggregator aggregator;
+        private final Consumer<T> consumer;
+        private final CompletableFuture<CookieCounts> result = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+        private int outstanding;
+
+        private AggregatingSubscriber(StreamingCookieAggregator aggregator, Consumer<T> consumer) {
+            this.aggregator = aggregator;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (this.subscription != null) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+            outstanding = requestBatch;
+            subscription.request(requestBatch);
+        }
+
+        @Override
+        public void onNext(T item) {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                consumer.accept(item);
+            } catch (RuntimeException ex) {
+                subscription.cancel();
+                result.completeExceptionally(ex);
+                return;
+            }
+            if (--outstanding <= requestBatch / 2) {
+                subscription.request(requestBatch - outstanding);
+                outstanding = requestBatch;
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            LOGGER.error(UNEXPECTED_ERROR.getLoggingMessage(), throwable.toString());
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (!result.isDone()) {
+                result.complete(finish(aggregator));
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.euan.cookieanalyser.streaming;
+
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.models.CookieLog;
+import org.euan.cookieanalyser.services.CookieLogScanner;
+import org.euan.cookieanalyser.utils.FileUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+// Counts one day's cookies from data that arrives in arbitrary pieces. Lines split across chunks are carried over
+// until their newline arrives, so only the longest line and the counts are ever held in memory. Not thread safe.
+public class StreamingCookieAggregator {
+    private static final int INITIAL_CARRY_SIZE = 8 * 1024;
+
+    private final CookieLogScanner scanner;
+    private final String dateText;
+    private final byte[] datePrefix;
+    private final CookieCounts counts = new CookieCounts();
+
+    private byte[] pending = new byte[INITIAL_CARRY_SIZE];
+    private int pendingLength;
+    private long pendingOffset;
+    private boolean skipHeader;
+    private long bytesRead;
+    private long records;
+    private boolean firstRecordChecked;
+    private boolean firstRecordValid;
+
+    public StreamingCookieAggregator(LocalDate date, boolean hasHeader) {
+        this(date, hasHeader, new CookieLogScanner());
+    }
+
+    public StreamingCookieAggregator(LocalDate date, boolean hasHeader, CookieLogScanner scanner) {
+        this.scanner = scanner;
+        this.dateText = date.toString();
+        this.datePrefix = dateText.getBytes(StandardCharsets.US_ASCII);
+        this.skipHeader = hasHeader;
+    }
+
+    public void accept(ByteBuffer chunk) {
+        int length = chunk.remaining();
+        ensureCapacity(pendingLength + length);
+        chunk.get(pending, pendingLength, length);
+        int searchFrom = pendingLength;
+        pendingLength += length;
+        bytesRead += length;
+        drainLines(searchFrom);
+    }
+
+    public void accept(byte[] chunk, int offset, int length) {
+        accept(ByteBuffer.wrap(chunk, offset, length));
+    }
+
+    public void accept(CookieLog record) {
+        records++;
+        if (record.getDatetimestring() != null && record.getDatetimestring().startsWith(dateText)) {
+            counts.increment(record.getCookie());
+        }
+    }
+
+    public void finish() {
+        if (pendingLength > 0) {
+            handleLine(0, pendingLength);
+            pendingOffset += pendingLength;
+            pendingLength = 0;
+        }
+    }
+
+    public CookieCounts getCounts() {
+        return counts;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    // Set once the first data line has arrived, so a caller can stop reading as soon as it is known to be invalid
+    public boolean isFirstRecordChecked() {
+        return firstRecordChecked;
+    }
+
+    // Whether the first data line passes the same check as FileUtils.checkFileValid
+    public boolean isFirstRecordValid() {
+        return firstRecordValid;
+    }
+
+    private void drainLines(int searchFrom) {
+        int lineStart = 0;
+        for (int i = searchFrom; i < pendingLength; i++) {
+            if (pending[i] == '\n') {
+                handleLine(lineStart, i);
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart > 0) {
+            System.arraycopy(pending, lineStart, pending, 0, pendingLength - lineStart);
+            pendingLength -= lineStart;
+            pendingOffset += lineStart;
+        }
+    }
+
+    private void handleLine(int lineStart, int lineEnd) {
+        if (lineEnd > lineStart && pending[lineEnd - 1] == '\r') {
+            lineEnd--;
+        }
+        if (skipHeader) {
+            skipHeader = false;
+            return;
+        }
+        if (!firstRecordChecked) {
+            firstRecordChecked = true;
+            firstRecordValid = FileUtils.isValidCookieLogLine(CookieLogScanner.decode(pending, lineStart, lineEnd), false);
+        }
+        if (lineEnd == lineStart) {
+            return;
+        }
+        records++;
+        scanner.parseRecord(pending, lineStart, lineEnd, pendingOffset + lineStart,
+                (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) -> {
+                    if (scanner.dateMatches(buffer, timestampStart, datePrefix)) {
+                        counts.increment(CookieLogScanner.decode(buffer, cookieStart, cookieEnd));
+                    }
+                });
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > pending.length) {
+            byte[] grown = new byte[Math.max(required, pending.length * 2)];
+            System.arraycopy(pending, 0, grown, 0, pendingLength);
+            pending = grown;
+        }
+    }
+}
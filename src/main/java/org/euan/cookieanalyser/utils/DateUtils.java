@@ -3,10 +3,15 @@ package org.euan.cookieanalyser.utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalQuery;
 import java.util.Optional;
 
 import static org.euan.cookieanalyser.logging.LoggingEvents.DATE_PARSE_ERROR;
@@ -17,12 +22,25 @@ public class DateUtils {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DateUtils.class);
 
+    public static final long INVALID_EPOCH_DAY = Long.MIN_VALUE;
+    public static final long INVALID_EPOCH_SECOND = Long.MIN_VALUE;
+
     private static final DateTimeFormatter INPUT_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter LOG_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss+00:00");
+    // Zoned queries accept timestamps written with any offset
+    private static final DateTimeFormatter ZONED_LOG_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssxxx");
 
     public static Optional<LocalDateTime> parseDateTimeFromLog(String cookieLog) {
+        return parseTimestamp(cookieLog, LOG_DATE_FORMATTER, LocalDateTime::from);
+    }
+
+    public static Optional<OffsetDateTime> parseZonedDateTimeFromLog(String cookieLog) {
+        return parseTimestamp(cookieLog, ZONED_LOG_DATE_FORMATTER, OffsetDateTime::from);
+    }
+
+    private static <T> Optional<T> parseTimestamp(String cookieLog, DateTimeFormatter formatter, TemporalQuery<T> query) {
         try {
-            return Optional.of(LocalDateTime.parse(cookieLog.split(",")[1], LOG_DATE_FORMATTER));
+            return Optional.of(formatter.parse(cookieLog.split(",")[1], query));
         } catch (IndexOutOfBoundsException ex) {
             LOGGER.warn(MALFORMED_LOG_LINE.getLoggingMessage(), cookieLog);
         } catch (DateTimeParseException ex) {
@@ -39,4 +57,70 @@ public class DateUtils {
             return Optional.empty();
         }
     }
+
+    // Formats epoch seconds the way log timestamps are written, in the zone if one is given and UTC otherwise
+    public static String formatEpochSecond(long epochSecond, ZoneId zone) {
+        return zone == null
+                ? LOG_DATE_FORMATTER.format(Instant.ofEpochSecond(epochSecond).atZone(ZoneOffset.UTC))
+                : ZONED_LOG_DATE_FORMATTER.format(Instant.ofEpochSecond(epochSecond).atZone(zone));
+    }
+
+    public static long parseEpochDay(byte[] buffer, int offset) {
+        int year = parseDigits(buffer, offset, 4);
+        int month = parseDigits(buffer, offset + 5, 2);
+        int day = parseDigits(buffer, offset + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || buffer[offset + 4] != '-' || buffer[offset + 7] != '-'
+                || day > lengthOfMonth(year, month)) {
+            return INVALID_EPOCH_DAY;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    // Parses a full log timestamp such as 2018-12-09T14:19:00+00:00 into UTC epoch seconds
+    public static long parseEpochSecond(byte[] buffer, int offset) {
+        long epochDay = parseEpochDay(buffer, offset);
+        int hour = parseDigits(buffer, offset + 11, 2);
+        int minute = parseDigits(buffer, offset + 14, 2);
+        int second = parseDigits(buffer, offset + 17, 2);
+        byte sign = buffer[offset + 19];
+        int offsetHours = parseDigits(buffer, offset + 20, 2);
+        int offsetMinutes = parseDigits(buffer, offset + 23, 2);
+        if (epochDay == INVALID_EPOCH_DAY || buffer[offset + 10] != 'T' || buffer[offset + 13] != ':'
+                || buffer[offset + 16] != ':' || buffer[offset + 22] != ':' || (sign != '+' && sign != '-')
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59
+                || offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+            return INVALID_EPOCH_SECOND;
+        }
+        long zoneOffsetSeconds = (offsetHours * 3600L + offsetMinutes * 60L) * (sign == '+' ? 1 : -1);
+        return epochDay * 86_400 + hour * 3600L + minute * 60L + second - zoneOffsetSeconds;
+    }
+
+    public static long toEpochDay(int year, int month, int day) {
+        long shiftedYear = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(shiftedYear, 400);
+        long yearOfEra = shiftedYear - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    static int parseDigits(byte[] buffer, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
 }
@@ -1,32 +1,92 @@
 package org.euan.cookieanalyser.utils;
 
+import org.euan.cookieanalyser.jfr.ChunkReadEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.euan.cookieanalyser.logging.LoggingEvents.FILE_ERROR;
 import static org.euan.cookieanalyser.logging.LoggingEvents.MALFORMED_LOG_LINE;
 import static org.euan.cookieanalyser.utils.DateUtils.parseDateTimeFromLog;
+import static org.euan.cookieanalyser.utils.DateUtils.parseZonedDateTimeFromLog;
 
 public class FileUtils {
-    private final Logger LOGGER = LoggerFactory.getLogger(FileUtils.class);
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileUtils.class);
 
     private final File file;
+    private final int readAheadSize;
+    private final int readAheadDepth;
 
     public FileUtils(String fileName) {
+        this(fileName, ReadAheadInputStream.DEFAULT_READ_AHEAD_SIZE, ReadAheadInputStream.DEFAULT_READ_AHEAD_DEPTH);
+    }
+
+    // A read-ahead depth of 0 reads on the calling thread
+    public FileUtils(String fileName, int readAheadSize, int readAheadDepth) {
         this.file = new File(fileName);
+        this.readAheadSize = readAheadSize;
+        this.readAheadDepth = readAheadDepth;
     }
 
     public boolean checkFileValid() {
-        return checkFileExists() && checkFileReadable();
+        return checkFileValid(false);
+    }
+
+    // A zoned query accepts a first line written with any offset, other queries only UTC
+    public boolean checkFileValid(boolean zoned) {
+        return checkFileExists() && checkFileReadable(zoned);
     }
 
     public List<String> readAllLines() throws IOException {
-        return Files.readAllLines(file.toPath());
+        if (readAheadDepth > 0 && size() >= 2L * readAheadSize) {
+            return readAllLinesAhead();
+        }
+        ChunkReadEvent event = new ChunkReadEvent();
+        event.begin();
+        List<String> lines = Files.readAllLines(file.toPath());
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = file.getPath();
+            event.bytes = size();
+            event.commit();
+        }
+        return lines;
+    }
+
+    // Streams the whole file through the read-ahead thread
+    public InputStream openReadAhead() throws IOException {
+        return ReadAheadInputStream.open(file.toPath(), 0, size(), readAheadSize, Math.max(1, readAheadDepth));
+    }
+
+    public Path getPath() {
+        return file.toPath();
+    }
+
+    public long size() throws IOException {
+        return Files.size(file.toPath());
+    }
+
+    // Decoding reports malformed input like Files.readAllLines rather than replacing it
+    private List<String> readAllLinesAhead() throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(openReadAhead(), StandardCharsets.UTF_8.newDecoder()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
     }
 
     private boolean checkFileExists() {
@@ -36,7 +96,7 @@ public class FileUtils {
         return this.file.exists();
     }
 
-    private boolean checkFileReadable() {
+    private boolean checkFileReadable(boolean zoned) {
         try {
             List<String> lines = Files.lines(file.toPath())
                     .limit(2)
@@ -48,7 +108,7 @@ public class FileUtils {
             }
 
             String firstDataLine = lines.get(1);
-            return isValidCookieLogLine(firstDataLine);
+            return isValidCookieLogLine(firstDataLine, zoned);
         } catch (IOException ex) {
             LOGGER.error(FILE_ERROR.getLoggingMessage(), ex.toString());
             return false;
@@ -58,7 +118,8 @@ public class FileUtils {
         }
     }
 
-    private boolean isValidCookieLogLine(String line) {
+    // The first data line check behind checkFileValid, shared with sources that are not files
+    public static boolean isValidCookieLogLine(String line, boolean zoned) {
         if (line == null || line.trim().isEmpty()) {
             return false;
         }
@@ -77,6 +138,6 @@ public class FileUtils {
             return false;
         }
 
-        return parseDateTimeFromLog(line).isPresent();
+        return zoned ? parseZonedDateTimeFromLog(line).isPresent() : parseDateTimeFromLog(line).isPresent();
     }
 }
@@ -0,0 +1,53 @@
+package org.euan.cookieanalyser.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+// 64-bit Murmur3-style hash over raw bytes so sketches and filters never need the cookie as a String
+public class Hashing {
+
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private Hashing() {}
+
+    public static long hash64(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return hash64(bytes, 0, bytes.length);
+    }
+
+    public static long hash64(byte[] buffer, int offset, int length) {
+        long hash = 0x9368e53c2f6af274L ^ (length * C1);
+        int end = offset + length;
+        int i = offset;
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            long block = (long) LONG_VIEW.get(buffer, i);
+            block *= C1;
+            block = Long.rotateLeft(block, 31);
+            block *= C2;
+            hash ^= block;
+            hash = Long.rotateLeft(hash, 27) * 5 + 0x52dce729;
+        }
+        long tail = 0;
+        for (int shift = 0; i < end; i++, shift += 8) {
+            tail |= (buffer[i] & 0xFFL) << shift;
+        }
+        tail *= C1;
+        tail = Long.rotateLeft(tail, 31);
+        tail *= C2;
+        hash ^= tail;
+        return mix(hash ^ length);
+    }
+
+    public static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,65 @@
+package org.euan.cookieanalyser.utils;
+
+// Open-addressing set of primitive longs: 8 bytes per slot at half load instead of a boxed HashSet node per entry
+public class LongHashSet {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final long EMPTY = 0;
+
+    private long[] slots;
+    private boolean containsEmptyKey;
+    private int size;
+
+    public LongHashSet() {
+        this.slots = new long[INITIAL_CAPACITY];
+    }
+
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmptyKey) {
+                return false;
+            }
+            containsEmptyKey = true;
+            size++;
+            return true;
+        }
+        int slot = slotOf(slots, value);
+        if (slots[slot] == value) {
+            return false;
+        }
+        slots[slot] = value;
+        if (++size * 2 > slots.length) {
+            resize();
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmptyKey;
+        }
+        return slots[slotOf(slots, value)] == value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static int slotOf(long[] table, long value) {
+        int mask = table.length - 1;
+        int slot = (int) Hashing.mix(value) & mask;
+        while (table[slot] != EMPTY && table[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] grown = new long[slots.length * 2];
+        for (long value : slots) {
+            if (value != EMPTY) {
+                grown[slotOf(grown, value)] = value;
+            }
+        }
+        slots = grown;
+    }
+}
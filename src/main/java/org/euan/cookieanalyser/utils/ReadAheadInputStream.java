@@ -0,0 +1,196 @@
+package org.euan.cookieanalyser.utils;
+
+import org.euan.cookieanalyser.jfr.ChunkReadEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Sequential stream that keeps a dedicated I/O thread up to {@code depth} buffers ahead of the consumer, so the device
+ * keeps streaming while the consumer parses and the consumer rarely waits on a read. Buffers are direct, aligned to
+ * the file store's block size and read at aligned file offsets, and are handed back to the I/O thread once consumed.
+ * Only bytes before {@code prefetchEnd} are read ahead; anything the consumer needs past it, such as the rest of a
+ * range's last line, is read on demand.
+ */
+public class ReadAheadInputStream extends InputStream {
+    // Defaults for every reader that streams through read-ahead
+    public static final int DEFAULT_READ_AHEAD_SIZE = 4 << 20;
+    public static final int DEFAULT_READ_AHEAD_DEPTH = 2;
+
+    private static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final BlockingQueue<Chunk> filled;
+    private final BlockingQueue<ByteBuffer> free;
+    private final Thread ioThread;
+    private long position;
+    private Chunk current;
+    private boolean prefetchDone;
+    private volatile boolean closed;
+
+    private ReadAheadInputStream(Path path, long position, long prefetchEnd, int bufferSize, int depth) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.position = position;
+        int blockSize = blockSize(path);
+        int alignedSize = Math.max(blockSize, (bufferSize + blockSize - 1) / blockSize * blockSize);
+        this.filled = new ArrayBlockingQueue<>(depth + 1);
+        this.free = new ArrayBlockingQueue<>(depth);
+        for (int i = 0; i < depth; i++) {
+            free.add(ByteBuffer.allocateDirect(alignedSize + blockSize).alignedSlice(blockSize));
+        }
+        long alignedStart = position - position % blockSize;
+        this.ioThread = new Thread(() -> prefetch(alignedStart, prefetchEnd), "read-ahead-" + path.getFileName());
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    public static ReadAheadInputStream open(Path path, long position, long prefetchEnd, int bufferSize, int depth)
+            throws IOException {
+        if (bufferSize < 1 || depth < 1) {
+            throw new IllegalArgumentException("Read-ahead needs a positive buffer size and depth");
+        }
+        return new ReadAheadInputStream(path, position, prefetchEnd, bufferSize, depth);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    // Never returns 0 for a non-empty request, and -1 only at the end of the file
+    @Override
+    public int read(byte[] destination, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (!prefetchDone && (current == null || !current.buffer.hasRemaining())) {
+            if (current != null) {
+                free.offer(current.buffer);
+                current = null;
+            }
+            Chunk next = take();
+            if (next.failure != null) {
+                throw new IOException("Read-ahead of " + path + " failed", next.failure);
+            }
+            if (next.buffer == null) {
+                prefetchDone = true;
+            } else {
+                current = next;
+                // The first chunk starts at the block boundary before the requested position
+                if (next.offset < position) {
+                    next.buffer.position((int) Math.min(next.buffer.limit(), position - next.offset));
+                }
+            }
+        }
+        if (current != null && current.buffer.hasRemaining()) {
+            int copied = Math.min(length, current.buffer.remaining());
+            current.buffer.get(destination, offset, copied);
+            position += copied;
+            return copied;
+        }
+        ChunkReadEvent event = new ChunkReadEvent();
+        event.begin();
+        int read = channel.read(ByteBuffer.wrap(destination, offset, length), position);
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path.toString();
+            event.offset = position;
+            event.bytes = Math.max(0, read);
+            event.commit();
+        }
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    private Chunk take() throws IOException {
+        try {
+            return filled.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + path);
+        }
+    }
+
+    private void prefetch(long offset, long prefetchEnd) {
+        try {
+            while (!closed && offset < prefetchEnd) {
+                ByteBuffer buffer = free.take();
+                buffer.clear();
+                ChunkReadEvent event = new ChunkReadEvent();
+                event.begin();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+                event.end();
+                if (event.shouldCommit()) {
+                    event.path = path.toString();
+                    event.offset = offset;
+                    event.bytes = buffer.limit();
+                    event.commit();
+                }
+                filled.put(new Chunk(offset, buffer, null));
+                if (buffer.limit() < buffer.capacity()) {
+                    break;
+                }
+                offset += buffer.limit();
+            }
+            filled.put(new Chunk(offset, null, null));
+        } catch (InterruptedException ex) {
+            // Closing the stream stops the prefetch
+        } catch (IOException | RuntimeException ex) {
+            filled.offer(new Chunk(offset, null, ex));
+        }
+    }
+
+    private static int blockSize(Path path) {
+        try {
+            long blockSize = Files.getFileStore(path).getBlockSize();
+            return blockSize > 0 && blockSize <= 1 << 16 && Long.bitCount(blockSize) == 1 ? (int) blockSize
+                    : DEFAULT_BLOCK_SIZE;
+        } catch (IOException | UnsupportedOperationException ex) {
+            return DEFAULT_BLOCK_SIZE;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        ioThread.interrupt();
+        try {
+            ioThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            channel.close();
+        }
+    }
+
+    // A chunk without a buffer marks the end of the prefetch, or its failure when one is attached
+    private static final class Chunk {
+        private final long offset;
+        private final ByteBuffer buffer;
+        private final Throwable failure;
+
+        private Chunk(long offset, ByteBuffer buffer, Throwable failure) {
+            this.offset = offset;
+            this.buffer = buffer;
+            this.failure = failure;
+        }
+    }
+}
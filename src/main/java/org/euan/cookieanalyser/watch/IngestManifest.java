@@ -0,0 +1,59 @@
+package org.euan.cookieanalyser.watch;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Records the size and modification time each spool file had when it was last ingested, one tab separated line per file
+public class IngestManifest {
+    public static final String MANIFEST_NAME = ".cookie-manifest";
+
+    private final Path file;
+    private final Map<String, long[]> entries;
+
+    private IngestManifest(Path file, Map<String, long[]> entries) {
+        this.file = file;
+        this.entries = entries;
+    }
+
+    public static IngestManifest load(Path directory) throws IOException {
+        Path file = directory.resolve(MANIFEST_NAME);
+        Map<String, long[]> entries = new TreeMap<>();
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t");
+                if (fields.length == 3) {
+                    entries.put(fields[0], new long[]{Long.parseLong(fields[1]), Long.parseLong(fields[2])});
+                }
+            }
+        }
+        return new IngestManifest(file, entries);
+    }
+
+    public synchronized boolean isCurrent(String fileName, long size, long modified) {
+        long[] entry = entries.get(fileName);
+        return entry != null && entry[0] == size && entry[1] == modified;
+    }
+
+    public synchronized void record(String fileName, long size, long modified) throws IOException {
+        entries.put(fileName, new long[]{size, modified});
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, long[]> entry : entries.entrySet()) {
+                writer.write(entry.getKey() + "\t" + entry.getValue()[0] + "\t" + entry.getValue()[1]);
+                writer.newLine();
+            }
+        }
+        try {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.euan.cookieanalyser.watch;
+
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.rollup.CookieRollup;
+import org.euan.cookieanalyser.rollup.CookieRollupIngester;
+import org.euan.cookieanalyser.services.CookieLogScanner;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+
+/**
+ * Keeps per-day cookie counts for every {@code *.csv} file in a spool directory. Files are ingested concurrently through
+ * their own rollup, so a file that keeps growing only has its appended bytes read. The manifest lets a restart skip
+ * files that have not changed and take their counts straight from their rollups.
+ */
+public class SpoolWatcher implements AutoCloseable {
+    private final Logger LOGGER = LoggerFactory.getLogger(SpoolWatcher.class);
+
+    private static final String LOG_SUFFIX = ".csv";
+
+    private final Path directory;
+    private final CookieRollupIngester ingester;
+    private final Consumer<Set<LocalDate>> onUpdate;
+    private final ExecutorService executor;
+    private final Map<Path, Object> fileLocks = new ConcurrentHashMap<>();
+    private final Set<Path> loadedFiles = ConcurrentHashMap.newKeySet();
+    private final TreeMap<Long, CookieCounts> aggregates = new TreeMap<>();
+    private IngestManifest manifest;
+    private WatchService watchService;
+
+    public SpoolWatcher(Path directory) {
+        this(directory, Runtime.getRuntime().availableProcessors(), dates -> {
+        });
+    }
+
+    public SpoolWatcher(Path directory, int concurrency, Consumer<Set<LocalDate>> onUpdate) {
+        this.directory = directory;
+        this.ingester = new CookieRollupIngester(new CookieLogScanner(), 1);
+        this.onUpdate = onUpdate;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, concurrency));
+    }
+
+    // Registers for events before the first scan, so a file dropped in between is seen by one or the other
+    public CompletableFuture<Void> start() throws IOException {
+        manifest = IngestManifest.load(directory);
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread watchThread = new Thread(this::watch, "spool-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        LOGGER.info(SPOOL_WATCHING.getLoggingMessage(), directory);
+        return scan();
+    }
+
+    public CompletableFuture<Void> scan() throws IOException {
+        List<CompletableFuture<Void>> ingestions = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + LOG_SUFFIX)) {
+            for (Path file : files) {
+                ingestions.add(submit(file));
+            }
+        }
+        return CompletableFuture.allOf(ingestions.toArray(new CompletableFuture<?>[0]));
+    }
+
+    public List<String> mostActive(LocalDate date) {
+        synchronized (aggregates) {
+            CookieCounts counts = aggregates.get(date.toEpochDay());
+            return counts == null ? List.of() : counts.mostActive();
+        }
+    }
+
+    public CookieCounts countsFor(LocalDate date) {
+        synchronized (aggregates) {
+            CookieCounts counts = aggregates.get(date.toEpochDay());
+            return counts == null ? new CookieCounts() : new CookieCounts(counts.asMap());
+        }
+    }
+
+    public Optional<LocalDate> latestDate() {
+        synchronized (aggregates) {
+            return aggregates.isEmpty() ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(aggregates.lastKey()));
+        }
+    }
+
+    private CompletableFuture<Void> submit(Path file) {
+        return CompletableFuture.runAsync(() -> ingest(file), executor);
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        scan();
+                    } else if (event.context() instanceof Path name && name.toString().endsWith(LOG_SUFFIX)) {
+                        submit(directory.resolve(name));
+                    }
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // Closing the watcher ends the loop
+        } catch (IOException ex) {
+            LOGGER.warn(SPOOL_INGEST_FAILED.getLoggingMessage(), directory, ex.toString());
+        }
+    }
+
+    private void ingest(Path file) {
+        synchronized (fileLocks.computeIfAbsent(file, key -> new Object())) {
+            try {
+                if (!Files.isRegularFile(file)) {
+                    return;
+                }
+                String name = file.getFileName().toString();
+                long size = Files.size(file);
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                boolean current = manifest.isCurrent(name, size, modified);
+                Set<LocalDate> changed = new TreeSet<>();
+                if (loadedFiles.add(file) && !loadRollup(file, changed)) {
+                    current = false;
+                }
+                if (current) {
+                    LOGGER.info(SPOOL_FILE_SKIPPED.getLoggingMessage(), file);
+                } else {
+                    Map<LocalDate, CookieCounts> ingested = new TreeMap<>();
+                    ingester.update(new FileUtils(file.toString()), (date, counts) ->
+                            ingested.put(date, new CookieCounts(counts.asMap())));
+                    ingested.forEach(this::merge);
+                    changed.addAll(ingested.keySet());
+                    manifest.record(name, size, modified);
+                    LOGGER.info(SPOOL_FILE_INGESTED.getLoggingMessage(), file, changed.size());
+                }
+                if (!changed.isEmpty()) {
+                    onUpdate.accept(changed);
+                }
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.warn(SPOOL_INGEST_FAILED.getLoggingMessage(), file, ex.toString());
+            }
+        }
+    }
+
+    // Counts ingested by an earlier process live in the file's rollup; returns false if there is no usable rollup
+    private boolean loadRollup(Path file, Set<LocalDate> changed) throws IOException {
+        Optional<CookieRollup> rollup = CookieRollup.open(CookieRollup.rollupPathFor(file));
+        if (rollup.isEmpty() || !rollup.get().isValidFor(file)) {
+            return false;
+        }
+        for (LocalDate date : rollup.get().getDates()) {
+            merge(date, rollup.get().countsFor(date).orElseThrow());
+            changed.add(date);
+        }
+        return true;
+    }
+
+    private void merge(LocalDate date, CookieCounts counts) {
+        synchronized (aggregates) {
+            aggregates.computeIfAbsent(date.toEpochDay(), day -> new CookieCounts()).merge(counts);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,99 @@
+package org.euan.cookieanalyser.perf;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Reference numbers for each scenario, stored as {@code <scenario>.<metric>=<value>} with a relative
+ * {@code tolerance.<metric>} per metric. Throughput may not drop, and peak heap and allocation rate may not grow, by
+ * more than their tolerance.
+ */
+public class PerfBaseline {
+
+    public enum Metric {
+        THROUGHPUT("throughputMbPerSecond", true),
+        PEAK_HEAP("peakHeapMb", false),
+        ALLOCATION_RATE("allocationMbPerSecond", false);
+
+        private final String key;
+        private final boolean higherIsBetter;
+
+        Metric(String key, boolean higherIsBetter) {
+            this.key = key;
+            this.higherIsBetter = higherIsBetter;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private final Map<String, String> values = new TreeMap<>();
+
+    private PerfBaseline() {
+    }
+
+    public static PerfBaseline load(Path file) throws IOException {
+        PerfBaseline baseline = new PerfBaseline();
+        if (Files.exists(file)) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            properties.forEach((key, value) -> baseline.values.put(key.toString(), value.toString()));
+        }
+        return baseline;
+    }
+
+    public OptionalDouble get(String scenario, Metric metric) {
+        String value = values.get(scenario + "." + metric.getKey());
+        return value == null ? OptionalDouble.empty() : OptionalDouble.of(Double.parseDouble(value));
+    }
+
+    public double getTolerance(Metric metric) {
+        return Double.parseDouble(values.getOrDefault("tolerance." + metric.getKey(), "0.1"));
+    }
+
+    // Returns a description of the regression, or null when the measurement is within tolerance or has no baseline
+    public String check(String scenario, Metric metric, double measured) {
+        OptionalDouble expected = get(scenario, metric);
+        if (expected.isEmpty()) {
+            return null;
+        }
+        double tolerance = getTolerance(metric);
+        boolean regressed = metric.higherIsBetter
+                ? measured < expected.getAsDouble() * (1 - tolerance)
+                : measured > expected.getAsDouble() * (1 + tolerance);
+        return regressed
+                ? String.format(Locale.ROOT, "%s %s %.1f against baseline %.1f (tolerance %.0f%%)", scenario, metric.getKey(),
+                measured, expected.getAsDouble(), tolerance * 100)
+                : null;
+    }
+
+    public void record(String scenario, Metric metric, double measured) {
+        values.put(scenario + "." + metric.getKey(), String.format(Locale.ROOT, "%.1f", measured));
+    }
+
+    public void write(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# Recorded by mvn -Pperf test-compile exec:exec -Dperf.record=true");
+        values.forEach((key, value) -> lines.add(key + "=" + value));
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.euan.cookieanalyser.perf;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Writes a deterministic log of at least the requested size spread over {@link #DAYS} days, either sorted newest first
+ * with the days evenly filled or with every line on a random day and time. Cookies are drawn from a fixed pool with a
+ * skew towards the front, so every day has a clear most active cookie and a long tail, like a real vendor log. A file
+ * that already has the expected size is reused.
+ */
+public class PerfLogGenerator {
+
+    public static final LocalDate NEWEST_DAY = LocalDate.of(2018, 12, 9);
+    public static final int DAYS = 30;
+
+    public enum Workload {
+        SORTED, UNSORTED;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final byte[] HEADER = "cookie,timestamp\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final int COOKIE_LENGTH = 16;
+    private static final int POOL_SIZE = 100_000;
+    // cookie + ',' + yyyy-MM-ddTHH:mm:ss+00:00 + '\n'
+    private static final int LINE_LENGTH = COOKIE_LENGTH + 27;
+    private static final long SEED = 42;
+
+    private PerfLogGenerator() {
+    }
+
+    public static Path generate(Path directory, String name, Workload workload, long targetBytes) throws IOException {
+        Path log = directory.resolve("cookies-" + name + "-" + workload.label() + ".csv");
+        long linesPerDay = Math.max(1, (targetBytes - HEADER.length + (long) DAYS * LINE_LENGTH - 1) / DAYS / LINE_LENGTH);
+        long expectedSize = HEADER.length + linesPerDay * DAYS * LINE_LENGTH;
+        if (Files.exists(log) && Files.size(log) == expectedSize) {
+            return log;
+        }
+
+        Files.createDirectories(directory);
+        Path temp = directory.resolve(log.getFileName() + ".tmp");
+        Random random = new Random(SEED);
+        byte[][] pool = new byte[POOL_SIZE][COOKIE_LENGTH];
+        for (byte[] cookie : pool) {
+            for (int i = 0; i < COOKIE_LENGTH; i++) {
+                cookie[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+        }
+        byte[] line = new byte[LINE_LENGTH];
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 20)) {
+            out.write(HEADER);
+            if (workload == Workload.SORTED) {
+                for (int day = 0; day < DAYS; day++) {
+                    writeDate(line, NEWEST_DAY.minusDays(day));
+                    for (long n = 0; n < linesPerDay; n++) {
+                        writeCookie(line, pool, random);
+                        writeTime(line, 86_399 - (int) (n * 86_400 / linesPerDay));
+                        out.write(line);
+                    }
+                }
+            } else {
+                for (long n = 0; n < linesPerDay * DAYS; n++) {
+                    writeDate(line, NEWEST_DAY.minusDays(random.nextInt(DAYS)));
+                    writeCookie(line, pool, random);
+                    writeTime(line, random.nextInt(86_400));
+                    out.write(line);
+                }
+            }
+        }
+        Files.move(temp, log, StandardCopyOption.REPLACE_EXISTING);
+        return log;
+    }
+
+    // Squaring a uniform draw favours low pool indexes
+    private static void writeCookie(byte[] line, byte[][] pool, Random random) {
+        double draw = random.nextDouble();
+        System.arraycopy(pool[(int) (draw * draw * POOL_SIZE)], 0, line, 0, COOKIE_LENGTH);
+    }
+
+    private static void writeDate(byte[] line, LocalDate date) {
+        byte[] suffix = (',' + date.toString() + "T00:00:00+00:00\n").getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(suffix, 0, line, COOKIE_LENGTH, suffix.length);
+    }
+
+    private static void writeTime(byte[] line, int secondOfDay) {
+        int time = COOKIE_LENGTH + 12;
+        writeTwoDigits(line, time, secondOfDay / 3600);
+        writeTwoDigits(line, time + 3, secondOfDay / 60 % 60);
+        writeTwoDigits(line, time + 6, secondOfDay % 60);
+    }
+
+    private static void writeTwoDigits(byte[] line, int at, int value) {
+        line[at] = (byte) ('0' + value / 10);
+        line[at + 1] = (byte) ('0' + value % 10);
+    }
+}
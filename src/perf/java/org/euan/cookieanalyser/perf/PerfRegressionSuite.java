@@ -0,0 +1,221 @@
+package org.euan.cookieanalyser.perf;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.euan.cookieanalyser.dictionary.CookieDictionary;
+import org.euan.cookieanalyser.jfr.ChunkReadEvent;
+import org.euan.cookieanalyser.models.ExecutionPlan;
+import org.euan.cookieanalyser.perf.PerfBaseline.Metric;
+import org.euan.cookieanalyser.perf.PerfLogGenerator.Workload;
+import org.euan.cookieanalyser.services.CookieLogAnalyser;
+import org.euan.cookieanalyser.services.CookieLogParser;
+import org.euan.cookieanalyser.services.CookieLogScanner;
+import org.euan.cookieanalyser.services.QueryPlanner;
+import org.euan.cookieanalyser.utils.FileUtils;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the planned most-active query over a sorted and an unsorted generated log of each requested size and compares
+ * throughput, peak heap and allocation rate against the checked-in baseline, keyed by size and workload. Throughput is
+ * the bytes the query actually read, summed from its chunk read events, over the elapsed time; the sorted log is
+ * planned as verified so it exercises the seek, the unsorted one is scanned in full. Allocation is the growth in used heap
+ * plus everything the collector freed while the query ran, so it counts work done on pool threads that have already
+ * exited. Exits non-zero when any metric regresses beyond its tolerance.
+ * <p>
+ * Usage: {@code PerfRegressionSuite <baseline> <sizes, e.g. 1g,10g> <work directory> <runs> <record>}
+ */
+public class PerfRegressionSuite {
+
+    // A day in the middle of the span, so a seek has to search rather than stop near the start
+    private static final LocalDate QUERY_DATE = PerfLogGenerator.NEWEST_DAY.minusDays(PerfLogGenerator.DAYS / 2);
+    private static final String CHUNK_READ = "org.euan.cookieanalyser.ChunkRead";
+    private static final long MB = 1 << 20;
+    private static final long GC_SETTLE_MILLIS = 200;
+
+    private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .collect(Collectors.toList());
+    private final Set<String> heapPoolNames = heapPools.stream()
+            .map(MemoryPoolMXBean::getName)
+            .collect(Collectors.toSet());
+    private final AtomicLong freedBytes = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 5) {
+            System.err.println("Usage: PerfRegressionSuite <baseline> <sizes> <work directory> <runs> <record>");
+            System.exit(2);
+        }
+        Path baselineFile = Path.of(args[0]);
+        List<String> sizes = Arrays.asList(args[1].split(","));
+        Path workDirectory = Path.of(args[2]);
+        int runs = Integer.parseInt(args[3]);
+        boolean record = Boolean.parseBoolean(args[4]);
+
+        PerfBaseline baseline = PerfBaseline.load(baselineFile);
+        PerfRegressionSuite suite = new PerfRegressionSuite();
+        List<String> regressions = new ArrayList<>();
+        for (String size : sizes) {
+            for (Workload workload : Workload.values()) {
+                String scenario = size + "-" + workload.label();
+                Path log = PerfLogGenerator.generate(workDirectory, size, workload, parseSize(size));
+                Map<Metric, Double> measured = suite.measure(log, workload, runs);
+                for (Map.Entry<Metric, Double> metric : measured.entrySet()) {
+                    String baselineValue = baseline.get(scenario, metric.getKey()).isPresent()
+                            ? String.format(Locale.ROOT, "%.1f", baseline.get(scenario, metric.getKey()).getAsDouble())
+                            : "none";
+                    System.out.printf(Locale.ROOT, "%s %s %.1f (baseline %s)%n", scenario, metric.getKey().getKey(),
+                            metric.getValue(), baselineValue);
+                    String regression = baseline.check(scenario, metric.getKey(), metric.getValue());
+                    if (regression != null) {
+                        regressions.add(regression);
+                    }
+                    if (record) {
+                        baseline.record(scenario, metric.getKey(), metric.getValue());
+                    }
+                }
+            }
+        }
+
+        if (record) {
+            baseline.write(baselineFile);
+            System.out.println("Recorded baseline " + baselineFile);
+        } else if (!regressions.isEmpty()) {
+            regressions.forEach(System.err::println);
+            System.exit(1);
+        }
+    }
+
+    private PerfRegressionSuite() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    GarbageCollectionNotificationInfo info =
+                            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    freedBytes.addAndGet(heapUsed(info.getGcInfo().getMemoryUsageBeforeGc())
+                            - heapUsed(info.getGcInfo().getMemoryUsageAfterGc()));
+                }
+            }, null, null);
+        }
+    }
+
+    static long parseSize(String size) {
+        String value = size.trim().toLowerCase(Locale.ROOT);
+        long unit = switch (value.charAt(value.length() - 1)) {
+            case 'g' -> 1L << 30;
+            case 'm' -> 1L << 20;
+            default -> 1;
+        };
+        return Long.parseLong(unit == 1 ? value : value.substring(0, value.length() - 1)) * unit;
+    }
+
+    // The first run warms up the JIT and page cache; the median of the rest is reported, peak heap is the worst run
+    private Map<Metric, Double> measure(Path log, Workload workload, int runs) throws Exception {
+        measureOnce(log, workload);
+        double[] throughput = new double[runs];
+        double[] allocationRate = new double[runs];
+        double peakHeap = 0;
+        for (int run = 0; run < runs; run++) {
+            double[] result = measureOnce(log, workload);
+            throughput[run] = result[0];
+            peakHeap = Math.max(peakHeap, result[1]);
+            allocationRate[run] = result[2];
+        }
+        Map<Metric, Double> measured = new EnumMap<>(Metric.class);
+        measured.put(Metric.THROUGHPUT, median(throughput));
+        measured.put(Metric.PEAK_HEAP, peakHeap);
+        measured.put(Metric.ALLOCATION_RATE, median(allocationRate));
+        return measured;
+    }
+
+    private double[] measureOnce(Path log, Workload workload) throws Exception {
+        QueryPlanner planner = new QueryPlanner(Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().maxMemory() / 2, workload == Workload.SORTED);
+        Recording reads = new Recording();
+        reads.enable(ChunkReadEvent.class).withoutThreshold();
+        System.gc();
+        Thread.sleep(GC_SETTLE_MILLIS);
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        freedBytes.set(0);
+        long usedBefore = currentHeapUsed();
+
+        reads.start();
+        long start = System.nanoTime();
+        List<String> mostActive;
+        try (CookieDictionary dictionary = CookieDictionary.inMemory()) {
+            CookieLogAnalyser analyser = new CookieLogAnalyser(new FileUtils(log.toString()), new CookieLogParser(),
+                    new CookieLogScanner(), planner, dictionary);
+            ExecutionPlan plan = analyser.plan(QUERY_DATE);
+            mostActive = analyser.returnMostActiveCookie(plan, QUERY_DATE);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        reads.stop();
+
+        // Notifications for collections during the query are delivered asynchronously
+        Thread.sleep(GC_SETTLE_MILLIS);
+        if (mostActive.isEmpty()) {
+            throw new IllegalStateException("No cookies found for " + QUERY_DATE + " in " + log);
+        }
+        long allocated = currentHeapUsed() - usedBefore + freedBytes.get();
+        long peak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        long bytesRead = bytesRead(reads, log.resolveSibling("chunk-reads.jfr"));
+        return new double[]{
+                bytesRead / (double) MB / seconds,
+                peak / (double) MB,
+                allocated / (double) MB / seconds
+        };
+    }
+
+    private static long bytesRead(Recording reads, Path dump) throws IOException {
+        long bytes = 0;
+        try (reads) {
+            reads.dump(dump);
+            for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+                if (CHUNK_READ.equals(event.getEventType().getName())) {
+                    bytes += event.getLong("bytes");
+                }
+            }
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+        return bytes;
+    }
+
+    private long currentHeapUsed() {
+        return heapPools.stream().mapToLong(pool -> pool.getUsage().getUsed()).sum();
+    }
+
+    private long heapUsed(Map<String, MemoryUsage> usage) {
+        return usage.entrySet().stream()
+                .filter(pool -> heapPoolNames.contains(pool.getKey()))
+                .mapToLong(pool -> pool.getValue().getUsed())
+                .sum();
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -3,6 +3,7 @@ package org.euan.cookieanalyser;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -10,7 +11,10 @@ import org.euan.cookieanalyser.testutils.LoggingAssertion;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.stream.Stream;
 
 import static org.euan.cookieanalyser.logging.LoggingEvents.*;
@@ -193,4 +197,161 @@ public class CookieAnalyserApplicationTest {
         assertTrue(loggingAssertion.assertLoggingEvent(SUCCESSFULLY_FOUND_LOGS_FOR_DATE, 1, 4, "2018-12-09"));
         assertTrue(loggingAssertion.assertLoggingEvent(SUCCESSFULLY_ANALYSED_LOGS, 1, 4));
     }
+
+    @Test
+    void testSlidingWindow() {
+        // Given
+        String testDataFile = new File("src/test/resources/integrationTest/happyPathInput.csv").getAbsolutePath();
+
+        // When
+        CookieAnalyserApplication.main(new String[]{"-f", testDataFile, "--window", "2", "-d", "2018-12-09"});
+
+        // Assert
+        assertEquals("2018-12-09,SAZuXPGUrfbcn5UA,3\n", outContent.toString());
+    }
+
+    @Test
+    void testSlidingWindow_InvalidWindow() {
+        // Given
+        String testDataFile = new File("src/test/resources/integrationTest/happyPathInput.csv").getAbsolutePath();
+
+        // When
+        CookieAnalyserApplication.main(new String[]{"-f", testDataFile, "--window", "zero"});
+
+        // Assert
+        assertEquals("", outContent.toString());
+        assertTrue(errContent.toString().contains("Invalid window"));
+    }
+
+    @Test
+    void testDistinct_PrintsEstimatesForDateRange(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path logFile = tempDir.resolve("cookies.csv");
+        Files.copy(Path.of("src/test/resources/integrationTest/happyPathInput.csv"), logFile);
+
+        // When
+        CookieAnalyserApplication.main(new String[]{"-f", logFile.toString(), "--distinct", "-d", "2018-12-08", "--to", "2018-12-09"});
+
+        // Assert
+        assertEquals("2018-12-08,3\n2018-12-09,3\n2018-12-08..2018-12-09,5\n", outContent.toString());
+        assertTrue(Files.exists(tempDir.resolve("cookies.csv.idx")));
+    }
+
+    @Test
+    void testDistinct_InvalidPrecision(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path logFile = tempDir.resolve("cookies.csv");
+        Files.copy(Path.of("src/test/resources/integrationTest/happyPathInput.csv"), logFile);
+
+        // When
+        CookieAnalyserApplication.main(new String[]{"-f", logFile.toString(), "--distinct", "--precision", "40"});
+
+        // Assert
+        assertEquals("", outContent.toString());
+        assertTrue(errContent.toString().contains("Invalid precision"));
+    }
+
+    @Test
+    void testCookieLookup(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path logFile = tempDir.resolve("cookies.csv");
+        Files.copy(Path.of("src/test/resources/integrationTest/happyPathInput.csv"), logFile);
+
+        // When
+        CookieAnalyserApplication.main(new String[]{"-f", logFile.toString(), "-d", "2018-12-09", "--cookie", "AtY0laUfhglK3lC7"});
+        CookieAnalyserApplication.main(new String[]{"-f", logFile.toString(), "-d", "2018-12-07", "--cookie", "AtY0laUfhglK3lC7"});
+
+        // Assert
+        assertEquals("2018-12-09,AtY0laUfhglK3lC7,2\n2018-12-07,AtY0laUfhglK3lC7,0\n", outContent.toString());
+    }
+
+    @Test
+    void testCookieTimeline(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path logFile = tempDir.resolve("cookies.csv");
+        Files.copy(Path.of("src/test/resources/integrationTest/happyPathInput.csv"), logFile);
+
+        // When
+        CookieAnalyserApplication.main(new String[]{"-f", logFile.toString(), "--cookie", "fbcn5UAVanZf6UtG"});
+
+        // Assert
+        assertEquals("2018-12-07,1\n2018-12-08,1\n", outContent.toString());
+        assertTrue(Files.exists(tempDir.resolve("cookies.csv.postings")));
+    }
+
+    @Test
+    void testExplain_PrintsPlanBeforeResult() {
+        // Given
+        String testDataFile = new File("src/test/resources/integrationTest/happyPathInput.csv").getAbsolutePath();
+
+        // When
+        CookieAnalyserApplication.main(new String[]{"-f", testDataFile, "-d", "2018-12-09", "--explain", "--sorted"});
+
+        // Assert
+        String output = outContent.toString();
+        assertTrue(output.startsWith("Plan: EARLY_TERMINATING_SCAN\n  order: DESCENDING\n"), output);
+        assertTrue(output.contains("estimated bytes to read: "));
+        assertTrue(output.endsWith("\nAtY0laUfhglK3lC7\n"));
+    }
+
+    @Test
+    void testPersistentDictionary_ReusedAcrossRuns(@TempDir Path tempDir) {
+        // Given
+        String testDataFile = new File("src/test/resources/integrationTest/happyPathInput.csv").getAbsolutePath();
+        String dictionary = tempDir.resolve("cookies.dict").toString();
+
+        // When
+        CookieAnalyserApplication.main(new String[]{"-f", testDataFile, "-d", "2018-12-09", "--dictionary", dictionary});
+        CookieAnalyserApplication.main(new String[]{"-f", testDataFile, "-d", "2018-12-08", "--dictionary", dictionary});
+
+        // Assert
+        assertEquals("AtY0laUfhglK3lC7\nSAZuXPGUrfbcn5UA\n", outContent.toString());
+        assertTrue(Files.exists(Path.of(dictionary)));
+    }
+
+    @Test
+    void testDedupe_IgnoresRepeatedEvents(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path log = tempDir.resolve("duplicates.csv");
+        Files.writeString(log, "cookie,timestamp\n"
+                + "CookieA,2018-12-09T14:19:00+00:00\n"
+                + "CookieA,2018-12-09T14:19:00+00:00\n"
+                + "CookieA,2018-12-09T14:19:00+00:00\n"
+                + "CookieB,2018-12-09T10:13:00+00:00\n"
+                + "CookieB,2018-12-09T09:00:00+00:00\n");
+
+        // When
+        CookieAnalyserApplication.main(new String[]{"-f", log.toString(), "-d", "2018-12-09"});
+        CookieAnalyserApplication.main(new String[]{"-f", log.toString(), "-d", "2018-12-09", "--dedupe"});
+
+        // Assert
+        assertEquals("CookieA\nCookieB\n", outContent.toString());
+    }
+
+    @Test
+    void testRollup_AnswersFromRollupStore(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path log = Files.copy(Path.of("src/test/resources/integrationTest/happyPathInput.csv"), tempDir.resolve("cookies.csv"));
+
+        // When
+        CookieAnalyserApplication.main(new String[]{"-f", log.toString(), "-d", "2018-12-09", "--rollup"});
+        CookieAnalyserApplication.main(new String[]{"-f", log.toString(), "-d", "2018-12-08", "--rollup"});
+
+        // Assert
+        assertEquals("AtY0laUfhglK3lC7\nSAZuXPGUrfbcn5UA\n", outContent.toString());
+        assertTrue(Files.exists(tempDir.resolve("cookies.csv.rollup")));
+    }
+
+    @Test
+    void testValidate_PrintsProblemSummary() {
+        // Given
+        String testDataFile = new File("src/test/resources/integrationTest/happyPathInput.csv").getAbsolutePath();
+
+        // When
+        CookieAnalyserApplication.main(new String[]{"-f", testDataFile, "--validate"});
+
+        // Assert
+        assertEquals("lines,10\norder,DESCENDING\nMISSING_COMMA,0,\nBAD_TIMESTAMP_LENGTH,0,\nEMPTY_COOKIE,0,\n"
+                + "UNPARSABLE_DATE,0,\nOUT_OF_ORDER,0,\n", outContent.toString());
+    }
 }
@@ -0,0 +1,113 @@
+package org.euan.cookieanalyser.dictionary;
+
+import org.euan.cookieanalyser.models.CookieIdCounts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CookieDictionaryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testGetOrAdd_AssignsDenseIdsAndDecodes() {
+        // Given
+        CookieDictionary dictionary = CookieDictionary.inMemory();
+        byte[] line = "xxAtY0laUfhglK3lC7,2018-12-09T14:19:00+00:00".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        int first = dictionary.getOrAdd(line, 2, 18);
+        int second = dictionary.getOrAdd("SAZuXPGUrfbcn5UA");
+        int repeat = dictionary.getOrAdd("AtY0laUfhglK3lC7");
+
+        // Assert
+        assertEquals(0, first);
+        assertEquals(1, second);
+        assertEquals(first, repeat);
+        assertEquals(2, dictionary.size());
+        assertEquals("AtY0laUfhglK3lC7", dictionary.cookie(first));
+        assertEquals(-1, dictionary.idOf("Unknown"));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.cookie(2));
+    }
+
+    @Test
+    void testOpen_PersistsIdsAcrossRunsAndAppends() throws IOException {
+        // Given
+        Path file = tempDir.resolve("cookies.csv.dict");
+        try (CookieDictionary dictionary = CookieDictionary.open(file)) {
+            for (int i = 0; i < 50_000; i++) {
+                dictionary.getOrAdd("cookie-" + i);
+            }
+        }
+
+        // When
+        try (CookieDictionary reopened = CookieDictionary.open(file)) {
+            int appended = reopened.getOrAdd("brand-new-cookie");
+
+            // Assert
+            assertEquals(50_001, reopened.size());
+            assertEquals(50_000, appended);
+            assertEquals(12_345, reopened.idOf("cookie-12345"));
+            assertEquals("cookie-49999", reopened.cookie(49_999));
+        }
+        try (CookieDictionary again = CookieDictionary.open(file)) {
+            assertEquals(50_000, again.idOf("brand-new-cookie"));
+        }
+    }
+
+    @Test
+    void testOpen_FailsFastWhileAlreadyOpen() throws IOException {
+        // Given
+        Path file = tempDir.resolve("cookies.csv.dict");
+
+        try (CookieDictionary dictionary = CookieDictionary.open(file)) {
+            dictionary.getOrAdd("AtY0laUfhglK3lC7");
+
+            // Assert
+            assertThrows(IOException.class, () -> CookieDictionary.open(file));
+        }
+        try (CookieDictionary reopened = CookieDictionary.open(file)) {
+            assertEquals(0, reopened.idOf("AtY0laUfhglK3lC7"));
+        }
+    }
+
+    @Test
+    void testOpen_RejectsForeignFile() throws IOException {
+        // Given
+        Path file = tempDir.resolve("not-a-dictionary");
+        Files.writeString(file, "cookie,timestamp\nAtY0laUfhglK3lC7,2018-12-09T14:19:00+00:00\n");
+
+        // Assert
+        assertThrows(IOException.class, () -> CookieDictionary.open(file));
+    }
+
+    @Test
+    void testCookieIdCounts_CountsMergesAndDecodesLeaders() {
+        // Given
+        CookieDictionary dictionary = CookieDictionary.inMemory();
+        CookieIdCounts first = new CookieIdCounts();
+        CookieIdCounts second = new CookieIdCounts();
+        for (int i = 0; i < 1_000; i++) {
+            first.increment(dictionary.getOrAdd("cookie-" + i));
+        }
+        second.add(dictionary.getOrAdd("cookie-7"), 5);
+        second.add(dictionary.getOrAdd("cookie-9"), 5);
+
+        // When
+        first.merge(second);
+
+        // Assert
+        assertEquals(1_000, first.size());
+        assertEquals(1_010, first.total());
+        assertEquals(6, first.getCount(dictionary.idOf("cookie-7")));
+        assertEquals(Map.of("cookie-7", 6, "cookie-9", 6), first.decodeMostActive(dictionary).asMap());
+    }
+}
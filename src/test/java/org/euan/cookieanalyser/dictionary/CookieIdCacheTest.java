@@ -0,0 +1,76 @@
+package org.euan.cookieanalyser.dictionary;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class CookieIdCacheTest {
+
+    private static final int COOKIES = 5_000;
+
+    @Test
+    void testGetOrAdd_OnlyFirstSightingReachesDictionary() {
+        // Given
+        CookieDictionary dictionary = spy(CookieDictionary.inMemory());
+        CookieIdCache cache = new CookieIdCache(dictionary);
+        byte[] line = "xxAtY0laUfhglK3lC7,2018-12-09T14:19:00+00:00".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        int[] ids = new int[COOKIES];
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < COOKIES; i++) {
+                byte[] cookie = ("cookie-" + i).getBytes(StandardCharsets.UTF_8);
+                ids[i] = cache.getOrAdd(cookie, 0, cookie.length);
+            }
+        }
+        int fromLine = cache.getOrAdd(line, 2, 18);
+
+        // Assert
+        verify(dictionary, times(COOKIES + 1)).getOrAdd(any(byte[].class), anyInt(), anyInt());
+        for (int i = 0; i < COOKIES; i++) {
+            assertEquals("cookie-" + i, dictionary.cookie(ids[i]));
+        }
+        assertEquals(fromLine, cache.getOrAdd("AtY0laUfhglK3lC7".getBytes(StandardCharsets.UTF_8), 0, 16));
+    }
+
+    @Test
+    void testGetOrAdd_ThreadsWithOwnCachesAgreeOnIds() throws Exception {
+        // Given
+        CookieDictionary dictionary = CookieDictionary.inMemory();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // When
+        List<Future<int[]>> results = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            int offset = thread * 1_000;
+            results.add(executor.submit(() -> {
+                CookieIdCache cache = new CookieIdCache(dictionary);
+                int[] ids = new int[COOKIES];
+                for (int i = 0; i < COOKIES; i++) {
+                    int cookieIndex = (i + offset) % COOKIES;
+                    byte[] cookie = ("cookie-" + cookieIndex).getBytes(StandardCharsets.UTF_8);
+                    ids[cookieIndex] = cache.getOrAdd(cookie, 0, cookie.length);
+                }
+                return ids;
+            }));
+        }
+        executor.shutdown();
+
+        // Assert
+        int[] expected = results.get(0).get();
+        for (Future<int[]> result : results) {
+            assertArrayEquals(expected, result.get());
+        }
+        assertEquals(COOKIES, dictionary.size());
+    }
+}
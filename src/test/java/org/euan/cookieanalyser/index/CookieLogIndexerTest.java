@@ -0,0 +1,125 @@
+package org.euan.cookieanalyser.index;
+
+import org.euan.cookieanalyser.services.CookieLogScanner;
+import org.euan.cookieanalyser.sketches.ScalableBloomFilter;
+import org.euan.cookieanalyser.testutils.LoggingAssertion;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.euan.cookieanalyser.utils.Hashing;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CookieLogIndexerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LoggingAssertion loggingAssertion;
+    private Path logFile;
+    private CookieLogIndexer indexer;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        loggingAssertion = LoggingAssertion.forClass(CookieLogIndexer.class);
+        logFile = tempDir.resolve("cookies.csv");
+        Files.copy(Path.of("src/test/resources/integrationTest/happyPathInput.csv"), logFile);
+        indexer = new CookieLogIndexer(new CookieLogScanner(16), 3);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (loggingAssertion != null) {
+            loggingAssertion.close();
+        }
+    }
+
+    @Test
+    void testBuild_RecordsDistinctCookiesAndByteRangesPerDay() throws IOException {
+        // When
+        CookieLogIndex index = indexer.build(new FileUtils(logFile.toString()), 10);
+
+        // Assert
+        assertEquals(3, index.getDays().size());
+        DayStats december8 = index.getDay(LocalDate.of(2018, 12, 8)).orElseThrow();
+        assertEquals(4, december8.getLineCount());
+        assertEquals(3, december8.getDistinctCookies().estimate());
+        assertEquals(189, december8.getStartOffset());
+        assertEquals(319, december8.getEndOffset());
+        assertEquals(2, index.getDay(LocalDate.of(2018, 12, 7)).orElseThrow().getDistinctCookies().estimate());
+        assertEquals(5, index.estimateDistinctCookies(LocalDate.of(2018, 12, 7), LocalDate.of(2018, 12, 9)));
+    }
+
+    @Test
+    void testBuild_DaySplitAcrossRangesKeepsFalsePositiveRate() throws IOException {
+        // Given
+        Path unsorted = tempDir.resolve("unsorted.csv");
+        StringBuilder lines = new StringBuilder("cookie,timestamp\n");
+        for (int i = 0; i < 20_000; i++) {
+            lines.append("cookie-").append(i).append(i % 2 == 0 ? ",2018-12-08" : ",2018-12-09").append("T10:00:00+00:00\n");
+        }
+        Files.writeString(unsorted, lines);
+
+        // When
+        CookieLogIndex index = new CookieLogIndexer(new CookieLogScanner(), 8).build(new FileUtils(unsorted.toString()), 14);
+
+        // Assert
+        DayStats december8 = index.getDay(LocalDate.of(2018, 12, 8)).orElseThrow();
+        for (int i = 0; i < 20_000; i += 2) {
+            assertTrue(december8.mightContain(Hashing.hash64("cookie-" + i)));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (december8.mightContain(Hashing.hash64("absent-" + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 100_000 * ScalableBloomFilter.FALSE_POSITIVE_RATE, "False positives: " + falsePositives);
+    }
+
+    @Test
+    void testLoadOrBuild_WritesIndexAndReusesItWhileFresh() throws IOException {
+        // Given
+        FileUtils fileUtils = new FileUtils(logFile.toString());
+
+        // When
+        indexer.loadOrBuild(fileUtils, 10);
+        CookieLogIndex reloaded = indexer.loadOrBuild(fileUtils, 10);
+
+        // Assert
+        assertTrue(Files.exists(CookieLogIndex.indexPathFor(logFile)));
+        assertTrue(loggingAssertion.assertLoggingEvent(INDEX_WRITTEN, 1, CookieLogIndex.indexPathFor(logFile), 3));
+        assertTrue(loggingAssertion.assertLoggingEvent(INDEX_LOADED, 1, CookieLogIndex.indexPathFor(logFile)));
+        assertEquals(3, reloaded.getDay(LocalDate.of(2018, 12, 9)).orElseThrow().getDistinctCookies().estimate());
+    }
+
+    @Test
+    void testLoadOrBuild_RebuildsWhenLogChanges() throws IOException {
+        // Given
+        FileUtils fileUtils = new FileUtils(logFile.toString());
+        indexer.loadOrBuild(fileUtils, 10);
+        Files.writeString(logFile, "\nNewCookie,2018-12-10T01:00:00+00:00", StandardOpenOption.APPEND);
+
+        // When
+        CookieLogIndex rebuilt = indexer.loadOrBuild(fileUtils, 10);
+
+        // Assert
+        assertEquals(4, rebuilt.getDays().size());
+        assertEquals(1, rebuilt.getDay(LocalDate.of(2018, 12, 10)).orElseThrow().getDistinctCookies().estimate());
+        assertTrue(loggingAssertion.assertLoggingEvent(INDEX_WRITTEN, 1, CookieLogIndex.indexPathFor(logFile), 4));
+    }
+
+    @Test
+    void testLoadOrBuild_RejectsInvalidPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> indexer.loadOrBuild(new FileUtils(logFile.toString()), 30));
+    }
+}
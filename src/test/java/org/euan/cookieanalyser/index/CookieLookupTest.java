@@ -0,0 +1,85 @@
+package org.euan.cookieanalyser.index;
+
+import org.euan.cookieanalyser.services.CookieLogScanner;
+import org.euan.cookieanalyser.testutils.LoggingAssertion;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CookieLookupTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LoggingAssertion loggingAssertion;
+    private FileUtils fileUtils;
+    private CookieLogIndex index;
+    private CookieLookup lookup;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        loggingAssertion = LoggingAssertion.forClass(CookieLookup.class);
+        Path logFile = tempDir.resolve("cookies.csv");
+        Files.copy(Path.of("src/test/resources/integrationTest/happyPathInput.csv"), logFile);
+        fileUtils = new FileUtils(logFile.toString());
+        index = new CookieLogIndexer(new CookieLogScanner(16), 2).build(fileUtils, 10);
+        lookup = new CookieLookup(fileUtils, new CookieLogScanner(16));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (loggingAssertion != null) {
+            loggingAssertion.close();
+        }
+    }
+
+    @Test
+    void testCountOccurrences_ConfirmsMaybeByScanningDayRange() throws IOException {
+        // When
+        long occurrences = lookup.countOccurrences(index, "SAZuXPGUrfbcn5UA", LocalDate.of(2018, 12, 8));
+
+        // Assert
+        assertEquals(2, occurrences);
+        assertTrue(loggingAssertion.assertLoggingEvent(COOKIE_LOOKUP_SCANNED, 1, 189L, 319L, "SAZuXPGUrfbcn5UA",
+                LocalDate.of(2018, 12, 8), 2L));
+    }
+
+    @Test
+    void testCountOccurrences_DefiniteNoDoesNotReadLog() throws IOException {
+        // Given
+        Files.delete(fileUtils.getPath());
+
+        // When
+        long absentCookie = lookup.countOccurrences(index, "NeverSeenCookie0", LocalDate.of(2018, 12, 9));
+        long absentDay = lookup.countOccurrences(index, "AtY0laUfhglK3lC7", LocalDate.of(2018, 12, 1));
+
+        // Assert
+        assertEquals(0, absentCookie);
+        assertEquals(0, absentDay);
+        assertTrue(loggingAssertion.assertLoggingEvent(COOKIE_RULED_OUT_BY_INDEX, 1, "NeverSeenCookie0", LocalDate.of(2018, 12, 9)));
+        assertTrue(loggingAssertion.assertLoggingEvent(COOKIE_RULED_OUT_BY_INDEX, 1, "AtY0laUfhglK3lC7", LocalDate.of(2018, 12, 1)));
+    }
+
+    @Test
+    void testIndex_RoundTripsBloomFilters() throws IOException {
+        // Given
+        Path indexFile = tempDir.resolve("cookies.csv.idx");
+        index.write(indexFile);
+
+        // When
+        CookieLogIndex reloaded = CookieLogIndex.read(indexFile).orElseThrow();
+
+        // Assert
+        assertEquals(1, lookup.countOccurrences(reloaded, "fbcn5UAVanZf6UtG", LocalDate.of(2018, 12, 7)));
+    }
+}
@@ -0,0 +1,106 @@
+package org.euan.cookieanalyser.index;
+
+import org.euan.cookieanalyser.services.CookieLogScanner;
+import org.euan.cookieanalyser.testutils.LoggingAssertion;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CookiePostingsIndexerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LoggingAssertion loggingAssertion;
+    private Path logFile;
+    private CookiePostingsIndexer indexer;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        loggingAssertion = LoggingAssertion.forClass(CookiePostingsIndexer.class);
+        logFile = tempDir.resolve("cookies.csv");
+        Files.copy(Path.of("src/test/resources/integrationTest/happyPathInput.csv"), logFile);
+        indexer = new CookiePostingsIndexer(new CookieLogScanner(16), 3);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (loggingAssertion != null) {
+            loggingAssertion.close();
+        }
+    }
+
+    @Test
+    void testLoadOrBuild_ReturnsPerDayTimeline() throws IOException {
+        // When
+        try (CookiePostingsIndex index = indexer.loadOrBuild(new FileUtils(logFile.toString()))) {
+            // Assert
+            assertEquals(5, index.getCookieCount());
+            assertEquals(Map.of(LocalDate.of(2018, 12, 8), 2, LocalDate.of(2018, 12, 9), 1),
+                    index.timeline("SAZuXPGUrfbcn5UA"));
+            assertEquals(Map.of(LocalDate.of(2018, 12, 9), 2), index.timeline("AtY0laUfhglK3lC7"));
+            assertTrue(index.timeline("UnknownCookie").isEmpty());
+            assertEquals("4sMM2LxV07bPJzwf", index.cookieAt(index.idOf("4sMM2LxV07bPJzwf").getAsInt()));
+            assertEquals(0, index.idOf("4sMM2LxV07bPJzwf").getAsInt());
+        }
+        assertTrue(loggingAssertion.assertLoggingEvent(POSTINGS_WRITTEN, 1, CookiePostingsIndex.indexPathFor(logFile), 5));
+    }
+
+    @Test
+    void testLoadOrBuild_ReusesFreshIndexAndRebuildsStaleOne() throws IOException {
+        // Given
+        FileUtils fileUtils = new FileUtils(logFile.toString());
+        indexer.loadOrBuild(fileUtils).close();
+
+        // When
+        indexer.loadOrBuild(fileUtils).close();
+        Files.writeString(logFile, "\nAtY0laUfhglK3lC7,2018-12-10T01:00:00+00:00", StandardOpenOption.APPEND);
+        try (CookiePostingsIndex rebuilt = indexer.loadOrBuild(fileUtils)) {
+            // Assert
+            assertEquals(Map.of(LocalDate.of(2018, 12, 9), 2, LocalDate.of(2018, 12, 10), 1),
+                    rebuilt.timeline("AtY0laUfhglK3lC7"));
+        }
+        assertTrue(loggingAssertion.assertLoggingEvent(INDEX_LOADED, 1, CookiePostingsIndex.indexPathFor(logFile)));
+        assertTrue(loggingAssertion.assertLoggingEvent(POSTINGS_WRITTEN, 2, CookiePostingsIndex.indexPathFor(logFile), 5));
+    }
+
+    @Test
+    void testLoadOrBuild_MatchesBruteForceCounts() throws IOException {
+        // Given
+        Random random = new Random(7);
+        Map<String, TreeMap<LocalDate, Integer>> expected = new HashMap<>();
+        StringBuilder log = new StringBuilder("cookie,timestamp\n");
+        for (int i = 0; i < 5_000; i++) {
+            String cookie = "cookie" + random.nextInt(300);
+            LocalDate date = LocalDate.of(1969, 12, 1).plusDays(random.nextInt(90));
+            log.append(cookie).append(',').append(date).append("T12:00:00+00:00\n");
+            expected.computeIfAbsent(cookie, key -> new TreeMap<>()).merge(date, 1, Integer::sum);
+        }
+        Path generated = tempDir.resolve("generated.csv");
+        Files.writeString(generated, log);
+
+        // When
+        try (CookiePostingsIndex index = indexer.loadOrBuild(new FileUtils(generated.toString()))) {
+            // Assert
+            assertEquals(expected.size(), index.getCookieCount());
+            for (Map.Entry<String, TreeMap<LocalDate, Integer>> cookie : expected.entrySet()) {
+                assertEquals(cookie.getValue(), index.timeline(cookie.getKey()), cookie.getKey());
+            }
+        }
+    }
+}
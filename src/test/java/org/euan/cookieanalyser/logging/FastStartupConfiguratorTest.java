@@ -0,0 +1,104 @@
+package org.euan.cookieanalyser.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.Configurator;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FastStartupConfiguratorTest {
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty(FastStartupConfigurator.FAST_STARTUP_PROPERTY);
+        System.clearProperty(FastStartupConfigurator.LOG_LEVEL_PROPERTY);
+    }
+
+    @Test
+    void testConfigure_DefersToLogbackXmlByDefault() {
+        // Given
+        LoggerContext loggerContext = new LoggerContext();
+        FastStartupConfigurator configurator = new FastStartupConfigurator();
+        configurator.setContext(loggerContext);
+
+        // When
+        Configurator.ExecutionStatus status = configurator.configure(loggerContext);
+
+        // Assert
+        assertEquals(Configurator.ExecutionStatus.INVOKE_NEXT_IF_ANY, status);
+        assertNull(loggerContext.getLogger(Logger.ROOT_LOGGER_NAME).getAppender("FILE"));
+    }
+
+    @Test
+    void testConfigure_FileAppenderDeferredUntilEventPassesLevel() {
+        // Given
+        System.setProperty(FastStartupConfigurator.FAST_STARTUP_PROPERTY, "true");
+        System.setProperty(FastStartupConfigurator.LOG_LEVEL_PROPERTY, "WARN");
+        LoggerContext loggerContext = new LoggerContext();
+        FastStartupConfigurator configurator = new FastStartupConfigurator();
+        configurator.setContext(loggerContext);
+
+        // When
+        Configurator.ExecutionStatus status = configurator.configure(loggerContext);
+        loggerContext.getLogger(FastStartupConfiguratorTest.class).info("Below the configured level");
+
+        // Assert
+        Logger rootLogger = loggerContext.getLogger(Logger.ROOT_LOGGER_NAME);
+        DeferredAppender appender = (DeferredAppender) rootLogger.getAppender("FILE");
+        assertEquals(Configurator.ExecutionStatus.DO_NOT_INVOKE_NEXT_IF_ANY, status);
+        assertEquals(Level.WARN, rootLogger.getLevel());
+        assertFalse(appender.isInitialised());
+    }
+
+    @Test
+    void testConfigure_InfoEventsDoNotOpenLogFileByDefault() {
+        // Given
+        System.setProperty(FastStartupConfigurator.FAST_STARTUP_PROPERTY, "true");
+        LoggerContext loggerContext = new LoggerContext();
+        FastStartupConfigurator configurator = new FastStartupConfigurator();
+        configurator.setContext(loggerContext);
+
+        // When
+        configurator.configure(loggerContext);
+        loggerContext.getLogger(FastStartupConfiguratorTest.class).info("Routine query progress");
+
+        // Assert
+        Logger rootLogger = loggerContext.getLogger(Logger.ROOT_LOGGER_NAME);
+        assertEquals(Level.WARN, rootLogger.getLevel());
+        assertFalse(((DeferredAppender) rootLogger.getAppender("FILE")).isInitialised());
+    }
+
+    @Test
+    void testDeferredAppender_CreatesDelegateOnFirstEvent() {
+        // Given
+        LoggerContext loggerContext = new LoggerContext();
+        AtomicInteger created = new AtomicInteger();
+        ListAppender<ILoggingEvent> listAppender = new ListAppender<>();
+        DeferredAppender appender = new DeferredAppender(() -> {
+            created.incrementAndGet();
+            listAppender.start();
+            return listAppender;
+        });
+        appender.setContext(loggerContext);
+        appender.start();
+        Logger logger = loggerContext.getLogger(FastStartupConfiguratorTest.class);
+        logger.addAppender(appender);
+
+        // When
+        boolean initialisedBeforeLogging = appender.isInitialised();
+        logger.warn("first");
+        logger.warn("second");
+
+        // Assert
+        assertFalse(initialisedBeforeLogging);
+        assertEquals(1, created.get());
+        assertEquals(2, listAppender.list.size());
+    }
+}
@@ -0,0 +1,134 @@
+package org.euan.cookieanalyser.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentCookieIdCountsTest {
+
+    private static final int WRITERS = 4;
+    // Far enough apart to land in different segments
+    private static final int FIRST_ID = 3;
+    private static final int SECOND_ID = 70_000;
+
+    @Test
+    void testTopIds_OrdersByCountThenLowerId() {
+        // Given
+        ConcurrentCookieIdCounts counts = new ConcurrentCookieIdCounts(2);
+        counts.add(5, 3);
+        counts.add(1, 7);
+        counts.add(40_000, 7);
+        counts.add(9, 1);
+
+        // When
+        int[] top = counts.topIds(3);
+
+        // Assert
+        assertArrayEquals(new int[]{1, 40_000, 5}, top);
+        assertArrayEquals(new int[]{1, 40_000}, sorted(counts.mostActiveIds()));
+    }
+
+    @Test
+    void testMostActiveIds_FollowsNewLeaderAcrossReads() {
+        // Given
+        ConcurrentCookieIdCounts counts = new ConcurrentCookieIdCounts(2);
+        counts.add(1, 2);
+        assertArrayEquals(new int[]{1}, counts.mostActiveIds());
+
+        // When
+        counts.add(2, 3);
+
+        // Assert
+        assertArrayEquals(new int[]{2}, counts.mostActiveIds());
+        assertEquals(2, counts.snapshot().getCount(1));
+        assertEquals(0, new ConcurrentCookieIdCounts().mostActiveIds().length);
+    }
+
+    @Test
+    void testAdd_ConcurrentWritersLoseNothingWhileReadersPoll() throws Exception {
+        // Given
+        ConcurrentCookieIdCounts counts = new ConcurrentCookieIdCounts(WRITERS);
+        int perWriter = 200_000;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 1);
+        try {
+            // When
+            Future<?> reader = executor.submit(() -> {
+                while (writing.get()) {
+                    counts.mostActiveIds();
+                    counts.topIds(2);
+                }
+            });
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        counts.increment(i % 3 == 0 ? SECOND_ID : i % 50);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            writing.set(false);
+            reader.get();
+
+            // Assert
+            CookieIdCounts snapshot = counts.snapshot();
+            assertEquals((long) WRITERS * perWriter, snapshot.total());
+            assertEquals(WRITERS * ((perWriter + 2) / 3), snapshot.getCount(SECOND_ID));
+            assertArrayEquals(new int[]{SECOND_ID}, counts.mostActiveIds());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSnapshot_NeverSeesAnIncrementWithoutTheOnesBeforeIt() throws Exception {
+        // Given
+        ConcurrentCookieIdCounts counts = new ConcurrentCookieIdCounts(WRITERS);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(WRITERS);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            for (int w = 0; w < WRITERS; w++) {
+                executor.submit(() -> {
+                    started.countDown();
+                    while (writing.get()) {
+                        counts.increment(FIRST_ID);
+                        counts.increment(SECOND_ID);
+                    }
+                });
+            }
+            started.await();
+
+            // When
+            for (int read = 0; read < 2_000; read++) {
+                CookieIdCounts snapshot = counts.snapshot();
+
+                // Assert
+                int first = snapshot.getCount(FIRST_ID);
+                int second = snapshot.getCount(SECOND_ID);
+                assertTrue(second <= first && first - second <= WRITERS, "Read " + first + " and " + second);
+            }
+        } finally {
+            writing.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    private static int[] sorted(int[] ids) {
+        int[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
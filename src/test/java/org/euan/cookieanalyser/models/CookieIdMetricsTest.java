@@ -0,0 +1,61 @@
+package org.euan.cookieanalyser.models;
+
+import org.euan.cookieanalyser.models.CookieIdMetrics.Metric;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CookieIdMetricsTest {
+
+    @Test
+    void testTopIds_RanksByEachMetricThenLowerId() {
+        // Given
+        CookieIdMetrics metrics = new CookieIdMetrics();
+        metrics.record(1, 500, 0);
+        metrics.record(1, 900, 0);
+        metrics.record(2, 100, 1);
+        metrics.record(2, 300, 3);
+        metrics.record(2, 200, 5);
+        metrics.record(3, 100, 2);
+
+        // When
+        int[] byCount = metrics.topIds(Metric.COUNT, 0);
+        int[] byFirstSeen = metrics.topIds(Metric.FIRST_SEEN, 0);
+        int[] byLastSeen = metrics.topIds(Metric.LAST_SEEN, 2);
+        int[] byActiveHours = metrics.topIds(Metric.ACTIVE_HOURS, 0);
+
+        // Assert
+        assertArrayEquals(new int[]{2, 1, 3}, byCount);
+        assertArrayEquals(new int[]{2, 3, 1}, byFirstSeen);
+        assertArrayEquals(new int[]{1, 2}, byLastSeen);
+        assertArrayEquals(new int[]{2, 1, 3}, byActiveHours);
+        assertEquals(1, metrics.getActiveHours(1));
+        assertEquals(6, metrics.total());
+    }
+
+    @Test
+    void testMerge_CombinesMetricsAcrossResizes() {
+        // Given
+        CookieIdMetrics left = new CookieIdMetrics();
+        CookieIdMetrics right = new CookieIdMetrics();
+        for (int id = 0; id < 1_000; id++) {
+            left.record(id, 1_000 + id, id % 24);
+            right.record(id, 2_000 + id, (id + 1) % 24);
+        }
+        right.record(5_000, 10, 23);
+
+        // When
+        left.merge(right);
+
+        // Assert
+        assertEquals(1_001, left.size());
+        assertEquals(2, left.getCount(7));
+        assertEquals(2, left.getActiveHours(7));
+        assertArrayEquals(new int[]{5_000, 0}, left.topIds(Metric.FIRST_SEEN, 2));
+        assertArrayEquals(new int[]{999}, left.topIds(Metric.LAST_SEEN, 1));
+        assertEquals(Optional.of(Metric.FIRST_SEEN), Metric.parse("first-seen"));
+        assertEquals(Optional.empty(), Metric.parse("first_seen"));
+    }
+}
@@ -0,0 +1,134 @@
+package org.euan.cookieanalyser.rollup;
+
+import org.euan.cookieanalyser.services.CookieLogScanner;
+import org.euan.cookieanalyser.testutils.LoggingAssertion;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CookieRollupIngesterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LoggingAssertion loggingAssertion;
+    private CookieRollupIngester ingester;
+    private Path log;
+    private FileUtils fileUtils;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        loggingAssertion = LoggingAssertion.forClass(CookieRollupIngester.class);
+        ingester = new CookieRollupIngester(new CookieLogScanner(), 2);
+        log = Files.copy(Path.of("src/test/resources/integrationTest/happyPathInput.csv"), tempDir.resolve("cookies.csv"));
+        fileUtils = new FileUtils(log.toString());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (loggingAssertion != null) {
+            loggingAssertion.close();
+        }
+    }
+
+    @Test
+    void testUpdate_BuildsPerDayCounts() throws IOException {
+        // When
+        CookieRollup rollup = ingester.update(fileUtils);
+
+        // Assert
+        assertEquals(Files.size(log), rollup.getHighWaterMark());
+        assertEquals(List.of(LocalDate.of(2018, 12, 7), LocalDate.of(2018, 12, 8), LocalDate.of(2018, 12, 9)),
+                rollup.getDates());
+        assertEquals(Map.of("AtY0laUfhglK3lC7", 2, "SAZuXPGUrfbcn5UA", 1, "5UAVanZf6UtGyKVS", 1),
+                rollup.countsFor(LocalDate.of(2018, 12, 9)).orElseThrow().asMap());
+        assertEquals(4, rollup.getTotal(LocalDate.of(2018, 12, 8)));
+        assertTrue(rollup.countsFor(LocalDate.of(2018, 12, 1)).isEmpty());
+        assertTrue(Files.exists(CookieRollup.rollupPathFor(log)));
+    }
+
+    @Test
+    void testUpdate_IngestsOnlyAppendedBytes() throws IOException {
+        // Given
+        long originalSize = Files.size(log);
+        ingester.update(fileUtils);
+        Files.writeString(log, "\n5UAVanZf6UtGyKVS,2018-12-09T01:00:00+00:00\n5UAVanZf6UtGyKVS,2018-12-10T01:00:00+00:00\n",
+                StandardOpenOption.APPEND);
+
+        // When
+        CookieRollup rollup = ingester.update(fileUtils);
+
+        // Assert
+        assertTrue(loggingAssertion.assertLoggingEvent(ROLLUP_UPDATED, 1, originalSize, Files.size(log),
+                CookieRollup.rollupPathFor(log), 4));
+        assertEquals(2, rollup.countsFor(LocalDate.of(2018, 12, 9)).orElseThrow().getCount("5UAVanZf6UtGyKVS"));
+        assertEquals(Map.of("5UAVanZf6UtGyKVS", 1), rollup.countsFor(LocalDate.of(2018, 12, 10)).orElseThrow().asMap());
+        assertEquals(4, rollup.getTotal(LocalDate.of(2018, 12, 8)));
+    }
+
+    @Test
+    void testUpdate_UnchangedLogReusesRollup() throws IOException {
+        // Given
+        ingester.update(fileUtils);
+
+        // When
+        CookieRollup rollup = ingester.update(fileUtils);
+
+        // Assert
+        assertTrue(loggingAssertion.assertLoggingEvent(ROLLUP_LOADED, 1, CookieRollup.rollupPathFor(log), Files.size(log)));
+        assertEquals(3, rollup.getDates().size());
+    }
+
+    @Test
+    void testUpdate_PartialLastLineWaitsForTheRestOfTheRecord() throws IOException {
+        // Given
+        ingester.update(fileUtils);
+        long completeSize = Files.size(log);
+        Files.writeString(log, "\nNewCookie,2018-12-09T0", StandardOpenOption.APPEND);
+
+        // When
+        CookieRollup partial = ingester.update(fileUtils);
+        long partialHighWaterMark = partial.getHighWaterMark();
+        int partialCount = partial.countsFor(LocalDate.of(2018, 12, 9)).orElseThrow().getCount("NewCookie");
+        Files.writeString(log, "1:00:00+00:00\n", StandardOpenOption.APPEND);
+        CookieRollup completed = ingester.update(fileUtils);
+
+        // Assert
+        assertEquals(completeSize + 1, partialHighWaterMark);
+        assertEquals(0, partialCount);
+        assertEquals(Files.size(log), completed.getHighWaterMark());
+        assertEquals(1, completed.countsFor(LocalDate.of(2018, 12, 9)).orElseThrow().getCount("NewCookie"));
+    }
+
+    @Test
+    void testUpdate_RewrittenLogIsRebuilt() throws IOException {
+        // Given
+        ingester.update(fileUtils);
+        Files.writeString(log, "cookie,timestamp\nOnlyCookie,2018-12-09T01:00:00+00:00\n"
+                + "OnlyCookie,2018-12-09T02:00:00+00:00\nOnlyCookie,2018-12-09T03:00:00+00:00\n"
+                + "OnlyCookie,2018-12-09T04:00:00+00:00\nOnlyCookie,2018-12-09T05:00:00+00:00\n"
+                + "OnlyCookie,2018-12-09T06:00:00+00:00\nOnlyCookie,2018-12-09T07:00:00+00:00\n"
+                + "OnlyCookie,2018-12-09T08:00:00+00:00\nOnlyCookie,2018-12-09T09:00:00+00:00\n"
+                + "OnlyCookie,2018-12-09T10:00:00+00:00\n");
+
+        // When
+        CookieRollup rollup = ingester.update(fileUtils);
+
+        // Assert
+        assertEquals(List.of(LocalDate.of(2018, 12, 9)), rollup.getDates());
+        assertEquals(Map.of("OnlyCookie", 10), rollup.countsFor(LocalDate.of(2018, 12, 9)).orElseThrow().asMap());
+    }
+}
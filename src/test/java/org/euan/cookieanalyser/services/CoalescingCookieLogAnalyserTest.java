@@ -0,0 +1,81 @@
+package org.euan.cookieanalyser.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CoalescingCookieLogAnalyserTest {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2018, 12, 9);
+    private static final LocalDate SECOND_DATE = LocalDate.of(2018, 12, 8);
+    private static final LocalDate THIRD_DATE = LocalDate.of(2018, 12, 7);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReturnMostActiveCookie_ConcurrentQueriesShareTwoPasses() throws Exception {
+        // Given
+        CookieLogAnalyser analyser = mock(CookieLogAnalyser.class);
+        CountDownLatch firstPassStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstPass = new CountDownLatch(1);
+        List<Set<LocalDate>> passes = new ArrayList<>();
+        when(analyser.returnMostActiveCookies(any())).thenAnswer(invocation -> {
+            Collection<LocalDate> dates = invocation.getArgument(0);
+            passes.add(new HashSet<>(dates));
+            if (passes.size() == 1) {
+                firstPassStarted.countDown();
+                releaseFirstPass.await();
+            }
+            return dates.stream().collect(Collectors.toMap(date -> date, date -> List.of("Cookie-" + date)));
+        });
+        CoalescingCookieLogAnalyser coalescing = new CoalescingCookieLogAnalyser(analyser);
+        Map<Thread, LocalDate> queries = new ConcurrentHashMap<>();
+        Map<Thread, List<String>> results = new ConcurrentHashMap<>();
+
+        // When
+        Thread leader = query(coalescing, FIRST_DATE, queries, results);
+        firstPassStarted.await();
+        List<Thread> followers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            followers.add(query(coalescing, FIRST_DATE, queries, results));
+            followers.add(query(coalescing, SECOND_DATE, queries, results));
+            followers.add(query(coalescing, THIRD_DATE, queries, results));
+        }
+        // Every follower has joined the running pass or the queue once it is parked waiting
+        for (Thread follower : followers) {
+            while (follower.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+        }
+        releaseFirstPass.countDown();
+        leader.join();
+        for (Thread follower : followers) {
+            follower.join();
+        }
+
+        // Assert
+        assertEquals(List.of(Set.of(FIRST_DATE), Set.of(SECOND_DATE, THIRD_DATE)), passes);
+        assertEquals(13, results.size());
+        results.forEach((thread, result) -> assertEquals(List.of("Cookie-" + queries.get(thread)), result));
+    }
+
+    private static Thread query(CoalescingCookieLogAnalyser coalescing, LocalDate date, Map<Thread, LocalDate> queries,
+                                Map<Thread, List<String>> results) {
+        Thread thread = new Thread(() -> results.put(Thread.currentThread(), coalescing.returnMostActiveCookie(date)));
+        queries.put(thread, date);
+        thread.start();
+        return thread;
+    }
+}
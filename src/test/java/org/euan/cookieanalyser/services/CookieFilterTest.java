@@ -0,0 +1,40 @@
+package org.euan.cookieanalyser.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CookieFilterTest {
+
+    @Test
+    void testMatches_PrefixAndAllowListBothApply(@TempDir Path tempDir) throws IOException {
+        // Given
+        Path list = Files.writeString(tempDir.resolve("allow.txt"), "  SAZuXPGUrfbcn5UA \n\n4sMM2LxV07bPJzwf\n");
+        CookieFilter allowList = new CookieFilter(null, CookieFilter.readCookieList(list));
+        CookieFilter prefixed = new CookieFilter("SAZu", CookieFilter.readCookieList(list));
+        CookieFilter unrestricted = new CookieFilter(null, null);
+
+        // When & Assert
+        assertTrue(matches(allowList, "SAZuXPGUrfbcn5UA"));
+        assertTrue(matches(allowList, "4sMM2LxV07bPJzwf"));
+        assertFalse(matches(allowList, "SAZuXPGUrfbcn5U"));
+        assertTrue(matches(prefixed, "SAZuXPGUrfbcn5UA"));
+        assertFalse(matches(prefixed, "4sMM2LxV07bPJzwf"));
+        assertFalse(matches(new CookieFilter("SAZuX", null), "SAZu"));
+        assertTrue(matches(unrestricted, "anything"));
+        assertEquals(List.of("SAZuXPGUrfbcn5UA", "4sMM2LxV07bPJzwf"), CookieFilter.readCookieList(list));
+    }
+
+    // The cookie sits inside a longer line, as it does in a scan buffer
+    private static boolean matches(CookieFilter filter, String cookie) {
+        byte[] line = (cookie + ",2018-12-09T14:19:00+00:00").getBytes(StandardCharsets.UTF_8);
+        return filter.matches(line, 0, cookie.length());
+    }
+}
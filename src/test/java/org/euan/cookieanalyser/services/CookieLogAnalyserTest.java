@@ -1,7 +1,14 @@
 package org.euan.cookieanalyser.services;
 
+import org.euan.cookieanalyser.dictionary.CookieDictionary;
 import org.euan.cookieanalyser.exceptions.NoLogsFoundException;
+import org.euan.cookieanalyser.models.ConcurrentCookieIdCounts;
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.models.CookieIdMetrics.Metric;
 import org.euan.cookieanalyser.models.CookieLog;
+import org.euan.cookieanalyser.models.CookieMetrics;
+import org.euan.cookieanalyser.models.ExecutionPlan;
+import org.euan.cookieanalyser.models.QueryOptions;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,9 +18,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.euan.cookieanalyser.testutils.LoggingAssertion;
 import org.euan.cookieanalyser.utils.FileUtils;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.euan.cookieanalyser.logging.LoggingEvents.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -221,4 +234,115 @@ public class CookieLogAnalyserTest {
         assertTrue(result.isEmpty());
         assertTrue(loggingAssertion.assertLoggingEvent(SUCCESSFULLY_FOUND_LOGS_FOR_DATE, 1, 0, targetDate));
     }
+
+    @Test
+    void testCountCookiesInRange_SplitRangesMatchFullRange() throws IOException {
+        // Given
+        File file = new File("src/test/resources/integrationTest/happyPathInput.csv");
+        CookieLogAnalyser fileAnalyser = new CookieLogAnalyser(new FileUtils(file.getAbsolutePath()));
+        LocalDate targetDate = LocalDate.of(2018, 12, 8);
+        long size = Files.size(file.toPath());
+
+        // When
+        CookieCounts full = fileAnalyser.countCookiesInRange(targetDate, 0, size);
+        CookieCounts merged = fileAnalyser.countCookiesInRange(targetDate, 0, size / 3);
+        merged.merge(fileAnalyser.countCookiesInRange(targetDate, size / 3, size));
+
+        // Assert
+        assertEquals(Map.of("SAZuXPGUrfbcn5UA", 2, "4sMM2LxV07bPJzwf", 1, "fbcn5UAVanZf6UtG", 1), full.asMap());
+        assertEquals(full.asMap(), merged.asMap());
+        assertEquals(List.of("SAZuXPGUrfbcn5UA"), full.mostActive());
+    }
+
+    @Test
+    void testCountInto_ParallelRangesShareOneTable() throws IOException {
+        // Given
+        File file = new File("src/test/resources/integrationTest/happyPathInput.csv");
+        long size = Files.size(file.toPath());
+        CookieDictionary dictionary = CookieDictionary.inMemory();
+        CookieLogAnalyser fileAnalyser = new CookieLogAnalyser(new FileUtils(file.getAbsolutePath()), new CookieLogParser(),
+                new CookieLogScanner(16), new QueryPlanner(), dictionary);
+        ExecutionPlan plan = new ExecutionPlan(ExecutionPlan.Strategy.PARALLEL_SCAN, ExecutionPlan.SortOrder.UNSORTED,
+                0, size, size, 3, 1, "test");
+        ConcurrentCookieIdCounts counts = new ConcurrentCookieIdCounts();
+
+        // When
+        fileAnalyser.countInto(plan, LocalDate.of(2018, 12, 8), counts);
+
+        // Assert
+        assertEquals(Map.of("SAZuXPGUrfbcn5UA", 2, "4sMM2LxV07bPJzwf", 1, "fbcn5UAVanZf6UtG", 1),
+                counts.snapshot().decode(dictionary).asMap());
+        assertArrayEquals(new int[]{dictionary.idOf("SAZuXPGUrfbcn5UA")}, counts.mostActiveIds());
+    }
+
+    @Test
+    void testReturnMostActiveCookies_AnswersEveryDateInOnePass() {
+        // Given
+        File file = new File("src/test/resources/integrationTest/happyPathInput.csv");
+        FileUtils fileUtils = new FileUtils(file.getAbsolutePath());
+        CookieLogAnalyser fileAnalyser = new CookieLogAnalyser(fileUtils);
+        LocalDate newest = LocalDate.of(2018, 12, 9);
+        LocalDate oldest = LocalDate.of(2018, 12, 7);
+        LocalDate missing = LocalDate.of(2099, 1, 1);
+
+        // When
+        Map<LocalDate, List<String>> result = fileAnalyser.returnMostActiveCookies(List.of(newest, oldest, missing));
+
+        // Assert
+        assertEquals(List.of("AtY0laUfhglK3lC7"), result.get(newest));
+        assertEquals(Set.of("4sMM2LxV07bPJzwf", "fbcn5UAVanZf6UtG"), Set.copyOf(result.get(oldest)));
+        assertEquals(List.of(), result.get(missing));
+        assertTrue(loggingAssertion.assertLoggingEvent(DATES_BATCHED, 1, 3, fileUtils.getPath()));
+        assertTrue(loggingAssertion.assertLoggingEvent(SCANNED_BYTE_RANGE, 1, 0, file.length(), 6));
+    }
+
+    @Test
+    void testReturnMostActiveCookie_CookieFilterAppliedDuringScan() throws IOException {
+        // Given
+        File file = new File("src/test/resources/integrationTest/happyPathInput.csv");
+        CookieLogAnalyser fileAnalyser = new CookieLogAnalyser(new FileUtils(file.getAbsolutePath()));
+        LocalDate targetDate = LocalDate.of(2018, 12, 8);
+        ExecutionPlan plan = fileAnalyser.plan(targetDate);
+        QueryOptions prefixed = QueryOptions.defaults().withCookieFilter(new CookieFilter("4s", null));
+        QueryOptions allowListed = QueryOptions.defaults()
+                .withCookieFilter(new CookieFilter(null, List.of("fbcn5UAVanZf6UtG", "4sMM2LxV07bPJzwf", "Unseen")));
+
+        // When
+        List<String> prefixResult = fileAnalyser.returnMostActiveCookie(plan, targetDate, prefixed);
+        List<String> allowListResult = fileAnalyser.returnMostActiveCookie(plan, targetDate, allowListed);
+
+        // Assert
+        assertEquals(List.of("4sMM2LxV07bPJzwf"), prefixResult);
+        assertEquals(Set.of("fbcn5UAVanZf6UtG", "4sMM2LxV07bPJzwf"), Set.copyOf(allowListResult));
+        assertTrue(loggingAssertion.assertLoggingEvent(SUCCESSFULLY_FOUND_LOGS_FOR_DATE, 1, 1L, targetDate));
+        assertTrue(loggingAssertion.assertLoggingEvent(SUCCESSFULLY_FOUND_LOGS_FOR_DATE, 1, 2L, targetDate));
+    }
+
+    @Test
+    void testReturnCookieMetrics_GathersEveryMetricInOnePass() throws IOException {
+        // Given
+        File file = new File("src/test/resources/integrationTest/happyPathInput.csv");
+        CookieLogAnalyser fileAnalyser = new CookieLogAnalyser(new FileUtils(file.getAbsolutePath()));
+        LocalDate targetDate = LocalDate.of(2018, 12, 9);
+        ZoneId tokyo = ZoneId.of("Asia/Tokyo");
+
+        // When
+        List<CookieMetrics> byFirstSeen = fileAnalyser.returnCookieMetrics(fileAnalyser.plan(targetDate), targetDate,
+                QueryOptions.defaults(), Metric.FIRST_SEEN, 0);
+        List<CookieMetrics> zonedByHours = fileAnalyser.returnCookieMetrics(fileAnalyser.plan(targetDate, tokyo),
+                targetDate, QueryOptions.defaults().withZone(tokyo), Metric.ACTIVE_HOURS, 1);
+
+        // Assert
+        assertEquals(List.of("AtY0laUfhglK3lC7", "5UAVanZf6UtGyKVS", "SAZuXPGUrfbcn5UA"),
+                byFirstSeen.stream().map(CookieMetrics::getCookie).toList());
+        CookieMetrics first = byFirstSeen.get(0);
+        assertEquals(2, first.getCount());
+        assertEquals(OffsetDateTime.parse("2018-12-09T06:19:00+00:00").toEpochSecond(), first.getFirstSeen());
+        assertEquals(OffsetDateTime.parse("2018-12-09T14:19:00+00:00").toEpochSecond(), first.getLastSeen());
+        assertEquals((1 << 6) | (1 << 14), first.getHourMask());
+        // In Tokyo the day starts at 15:00 UTC, so the two late lines of the 8th join the 10:13 line
+        assertEquals(1, zonedByHours.size());
+        assertEquals("SAZuXPGUrfbcn5UA", zonedByHours.get(0).getCookie());
+        assertEquals(3, zonedByHours.get(0).getActiveHours());
+    }
 }
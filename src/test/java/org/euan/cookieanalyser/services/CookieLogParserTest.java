@@ -2,15 +2,21 @@ package org.euan.cookieanalyser.services;
 
 import org.euan.cookieanalyser.exceptions.NoLogsFoundException;
 import org.euan.cookieanalyser.models.CookieLog;
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.euan.cookieanalyser.testutils.LoggingAssertion;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -167,4 +173,70 @@ public class CookieLogParserTest {
         assertEquals(new CookieLog("CookieB", "2018-12-09T14:19:00+00:00"), result.get(0));
         assertTrue(loggingAssertion.assertLoggingEvent(DATE_PARSE_ERROR, 1, "CookieA,short"));
     }
+
+    @Test
+    void testParseMergedLogsForDate_StopsPastTargetDay(@TempDir Path tempDir) throws IOException {
+        // Given
+        LocalDate targetDate = LocalDate.of(2018, 12, 8);
+        Path first = Files.writeString(tempDir.resolve("node-1.csv"), """
+                cookie,timestamp
+                CookieA,2018-12-09T14:19:00+00:00
+                CookieB,2018-12-08T22:03:00+00:00
+                CookieC,2018-12-08T09:30:00+00:00
+                CookieD,2018-12-07T23:59:00+00:00
+                """);
+        Path second = Files.writeString(tempDir.resolve("node-2.csv"), """
+                cookie,timestamp
+                CookieE,2018-12-08T23:10:00+00:00
+                CookieF,2018-12-08T10:13:00+00:00
+                CookieG,2018-12-06T08:00:00+00:00
+                CookieH,2018-12-05T12:00:00+00:00
+                """);
+
+        // When
+        try (SortedLogMerger merger = SortedLogMerger.open(List.of(first, second), SortOrder.DESCENDING)) {
+            List<CookieLog> result = new ArrayList<>();
+            parser.parseMergedLogsForDate(merger, targetDate, true, result::add);
+
+            // Assert
+            assertEquals(List.of(
+                    new CookieLog("CookieE", "2018-12-08T23:10:00+00:00"),
+                    new CookieLog("CookieB", "2018-12-08T22:03:00+00:00"),
+                    new CookieLog("CookieF", "2018-12-08T10:13:00+00:00"),
+                    new CookieLog("CookieC", "2018-12-08T09:30:00+00:00")), result);
+            // The first record more than a day's offsets past the target ends the scan, leaving the rest unread
+            assertEquals(new CookieLog("CookieH", "2018-12-05T12:00:00+00:00"), merger.next());
+            assertTrue(loggingAssertion.assertLoggingEvent(ATTEMPT_FIND_LOGS_FOR_DATE, 1, targetDate));
+        }
+    }
+
+    @Test
+    void testParseMergedLogsForDate_UnverifiedOrderReadsToEnd(@TempDir Path tempDir) throws IOException {
+        // Given
+        LocalDate targetDate = LocalDate.of(2018, 12, 8);
+        Path first = Files.writeString(tempDir.resolve("node-1.csv"), """
+                cookie,timestamp
+                CookieA,2018-12-08T09:30:00+00:00
+                CookieB,2018-12-10T14:19:00+00:00
+                CookieC,2018-12-08T22:03:00+00:00
+                """);
+        Path second = Files.writeString(tempDir.resolve("node-2.csv"), """
+                cookie,timestamp
+                CookieD,2018-12-08T10:13:00+00:00
+                """);
+
+        // When
+        try (SortedLogMerger merger = SortedLogMerger.open(List.of(first, second), SortOrder.ASCENDING)) {
+            List<CookieLog> result = new ArrayList<>();
+            parser.parseMergedLogsForDate(merger, targetDate, false, result::add);
+
+            // Assert
+            // The line out of order behind a later day is still counted
+            assertEquals(List.of(
+                    new CookieLog("CookieA", "2018-12-08T09:30:00+00:00"),
+                    new CookieLog("CookieD", "2018-12-08T10:13:00+00:00"),
+                    new CookieLog("CookieC", "2018-12-08T22:03:00+00:00")), result);
+            assertNull(merger.next());
+        }
+    }
 }
@@ -0,0 +1,195 @@
+package org.euan.cookieanalyser.services;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.euan.cookieanalyser.jfr.PipelineRecording;
+import org.euan.cookieanalyser.simd.ByteScanners;
+import org.euan.cookieanalyser.testutils.LoggingAssertion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.COOKIE_TOO_LONG;
+import static org.euan.cookieanalyser.logging.LoggingEvents.MALFORMED_LOG_LINE;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CookieLogScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LoggingAssertion loggingAssertion;
+    private CookieLogScanner scanner;
+
+    @BeforeEach
+    public void setUp() {
+        loggingAssertion = LoggingAssertion.forClass(CookieLogScanner.class);
+        scanner = new CookieLogScanner(16);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (loggingAssertion != null) {
+            loggingAssertion.close();
+        }
+    }
+
+    @Test
+    void testScanLines_SkipsHeaderAndReturnsAllLines() throws IOException {
+        // Given
+        Path file = new File("src/test/resources/integrationTest/happyPathInput.csv").toPath();
+        List<String> expected = Files.readAllLines(file);
+
+        // When
+        List<String> lines = new ArrayList<>();
+        scanner.scanLines(file, 0, Files.size(file), (buffer, start, end, offset) ->
+                lines.add(CookieLogScanner.decode(buffer, start, end)));
+
+        // Assert
+        assertEquals(expected.subList(1, expected.size()), lines);
+    }
+
+    @Test
+    void testScanLines_AdjacentRangesCoverEachLineOnce() throws IOException {
+        // Given
+        Path file = new File("src/test/resources/integrationTest/happyPathInput.csv").toPath();
+        List<String> expected = Files.readAllLines(file);
+        long size = Files.size(file);
+
+        for (long split = 0; split <= size; split++) {
+            // When
+            List<String> lines = new ArrayList<>();
+            scanner.scanLines(file, 0, split, (buffer, start, end, offset) ->
+                    lines.add(CookieLogScanner.decode(buffer, start, end)));
+            scanner.scanLines(file, split, size, (buffer, start, end, offset) ->
+                    lines.add(CookieLogScanner.decode(buffer, start, end)));
+
+            // Assert
+            assertEquals(expected.subList(1, expected.size()), lines, "Split at byte " + split);
+        }
+    }
+
+    @Test
+    void testScanLines_ReportsLineOffsets() throws IOException {
+        // Given
+        Path file = tempDir.resolve("offsets.csv");
+        Files.writeString(file, "cookie,timestamp\nA,2018-12-09T14:19:00+00:00\nB,2018-12-09T14:19:00+00:00\n");
+
+        // When
+        List<Long> offsets = new ArrayList<>();
+        scanner.scanLines(file, 0, Files.size(file), (buffer, start, end, offset) -> offsets.add(offset));
+
+        // Assert
+        assertEquals(List.of(17L, 45L), offsets);
+    }
+
+    @Test
+    void testScanRecords_HandlesCarriageReturnsAndMalformedLines() throws IOException {
+        // Given
+        Path file = tempDir.resolve("mixed.csv");
+        Files.writeString(file, "cookie,timestamp\r\nCookieA,2018-12-09T14:19:00+00:00\r\nNoComma\r\n,2018-12-09T14:19:00+00:00\r\n");
+
+        // When
+        List<String> cookies = new ArrayList<>();
+        scanner.scanRecords(file, 0, Files.size(file), (buffer, cookieStart, cookieEnd, timestampStart, offset) ->
+                cookies.add(CookieLogScanner.decode(buffer, cookieStart, cookieEnd)));
+
+        // Assert
+        assertEquals(List.of("CookieA"), cookies);
+        assertTrue(loggingAssertion.assertLoggingEvent(MALFORMED_LOG_LINE, 1, "NoComma"));
+        assertTrue(loggingAssertion.assertLoggingEvent(MALFORMED_LOG_LINE, 1, ",2018-12-09T14:19:00+00:00"));
+    }
+
+    @Test
+    void testScanRecords_SkipsCookiesTooLongForDictionary() throws IOException {
+        // Given
+        Path file = tempDir.resolve("longCookie.csv");
+        String longCookie = "x".repeat(CookieLogScanner.MAX_COOKIE_BYTES + 1);
+        Files.writeString(file, "cookie,timestamp\n" + longCookie + ",2018-12-09T14:19:00+00:00\nCookieA,2018-12-09T14:19:00+00:00\n");
+
+        // When
+        List<String> cookies = new ArrayList<>();
+        scanner.scanRecords(file, 0, Files.size(file), (buffer, cookieStart, cookieEnd, timestampStart, offset) ->
+                cookies.add(CookieLogScanner.decode(buffer, cookieStart, cookieEnd)));
+
+        // Assert
+        assertEquals(List.of("CookieA"), cookies);
+        assertTrue(loggingAssertion.assertLoggingEvent(COOKIE_TOO_LONG, 1, 17L, CookieLogScanner.MAX_COOKIE_BYTES + 1,
+                CookieLogScanner.MAX_COOKIE_BYTES));
+    }
+
+    @Test
+    void testScanRecords_LastLineWithoutNewline() throws IOException {
+        // Given
+        Path file = tempDir.resolve("noTrailingNewline.csv");
+        Files.writeString(file, "cookie,timestamp\nCookieA,2018-12-09T14:19:00+00:00");
+
+        // When
+        List<String> cookies = new ArrayList<>();
+        scanner.scanRecords(file, 0, Files.size(file), (buffer, cookieStart, cookieEnd, timestampStart, offset) ->
+                cookies.add(CookieLogScanner.decode(buffer, cookieStart, cookieEnd)));
+
+        // Assert
+        assertEquals(List.of("CookieA"), cookies);
+    }
+
+    @Test
+    void testScanLines_EmitsChunkEventsWhileRecorded() throws IOException {
+        // Given
+        Path file = new File("src/test/resources/integrationTest/happyPathInput.csv").toPath();
+        Path destination = tempDir.resolve("scan.jfr");
+
+        // When
+        try (PipelineRecording recording = PipelineRecording.start(destination)) {
+            scanner.scanLines(file, 0, Files.size(file), (buffer, start, end, offset) -> {
+            });
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(destination);
+
+        // Assert
+        assertEquals(Files.size(file), sum(events, "org.euan.cookieanalyser.ChunkRead", "bytes"));
+        assertEquals(Files.size(file) - "cookie,timestamp\n".length(),
+                sum(events, "org.euan.cookieanalyser.ChunkParsed", "bytes"));
+        assertEquals(10, sum(events, "org.euan.cookieanalyser.ChunkParsed", "lines"));
+    }
+
+    private static long sum(List<RecordedEvent> events, String eventName, String field) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(eventName))
+                .mapToLong(event -> event.getLong(field))
+                .sum();
+    }
+
+    @Test
+    void testScanLines_ReadAheadMatchesDirectReadsForEveryRangeStart() throws IOException {
+        // Given
+        StringBuilder content = new StringBuilder("cookie,timestamp\n");
+        for (int i = 0; i < 1_500; i++) {
+            content.append("Cookie").append(i).append(",2018-12-09T14:19:00+00:00\n");
+        }
+        Path file = Files.writeString(tempDir.resolve("large.csv"), content);
+        long size = Files.size(file);
+        CookieLogScanner direct = new CookieLogScanner(64, ByteScanners.best(), 4096, 0);
+        CookieLogScanner readAhead = new CookieLogScanner(64, ByteScanners.best(), 4096, 2);
+
+        for (long start = 0; start < size; start += 997) {
+            // When
+            long end = Math.min(size, start + 20_001);
+            List<Long> expected = new ArrayList<>();
+            direct.scanLines(file, start, end, (buffer, lineStart, lineEnd, offset) -> expected.add(offset));
+            List<Long> offsets = new ArrayList<>();
+            readAhead.scanLines(file, start, end, (buffer, lineStart, lineEnd, offset) -> offsets.add(offset));
+
+            // Assert
+            assertEquals(expected, offsets, "Start at byte " + start);
+        }
+    }
+}
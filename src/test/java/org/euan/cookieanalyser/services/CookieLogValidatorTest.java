@@ -0,0 +1,96 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
+import org.euan.cookieanalyser.models.ValidationReport;
+import org.euan.cookieanalyser.models.ValidationReport.Problem;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CookieLogValidatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FileUtils fileUtils;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Path log = tempDir.resolve("vendor.csv");
+        Files.writeString(log, "cookie,timestamp\n"
+                + "A,2018-12-09T14:19:00+00:00\n"
+                + "NoCommaHere\n"
+                + ",2018-12-09T10:00:00+00:00\n"
+                + "B,2018-12-09T10:00\n"
+                + "C,2018-12-08T10:00:00+00:00\n"
+                + "D,2018-13-08T10:00:00+00:00\n"
+                + "E,2018-12-09T09:00:00+00:00\n"
+                + "F,2018-12-07T09:00:00+00:00\n"
+                + "G,2018-12-07T08:00:00+00:00\n");
+        fileUtils = new FileUtils(log.toString());
+    }
+
+    @Test
+    void testValidate_ClassifiesEveryProblemWithLineNumbers() throws IOException {
+        // When
+        ValidationReport report = new CookieLogValidator(new CookieLogScanner(16), 1).validate(fileUtils);
+
+        // Assert
+        assertEquals(9, report.getLines());
+        assertEquals(SortOrder.DESCENDING, report.getSortOrder());
+        assertEquals(List.of(3L), report.getSampleLines(Problem.MISSING_COMMA));
+        assertEquals(List.of(4L), report.getSampleLines(Problem.EMPTY_COOKIE));
+        assertEquals(List.of(5L), report.getSampleLines(Problem.BAD_TIMESTAMP_LENGTH));
+        assertEquals(List.of(7L), report.getSampleLines(Problem.UNPARSABLE_DATE));
+        assertEquals(List.of(8L), report.getSampleLines(Problem.OUT_OF_ORDER));
+        assertEquals(5, report.getProblemCount());
+        assertFalse(report.isValid());
+    }
+
+    @Test
+    void testValidate_SameReportForEveryRangeSplit() throws IOException {
+        // Given
+        List<String> expected = new CookieLogValidator(new CookieLogScanner(16), 1).validate(fileUtils).format();
+
+        for (int threads = 2; threads <= 16; threads++) {
+            // When
+            List<String> report = new CookieLogValidator(new CookieLogScanner(16), threads).validate(fileUtils).format();
+
+            // Assert
+            assertEquals(expected, report, "Threads " + threads);
+        }
+    }
+
+    @Test
+    void testValidate_SampleLinesAreCapped() throws IOException {
+        // Given
+        Path log = tempDir.resolve("noCommas.csv");
+        Files.writeString(log, "cookie,timestamp\n" + "bad\n".repeat(20));
+
+        // When
+        ValidationReport report = new CookieLogValidator(new CookieLogScanner(16), 4).validate(new FileUtils(log.toString()));
+
+        // Assert
+        assertEquals(20, report.getCount(Problem.MISSING_COMMA));
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L), report.getSampleLines(Problem.MISSING_COMMA));
+    }
+
+    @Test
+    void testValidate_CleanLogIsValid() throws IOException {
+        // When
+        ValidationReport report = new CookieLogValidator()
+                .validate(new FileUtils("src/test/resources/integrationTest/happyPathInput.csv"));
+
+        // Assert
+        assertTrue(report.isValid());
+        assertEquals(10, report.getLines());
+    }
+}
@@ -0,0 +1,107 @@
+package org.euan.cookieanalyser.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DuplicateFilterTest {
+
+    @Test
+    void testFirstSeen_DropsRepeatedCookieAndSecond() {
+        // Given
+        DuplicateFilter filter = new DuplicateFilter(false);
+
+        // When
+        boolean first = firstSeen(filter, "CookieA,2018-12-09T14:19:00+00:00");
+        boolean repeated = firstSeen(filter, "CookieA,2018-12-09T14:19:00+00:00");
+        boolean sameInstantOtherOffset = firstSeen(filter, "CookieA,2018-12-09T15:19:00+01:00");
+        boolean otherSecond = firstSeen(filter, "CookieA,2018-12-09T14:19:01+00:00");
+        boolean otherCookie = firstSeen(filter, "CookieB,2018-12-09T14:19:00+00:00");
+
+        // Assert
+        assertTrue(first);
+        assertFalse(repeated);
+        assertFalse(sameInstantOtherOffset);
+        assertTrue(otherSecond);
+        assertTrue(otherCookie);
+        assertEquals(2, filter.getDuplicates());
+    }
+
+    @Test
+    void testFirstSeen_GroupedLogsReleaseEarlierDays() {
+        // Given
+        DuplicateFilter grouped = new DuplicateFilter(true);
+        DuplicateFilter unsorted = new DuplicateFilter(false);
+
+        // When
+        for (DuplicateFilter filter : new DuplicateFilter[]{grouped, unsorted}) {
+            firstSeen(filter, "CookieA,2018-12-09T14:19:00+00:00");
+            firstSeen(filter, "CookieA,2018-12-08T14:19:00+00:00");
+            firstSeen(filter, "CookieA,2018-12-07T14:19:00+00:00");
+        }
+
+        // Assert
+        assertEquals(1, grouped.trackedDays());
+        assertEquals(3, unsorted.trackedDays());
+    }
+
+    @Test
+    void testFirstSeen_InvalidTimestampIsNeverDropped() {
+        // Given
+        DuplicateFilter filter = new DuplicateFilter(false);
+
+        // When
+        firstSeen(filter, "CookieA,2018-12-09 14:19:00+00:00");
+        boolean repeated = firstSeen(filter, "CookieA,2018-12-09 14:19:00+00:00");
+
+        // Assert
+        assertTrue(repeated);
+        assertEquals(0, filter.getDuplicates());
+    }
+
+    @Test
+    void testFirstSeen_SharedAcrossThreadsCountsEachEventOnce() throws Exception {
+        // Given
+        DuplicateFilter filter = new DuplicateFilter(false);
+        int events = 10_000;
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // When
+        List<Future<Integer>> firsts = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            firsts.add(executor.submit(() -> {
+                int first = 0;
+                for (int i = 0; i < events; i++) {
+                    if (firstSeen(filter, String.format("Cookie%d,2018-12-09T14:%02d:%02d+00:00",
+                            i % 100, i / 100 % 60, i / 6000))) {
+                        first++;
+                    }
+                }
+                return first;
+            }));
+        }
+        executor.shutdown();
+        int total = 0;
+        for (Future<Integer> first : firsts) {
+            total += first.get();
+        }
+
+        // Assert
+        assertEquals(events, total);
+        assertEquals((long) events * (threads - 1), filter.getDuplicates());
+    }
+
+    private static boolean firstSeen(DuplicateFilter filter, String line) {
+        byte[] buffer = line.getBytes(StandardCharsets.US_ASCII);
+        int comma = line.indexOf(',');
+        return filter.firstSeen(buffer, 0, comma, comma + 1);
+    }
+}
@@ -0,0 +1,254 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.index.CookieLogIndexer;
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.models.ExecutionPlan;
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
+import org.euan.cookieanalyser.models.ExecutionPlan.Strategy;
+import org.euan.cookieanalyser.models.QueryOptions;
+import org.euan.cookieanalyser.testutils.LoggingAssertion;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryPlannerTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2018, 1, 1);
+    private static final int DAYS = 120;
+    private static final int LINES_PER_DAY = 1_000;
+
+    @TempDir
+    static Path sharedDir;
+
+    @TempDir
+    Path tempDir;
+
+    private static Path sortedLog;
+    private static Path shuffledLog;
+
+    private LoggingAssertion loggingAssertion;
+
+    @BeforeAll
+    static void writeLogs() throws IOException {
+        sortedLog = sharedDir.resolve("sorted.csv");
+        shuffledLog = sharedDir.resolve("shuffled.csv");
+        Random random = new Random(11);
+        try (BufferedWriter sorted = Files.newBufferedWriter(sortedLog);
+             BufferedWriter shuffled = Files.newBufferedWriter(shuffledLog)) {
+            sorted.write("cookie,timestamp\n");
+            shuffled.write("cookie,timestamp\n");
+            for (int day = DAYS - 1; day >= 0; day--) {
+                for (int line = 0; line < LINES_PER_DAY; line++) {
+                    String cookie = String.format("cookie%010d", random.nextInt(400));
+                    sorted.write(cookie + "," + FIRST_DAY.plusDays(day) + "T12:00:00+00:00\n");
+                    shuffled.write(cookie + "," + FIRST_DAY.plusDays(random.nextInt(DAYS)) + "T12:00:00+00:00\n");
+                }
+            }
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        loggingAssertion = LoggingAssertion.forClass(QueryPlanner.class);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (loggingAssertion != null) {
+            loggingAssertion.close();
+        }
+    }
+
+    @Test
+    void testPlan_SmallSortedLogUsesEarlyTerminatingScan() throws IOException {
+        // Given
+        Path log = Files.copy(Path.of("src/test/resources/integrationTest/happyPathInput.csv"), tempDir.resolve("small.csv"));
+
+        // When
+        ExecutionPlan plan = new QueryPlanner(4, Long.MAX_VALUE, true).plan(new FileUtils(log.toString()), LocalDate.of(2018, 12, 8));
+
+        // Assert
+        assertEquals(Strategy.EARLY_TERMINATING_SCAN, plan.getStrategy());
+        assertEquals(SortOrder.DESCENDING, plan.getSortOrder());
+        assertTrue(plan.getEstimatedBytes() < Files.size(log));
+        assertTrue(loggingAssertion.assertLoggingEvent(EXECUTION_PLAN_SELECTED, 1, plan.getStrategy(),
+                plan.getEstimatedBytes(), plan.getReason()));
+    }
+
+    @Test
+    void testPlan_LargeSortedLogSeeksToDay() throws IOException {
+        // When
+        ExecutionPlan plan = new QueryPlanner(4, Long.MAX_VALUE, true).plan(new FileUtils(sortedLog.toString()), FIRST_DAY.plusDays(40));
+
+        // Assert
+        assertEquals(Strategy.BINARY_SEARCH_SEEK, plan.getStrategy());
+        assertTrue(plan.getRangeStart() > 0);
+        assertTrue(plan.getEstimatedBytes() < Files.size(sortedLog) / 10, "Estimated " + plan.getEstimatedBytes());
+        assertTrue(plan.explain().startsWith("Plan: BINARY_SEARCH_SEEK"));
+    }
+
+    @Test
+    void testPlan_UnsortedLogScansInParallel() throws IOException {
+        // When
+        ExecutionPlan plan = new QueryPlanner(4, Long.MAX_VALUE).plan(new FileUtils(shuffledLog.toString()), FIRST_DAY);
+
+        // Assert
+        assertEquals(Strategy.PARALLEL_SCAN, plan.getStrategy());
+        assertEquals(SortOrder.UNSORTED, plan.getSortOrder());
+        assertEquals(Files.size(shuffledLog), plan.getEstimatedBytes());
+        assertEquals(Files.size(shuffledLog) >= QueryPlanner.PARALLEL_THRESHOLD ? 4 : 1, plan.getThreads());
+    }
+
+    @Test
+    void testPlan_SampledOrderIsNotTrustedUnlessVerified() throws IOException {
+        // Given
+        FileUtils fileUtils = new FileUtils(sortedLog.toString());
+
+        // When
+        ExecutionPlan plan = new QueryPlanner(4, Long.MAX_VALUE).plan(fileUtils, FIRST_DAY.plusDays(40));
+
+        // Assert
+        assertEquals(Strategy.PARALLEL_SCAN, plan.getStrategy());
+        assertEquals(SortOrder.UNSORTED, plan.getSortOrder());
+        assertTrue(plan.getReason().startsWith("log order is not verified"), plan.getReason());
+    }
+
+    @Test
+    void testReturnMostActiveCookie_OutOfOrderLinesAreNotDropped() throws IOException {
+        // Given a descending log whose samples look sorted, with a later day's lines buried in an earlier day
+        Path log = tempDir.resolve("late.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(log)) {
+            writer.write("cookie,timestamp\n");
+            for (int line = 0; line < 300; line++) {
+                writer.write("c" + line + ",2018-12-10T12:00:00+00:00\n");
+            }
+            for (int line = 0; line < 300; line++) {
+                writer.write("c" + line + ",2018-12-09T12:00:00+00:00\n");
+                if (line % 10 == 0) {
+                    writer.write("LATE,2018-12-10T23:00:00+00:00\n");
+                }
+            }
+        }
+        FileUtils fileUtils = new FileUtils(log.toString());
+        LocalDate date = LocalDate.of(2018, 12, 10);
+        CookieLogAnalyser analyser = new CookieLogAnalyser(fileUtils, new CookieLogParser(), new CookieLogScanner(),
+                new QueryPlanner(4, Long.MAX_VALUE));
+
+        // When
+        ExecutionPlan sampledPlan = analyser.plan(date);
+        List<String> sampledResult = analyser.returnMostActiveCookie(sampledPlan, date);
+        new CookieLogIndexer().loadOrBuild(fileUtils);
+        ExecutionPlan indexedPlan = analyser.plan(date);
+        List<String> indexedResult = analyser.returnMostActiveCookie(indexedPlan, date);
+
+        // Assert
+        assertEquals(SortOrder.UNSORTED, sampledPlan.getSortOrder());
+        assertEquals(List.of("LATE"), sampledResult);
+        assertEquals(Strategy.INDEX_LOOKUP, indexedPlan.getStrategy());
+        assertEquals(SortOrder.UNSORTED, indexedPlan.getSortOrder());
+        assertEquals(List.of("LATE"), indexedResult);
+    }
+
+    @Test
+    void testPlan_SmallMemoryBudgetSpills() throws IOException {
+        // When
+        ExecutionPlan plan = new QueryPlanner(4, 1 << 18).plan(new FileUtils(shuffledLog.toString()), FIRST_DAY);
+
+        // Assert
+        assertEquals(Strategy.SPILL, plan.getStrategy());
+        assertTrue(plan.getPartitions() > 1);
+    }
+
+    @Test
+    void testPlan_LargeUnsortedLogWithSmallDayScansInParallel() throws IOException {
+        // Given
+        long wholeFileCounts = Files.size(shuffledLog) / QueryPlanner.AVERAGE_LINE_BYTES * QueryPlanner.BYTES_PER_COUNTED_COOKIE;
+        long budget = 4L << 20;
+
+        // When
+        ExecutionPlan plan = new QueryPlanner(4, budget).plan(new FileUtils(shuffledLog.toString()), FIRST_DAY.plusDays(40));
+
+        // Assert
+        assertTrue(wholeFileCounts > budget);
+        assertEquals(Strategy.PARALLEL_SCAN, plan.getStrategy());
+        assertEquals(0, plan.getPartitions());
+    }
+
+    @Test
+    void testPlan_FreshIndexIsUsed() throws IOException {
+        // Given
+        Path log = Files.copy(Path.of("src/test/resources/integrationTest/happyPathInput.csv"), tempDir.resolve("indexed.csv"));
+        FileUtils fileUtils = new FileUtils(log.toString());
+        new CookieLogIndexer().loadOrBuild(fileUtils, 4);
+
+        // When
+        ExecutionPlan plan = new QueryPlanner(4, Long.MAX_VALUE).plan(fileUtils, LocalDate.of(2018, 12, 8));
+
+        // Assert
+        assertEquals(Strategy.INDEX_LOOKUP, plan.getStrategy());
+        assertEquals(189, plan.getRangeStart());
+        assertEquals(319, plan.getRangeEnd());
+    }
+
+    @Test
+    void testReturnMostActiveCookie_EveryStrategyAgreesWithFullCount() throws IOException {
+        for (Path log : List.of(sortedLog, shuffledLog)) {
+            for (long budget : new long[]{Long.MAX_VALUE, 1 << 18}) {
+                for (int offset : new int[]{0, 40, DAYS - 1, DAYS + 5}) {
+                    // Given
+                    LocalDate date = FIRST_DAY.plusDays(offset);
+                    CookieLogAnalyser analyser = new CookieLogAnalyser(new FileUtils(log.toString()), new CookieLogParser(),
+                            new CookieLogScanner(), new QueryPlanner(4, budget, log == sortedLog));
+                    CookieCounts expected = analyser.countCookiesInRange(date, 0, Files.size(log));
+
+                    // When
+                    ExecutionPlan plan = analyser.plan(date);
+                    List<String> result = analyser.returnMostActiveCookie(plan, date);
+
+                    // Assert
+                    assertEquals(new HashSet<>(expected.mostActive()), new HashSet<>(result), plan.explain());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testReturnMostActiveCookie_ZonedQuerySeeksEarlierAndBucketsByZone() throws IOException {
+        // Given
+        LocalDate date = FIRST_DAY.plusDays(40);
+        CookieLogAnalyser analyser = new CookieLogAnalyser(new FileUtils(sortedLog.toString()), new CookieLogParser(),
+                new CookieLogScanner(), new QueryPlanner(4, Long.MAX_VALUE, true));
+        // Every line is written at 12:00 UTC, which is 02:00 the next day at +14:00
+        ZoneId kiritimati = ZoneId.of("Pacific/Kiritimati");
+
+        // When
+        ExecutionPlan utcPlan = analyser.plan(date);
+        ExecutionPlan zonedPlan = analyser.plan(date, kiritimati);
+        List<String> zoned = analyser.returnMostActiveCookie(zonedPlan, date,
+                QueryOptions.defaults().withZone(kiritimati));
+        List<String> previousDay = analyser.returnMostActiveCookie(analyser.plan(date.minusDays(1)), date.minusDays(1));
+
+        // Assert
+        assertEquals(Strategy.BINARY_SEARCH_SEEK, zonedPlan.getStrategy());
+        assertTrue(zonedPlan.getRangeStart() < utcPlan.getRangeStart());
+        assertEquals(new HashSet<>(previousDay), new HashSet<>(zoned));
+        assertEquals(1, QueryPlanner.zoneMarginDays(ZoneId.of("Europe/London"), date.toEpochDay()));
+        assertEquals(2, QueryPlanner.zoneMarginDays(kiritimati, date.toEpochDay()));
+    }
+}
@@ -0,0 +1,192 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.models.ExecutionPlan;
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
+import org.euan.cookieanalyser.models.ExecutionPlan.Strategy;
+import org.euan.cookieanalyser.models.QueryOptions;
+import org.euan.cookieanalyser.testutils.LoggingAssertion;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScanCheckpointTest {
+
+    private static final LocalDate DATE = LocalDate.of(2018, 12, 9);
+
+    @TempDir
+    Path tempDir;
+
+    private LoggingAssertion loggingAssertion;
+    private Path log;
+    private Path checkpointFile;
+    private QueryOptions checkpointed;
+    private FileUtils fileUtils;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        loggingAssertion = LoggingAssertion.forClass(CookieLogAnalyser.class);
+        log = tempDir.resolve("archive.csv");
+        Random random = new Random(5);
+        try (BufferedWriter writer = Files.newBufferedWriter(log)) {
+            writer.write("cookie,timestamp\n");
+            for (int line = 0; line < 5_000; line++) {
+                String cookie = String.format("cookie%03d", (int) Math.sqrt(random.nextInt(250_000)));
+                writer.write(cookie + ",2018-12-0" + (7 + random.nextInt(3)) + "T12:00:00+00:00\n");
+            }
+        }
+        fileUtils = new FileUtils(log.toString());
+        Path checkpointDirectory = tempDir.resolve("checkpoints");
+        checkpointFile = ScanCheckpoint.checkpointPathFor(checkpointDirectory, log);
+        checkpointed = QueryOptions.defaults().withCheckpointDirectory(checkpointDirectory);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (loggingAssertion != null) {
+            loggingAssertion.close();
+        }
+    }
+
+    @Test
+    void testWriteAndRead_RoundTripsProgress() throws IOException {
+        // Given
+        ScanCheckpoint checkpoint = new ScanCheckpoint(Files.size(log), Files.getLastModifiedTime(log).toMillis(), DATE,
+                new long[]{0, 1000}, new long[]{1000, 2000});
+        checkpoint.record(1, 1500, new CookieCounts(Map.of("CookieA", 3)));
+        Path file = checkpointFile;
+
+        // When
+        checkpoint.write(file);
+        ScanCheckpoint read = ScanCheckpoint.read(file).orElseThrow();
+
+        // Assert
+        assertTrue(read.matches(log, DATE));
+        assertFalse(read.matches(log, DATE.plusDays(1)));
+        assertEquals(2, read.getRangeCount());
+        assertEquals(0, read.getNextOffset(0));
+        assertEquals(1500, read.getNextOffset(1));
+        assertEquals(Map.of("CookieA", 3), read.getCounts(1).asMap());
+        assertEquals(1500, read.bytesRemaining());
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")));
+    }
+
+    @Test
+    void testResume_InterruptedScanGivesSameAnswer() throws IOException {
+        // Given
+        ExecutionPlan plan = new ExecutionPlan(Strategy.PARALLEL_SCAN, SortOrder.UNSORTED, 0, Files.size(log),
+                Files.size(log), 1, 1, "test");
+        List<String> expected = new CookieLogAnalyser(fileUtils).returnMostActiveCookie(plan, DATE);
+        CookieLogAnalyser interrupted = new CookieLogAnalyser(fileUtils, new CookieLogParser(), new FailingScanner(3_000),
+                new QueryPlanner());
+
+        // When
+        List<String> failed = interrupted.returnMostActiveCookie(plan, DATE, checkpointed.withCheckpointInterval(4096));
+        boolean checkpointWritten = Files.exists(checkpointFile);
+        List<String> resumed = new CookieLogAnalyser(fileUtils).returnMostActiveCookie(plan, DATE,
+                checkpointed.withCheckpointInterval(4096).withResume(true));
+
+        // Assert
+        assertTrue(failed.isEmpty());
+        assertTrue(checkpointWritten);
+        assertEquals(new HashSet<>(expected), new HashSet<>(resumed));
+        assertFalse(Files.exists(checkpointFile));
+        assertTrue(loggingAssertion.getMessages().stream()
+                .anyMatch(message -> message.startsWith("Resuming from checkpoint")));
+    }
+
+    @Test
+    void testResume_ParallelRangesContinueIndependently() throws IOException {
+        // Given
+        long size = Files.size(log);
+        ExecutionPlan plan = new ExecutionPlan(Strategy.PARALLEL_SCAN, SortOrder.UNSORTED, 0, size, size, 2, 1, "test");
+        CookieLogAnalyser analyser = new CookieLogAnalyser(fileUtils);
+        List<String> expected = analyser.returnMostActiveCookie(plan, DATE);
+        ScanCheckpoint checkpoint = new ScanCheckpoint(size, Files.getLastModifiedTime(log).toMillis(), DATE,
+                new long[]{0, size / 2}, new long[]{size / 2, size});
+        checkpoint.record(0, size / 2, analyser.countCookiesInRange(DATE, 0, size / 2));
+        checkpoint.write(checkpointFile);
+
+        // When
+        List<String> resumed = new CookieLogAnalyser(fileUtils).returnMostActiveCookie(plan, DATE,
+                checkpointed.withResume(true));
+
+        // Assert
+        assertEquals(new HashSet<>(expected), new HashSet<>(resumed));
+        assertTrue(loggingAssertion.assertLoggingEvent(RESUMED_FROM_CHECKPOINT, 1,
+                checkpointFile, size - size / 2));
+    }
+
+    @Test
+    void testResume_IgnoresCheckpointForAnotherDate() throws IOException {
+        // Given
+        long size = Files.size(log);
+        ExecutionPlan plan = new ExecutionPlan(Strategy.PARALLEL_SCAN, SortOrder.UNSORTED, 0, size, size, 1, 1, "test");
+        List<String> expected = new CookieLogAnalyser(fileUtils).returnMostActiveCookie(plan, DATE);
+        ScanCheckpoint stale = new ScanCheckpoint(size, Files.getLastModifiedTime(log).toMillis(), DATE.minusDays(1),
+                new long[]{0}, new long[]{size});
+        stale.record(0, size, new CookieCounts(Map.of("CookieA", 1_000_000)));
+        stale.write(checkpointFile);
+
+        // When
+        List<String> result = new CookieLogAnalyser(fileUtils).returnMostActiveCookie(plan, DATE,
+                checkpointed.withResume(true));
+
+        // Assert
+        assertEquals(new HashSet<>(expected), new HashSet<>(result));
+    }
+
+    @Test
+    void testCount_NoCheckpointWithoutDirectory() throws IOException {
+        // Given
+        ExecutionPlan plan = new ExecutionPlan(Strategy.PARALLEL_SCAN, SortOrder.UNSORTED, 0, Files.size(log),
+                Files.size(log), 1, 1, "test");
+        CookieLogAnalyser interrupted = new CookieLogAnalyser(fileUtils, new CookieLogParser(), new FailingScanner(3_000),
+                new QueryPlanner());
+
+        // When
+        List<String> failed = interrupted.returnMostActiveCookie(plan, DATE,
+                QueryOptions.defaults().withCheckpointInterval(4096));
+
+        // Assert
+        assertTrue(failed.isEmpty());
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(log), files.toList());
+        }
+    }
+
+    private static class FailingScanner extends CookieLogScanner {
+        private final AtomicInteger remaining;
+
+        FailingScanner(int records) {
+            this.remaining = new AtomicInteger(records);
+        }
+
+        @Override
+        public void scanRecordsWhile(Path path, long start, long end, RecordVisitor visitor) throws IOException {
+            super.scanRecordsWhile(path, start, end, (buffer, cookieStart, cookieEnd, timestampStart, lineOffset) -> {
+                if (remaining.decrementAndGet() < 0) {
+                    throw new IllegalStateException("Preempted");
+                }
+                return visitor.onRecord(buffer, cookieStart, cookieEnd, timestampStart, lineOffset);
+            });
+        }
+    }
+}
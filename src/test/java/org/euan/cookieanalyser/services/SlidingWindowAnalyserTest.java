@@ -0,0 +1,223 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.models.WindowResult;
+import org.euan.cookieanalyser.testutils.LoggingAssertion;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlidingWindowAnalyserTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LoggingAssertion loggingAssertion;
+
+    @BeforeEach
+    public void setUp() {
+        loggingAssertion = LoggingAssertion.forClass(SlidingWindowAnalyser.class);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (loggingAssertion != null) {
+            loggingAssertion.close();
+        }
+    }
+
+    @Test
+    void testReturnMostActiveCookiesPerWindow_TwoDayWindow() {
+        // Given
+        FileUtils fileUtils = new FileUtils(new File("src/test/resources/integrationTest/happyPathInput.csv").getAbsolutePath());
+        SlidingWindowAnalyser analyser = new SlidingWindowAnalyser(fileUtils, 2);
+
+        // When
+        List<WindowResult> results = analyser.returnMostActiveCookiesPerWindow();
+
+        // Assert
+        assertEquals(3, results.size());
+        assertWindow(results.get(0), LocalDate.of(2018, 12, 7), 1, "4sMM2LxV07bPJzwf", "fbcn5UAVanZf6UtG");
+        assertWindow(results.get(1), LocalDate.of(2018, 12, 8), 2, "4sMM2LxV07bPJzwf", "SAZuXPGUrfbcn5UA", "fbcn5UAVanZf6UtG");
+        assertWindow(results.get(2), LocalDate.of(2018, 12, 9), 3, "SAZuXPGUrfbcn5UA");
+        assertTrue(loggingAssertion.assertLoggingEvent(ATTEMPT_ANALYSE_WINDOWS, 1, 2, 3));
+    }
+
+    @Test
+    void testReturnMostActiveCookiesPerWindow_SingleDayWindowMatchesDailyAnalysis() {
+        // Given
+        FileUtils fileUtils = new FileUtils(new File("src/test/resources/integrationTest/happyPathInput.csv").getAbsolutePath());
+        SlidingWindowAnalyser analyser = new SlidingWindowAnalyser(fileUtils, 1);
+
+        // When
+        List<WindowResult> results = analyser.returnMostActiveCookiesPerWindow();
+
+        // Assert
+        assertWindow(results.get(0), LocalDate.of(2018, 12, 7), 1, "4sMM2LxV07bPJzwf", "fbcn5UAVanZf6UtG");
+        assertWindow(results.get(1), LocalDate.of(2018, 12, 8), 2, "SAZuXPGUrfbcn5UA");
+        assertWindow(results.get(2), LocalDate.of(2018, 12, 9), 2, "AtY0laUfhglK3lC7");
+    }
+
+    @Test
+    void testReturnMostActiveCookiesPerWindow_ReportsDaysWithoutLogsAndExpiresOldDays() throws IOException {
+        // Given
+        Path file = tempDir.resolve("gap.csv");
+        Files.writeString(file, """
+                cookie,timestamp
+                CookieB,2018-12-04T10:00:00+00:00
+                CookieA,2018-12-01T10:00:00+00:00
+                CookieA,2018-12-01T09:00:00+00:00
+                """);
+        SlidingWindowAnalyser analyser = new SlidingWindowAnalyser(new FileUtils(file.toString()), 3);
+
+        // When
+        List<WindowResult> results = analyser.returnMostActiveCookiesPerWindow();
+
+        // Assert
+        assertEquals(4, results.size());
+        assertWindow(results.get(1), LocalDate.of(2018, 12, 2), 2, "CookieA");
+        assertWindow(results.get(2), LocalDate.of(2018, 12, 3), 2, "CookieA");
+        assertWindow(results.get(3), LocalDate.of(2018, 12, 4), 1, "CookieB");
+    }
+
+    @Test
+    void testReturnMostActiveCookiesPerWindow_InvalidDateSkipped() throws IOException {
+        // Given
+        Path file = tempDir.resolve("invalidDate.csv");
+        Files.writeString(file, "cookie,timestamp\nCookieB,2018-12-01T10:00:00+00:00\nCookieA,2018-13-01T10:00:00+00:00\n");
+        SlidingWindowAnalyser analyser = new SlidingWindowAnalyser(new FileUtils(file.toString()), 7);
+
+        // When
+        List<WindowResult> results = analyser.returnMostActiveCookiesPerWindow();
+
+        // Assert
+        assertEquals(1, results.size());
+        assertWindow(results.get(0), LocalDate.of(2018, 12, 1), 1, "CookieB");
+        assertTrue(loggingAssertion.assertLoggingEvent(DATE_PARSE_ERROR, 1, "2018-13-01T10:00:00+00:00"));
+    }
+
+    @Test
+    void testReturnMostActiveCookiesPerWindow_SameResultsWhateverTheLineOrder() throws IOException {
+        // Given
+        Random random = new Random(11);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            // Days 3 and 4 have no logs, so some windows span a gap
+            int day = 1 + random.nextInt(20);
+            day = day == 3 || day == 4 ? 5 : day;
+            lines.add(String.format("Cookie%d,2018-12-%02dT%02d:00:00+00:00", (int) Math.sqrt(random.nextInt(400)), day,
+                    random.nextInt(24)));
+        }
+        List<String> ascending = lines.stream().sorted(Comparator.comparing(line -> line.split(",")[1])).toList();
+        List<String> descending = new ArrayList<>(ascending);
+        Collections.reverse(descending);
+        List<WindowResult> expected = bruteForceWindows(lines, 4);
+
+        // When
+        List<WindowResult> fromAscending = windowsOf(ascending, 4);
+        List<WindowResult> fromDescending = windowsOf(descending, 4);
+        List<WindowResult> fromShuffled = windowsOf(lines, 4);
+
+        // Assert
+        assertEquals(20, expected.size());
+        for (List<WindowResult> results : List.of(fromAscending, fromDescending, fromShuffled)) {
+            assertEquals(expected.size(), results.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertWindow(results.get(i), expected.get(i).getDate(), expected.get(i).getCount(),
+                        expected.get(i).getMostActiveCookies().toArray(String[]::new));
+            }
+        }
+        assertEquals(1, loggingAssertion.getMessages().stream()
+                .filter(message -> message.startsWith("Days in")).count());
+    }
+
+    @Test
+    void testAnalyse_SortedLogReportsWindowsAsDaysCloseAndOnlyOnce() throws IOException {
+        // Given
+        Path file = tempDir.resolve("lateLine.csv");
+        Files.writeString(file, """
+                cookie,timestamp
+                CookieA,2018-12-01T10:00:00+00:00
+                CookieA,2018-12-02T10:00:00+00:00
+                CookieB,2018-12-03T10:00:00+00:00
+                CookieB,2018-12-04T10:00:00+00:00
+                CookieC,2018-12-05T10:00:00+00:00
+                CookieC,2018-12-02T11:00:00+00:00
+                """);
+        FileUtils fileUtils = new FileUtils(file.toString());
+
+        // When
+        List<WindowResult> sorted = new ArrayList<>();
+        new SlidingWindowAnalyser(fileUtils, new CookieLogScanner(), 2, null, true).analyse(sorted::add);
+        List<WindowResult> unverified = new ArrayList<>();
+        new SlidingWindowAnalyser(fileUtils, new CookieLogScanner(), 2, null, false).analyse(unverified::add);
+
+        // Assert
+        // The window ending on 3 December was reported before the late line arrived
+        assertEquals(5, sorted.size());
+        assertWindow(sorted.get(2), LocalDate.of(2018, 12, 3), 1, "CookieA", "CookieB");
+        assertWindow(sorted.get(4), LocalDate.of(2018, 12, 5), 1, "CookieB", "CookieC");
+        assertEquals(5, unverified.size());
+        assertWindow(unverified.get(2), LocalDate.of(2018, 12, 3), 1, "CookieA", "CookieB", "CookieC");
+        assertEquals(1, loggingAssertion.getMessages().stream()
+                .filter(message -> message.contains("although the log was given as sorted")).count());
+    }
+
+    @Test
+    void testConstructor_RejectsEmptyWindow() {
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowAnalyser(new FileUtils("unused.csv"), 0));
+    }
+
+    private List<WindowResult> windowsOf(List<String> lines, int windowDays) throws IOException {
+        Path file = Files.createTempFile(tempDir, "window", ".csv");
+        Files.writeString(file, "cookie,timestamp\n" + String.join("\n", lines) + "\n");
+        return new SlidingWindowAnalyser(new FileUtils(file.toString()), windowDays).returnMostActiveCookiesPerWindow();
+    }
+
+    private static List<WindowResult> bruteForceWindows(List<String> lines, int windowDays) {
+        TreeMap<LocalDate, Map<String, Integer>> daily = new TreeMap<>();
+        for (String line : lines) {
+            String[] parts = line.split(",");
+            daily.computeIfAbsent(LocalDate.parse(parts[1].substring(0, 10)), day -> new HashMap<>())
+                    .merge(parts[0], 1, Integer::sum);
+        }
+        List<WindowResult> windows = new ArrayList<>();
+        for (LocalDate end = daily.firstKey(); !end.isAfter(daily.lastKey()); end = end.plusDays(1)) {
+            Map<String, Integer> window = new HashMap<>();
+            daily.subMap(end.minusDays(windowDays - 1), true, end, true).values()
+                    .forEach(day -> day.forEach((cookie, count) -> window.merge(cookie, count, Integer::sum)));
+            int max = Collections.max(window.values());
+            windows.add(new WindowResult(end, window.entrySet().stream()
+                    .filter(entry -> entry.getValue() == max)
+                    .map(Map.Entry::getKey)
+                    .sorted()
+                    .toList(), max));
+        }
+        return windows;
+    }
+
+    private static void assertWindow(WindowResult result, LocalDate date, int count, String... cookies) {
+        assertEquals(date, result.getDate());
+        assertEquals(count, result.getCount());
+        assertEquals(List.of(cookies), result.getMostActiveCookies());
+    }
+}
@@ -0,0 +1,93 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.models.CookieLog;
+import org.euan.cookieanalyser.models.ExecutionPlan.SortOrder;
+import org.euan.cookieanalyser.testutils.LoggingAssertion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedLogMergerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LoggingAssertion loggingAssertion;
+
+    @BeforeEach
+    public void setUp() {
+        loggingAssertion = LoggingAssertion.forClass(SortedLogMerger.class);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loggingAssertion.close();
+    }
+
+    @Test
+    void testNext_InterleavesAscendingLogsByInstant() throws IOException {
+        // Given
+        Path first = Files.writeString(tempDir.resolve("node-1.csv"), """
+                cookie,timestamp
+                CookieA,2018-12-08T09:00:00+00:00
+                CookieB,2018-12-08T11:00:00+00:00
+                """);
+        // 10:30 at +02:00 is 08:30 UTC, so it sorts first despite what is written
+        Path second = Files.writeString(tempDir.resolve("node-2.csv"), """
+                cookie,timestamp
+                CookieC,2018-12-08T10:30:00+02:00
+                CookieD,2018-12-08T09:00:00+00:00
+                CookieE,2018-12-09T00:00:00+00:00
+                """);
+        Path empty = Files.writeString(tempDir.resolve("node-3.csv"), "cookie,timestamp\n");
+
+        // When
+        List<String> merged = new ArrayList<>();
+        try (SortedLogMerger merger = SortedLogMerger.open(List.of(first, second, empty), SortOrder.ASCENDING, 16)) {
+            for (CookieLog log = merger.next(); log != null; log = merger.next()) {
+                merged.add(log.getCookie());
+            }
+        }
+
+        // Assert
+        assertEquals(List.of("CookieC", "CookieA", "CookieD", "CookieB", "CookieE"), merged);
+        assertTrue(loggingAssertion.getMessages().isEmpty());
+    }
+
+    @Test
+    void testNext_SkipsMalformedLinesAndWarnsOnceForUnsortedInput() throws IOException {
+        // Given
+        Path log = Files.writeString(tempDir.resolve("node-1.csv"), """
+                cookie,timestamp
+                CookieA,2018-12-09T14:19:00+00:00
+                CookieB
+                CookieC,2018-12-09T16:00:00+00:00
+                CookieD,2018-12-09T17:00:00+00:00
+                """);
+
+        // When
+        List<String> merged = new ArrayList<>();
+        try (SortedLogMerger merger = SortedLogMerger.open(List.of(log), SortOrder.DESCENDING)) {
+            for (CookieLog cookieLog = merger.next(); cookieLog != null; cookieLog = merger.next()) {
+                merged.add(cookieLog.getCookie());
+            }
+        }
+
+        // Assert
+        assertEquals(List.of("CookieA", "CookieC", "CookieD"), merged);
+        assertTrue(loggingAssertion.assertLoggingEvent(MALFORMED_LOG_LINE, 1, "CookieB"));
+        assertTrue(loggingAssertion.assertLoggingEvent(MERGE_INPUT_OUT_OF_ORDER, 1, log,
+                "CookieC,2018-12-09T16:00:00+00:00"));
+        assertThrows(IllegalArgumentException.class, () -> SortedLogMerger.open(List.of(log), SortOrder.UNSORTED));
+    }
+}
@@ -0,0 +1,54 @@
+package org.euan.cookieanalyser.services;
+
+import org.euan.cookieanalyser.utils.DateUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZonedDayResolverTest {
+
+    private static final ZoneId LONDON = ZoneId.of("Europe/London");
+
+    @Test
+    void testResolve_BucketsAnyOffsetByLondonDayAcrossDaylightSaving() {
+        // Given
+        ZonedDayResolver resolver = new ZonedDayResolver(LONDON, LocalDate.of(2018, 7, 9), LocalDate.of(2018, 7, 9));
+
+        // When & Assert
+        // British Summer Time: midnight in London is 23:00 UTC the day before
+        assertEquals(day(2018, 7, 10), resolve(resolver, "2018-07-09T23:00:00+00:00"));
+        assertEquals(day(2018, 7, 9), resolve(resolver, "2018-07-09T22:59:59+00:00"));
+        assertEquals(day(2018, 7, 10), resolve(resolver, "2018-07-10T01:00:00+02:00"));
+        assertEquals(day(2018, 7, 9), resolve(resolver, "2018-07-09T18:59:59-04:00"));
+        // Greenwich Mean Time and days far outside the precomputed ones
+        assertEquals(day(2018, 12, 9), resolve(resolver, "2018-12-09T00:00:00+00:00"));
+        assertEquals(day(2018, 12, 8), resolve(resolver, "2018-12-08T23:59:59+00:00"));
+        assertEquals(day(2017, 1, 1), resolve(resolver, "2017-01-01T09:00:00+09:00"));
+        assertEquals(DateUtils.INVALID_EPOCH_DAY, resolve(resolver, "2018-07-09T25:00:00+00:00"));
+    }
+
+    @Test
+    void testResolve_ShortDayWhenClocksGoForward() {
+        // Given
+        ZonedDayResolver resolver = new ZonedDayResolver(LONDON);
+        long springForward = day(2018, 3, 25);
+
+        // When & Assert
+        assertEquals(23 * 3600, resolver.startOf(springForward + 1) - resolver.startOf(springForward));
+        assertEquals(springForward, resolve(resolver, "2018-03-25T22:59:59+00:00"));
+        assertEquals(springForward + 1, resolve(resolver, "2018-03-25T23:00:00+00:00"));
+        assertEquals(springForward, resolve(resolver, "2018-03-25T00:00:00+00:00"));
+    }
+
+    private static long resolve(DayResolver resolver, String timestamp) {
+        return resolver.resolve(timestamp.getBytes(StandardCharsets.US_ASCII), 0);
+    }
+
+    private static long day(int year, int month, int dayOfMonth) {
+        return LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    }
+}
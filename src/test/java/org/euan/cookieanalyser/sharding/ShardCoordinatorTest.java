@@ -0,0 +1,151 @@
+package org.euan.cookieanalyser.sharding;
+
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.testutils.LoggingAssertion;
+import org.euan.cookieanalyser.utils.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardCoordinatorTest {
+
+    private LoggingAssertion loggingAssertion;
+    private ShardWorker firstWorker;
+    private ShardWorker secondWorker;
+    private ShardCoordinator coordinator;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        loggingAssertion = LoggingAssertion.forClass(ShardCoordinator.class);
+        firstWorker = startWorker();
+        secondWorker = startWorker();
+        coordinator = new ShardCoordinator(List.of(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), firstWorker.getPort()),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), secondWorker.getPort())));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        coordinator.close();
+        firstWorker.close();
+        secondWorker.close();
+        if (loggingAssertion != null) {
+            loggingAssertion.close();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideMostActiveCookies")
+    void testReturnMostActiveCookie_MergesShardResults(String date, List<String> expectedCookies) {
+        // Given
+        FileUtils fileUtils = new FileUtils(new File("src/test/resources/integrationTest/happyPathInput.csv").getAbsolutePath());
+
+        // When
+        List<String> result = coordinator.returnMostActiveCookie(fileUtils, LocalDate.parse(date));
+
+        // Assert
+        assertEquals(expectedCookies.size(), result.size());
+        assertTrue(result.containsAll(expectedCookies));
+        assertTrue(loggingAssertion.assertLoggingEvent(SHARDS_DISPATCHED, 1, 8, 2, date));
+    }
+
+    static Stream<Arguments> provideMostActiveCookies() {
+        return Stream.of(
+                Arguments.of("2018-12-09", List.of("AtY0laUfhglK3lC7")),
+                Arguments.of("2018-12-08", List.of("SAZuXPGUrfbcn5UA")),
+                Arguments.of("2018-12-07", List.of("fbcn5UAVanZf6UtG", "4sMM2LxV07bPJzwf"))
+        );
+    }
+
+    @Test
+    void testCountCookies_MatchesSingleProcessCounts() throws Exception {
+        // Given
+        FileUtils fileUtils = new FileUtils(new File("src/test/resources/integrationTest/happyPathInput.csv").getAbsolutePath());
+
+        // When
+        CookieCounts counts = coordinator.countCookies(fileUtils, LocalDate.of(2018, 12, 9));
+
+        // Assert
+        assertEquals(Map.of("AtY0laUfhglK3lC7", 2, "SAZuXPGUrfbcn5UA", 1, "5UAVanZf6UtGyKVS", 1), counts.asMap());
+        assertTrue(loggingAssertion.assertLoggingEvent(SHARDS_MERGED, 1, 8, 3));
+    }
+
+    @Test
+    void testReturnMostActiveCookie_NoLogsForDate() {
+        // Given
+        FileUtils fileUtils = new FileUtils(new File("src/test/resources/integrationTest/happyPathInput.csv").getAbsolutePath());
+
+        // When
+        List<String> result = coordinator.returnMostActiveCookie(fileUtils, LocalDate.of(2099, 1, 1));
+
+        // Assert
+        assertTrue(result.isEmpty());
+        assertTrue(loggingAssertion.assertLoggingEvent(NO_LOGS_FOUND_FOR_DATE, 1, LocalDate.of(2099, 1, 1)));
+    }
+
+    @Test
+    void testPlanShards_CoversWholeFile() {
+        // When
+        long[] boundaries = ShardCoordinator.planShards(100, 3);
+
+        // Assert
+        assertArrayEquals(new long[]{0, 33, 66, 100}, boundaries);
+        assertArrayEquals(new long[]{0, 2}, ShardCoordinator.planShards(2, 1));
+        assertEquals(3, ShardCoordinator.planShards(2, 8).length);
+    }
+
+    @Test
+    void testParseWorkerAddresses() {
+        // When
+        List<InetSocketAddress> addresses = ShardCoordinator.parseWorkerAddresses("localhost:7001, 10.0.0.2:7002");
+
+        // Assert
+        assertEquals(2, addresses.size());
+        assertEquals(7001, addresses.get(0).getPort());
+        assertEquals("10.0.0.2", addresses.get(1).getHostString());
+        assertThrows(IllegalArgumentException.class, () -> ShardCoordinator.parseWorkerAddresses("no-port"));
+    }
+
+    @Test
+    void testShardResult_RoundTripsCompactBinaryForm() throws IOException {
+        // Given
+        ShardResult result = ShardResult.success(3, new CookieCounts(Map.of("CookieA", 300, "CookieB", 1)));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // When
+        result.writeTo(new DataOutputStream(bytes));
+        ShardResult decoded = ShardResult.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        // Assert
+        assertEquals(3, decoded.getShardId());
+        assertEquals(Map.of("CookieA", 300, "CookieB", 1), decoded.getCounts().asMap());
+        assertEquals(22, bytes.size());
+    }
+
+    private static ShardWorker startWorker() throws IOException {
+        ShardWorker worker = new ShardWorker(0);
+        Thread thread = new Thread(worker::serve);
+        thread.setDaemon(true);
+        thread.start();
+        return worker;
+    }
+}
@@ -0,0 +1,91 @@
+package org.euan.cookieanalyser.simd;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteScannersTest {
+
+    // The vector scanner is only built and its module only added by the vector profile
+    @Test
+    void testBest_UsesVectorScannerOnlyWhenBuiltAndModulePresent() {
+        // Assert
+        assertEquals(ByteScanners.isVectorScannerAvailable() ? "VectorByteScanner" : "ScalarByteScanner",
+                ByteScanners.best().getClass().getSimpleName());
+        assertEquals(ScalarByteScanner.class, ByteScanners.scalar().getClass());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideScanners")
+    void testIndexOf_MatchesScalarOnRandomInput(ByteScanner scanner) {
+        // Given
+        Random random = new Random(7);
+        ByteScanner scalar = ByteScanners.scalar();
+
+        for (int run = 0; run < 200; run++) {
+            byte[] buffer = new byte[random.nextInt(300)];
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = random.nextInt(40) == 0 ? (byte) '\n' : (byte) ('a' + random.nextInt(26));
+            }
+            int from = buffer.length == 0 ? 0 : random.nextInt(buffer.length);
+            int to = from + random.nextInt(buffer.length - from + 1);
+
+            // When
+            int result = scanner.indexOf(buffer, from, to, (byte) '\n');
+
+            // Assert
+            assertEquals(scalar.indexOf(buffer, from, to, (byte) '\n'), result);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideScanners")
+    void testFindAll_ReturnsPositionsInBatches(ByteScanner scanner) {
+        // Given
+        byte[] buffer = new byte[200];
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = i % 7 == 3 ? (byte) '\n' : (byte) 'x';
+        }
+        int[] positions = new int[5];
+
+        // When
+        int firstBatch = scanner.findAll(buffer, 0, buffer.length, (byte) '\n', positions);
+        int[] firstPositions = positions.clone();
+        int secondBatch = scanner.findAll(buffer, positions[4] + 1, 40, (byte) '\n', positions);
+
+        // Assert
+        assertEquals(5, firstBatch);
+        assertArrayEquals(new int[]{3, 10, 17, 24, 31}, firstPositions);
+        assertEquals(1, secondBatch);
+        assertEquals(38, positions[0]);
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideScanners")
+    void testRegionEquals_ComparesDatePrefix(ByteScanner scanner) {
+        // Given
+        byte[] line = "CookieA,2018-12-09T14:19:00+00:00".getBytes(StandardCharsets.US_ASCII);
+        byte[] matchingDate = "2018-12-09".getBytes(StandardCharsets.US_ASCII);
+        byte[] otherDate = "2018-12-08".getBytes(StandardCharsets.US_ASCII);
+
+        // Assert
+        assertTrue(scanner.regionEquals(line, 8, matchingDate, 10));
+        assertFalse(scanner.regionEquals(line, 8, otherDate, 10));
+        assertFalse(scanner.regionEquals(line, 0, matchingDate, 10));
+        assertTrue(scanner.regionEquals(line, 23, "9:00+00:00".getBytes(StandardCharsets.US_ASCII), 10));
+    }
+
+    static Stream<Arguments> provideScanners() {
+        Stream<ByteScanner> scanners = ByteScanners.isVectorScannerAvailable()
+                ? Stream.of(new ScalarByteScanner(), ByteScanners.best())
+                : Stream.of(new ScalarByteScanner());
+        return scanners.map(Arguments::of);
+    }
+}
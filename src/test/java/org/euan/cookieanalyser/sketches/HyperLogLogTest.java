@@ -0,0 +1,81 @@
+package org.euan.cookieanalyser.sketches;
+
+import org.euan.cookieanalyser.utils.Hashing;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HyperLogLogTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 1_000, 100_000})
+    void testEstimate_WithinExpectedError(int distinct) {
+        // Given
+        HyperLogLog sketch = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+
+        // When
+        for (int i = 0; i < distinct; i++) {
+            sketch.add(Hashing.hash64("cookie-" + i));
+            sketch.add(Hashing.hash64("cookie-" + i));
+        }
+
+        // Assert
+        assertEquals(distinct, sketch.estimate(), distinct * 0.03 + 1);
+    }
+
+    @Test
+    void testMerge_MatchesSingleSketch() {
+        // Given
+        HyperLogLog combined = new HyperLogLog(12);
+        HyperLogLog first = new HyperLogLog(12);
+        HyperLogLog second = new HyperLogLog(12);
+        for (int i = 0; i < 20_000; i++) {
+            long hash = Hashing.hash64("cookie-" + i);
+            combined.add(hash);
+            (i < 15_000 ? first : second).add(hash);
+            if (i >= 5_000 && i < 15_000) {
+                second.add(hash);
+            }
+        }
+
+        // When
+        first.merge(second);
+
+        // Assert
+        assertEquals(combined.estimate(), first.estimate());
+        assertThrows(IllegalArgumentException.class, () -> first.merge(new HyperLogLog(10)));
+    }
+
+    @Test
+    void testWriteTo_RoundTripsRegisters() throws IOException {
+        // Given
+        HyperLogLog sketch = new HyperLogLog(8);
+        for (int i = 0; i < 500; i++) {
+            sketch.add(Hashing.hash64("cookie-" + i));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // When
+        sketch.writeTo(new DataOutputStream(bytes));
+        HyperLogLog decoded = HyperLogLog.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        // Assert
+        assertEquals(1 + (1 << 8), bytes.size());
+        assertEquals(8, decoded.getPrecision());
+        assertEquals(sketch.estimate(), decoded.estimate());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 19})
+    void testConstructor_RejectsPrecisionOutOfRange(int precision) {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(precision));
+    }
+}
@@ -0,0 +1,131 @@
+package org.euan.cookieanalyser.sketches;
+
+import org.euan.cookieanalyser.utils.Hashing;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScalableBloomFilterTest {
+
+    @Test
+    void testMightContain_NoFalseNegativesAsFilterGrows() {
+        // Given
+        ScalableBloomFilter filter = new ScalableBloomFilter();
+
+        // When
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(Hashing.hash64("cookie-" + i));
+        }
+
+        // Assert
+        assertTrue(filter.getFilterCount() > 1);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(Hashing.hash64("cookie-" + i)));
+        }
+    }
+
+    @Test
+    void testMightContain_FalsePositiveRateWithinBound() {
+        // Given
+        ScalableBloomFilter filter = new ScalableBloomFilter();
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(Hashing.hash64("cookie-" + i));
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(Hashing.hash64("absent-" + i))) {
+                falsePositives++;
+            }
+        }
+
+        // Assert
+        assertTrue(falsePositives < 100_000 * ScalableBloomFilter.FALSE_POSITIVE_RATE, "False positives: " + falsePositives);
+    }
+
+    @Test
+    void testMerge_ContainsBothSides() {
+        // Given
+        ScalableBloomFilter first = new ScalableBloomFilter();
+        ScalableBloomFilter second = new ScalableBloomFilter();
+        first.add(Hashing.hash64("CookieA"));
+        second.add(Hashing.hash64("CookieB"));
+
+        // When
+        first.merge(second);
+
+        // Assert
+        assertTrue(first.mightContain(Hashing.hash64("CookieA")));
+        assertTrue(first.mightContain(Hashing.hash64("CookieB")));
+    }
+
+    @Test
+    void testMerge_FalsePositiveRateWithinBoundAcrossRanges() {
+        // Given
+        int ranges = 8;
+        ScalableBloomFilter[] partials = new ScalableBloomFilter[ranges];
+        for (int range = 0; range < ranges; range++) {
+            partials[range] = new ScalableBloomFilter(12_500);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            partials[i % ranges].add(Hashing.hash64("cookie-" + i));
+        }
+
+        // When
+        for (int range = 1; range < ranges; range++) {
+            partials[0].merge(partials[range]);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (partials[0].mightContain(Hashing.hash64("absent-" + i))) {
+                falsePositives++;
+            }
+        }
+
+        // Assert
+        assertEquals(1, partials[0].getFilterCount());
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(partials[0].mightContain(Hashing.hash64("cookie-" + i)));
+        }
+        assertTrue(falsePositives < 100_000 * ScalableBloomFilter.FALSE_POSITIVE_RATE, "False positives: " + falsePositives);
+    }
+
+    @Test
+    void testMerge_RejectsDifferentInitialCapacity() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ScalableBloomFilter().merge(new ScalableBloomFilter(1_000)));
+    }
+
+    @Test
+    void testWriteTo_RoundTripsFilters() throws IOException {
+        // Given
+        ScalableBloomFilter filter = new ScalableBloomFilter();
+        for (int i = 0; i < 1_000; i++) {
+            filter.add(Hashing.hash64("cookie-" + i));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // When
+        filter.writeTo(new DataOutputStream(bytes));
+        ScalableBloomFilter decoded = ScalableBloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        // Assert
+        assertEquals(filter.getFilterCount(), decoded.getFilterCount());
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(decoded.mightContain(Hashing.hash64("cookie-" + i)));
+        }
+    }
+
+    @Test
+    void testBloomFilter_RejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.5));
+    }
+}
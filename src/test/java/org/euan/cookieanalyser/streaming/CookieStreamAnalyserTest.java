@@ -0,0 +1,219 @@
+package org.euan.cookieanalyser.streaming;
+
+import org.euan.cookieanalyser.models.CookieCounts;
+import org.euan.cookieanalyser.models.CookieLog;
+import org.euan.cookieanalyser.testutils.LoggingAssertion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CookieStreamAnalyserTest {
+
+    private static final Map<String, Integer> EXPECTED_2018_12_09 =
+            Map.of("AtY0laUfhglK3lC7", 2, "SAZuXPGUrfbcn5UA", 1, "5UAVanZf6UtGyKVS", 1);
+
+    private LoggingAssertion loggingAssertion;
+    private byte[] log;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        loggingAssertion = LoggingAssertion.forClass(CookieStreamAnalyser.class);
+        log = Files.readAllBytes(Path.of("src/test/resources/integrationTest/happyPathInput.csv"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (loggingAssertion != null) {
+            loggingAssertion.close();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 64, 4096})
+    void testAnalyse_InputStreamWithLinesSplitAcrossChunks(int chunkSize) throws IOException {
+        // Given
+        CookieStreamAnalyser analyser = new CookieStreamAnalyser(LocalDate.of(2018, 12, 9), true, chunkSize, 4);
+
+        // When
+        CookieCounts counts = analyser.analyse(new ByteArrayInputStream(log));
+
+        // Assert
+        assertEquals(EXPECTED_2018_12_09, counts.asMap());
+        assertEquals(List.of("AtY0laUfhglK3lC7"), counts.mostActive());
+        assertTrue(loggingAssertion.assertLoggingEvent(STREAM_ANALYSED, 1, (long) log.length, 10L, LocalDate.of(2018, 12, 9)));
+    }
+
+    @Test
+    void testAnalyseLog_ValidatesWhileCounting() throws IOException {
+        // Given
+        CookieStreamAnalyser analyser = new CookieStreamAnalyser(LocalDate.of(2018, 12, 9), true, 16, 4);
+        byte[] badTimestamp = "cookie,timestamp\nCookieA,2018-12-09T14:19:00+0000\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] headerOnly = "cookie,timestamp\n".getBytes(StandardCharsets.US_ASCII);
+
+        // When
+        Optional<CookieCounts> valid = analyser.analyseLog(new ByteArrayInputStream(log));
+        Optional<CookieCounts> invalid = analyser.analyseLog(new ByteArrayInputStream(badTimestamp));
+        Optional<CookieCounts> empty = analyser.analyseLog(new ByteArrayInputStream(headerOnly));
+
+        // Assert
+        assertEquals(EXPECTED_2018_12_09, valid.orElseThrow().asMap());
+        assertTrue(invalid.isEmpty());
+        assertTrue(empty.isEmpty());
+        assertTrue(loggingAssertion.assertLoggingEvent(FILE_ERROR, 2, "Stream does not start with a valid cookie log line"));
+    }
+
+    @Test
+    void testAnalyseLog_StopsReadingAtInvalidFirstLine() throws IOException {
+        // Given
+        CookieStreamAnalyser analyser = new CookieStreamAnalyser(LocalDate.of(2018, 12, 9), true, 16, 4);
+        InputStream extraField = new ByteArrayInputStream(
+                "cookie,timestamp\nCookieA,2018-12-09T14:19:00+00:00,extra\n".getBytes(StandardCharsets.US_ASCII));
+        InputStream rest = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Read past the invalid line");
+            }
+        };
+
+        // When
+        Optional<CookieCounts> result = analyser.analyseLog(new SequenceInputStream(extraField, rest));
+
+        // Assert
+        assertTrue(result.isEmpty());
+        assertTrue(loggingAssertion.assertLoggingEvent(FILE_ERROR, 1, "Stream does not start with a valid cookie log line"));
+    }
+
+    @Test
+    void testAnalyse_ReadableByteChannel() throws IOException {
+        // Given
+        CookieStreamAnalyser analyser = new CookieStreamAnalyser(LocalDate.of(2018, 12, 7), true, 5, 4);
+        InputStream in = new ByteArrayInputStream(log);
+
+        // When
+        CookieCounts counts = analyser.analyse(Channels.newChannel(in));
+
+        // Assert
+        assertEquals(Map.of("4sMM2LxV07bPJzwf", 1, "fbcn5UAVanZf6UtG", 1), counts.asMap());
+    }
+
+    @Test
+    void testAnalyseChunks_SubmissionPublisher() throws Exception {
+        // Given
+        CookieStreamAnalyser analyser = new CookieStreamAnalyser(LocalDate.of(2018, 12, 9), true, 64, 2);
+        CompletableFuture<CookieCounts> result;
+
+        // When
+        try (SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>()) {
+            result = analyser.analyseChunks(publisher);
+            for (int offset = 0; offset < log.length; offset += 11) {
+                publisher.submit(ByteBuffer.wrap(log, offset, Math.min(11, log.length - offset)));
+            }
+        }
+
+        // Assert
+        assertEquals(EXPECTED_2018_12_09, result.get(5, TimeUnit.SECONDS).asMap());
+    }
+
+    @Test
+    void testAnalyseRecords_NeverExceedsRequestedDemand() throws Exception {
+        // Given
+        CookieStreamAnalyser analyser = new CookieStreamAnalyser(LocalDate.of(2018, 12, 8), true, 64, 4);
+        List<CookieLog> records = List.of(
+                new CookieLog("SAZuXPGUrfbcn5UA", "2018-12-08T22:03:00+00:00"),
+                new CookieLog("SAZuXPGUrfbcn5UA", "2018-12-08T21:45:00+00:00"),
+                new CookieLog("4sMM2LxV07bPJzwf", "2018-12-08T21:30:00+00:00"),
+                new CookieLog("fbcn5UAVanZf6UtG", "2018-12-07T09:30:00+00:00"));
+        DemandTrackingPublisher<CookieLog> publisher = new DemandTrackingPublisher<>(records, 50);
+
+        // When
+        CookieCounts counts = analyser.analyseRecords(publisher).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(Map.of("SAZuXPGUrfbcn5UA", 50 * 2, "4sMM2LxV07bPJzwf", 50), counts.asMap());
+        assertTrue(publisher.maxOutstanding <= 4, "Outstanding demand reached " + publisher.maxOutstanding);
+    }
+
+    @Test
+    void testAnalyseChunks_PropagatesPublisherError() {
+        // Given
+        CookieStreamAnalyser analyser = new CookieStreamAnalyser(LocalDate.of(2018, 12, 9));
+        SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>();
+
+        // When
+        CompletableFuture<CookieCounts> result = analyser.analyseChunks(publisher);
+        publisher.closeExceptionally(new IOException("upstream closed"));
+
+        // Assert
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, ex.getCause());
+    }
+
+    // Emits the records repeatedly on the caller's thread, only as fast as the subscriber requests them
+    private static final class DemandTrackingPublisher<T> implements Flow.Publisher<T> {
+        private final List<T> items;
+        private final int repeats;
+        private long maxOutstanding;
+
+        private DemandTrackingPublisher(List<T> items, int repeats) {
+            this.items = items;
+            this.repeats = repeats;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super T> subscriber) {
+            AtomicLong demand = new AtomicLong();
+            int total = items.size() * repeats;
+            int[] emitted = new int[1];
+            boolean[] emitting = new boolean[1];
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    maxOutstanding = Math.max(maxOutstanding, demand.addAndGet(n));
+                    if (emitting[0]) {
+                        return;
+                    }
+                    emitting[0] = true;
+                    while (demand.get() > 0 && emitted[0] < total) {
+                        demand.decrementAndGet();
+                        subscriber.onNext(items.get(emitted[0]++ % items.size()));
+                    }
+                    emitting[0] = false;
+                    if (emitted[0] == total) {
+                        emitted[0]++;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    emitted[0] = total + 1;
+                }
+            });
+        }
+    }
+}
@@ -10,6 +10,9 @@ import org.euan.cookieanalyser.testutils.LoggingAssertion;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -47,6 +50,45 @@ public class DateUtilsTest {
         assertEquals(0, loggingAssertion.getMessages().size(), "No error logs should be present");
     }
 
+    @Test
+    void testParseDateTimeFromLog_NonUtcOffsetRejected() {
+        // Given
+        String offsetLog = "AtY0laUfhglK3lC7,2018-07-10T00:30:00+01:00";
+
+        // When
+        Optional<LocalDateTime> result = DateUtils.parseDateTimeFromLog(offsetLog);
+
+        // Assert
+        assertFalse(result.isPresent());
+        assertTrue(loggingAssertion.assertLoggingEvent(DATE_PARSE_ERROR, 1, offsetLog));
+    }
+
+    @Test
+    void testParseZonedDateTimeFromLog_AnyOffsetKeepsWrittenTime() {
+        // Given
+        String offsetLog = "AtY0laUfhglK3lC7,2018-07-10T00:30:00+01:00";
+
+        // When
+        Optional<OffsetDateTime> result = DateUtils.parseZonedDateTimeFromLog(offsetLog);
+
+        // Assert
+        assertEquals(Optional.of(OffsetDateTime.parse("2018-07-10T00:30:00+01:00")), result);
+    }
+
+    @Test
+    void testFormatEpochSecond_UtcAndZoned() {
+        // Given
+        long epochSecond = OffsetDateTime.parse("2018-07-09T23:30:00+00:00").toEpochSecond();
+
+        // When
+        String utc = DateUtils.formatEpochSecond(epochSecond, null);
+        String zoned = DateUtils.formatEpochSecond(epochSecond, ZoneId.of("Europe/London"));
+
+        // Assert
+        assertEquals("2018-07-09T23:30:00+00:00", utc);
+        assertEquals("2018-07-10T00:30:00+01:00", zoned);
+    }
+
     @Test
     void testParseDateTimeFromLog_MissingComma() {
         // Given
@@ -122,4 +164,74 @@ public class DateUtilsTest {
                 Arguments.of("", "Empty string")
         );
     }
+
+    @ParameterizedTest
+    @MethodSource("provideLogDates")
+    void testParseEpochDay_MatchesLocalDate(String date) {
+        // Given
+        byte[] timestamp = (date + "T14:19:00+00:00").getBytes(StandardCharsets.US_ASCII);
+
+        // When
+        long epochDay = DateUtils.parseEpochDay(timestamp, 0);
+
+        // Assert
+        assertEquals(LocalDate.parse(date).toEpochDay(), epochDay);
+    }
+
+    static Stream<Arguments> provideLogDates() {
+        return Stream.of(
+                Arguments.of("2018-12-09"),
+                Arguments.of("1970-01-01"),
+                Arguments.of("2000-02-29"),
+                Arguments.of("2024-03-01"),
+                Arguments.of("1969-12-31")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideInvalidLogDates")
+    void testParseEpochDay_InvalidDates(String date) {
+        // When
+        long epochDay = DateUtils.parseEpochDay(date.getBytes(StandardCharsets.US_ASCII), 0);
+
+        // Assert
+        assertEquals(DateUtils.INVALID_EPOCH_DAY, epochDay);
+    }
+
+    static Stream<Arguments> provideInvalidLogDates() {
+        return Stream.of(
+                Arguments.of("2018-13-01"),
+                Arguments.of("2018-02-29"),
+                Arguments.of("2018-12-32"),
+                Arguments.of("2018/12/09"),
+                Arguments.of("not-a-date")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideLogTimestamps")
+    void testParseEpochSecond_MatchesOffsetDateTime(String timestamp) {
+        // When
+        long epochSecond = DateUtils.parseEpochSecond(timestamp.getBytes(StandardCharsets.US_ASCII), 0);
+
+        // Assert
+        assertEquals(OffsetDateTime.parse(timestamp).toEpochSecond(), epochSecond);
+    }
+
+    static Stream<Arguments> provideLogTimestamps() {
+        return Stream.of(
+                Arguments.of("2018-12-09T14:19:00+00:00"),
+                Arguments.of("2018-12-09T23:59:59+05:30"),
+                Arguments.of("1970-01-01T00:00:00-08:00")
+        );
+    }
+
+    @Test
+    void testParseEpochSecond_InvalidTimestamp() {
+        // When
+        long epochSecond = DateUtils.parseEpochSecond("2018-12-09 14:19:00+00:00".getBytes(StandardCharsets.US_ASCII), 0);
+
+        // Assert
+        assertEquals(DateUtils.INVALID_EPOCH_SECOND, epochSecond);
+    }
 }
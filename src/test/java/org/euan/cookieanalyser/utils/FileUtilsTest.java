@@ -3,13 +3,19 @@ package org.euan.cookieanalyser.utils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.euan.cookieanalyser.testutils.LoggingAssertion;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -18,6 +24,9 @@ import static org.junit.jupiter.api.Assertions.*;
 
 public class FileUtilsTest {
 
+    @TempDir
+    Path tempDir;
+
     private LoggingAssertion loggingAssertion;
 
     @BeforeEach
@@ -46,6 +55,22 @@ public class FileUtilsTest {
         assertEquals(0, loggingAssertion.getMessages().size(), "No error logs should be present");
     }
 
+    @Test
+    void testCheckFileValid_OffsetTimestampOnlyValidWhenZoned() throws IOException {
+        // Given
+        Path log = Files.writeString(tempDir.resolve("offset.csv"),
+                "cookie,timestamp\nAtY0laUfhglK3lC7,2018-12-09T14:19:00+05:30\n");
+        FileUtils fileUtils = new FileUtils(log.toString());
+
+        // When
+        boolean utcResult = fileUtils.checkFileValid();
+        boolean zonedResult = fileUtils.checkFileValid(true);
+
+        // Assert
+        assertFalse(utcResult);
+        assertTrue(zonedResult);
+    }
+
     @Test
     void testCheckFileValid_NonExistentFile() {
         // Given
@@ -166,4 +191,46 @@ public class FileUtilsTest {
         assertFalse(result, "Binary file should be rejected");
         assertFalse(loggingAssertion.getMessages().isEmpty(), "Should log an error for binary file");
     }
+
+    @Test
+    void testReadAllLines_ReadAheadMatchesDirectRead() throws IOException {
+        // Given
+        Path log = writeLargeLog();
+        FileUtils readAhead = new FileUtils(log.toString(), 4096, 2);
+
+        // When
+        List<String> lines = readAhead.readAllLines();
+
+        // Assert
+        assertEquals(Files.readAllLines(log), lines);
+    }
+
+    @Test
+    void testOpenReadAhead_StreamsEveryByteThroughSmallRing() throws IOException {
+        // Given
+        Path log = writeLargeLog();
+        FileUtils fileUtils = new FileUtils(log.toString(), 1, 1);
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+
+        // When
+        try (InputStream in = fileUtils.openReadAhead()) {
+            byte[] chunk = new byte[777];
+            int read;
+            while ((read = in.read(chunk)) >= 0) {
+                streamed.write(chunk, 0, read);
+            }
+            assertEquals(-1, in.read());
+        }
+
+        // Assert
+        assertArrayEquals(Files.readAllBytes(log), streamed.toByteArray());
+    }
+
+    private Path writeLargeLog() throws IOException {
+        StringBuilder log = new StringBuilder("cookie,timestamp\n");
+        for (int i = 0; i < 2_000; i++) {
+            log.append("Cookie").append(i).append(",2018-12-09T10:").append(i % 6).append("0:00+00:00\r\n");
+        }
+        return Files.write(tempDir.resolve("large.csv"), log.toString().getBytes(StandardCharsets.UTF_8));
+    }
 }
@@ -0,0 +1,137 @@
+package org.euan.cookieanalyser.watch;
+
+import org.euan.cookieanalyser.testutils.LoggingAssertion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.euan.cookieanalyser.logging.LoggingEvents.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpoolWatcherTest {
+
+    private static final LocalDate DATE = LocalDate.of(2018, 12, 9);
+    private static final long EVENT_TIMEOUT_MILLIS = 30_000;
+
+    @TempDir
+    Path spool;
+
+    private LoggingAssertion loggingAssertion;
+
+    @BeforeEach
+    public void setUp() {
+        loggingAssertion = LoggingAssertion.forClass(SpoolWatcher.class);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (loggingAssertion != null) {
+            loggingAssertion.close();
+        }
+    }
+
+    @Test
+    void testStart_IngestsExistingFilesConcurrently() throws IOException {
+        // Given
+        writeLog("cookies-01.csv", "CookieA", "CookieA", "CookieB");
+        writeLog("cookies-02.csv", "CookieB", "CookieB", "CookieC");
+        Files.writeString(spool.resolve("notes.txt"), "ignored");
+
+        // When
+        try (SpoolWatcher watcher = new SpoolWatcher(spool, 2, dates -> {
+        })) {
+            watcher.start().join();
+
+            // Assert
+            assertEquals(List.of("CookieB"), watcher.mostActive(DATE));
+            assertEquals(Map.of("CookieA", 2, "CookieB", 3, "CookieC", 1), watcher.countsFor(DATE).asMap());
+            assertEquals(DATE, watcher.latestDate().orElseThrow());
+        }
+        assertTrue(Files.exists(spool.resolve(IngestManifest.MANIFEST_NAME)));
+    }
+
+    @Test
+    void testWatch_NewAndGrowingFilesKeepResultsCurrent() throws Exception {
+        // Given
+        Set<LocalDate> updatedDates = ConcurrentHashMap.newKeySet();
+        try (SpoolWatcher watcher = new SpoolWatcher(spool, 2, updatedDates::addAll)) {
+            watcher.start().join();
+
+            // When
+            writeLog("cookies-03.csv", "CookieA", "CookieB", "CookieB");
+            awaitCount(watcher, "CookieB", 2);
+            Files.writeString(spool.resolve("cookies-03.csv"),
+                    "CookieA,2018-12-09T12:00:00+00:00\nCookieA,2018-12-09T12:00:00+00:00\n", StandardOpenOption.APPEND);
+            awaitCount(watcher, "CookieA", 3);
+
+            // Assert
+            assertEquals(List.of("CookieA"), watcher.mostActive(DATE));
+            assertEquals(Map.of("CookieA", 3, "CookieB", 2), watcher.countsFor(DATE).asMap());
+            assertTrue(updatedDates.contains(DATE));
+        }
+    }
+
+    @Test
+    void testStart_RestartSkipsFilesRecordedInManifest() throws IOException {
+        // Given
+        writeLog("cookies-04.csv", "CookieA", "CookieA");
+        try (SpoolWatcher first = new SpoolWatcher(spool, 1, dates -> {
+        })) {
+            first.start().join();
+        }
+
+        // When
+        try (SpoolWatcher restarted = new SpoolWatcher(spool, 1, dates -> {
+        })) {
+            restarted.start().join();
+
+            // Assert
+            assertEquals(Map.of("CookieA", 2), restarted.countsFor(DATE).asMap());
+            assertTrue(loggingAssertion.assertLoggingEvent(SPOOL_FILE_SKIPPED, 1, spool.resolve("cookies-04.csv")));
+        }
+    }
+
+    @Test
+    void testManifest_RecordsSizeAndModificationTime() throws IOException {
+        // Given
+        IngestManifest manifest = IngestManifest.load(spool);
+
+        // When
+        manifest.record("cookies.csv", 100, 5);
+        IngestManifest reloaded = IngestManifest.load(spool);
+
+        // Assert
+        assertTrue(reloaded.isCurrent("cookies.csv", 100, 5));
+        assertFalse(reloaded.isCurrent("cookies.csv", 120, 5));
+        assertFalse(reloaded.isCurrent("other.csv", 100, 5));
+    }
+
+    private void writeLog(String name, String... cookies) throws IOException {
+        StringBuilder log = new StringBuilder("cookie,timestamp\n");
+        for (String cookie : cookies) {
+            log.append(cookie).append(',').append(DATE).append("T12:00:00+00:00\n");
+        }
+        Path temp = spool.resolve(name + ".part");
+        Files.writeString(temp, log);
+        Files.move(temp, spool.resolve(name));
+    }
+
+    private static void awaitCount(SpoolWatcher watcher, String cookie, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + EVENT_TIMEOUT_MILLIS;
+        while (watcher.countsFor(DATE).getCount(cookie) != count) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for " + cookie + " to reach " + count);
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.euan.cookieanalyser.simd;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+// Only built by the vector profile, and only loaded through ByteScanners once jdk.incubator.vector is known to be in
+// the boot layer
+public class VectorByteScanner implements ByteScanner {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    // A mask only converts to a long bitset when there are no more lanes than bits
+    private static final boolean MASK_FITS_LONG = SPECIES.length() <= Long.SIZE;
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public int indexOf(byte[] buffer, int from, int to, byte target) {
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            VectorMask<Byte> matches = ByteVector.fromArray(SPECIES, buffer, i).eq(target);
+            if (matches.anyTrue()) {
+                return i + matches.firstTrue();
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int findAll(byte[] buffer, int from, int to, byte target, int[] positions) {
+        int found = 0;
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            VectorMask<Byte> mask = ByteVector.fromArray(SPECIES, buffer, i).eq(target);
+            if (!mask.anyTrue()) {
+                continue;
+            }
+            if (MASK_FITS_LONG) {
+                long matches = mask.toLong();
+                while (matches != 0) {
+                    if (found == positions.length) {
+                        return found;
+                    }
+                    positions[found++] = i + Long.numberOfTrailingZeros(matches);
+                    matches &= matches - 1;
+                }
+            } else {
+                for (int lane = mask.firstTrue(); lane < SPECIES.length(); lane++) {
+                    if (buffer[i + lane] == target) {
+                        if (found == positions.length) {
+                            return found;
+                        }
+                        positions[found++] = i + lane;
+                    }
+                }
+            }
+        }
+        for (; i < to && found < positions.length; i++) {
+            if (buffer[i] == target) {
+                positions[found++] = i;
+            }
+        }
+        return found;
+    }
+
+    // Date prefixes are shorter than a vector, so compare them eight byte lanes at a time within a long
+    @Override
+    public boolean regionEquals(byte[] buffer, int offset, byte[] expected, int length) {
+        int i = 0;
+        if (offset + length <= buffer.length) {
+            for (; i + Long.BYTES <= length; i += Long.BYTES) {
+                if ((long) LONG_VIEW.get(buffer, offset + i) != (long) LONG_VIEW.get(expected, i)) {
+                    return false;
+                }
+            }
+        }
+        for (; i < length; i++) {
+            if (buffer[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}